@@ -14,8 +14,10 @@
 package io.nats.examples.autobench;
 
 import io.nats.client.Options;
+import io.nats.examples.standin.StandInServer;
 
 import javax.net.ssl.SSLContext;
+import java.io.IOException;
 import java.security.Provider;
 import java.security.Security;
 import java.time.Duration;
@@ -34,13 +36,15 @@ import java.util.concurrent.atomic.AtomicBoolean;
 public class NatsAutoBench {
     static final String usageString =
             "\nUsage: java -cp <classpath> NatsAutoBench" +
-                    "\n[serverURL] [help] [tiny|small|med|large] [conscrypt] [jsfile]" +
+                    "\n[serverURL|standin] [help] [tiny|small|med|large] [conscrypt] [jsfile]" +
                     "\n[PubOnly] [PubSub] [PubDispatch] [ReqReply] [Latency] " +
                     "\n[JsPubSync] [JsPubAsync] [JsSub] [JsPubRounds]" +
                     "[-lcsv <filespec>] \n\n"
             + "If no specific test name(s) are supplied all will be run, otherwise only supplied tests will be run."
             + "\n\nUse tls:// or opentls:// to require tls, via the Default SSLContext\n"
-            + "\n\ntiny, small and med reduce the number of messages used for tests, which can help on slower machines\n";
+            + "\n\ntiny, small and med reduce the number of messages used for tests, which can help on slower machines\n"
+            + "\nstandin runs against an in-process stand-in server instead of a nats-server, measuring only the client."
+            + "\nIt acknowledges JetStream publishes but doesn't store messages, so JsSub is skipped unless asked for.\n";
 
     public static void main(String[] args) {
 
@@ -53,6 +57,18 @@ public class NatsAutoBench {
 
         Arguments a = readArgs(args);
 
+        StandInServer standIn = null;
+        if (a.standIn) {
+            try {
+                standIn = new StandInServer();
+            } catch (IOException e) {
+                System.out.println("Could not start the stand-in server " + e.getMessage());
+                System.exit(-1);
+            }
+            a.server = standIn.getURI();
+            System.out.println("Using an in-process stand-in server, results measure the client only");
+        }
+
         System.out.printf("Connecting to NATS server at %s\n", a.server);
 
         try {
@@ -131,6 +147,10 @@ public class NatsAutoBench {
                                 AutoBenchmark.humanBytes(Runtime.getRuntime().maxMemory()));
         } catch (Exception exp) {
             exp.printStackTrace();
+        } finally {
+            if (standIn != null) {
+                standIn.close();
+            }
         }
     }
 
@@ -163,7 +183,8 @@ public class NatsAutoBench {
         }
 
         AtomicBoolean jsPubSyncSaveForJsSub = new AtomicBoolean(false);
-        AtomicBoolean jsPubAsyncSaveForJsSub = new AtomicBoolean(a.allTests);
+        boolean allJsSub = a.allTests && !a.standIn; // the stand-in doesn't store messages to subscribe to
+        AtomicBoolean jsPubAsyncSaveForJsSub = new AtomicBoolean(allJsSub);
 
         if (!a.allTests && a.jsSub) {
             if (a.jsPubAsync || !a.jsPubSync) {
@@ -185,7 +206,7 @@ public class NatsAutoBench {
                     (msize, mcnt) -> new JsPubBenchmark("JsPubAsync " + msize, mcnt, msize, a.jsFile, false, jsPubAsyncSaveForJsSub.get()));
         }
 
-        if (a.allTests || a.jsSub) {
+        if (allJsSub || a.jsSub) {
             addTests(a.baseMsgs, a.maxSize, tests, sizes, msgsMultiple,
                     (msize, mcnt) -> new JsSubBenchmark("JsSub " + msize, mcnt, msize));
         }
@@ -279,6 +300,7 @@ public class NatsAutoBench {
     static class Arguments {
         String server = Options.DEFAULT_URL;
         boolean conscrypt = false;
+        boolean standIn = false;
         int baseMsgs = 100_000;
         int latencyMsgs = 5_000;
         long maxSize = 8192;
@@ -305,6 +327,9 @@ public class NatsAutoBench {
                     case "conscrypt":
                         a.conscrypt = true;
                         break;
+                    case "standin":
+                        a.standIn = true;
+                        break;
                     case "large":
                         a.baseMsgs = 500_000;
                         a.latencyMsgs = 25_000;
@@ -46,6 +46,11 @@ class ArgumentBuilder {
         return add("s", server);
     }
 
+    ArgumentBuilder standIn() {
+        sb.append("-standin ");
+        return this;
+    }
+
     ArgumentBuilder reportFrequency(int reportFrequency) {
         return add("rf", reportFrequency);
     }
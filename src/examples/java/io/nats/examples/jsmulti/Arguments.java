@@ -29,6 +29,7 @@ class Arguments{
 
     String action;
     String server = Options.DEFAULT_URL;
+    boolean standIn = false;
     int reportFrequency = 1000;
     String subject;
     int messageCount = 1_000_000;
@@ -64,7 +65,7 @@ class Arguments{
     public String toString() {
         String s = "JetStream Multi-Tool Run Config:"
                 + "\n  action (-a):              " + action
-                + "\n  server (-s):              " + (server == null ? Options.DEFAULT_URL : server)
+                + "\n  server (-s):              " + (standIn ? "in-process stand-in (-standin)" : server == null ? Options.DEFAULT_URL : server)
                 + "\n  report frequency (-rf):   " + (reportFrequency == Integer.MAX_VALUE ? "no reporting" : "" + reportFrequency)
                 + "\n  subject (-u):             " + subject
                 + "\n  message count (-m):       " + messageCount
@@ -107,6 +108,9 @@ class Arguments{
                     case "-s":
                         server = asString(args, ++x);
                         break;
+                    case "-standin":
+                        standIn = true;
+                        break;
                     case "-a":
                         action = asString(args, ++x).toLowerCase();
                         break;
@@ -170,6 +174,10 @@ class Arguments{
             error("Queue subscribing requires multiple threads!");
         }
 
+        if (standIn && !contains(PUB_ACTIONS, action)) {
+            error("The stand-in server only supports publish actions!");
+        }
+
         try {
             new Options.Builder().build().createURIForServer(server);
         } catch (URISyntaxException e) {
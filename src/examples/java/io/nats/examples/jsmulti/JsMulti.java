@@ -16,6 +16,7 @@ package io.nats.examples.jsmulti;
 import io.nats.client.*;
 import io.nats.client.api.ConsumerConfiguration;
 import io.nats.client.api.PublishAck;
+import io.nats.examples.standin.StandInServer;
 
 import java.time.Duration;
 import java.util.ArrayList;
@@ -35,6 +36,25 @@ public class JsMulti {
     }
 
     public static List<Stats> run(Arguments a) {
+        if (!a.standIn) {
+            return runActions(a);
+        }
+
+        try (StandInServer standIn = new StandInServer()) {
+            standIn.addStream("jsmulti", a.subject);
+            a.server = standIn.getURI();
+            return runActions(a);
+        }
+        catch (Exception e) {
+            //noinspection ThrowablePrintedToSystemOut
+            System.out.println(e);
+            e.printStackTrace();
+            System.exit(-1);
+            return null;
+        }
+    }
+
+    private static List<Stats> runActions(Arguments a) {
         try {
             if (a.threads > 1) {
                 if (a.connShared) {
@@ -41,6 +41,9 @@ public class Usage {
                     + "\n                    Requires 2 or more threads"
                     + "\n---------------------------------------------------------------------------------------"
                     + "\n-s server url (string), optional, defaults to nats://localhost:4222"
+                    + "\n-standin run against an in-process stand-in server instead, measuring only the client."
+                    + "\n     Publish actions only, the stand-in acknowledges JetStream publishes to the subject"
+                    + "\n     but doesn't store messages."
                     + "\n-rf report frequency (number) how often to print progress, defaults to 1000 messages."
                     + "\n    <= 0 for no reporting. Reporting time is excluded from timings"
                     + "\n---------------------------------------------------------------------------------------"
@@ -0,0 +1,854 @@
+// Copyright 2021 The NATS Authors
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package io.nats.examples.standin;
+
+import io.nats.client.NUID;
+import io.nats.client.Options;
+import io.nats.client.support.JsonUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.time.Instant;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+import static io.nats.client.support.ApiConstants.*;
+import static io.nats.client.support.JsonUtils.*;
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * An in-process stand-in for nats-server, so benchmarks and soak tests can measure the client
+ * without a real server and run where one can't be started.
+ *
+ * <p>The stand-in speaks the client protocol over a loopback socket: INFO, CONNECT, PUB, HPUB, SUB,
+ * UNSUB, MSG, HMSG, PING and PONG. Messages are routed by subject, including wildcards, queue groups
+ * and auto-unsubscribe, and a request nobody is subscribed to gets a no responders status.
+ *
+ * <p>JetStream support is only what a publisher needs. Streams are created and deleted through the
+ * JetStream API or with {@link #addStream(String, String...) addStream}, and a publish to a subject
+ * a stream captures is acknowledged with the stream's next sequence. Nothing is stored, so consumers,
+ * and any other JetStream API, get an error response.
+ *
+ * <p>Each client has its own writer thread. Publishers only copy messages into a subscriber's
+ * buffer, so a subscriber that reads slowly holds up nobody else. A subscriber that falls more
+ * than {@link #MAX_PENDING_SIZE} bytes behind is disconnected as a slow consumer.
+ *
+ * <p>There is no authentication, TLS, verbose mode or clustering.
+ */
+public class StandInServer implements AutoCloseable {
+
+    public static final String SERVER_VERSION = "2.2.0";
+    public static final int MAX_PAYLOAD_SIZE = 1024 * 1024;
+    public static final int MAX_PENDING_SIZE = 64 * 1024 * 1024;
+
+    static final String JS_API_PREFIX = "$JS.API.";
+    static final String STREAM_CREATE = "STREAM.CREATE.";
+    static final String STREAM_DELETE = "STREAM.DELETE.";
+    static final String STREAM_INFO = "STREAM.INFO.";
+
+    static final int READ_BUFFER_SIZE = 64 * 1024;
+    static final int WRITE_BUFFER_SIZE = 64 * 1024;
+    static final int MAX_CACHED_MATCHES = 10_000;
+    static final long PROTOCOL_ERROR_DRAIN_MILLIS = 1000;
+
+    private static final byte[] CRLF = {'\r', '\n'};
+    private static final byte[] NO_RESPONDERS = "NATS/1.0 503\r\n\r\n".getBytes(US_ASCII);
+    private static final Pattern NO_RESPONDERS_RE = boolean_pattern("no_responders");
+    private static final Match NO_MATCH = new Match(-1, new Subscription[0], new Subscription[0][], null);
+
+    private final ServerSocket serverSocket;
+    private final String serverId;
+    private final Thread acceptThread;
+    private final AtomicBoolean running;
+    private final AtomicInteger nextClientId;
+    private final Set<Client> clients;
+    private final List<Subscription> subscriptions;
+    private final Map<String, Stream> streams;
+    private final Map<String, Match> matches;
+    private final AtomicLong version;
+
+    /**
+     * Start a stand-in server on an ephemeral loopback port.
+     * @throws IOException if the port can't be bound
+     */
+    public StandInServer() throws IOException {
+        this(0);
+    }
+
+    /**
+     * Start a stand-in server on the given loopback port.
+     * @param port the port, 0 for an ephemeral port
+     * @throws IOException if the port can't be bound
+     */
+    public StandInServer(int port) throws IOException {
+        this.serverSocket = new ServerSocket(port, 128, InetAddress.getByName("127.0.0.1"));
+        this.serverId = "STANDIN_" + NUID.nextGlobal();
+        this.running = new AtomicBoolean(true);
+        this.nextClientId = new AtomicInteger();
+        this.clients = ConcurrentHashMap.newKeySet();
+        this.subscriptions = new CopyOnWriteArrayList<>();
+        this.streams = new ConcurrentHashMap<>();
+        this.matches = new ConcurrentHashMap<>();
+        this.version = new AtomicLong();
+
+        this.acceptThread = new Thread(this::accept, "standin-accept");
+        this.acceptThread.setDaemon(true);
+        this.acceptThread.start();
+    }
+
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    public String getURI() {
+        return "nats://127.0.0.1:" + getPort();
+    }
+
+    /**
+     * Create a stream without going through the JetStream API, publishes to its subjects are acknowledged.
+     * @param name the stream name
+     * @param subjects the subjects, the stream name when none are given
+     */
+    public void addStream(String name, String... subjects) {
+        List<String> list = subjects.length == 0 ? Collections.singletonList(name) : Arrays.asList(subjects);
+        StringBuilder sb = beginJson();
+        addField(sb, NAME, name);
+        addStrings(sb, SUBJECTS, list);
+        addField(sb, STORAGE, "memory");
+        putStream(new Stream(name, list, endJson(sb).toString()));
+    }
+
+    @Override
+    public void close() {
+        if (running.compareAndSet(true, false)) {
+            try {
+                serverSocket.close();
+            } catch (IOException e) {
+                // closing anyway
+            }
+            for (Client client : clients) {
+                client.close();
+            }
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : Options.DEFAULT_PORT;
+        StandInServer server = new StandInServer(port);
+        System.out.println("Stand-in server listening at " + server.getURI() + ", ctrl-c to stop");
+        server.acceptThread.join();
+    }
+
+    private void accept() {
+        while (running.get() && !serverSocket.isClosed()) {
+            try {
+                Socket socket = serverSocket.accept();
+                socket.setTcpNoDelay(true);
+                Client client = new Client(socket, nextClientId.incrementAndGet());
+                clients.add(client);
+                client.start();
+            } catch (IOException e) {
+                // the loop exits once the server socket is closed
+            }
+        }
+    }
+
+    // ----------------------------------------------------------------------------------------------------
+    // Routing
+    // ----------------------------------------------------------------------------------------------------
+    private int route(Client from, Match match, String subject, String replyTo, byte[] src, int offset, int hdrLen, int totLen) {
+        int delivered = 0;
+        for (Subscription sub : match.plain) {
+            if (sub.deliver(from, subject, replyTo, src, offset, hdrLen, totLen)) {
+                delivered++;
+            }
+        }
+        for (Subscription[] group : match.groups) {
+            Subscription sub = group[ThreadLocalRandom.current().nextInt(group.length)];
+            if (sub.deliver(from, subject, replyTo, src, offset, hdrLen, totLen)) {
+                delivered++;
+            }
+        }
+        return delivered;
+    }
+
+    private void respond(Client from, String replyTo, String json) {
+        byte[] data = json.getBytes(UTF_8);
+        route(from, match(replyTo), replyTo, null, data, 0, 0, data.length);
+    }
+
+    // A status only goes back to the requester, not to everyone listening on the reply subject
+    private void respondNoResponders(Client from, String replyTo) {
+        Match match = match(replyTo);
+        for (Subscription sub : match.plain) {
+            if (sub.client == from && sub.deliver(from, replyTo, null, NO_RESPONDERS, 0, NO_RESPONDERS.length, NO_RESPONDERS.length)) {
+                return;
+            }
+        }
+    }
+
+    private Match match(String subject) {
+        Match match = matches.get(subject);
+        if (match == null || match.version != version.get()) {
+            match = computeMatch(subject);
+            if (matches.size() >= MAX_CACHED_MATCHES) {
+                matches.clear();
+            }
+            matches.put(subject, match);
+        }
+        return match;
+    }
+
+    private Match computeMatch(String subject) {
+        long v = version.get();
+        String[] tokens = tokenize(subject);
+        if (tokens == null) {
+            return NO_MATCH;
+        }
+
+        List<Subscription> plain = new ArrayList<>();
+        Map<String, List<Subscription>> groups = new LinkedHashMap<>();
+        for (Subscription sub : subscriptions) {
+            if (matches(sub.tokens, tokens)) {
+                if (sub.queue == null) {
+                    plain.add(sub);
+                } else {
+                    groups.computeIfAbsent(sub.queue, q -> new ArrayList<>()).add(sub);
+                }
+            }
+        }
+
+        Stream captured = null;
+        for (Stream stream : streams.values()) {
+            for (String[] pattern : stream.subjects) {
+                if (matches(pattern, tokens)) {
+                    captured = stream;
+                    break;
+                }
+            }
+        }
+
+        Subscription[][] groupArray = new Subscription[groups.size()][];
+        int g = 0;
+        for (List<Subscription> group : groups.values()) {
+            groupArray[g++] = group.toArray(new Subscription[0]);
+        }
+        return new Match(v, plain.toArray(new Subscription[0]), groupArray, captured);
+    }
+
+    static String[] tokenize(String subject) {
+        if (subject.isEmpty() || subject.startsWith(".") || subject.endsWith(".")) {
+            return null;
+        }
+        return subject.split("\\.");
+    }
+
+    static boolean matches(String[] pattern, String[] tokens) {
+        for (int i = 0; i < pattern.length; i++) {
+            String p = pattern[i];
+            if (p.equals(">")) {
+                return tokens.length > i;
+            }
+            if (i >= tokens.length || (!p.equals("*") && !p.equals(tokens[i]))) {
+                return false;
+            }
+        }
+        return pattern.length == tokens.length;
+    }
+
+    private void addSubscription(Subscription sub) {
+        subscriptions.add(sub);
+        version.incrementAndGet();
+    }
+
+    private void removeSubscription(Subscription sub) {
+        sub.removed = true;
+        subscriptions.remove(sub);
+        version.incrementAndGet();
+    }
+
+    private void putStream(Stream stream) {
+        streams.put(stream.name, stream);
+        version.incrementAndGet();
+    }
+
+    // ----------------------------------------------------------------------------------------------------
+    // JetStream
+    // ----------------------------------------------------------------------------------------------------
+    private void acknowledge(Client from, Stream stream, String replyTo) {
+        long seq = stream.lastSeq.incrementAndGet();
+        if (replyTo != null) {
+            StringBuilder sb = beginJson();
+            addField(sb, STREAM, stream.name);
+            addField(sb, SEQ, seq);
+            respond(from, replyTo, endJson(sb).toString());
+        }
+    }
+
+    private void handleApi(Client from, String subject, String replyTo, String body) {
+        if (replyTo == null) {
+            return;
+        }
+
+        String api = subject.substring(JS_API_PREFIX.length());
+        if (api.startsWith(STREAM_CREATE)) {
+            String name = api.substring(STREAM_CREATE.length());
+            List<String> subjects = JsonUtils.getStringList(SUBJECTS, body);
+            if (subjects.isEmpty()) {
+                subjects = Collections.singletonList(name);
+            }
+            Stream stream = new Stream(name, subjects, body);
+            putStream(stream);
+            respond(from, replyTo, streamInfo("stream_create_response", stream));
+        }
+        else if (api.startsWith(STREAM_INFO)) {
+            Stream stream = streams.get(api.substring(STREAM_INFO.length()));
+            respond(from, replyTo, stream == null ? streamNotFound() : streamInfo("stream_info_response", stream));
+        }
+        else if (api.startsWith(STREAM_DELETE)) {
+            Stream stream = streams.remove(api.substring(STREAM_DELETE.length()));
+            version.incrementAndGet();
+            if (stream == null) {
+                respond(from, replyTo, streamNotFound());
+            }
+            else {
+                StringBuilder sb = beginJson();
+                addField(sb, TYPE, "io.nats.jetstream.api.v1.stream_delete_response");
+                addField(sb, SUCCESS, true);
+                respond(from, replyTo, endJson(sb).toString());
+            }
+        }
+        else {
+            respond(from, replyTo, error(501, 10000, "api " + api + " is not supported by the stand-in server"));
+        }
+    }
+
+    private static String streamInfo(String type, Stream stream) {
+        StringBuilder state = beginJson();
+        addField(state, MESSAGES, stream.lastSeq.get());
+        addField(state, BYTES, 0);
+        addField(state, FIRST_SEQ, stream.lastSeq.get() == 0 ? 0 : 1);
+        addField(state, LAST_SEQ, stream.lastSeq.get());
+        addField(state, CONSUMER_COUNT, 0);
+        String stateJson = endJson(state).toString();
+
+        StringBuilder sb = beginJson();
+        addField(sb, TYPE, "io.nats.jetstream.api.v1." + type);
+        addField(sb, CONFIG, () -> stream.config);
+        addField(sb, CREATED, stream.created);
+        addField(sb, STATE, () -> stateJson);
+        return endJson(sb).toString();
+    }
+
+    private static String streamNotFound() {
+        return error(404, 10059, "stream not found");
+    }
+
+    private static String error(int code, int errCode, String description) {
+        StringBuilder err = beginJson();
+        addField(err, CODE, code);
+        addField(err, ERR_CODE, errCode);
+        addField(err, DESCRIPTION, description);
+        String errJson = endJson(err).toString();
+
+        StringBuilder sb = beginJson();
+        addField(sb, ERROR, () -> errJson);
+        return endJson(sb).toString();
+    }
+
+    // ----------------------------------------------------------------------------------------------------
+    // Model
+    // ----------------------------------------------------------------------------------------------------
+    static class Match {
+        final long version;
+        final Subscription[] plain;
+        final Subscription[][] groups;
+        final Stream stream;
+
+        Match(long version, Subscription[] plain, Subscription[][] groups, Stream stream) {
+            this.version = version;
+            this.plain = plain;
+            this.groups = groups;
+            this.stream = stream;
+        }
+    }
+
+    static class Stream {
+        final String name;
+        final String[][] subjects;
+        final String config;
+        final String created;
+        final AtomicLong lastSeq;
+
+        Stream(String name, List<String> subjects, String config) {
+            this.name = name;
+            this.subjects = new String[subjects.size()][];
+            for (int i = 0; i < this.subjects.length; i++) {
+                this.subjects[i] = subjects.get(i).split("\\.");
+            }
+            this.config = config;
+            this.created = DateTimeFormatter.ISO_INSTANT.format(Instant.now());
+            this.lastSeq = new AtomicLong();
+        }
+    }
+
+    static class Subscription {
+        final Client client;
+        final String[] tokens;
+        final String queue;
+        final String sid;
+        final AtomicLong delivered;
+        volatile long max;
+        volatile boolean removed;
+
+        Subscription(Client client, String subject, String queue, String sid) {
+            this.client = client;
+            this.tokens = subject.split("\\.");
+            this.queue = queue;
+            this.sid = sid;
+            this.delivered = new AtomicLong();
+        }
+
+        boolean deliver(Client from, String subject, String replyTo, byte[] src, int offset, int hdrLen, int totLen) {
+            if (removed) {
+                return false;
+            }
+            long count = delivered.incrementAndGet();
+            long limit = max;
+            if (limit > 0 && count > limit) {
+                return false;
+            }
+            client.writeMessage(subject, sid, replyTo, src, offset, hdrLen, totLen);
+            from.dirty.add(client);
+            if (limit > 0 && count == limit) {
+                client.server().removeSubscription(this);
+                client.subs.remove(sid, this);
+            }
+            return true;
+        }
+    }
+
+    // ----------------------------------------------------------------------------------------------------
+    // Connections
+    // ----------------------------------------------------------------------------------------------------
+    class Client implements Runnable {
+        final Socket socket;
+        final int id;
+        final Map<String, Subscription> subs;
+        // clients written to while processing the current read, flushed once the read is handled
+        final Set<Client> dirty;
+        private final InputStream in;
+        private final OutputStream out;
+        // guards the write buffer, which any reading thread appends to and the writer thread takes
+        private final Object writeLock;
+        private final AtomicBoolean closed;
+        private byte[] readBuffer;
+        private int start;
+        private int end;
+        private byte[] writeBuffer;
+        private int writePosition;
+        private byte[] sendBuffer;
+        private boolean sending;
+        private boolean headers;
+        private boolean noResponders;
+
+        Client(Socket socket, int id) throws IOException {
+            this.socket = socket;
+            this.id = id;
+            this.subs = new ConcurrentHashMap<>();
+            this.dirty = Collections.newSetFromMap(new IdentityHashMap<>());
+            this.in = socket.getInputStream();
+            this.out = socket.getOutputStream();
+            this.writeLock = new Object();
+            this.closed = new AtomicBoolean();
+            this.readBuffer = new byte[READ_BUFFER_SIZE];
+            this.writeBuffer = new byte[WRITE_BUFFER_SIZE];
+            this.sendBuffer = new byte[WRITE_BUFFER_SIZE];
+        }
+
+        StandInServer server() {
+            return StandInServer.this;
+        }
+
+        void start() {
+            Thread writer = new Thread(this::write, "standin-writer-" + id);
+            writer.setDaemon(true);
+            writer.start();
+            Thread reader = new Thread(this, "standin-client-" + id);
+            reader.setDaemon(true);
+            reader.start();
+        }
+
+        @Override
+        public void run() {
+            try {
+                sendInfo();
+                while (running.get() && !closed.get()) {
+                    prepareRead();
+                    int read = in.read(readBuffer, end, readBuffer.length - end);
+                    if (read < 0) {
+                        break;
+                    }
+                    end += read;
+                    process();
+                    flushDirty();
+                }
+            } catch (IOException | RuntimeException e) {
+                // the client went away or broke the protocol, either way it's done
+            } finally {
+                close();
+            }
+        }
+
+        void close() {
+            if (closed.compareAndSet(false, true)) {
+                clients.remove(this);
+                for (Subscription sub : subs.values()) {
+                    removeSubscription(sub);
+                }
+                subs.clear();
+                try {
+                    socket.close();
+                } catch (IOException e) {
+                    // closing anyway
+                }
+                synchronized (writeLock) {
+                    writeLock.notifyAll();
+                }
+            }
+        }
+
+        // The writer thread swaps the pending bytes for its spare buffer and writes them outside
+        // the lock, so the threads appending to this client never wait on its socket.
+        private void write() {
+            try {
+                while (true) {
+                    byte[] buffer;
+                    int length;
+                    synchronized (writeLock) {
+                        sending = false;
+                        writeLock.notifyAll();
+                        while (writePosition == 0 && !closed.get()) {
+                            writeLock.wait();
+                        }
+                        if (closed.get()) {
+                            return;
+                        }
+                        buffer = writeBuffer;
+                        length = writePosition;
+                        writeBuffer = sendBuffer;
+                        writePosition = 0;
+                        sendBuffer = buffer;
+                        sending = true;
+                    }
+                    out.write(buffer, 0, length);
+                    out.flush();
+                }
+            } catch (IOException | InterruptedException e) {
+                // the socket was closed
+            } finally {
+                close();
+            }
+        }
+
+        private void sendInfo() throws IOException {
+            StringBuilder sb = beginJsonPrefixed("INFO");
+            addField(sb, SERVER_ID, serverId);
+            addField(sb, SERVER_NAME, "standin");
+            addField(sb, VERSION, SERVER_VERSION);
+            addField(sb, HOST, "127.0.0.1");
+            addField(sb, PORT, getPort());
+            addField(sb, HEADERS, true);
+            addField(sb, MAX_PAYLOAD, MAX_PAYLOAD_SIZE);
+            addField(sb, PROTO, 1);
+            addField(sb, JETSTREAM, true);
+            addField(sb, CLIENT_ID, id);
+            addField(sb, CLIENT_IP, "127.0.0.1");
+            synchronized (writeLock) {
+                append(endJson(sb).toString());
+                append(CRLF, 0, CRLF.length);
+            }
+            flush();
+        }
+
+        // Make room at the end of the read buffer, moving what's left of a partial
+        // protocol line or message to the front and growing the buffer for big payloads.
+        private void prepareRead() throws IOException {
+            if (start == end) {
+                start = 0;
+                end = 0;
+                return;
+            }
+            if (end < readBuffer.length) {
+                return;
+            }
+            int remaining = end - start;
+            if (start > 0) {
+                System.arraycopy(readBuffer, start, readBuffer, 0, remaining);
+                start = 0;
+                end = remaining;
+            }
+            if (end == readBuffer.length) {
+                if (readBuffer.length > MAX_PAYLOAD_SIZE + READ_BUFFER_SIZE) {
+                    protocolError("Maximum Payload Violation");
+                }
+                readBuffer = Arrays.copyOf(readBuffer, readBuffer.length * 2);
+            }
+        }
+
+        private void process() throws IOException {
+            while (start < end) {
+                int lf = indexOf('\n', start);
+                if (lf < 0) {
+                    return;
+                }
+                int lineEnd = (lf > start && readBuffer[lf - 1] == '\r') ? lf - 1 : lf;
+                int next = lf + 1;
+
+                String[] args = split(start, lineEnd);
+                String op = args.length == 0 ? "" : args[0].toUpperCase();
+                switch (op) {
+                    case "PUB":
+                    case "HPUB": {
+                        boolean hpub = op.equals("HPUB");
+                        int argCount = hpub ? 4 : 3;
+                        if (args.length != argCount && args.length != argCount + 1) {
+                            protocolError("Unknown Protocol Operation");
+                        }
+                        int hdrLen = hpub ? parseSize(args[args.length - 2]) : 0;
+                        int totLen = parseSize(args[args.length - 1]);
+                        if (totLen > MAX_PAYLOAD_SIZE || hdrLen > totLen) {
+                            protocolError("Maximum Payload Violation");
+                        }
+                        if (end - next < totLen + 2) {
+                            return; // wait for the rest of the message
+                        }
+                        String replyTo = args.length == argCount + 1 ? args[2] : null;
+                        publish(args[1], replyTo, next, hdrLen, totLen);
+                        next += totLen + 2;
+                        break;
+                    }
+                    case "SUB":
+                        if (args.length != 3 && args.length != 4) {
+                            protocolError("Unknown Protocol Operation");
+                        }
+                        subscribe(args[1], args.length == 4 ? args[2] : null, args[args.length - 1]);
+                        break;
+                    case "UNSUB":
+                        if (args.length != 2 && args.length != 3) {
+                            protocolError("Unknown Protocol Operation");
+                        }
+                        unsubscribe(args[1], args.length == 3 ? parseSize(args[2]) : 0);
+                        break;
+                    case "PING":
+                        synchronized (writeLock) {
+                            append("PONG\r\n");
+                        }
+                        dirty.add(this);
+                        break;
+                    case "PONG":
+                        break;
+                    case "CONNECT": {
+                        String json = new String(readBuffer, start, lineEnd - start, UTF_8);
+                        headers = JsonUtils.readBoolean(json, HEADERS_RE);
+                        noResponders = JsonUtils.readBoolean(json, NO_RESPONDERS_RE);
+                        break;
+                    }
+                    default:
+                        protocolError("Unknown Protocol Operation");
+                }
+                start = next;
+            }
+        }
+
+        private void publish(String subject, String replyTo, int offset, int hdrLen, int totLen) {
+            if (subject.startsWith(JS_API_PREFIX)) {
+                handleApi(this, subject, replyTo, new String(readBuffer, offset + hdrLen, totLen - hdrLen, UTF_8));
+                return;
+            }
+
+            Match match = match(subject);
+            int delivered = route(this, match, subject, replyTo, readBuffer, offset, hdrLen, totLen);
+            if (match.stream != null) {
+                acknowledge(this, match.stream, replyTo);
+            }
+            else if (delivered == 0 && replyTo != null && noResponders) {
+                respondNoResponders(this, replyTo);
+            }
+        }
+
+        private void subscribe(String subject, String queue, String sid) {
+            Subscription sub = new Subscription(this, subject, queue, sid);
+            Subscription old = subs.put(sid, sub);
+            if (old != null) {
+                removeSubscription(old);
+            }
+            addSubscription(sub);
+        }
+
+        private void unsubscribe(String sid, int max) {
+            Subscription sub = subs.get(sid);
+            if (sub == null) {
+                return;
+            }
+            if (max > 0 && sub.delivered.get() < max) {
+                sub.max = max;
+            }
+            else {
+                subs.remove(sid);
+                removeSubscription(sub);
+            }
+        }
+
+        void writeMessage(String subject, String sid, String replyTo, byte[] src, int offset, int hdrLen, int totLen) {
+            // a client that didn't ask for headers gets the payload only
+            boolean withHeaders = hdrLen > 0 && headers;
+            int skip = withHeaders ? 0 : hdrLen;
+            synchronized (writeLock) {
+                if (closed.get()) {
+                    return;
+                }
+                append(withHeaders ? "HMSG " : "MSG ");
+                append(subject);
+                append(" ");
+                append(sid);
+                append(" ");
+                if (replyTo != null) {
+                    append(replyTo);
+                    append(" ");
+                }
+                if (withHeaders) {
+                    append(Integer.toString(hdrLen));
+                    append(" ");
+                }
+                append(Integer.toString(totLen - skip));
+                append(CRLF, 0, CRLF.length);
+                append(src, offset + skip, totLen - skip);
+                append(CRLF, 0, CRLF.length);
+                if (writePosition > MAX_PENDING_SIZE) {
+                    close(); // slow consumer
+                }
+                else if (writePosition >= WRITE_BUFFER_SIZE) {
+                    writeLock.notifyAll();
+                }
+            }
+        }
+
+        private void flushDirty() {
+            for (Client client : dirty) {
+                client.flush();
+            }
+            dirty.clear();
+        }
+
+        // Hands what has been appended to the writer thread
+        void flush() {
+            synchronized (writeLock) {
+                writeLock.notifyAll();
+            }
+        }
+
+        private void append(String s) {
+            int len = s.length();
+            ensureWriteCapacity(len);
+            for (int i = 0; i < len; i++) {
+                writeBuffer[writePosition++] = (byte) s.charAt(i);
+            }
+        }
+
+        private void append(byte[] src, int offset, int len) {
+            ensureWriteCapacity(len);
+            System.arraycopy(src, offset, writeBuffer, writePosition, len);
+            writePosition += len;
+        }
+
+        private void ensureWriteCapacity(int len) {
+            if (writePosition + len > writeBuffer.length) {
+                writeBuffer = Arrays.copyOf(writeBuffer, Math.max(writeBuffer.length * 2, writePosition + len));
+            }
+        }
+
+        // Give the writer a moment to send the error before the connection is closed
+        private void protocolError(String message) throws IOException {
+            synchronized (writeLock) {
+                append("-ERR '" + message + "'\r\n");
+                writeLock.notifyAll();
+                long deadline = System.currentTimeMillis() + PROTOCOL_ERROR_DRAIN_MILLIS;
+                long wait;
+                while ((writePosition > 0 || sending) && !closed.get()
+                        && (wait = deadline - System.currentTimeMillis()) > 0) {
+                    try {
+                        writeLock.wait(wait);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        break;
+                    }
+                }
+            }
+            throw new IOException(message);
+        }
+
+        private int indexOf(char c, int from) {
+            for (int i = from; i < end; i++) {
+                if (readBuffer[i] == c) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        private String[] split(int from, int to) {
+            List<String> args = new ArrayList<>(5);
+            int i = from;
+            while (i < to) {
+                while (i < to && (readBuffer[i] == ' ' || readBuffer[i] == '\t')) {
+                    i++;
+                }
+                int tokenStart = i;
+                while (i < to && readBuffer[i] != ' ' && readBuffer[i] != '\t') {
+                    i++;
+                }
+                if (i > tokenStart) {
+                    args.add(new String(readBuffer, tokenStart, i - tokenStart, US_ASCII));
+                }
+            }
+            return args.toArray(new String[0]);
+        }
+
+        private int parseSize(String s) throws IOException {
+            try {
+                int size = Integer.parseInt(s);
+                if (size >= 0) {
+                    return size;
+                }
+            } catch (NumberFormatException e) {
+                // reported below
+            }
+            protocolError("Unknown Protocol Operation");
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,57 @@
+// Copyright 2021 The NATS Authors
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package io.nats.client;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Generates NUIDs from several threads at once, sharing one synchronized instance
+ * compared with the per thread instances behind nextGlobal.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Threads(4)
+public class NUIDContentionBenchmark {
+
+    private NUID shared;
+
+    @State(Scope.Thread)
+    public static class Buffer {
+        byte[] bytes = new byte[NUID.totalLen];
+    }
+
+    @Setup
+    public void setup() {
+        shared = new NUID();
+    }
+
+    @Benchmark
+    public String sharedInstance() {
+        return shared.next();
+    }
+
+    @Benchmark
+    public String global() {
+        return NUID.nextGlobal();
+    }
+
+    @Benchmark
+    public byte[] globalBytes(Buffer buffer) {
+        NUID.nextGlobal(buffer.bytes, 0);
+        return buffer.bytes;
+    }
+}
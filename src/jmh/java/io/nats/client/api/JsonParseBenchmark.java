@@ -0,0 +1,78 @@
+// Copyright 2021 The NATS Authors
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package io.nats.client.api;
+
+import io.nats.client.JetStreamApiException;
+import io.nats.client.Message;
+import io.nats.client.impl.NatsMessage;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parses the JetStream API responses a client sees most often: publish acks and stream and consumer info.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class JsonParseBenchmark {
+
+    static final String PUBLISH_ACK_JSON = "{\"stream\":\"test-stream\",\"seq\":42,\"domain\":\"hub\",\"duplicate\":false}";
+
+    static final String STREAM_INFO_JSON = "{\"type\":\"io.nats.jetstream.api.v1.stream_info_response\","
+        + "\"config\":{\"name\":\"test-stream\",\"subjects\":[\"sub0\",\"sub1\",\"x.>\"],\"retention\":\"limits\","
+        + "\"max_consumers\":1,\"max_msgs\":2,\"max_bytes\":3,\"discard\":\"old\",\"max_age\":100000000000,"
+        + "\"max_msg_size\":4,\"storage\":\"memory\",\"num_replicas\":5,\"duplicate_window\":120000000000,"
+        + "\"placement\":{\"cluster\":\"placementclstr\",\"tags\":[\"ptag1\",\"ptag2\"]}},"
+        + "\"created\":\"2021-01-25T20:09:10.6225191Z\","
+        + "\"state\":{\"messages\":11,\"bytes\":12,\"first_seq\":13,\"first_ts\":\"0001-01-01T00:00:00Z\","
+        + "\"last_seq\":14,\"last_ts\":\"0001-01-01T00:00:00Z\",\"consumer_count\":15},"
+        + "\"cluster\":{\"name\":\"clustername\",\"leader\":\"clusterleader\",\"replicas\":["
+        + "{\"name\":\"name0\",\"current\":true,\"offline\":true,\"active\":230000000000,\"lag\":3},"
+        + "{\"name\":\"name1\",\"current\":false,\"offline\":false,\"active\":240000000000,\"lag\":4}]},"
+        + "\"mirror\":{\"name\":\"mname\",\"lag\":16,\"active\":160000000000},"
+        + "\"sources\":[{\"name\":\"sname17\",\"lag\":17,\"active\":170000000000},"
+        + "{\"name\":\"sname18\",\"lag\":18,\"active\":180000000000}]}";
+
+    static final String CONSUMER_INFO_JSON = "{\"type\":\"io.nats.jetstream.api.v1.consumer_info_response\","
+        + "\"stream_name\":\"test-stream\",\"name\":\"test-consumer\",\"created\":\"2020-11-05T19:33:21.163377Z\","
+        + "\"config\":{\"durable_name\":\"test-consumer\",\"deliver_subject\":\"bar\",\"deliver_policy\":\"all\","
+        + "\"ack_policy\":\"all\",\"ack_wait\":30000000000,\"max_deliver\":10,\"replay_policy\":\"original\"},"
+        + "\"delivered\":{\"consumer_seq\":1,\"stream_seq\":2},\"ack_floor\":{\"consumer_seq\":3,\"stream_seq\":4},"
+        + "\"num_pending\":24,\"num_ack_pending\":42,\"num_redelivered\":42}";
+
+    private Message publishAckMessage;
+
+    @Setup
+    public void setup() {
+        publishAckMessage = new NatsMessage("_INBOX.reply", null, PUBLISH_ACK_JSON.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Benchmark
+    public PublishAck publishAck() throws IOException, JetStreamApiException {
+        return new PublishAck(publishAckMessage);
+    }
+
+    @Benchmark
+    public StreamInfo streamInfo() {
+        return new StreamInfo(STREAM_INFO_JSON);
+    }
+
+    @Benchmark
+    public ConsumerInfo consumerInfo() {
+        return new ConsumerInfo(CONSUMER_INFO_JSON);
+    }
+}
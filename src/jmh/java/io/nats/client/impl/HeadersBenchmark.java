@@ -0,0 +1,54 @@
+// Copyright 2021 The NATS Authors
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package io.nats.client.impl;
+
+import io.nats.client.support.ByteArrayBuilder;
+import io.nats.client.support.IncomingHeadersProcessor;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serializes headers for an outgoing HPUB and parses the header block of an incoming HMSG.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class HeadersBenchmark {
+
+    @Param({"1", "8"})
+    public int headerCount;
+
+    private Headers headers;
+    private byte[] serialized;
+
+    @Setup
+    public void setup() {
+        headers = new Headers();
+        for (int i = 0; i < headerCount; i++) {
+            headers.add("Header-Key-" + i, "header value " + i);
+        }
+        serialized = headers.getSerialized();
+    }
+
+    @Benchmark
+    public ByteArrayBuilder serialize() {
+        return headers.appendSerialized(new ByteArrayBuilder(headers.serializedLength()));
+    }
+
+    @Benchmark
+    public Headers parse() {
+        return new IncomingHeadersProcessor(serialized).getHeaders();
+    }
+}
@@ -0,0 +1,48 @@
+// Copyright 2021 The NATS Authors
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package io.nats.client.impl;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parses the JetStream ack subject of a message into its metadata, for each reply subject layout.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class JetStreamMetaDataBenchmark {
+
+    @Param({
+        "$JS.ACK.test-stream.test-consumer.1.2.3.1605139610113260000",
+        "$JS.ACK.test-stream.test-consumer.1.2.3.1605139610113260000.4",
+        "$JS.ACK.v2Domain.v2Hash.test-stream.test-consumer.1.2.3.1605139610113260000.4"
+    })
+    public String replyTo;
+
+    private NatsJetStreamMessage message;
+
+    @Setup
+    public void setup() {
+        message = new NatsJetStreamMessage();
+        message.subject = "bench.subject";
+        message.replyTo = replyTo;
+    }
+
+    @Benchmark
+    public NatsJetStreamMetaData parse() {
+        return new NatsJetStreamMetaData(message);
+    }
+}
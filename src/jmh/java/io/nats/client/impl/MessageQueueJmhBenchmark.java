@@ -0,0 +1,57 @@
+// Copyright 2021 The NATS Authors
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package io.nats.client.impl;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Single reader queue operations as used by the writer and by subscriptions.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class MessageQueueJmhBenchmark {
+
+    static final int MESSAGES_PER_ACCUMULATE = 100;
+
+    private MessageQueue queue;
+    private NatsMessage[] messages;
+
+    @Setup
+    public void setup() {
+        queue = new MessageQueue(true);
+        messages = new NatsMessage[MESSAGES_PER_ACCUMULATE];
+        for (int i = 0; i < messages.length; i++) {
+            messages[i] = new NatsMessage("bench.subject", null, new byte[16]);
+        }
+    }
+
+    @Benchmark
+    public NatsMessage pushPop() throws InterruptedException {
+        queue.push(messages[0]);
+        return queue.pop(null);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(MESSAGES_PER_ACCUMULATE)
+    public NatsMessage pushAccumulate() throws InterruptedException {
+        for (NatsMessage msg : messages) {
+            queue.push(msg);
+        }
+        return queue.accumulate(Long.MAX_VALUE, MESSAGES_PER_ACCUMULATE, Duration.ofMillis(1));
+    }
+}
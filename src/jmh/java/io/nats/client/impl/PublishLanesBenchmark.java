@@ -0,0 +1,97 @@
+// Copyright 2021 The NATS Authors
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package io.nats.client.impl;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how outgoing queue throughput scales with the number of publishing threads, for a single
+ * queue and for publish lanes. The benchmark threads push while one reader drains the queue with
+ * accumulate, the way the writer does. The queue is bounded, so pushes can't run ahead of the reader.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class PublishLanesBenchmark {
+
+    static final int HIGHWATER_MARK = 64 * 1024;
+
+    private static final byte[] BYTES = {'a'};
+
+    // 1 is the single queue
+    @Param({"1", "4", "16"})
+    public int lanes;
+
+    private OutgoingQueue queue;
+    private Thread reader;
+    private volatile boolean running;
+
+    @Setup
+    public void setup() {
+        queue = lanes == 1 ? new MessageQueue(true, HIGHWATER_MARK)
+                : new PublishLanes(lanes, HIGHWATER_MARK, false, null, 0, Duration.ofSeconds(5));
+        running = true;
+        reader = new Thread(this::drain, "publish-lanes-benchmark-reader");
+        reader.setDaemon(true);
+        reader.start();
+    }
+
+    @TearDown
+    public void tearDown() throws InterruptedException {
+        running = false;
+        reader.join();
+    }
+
+    private void drain() {
+        try {
+            while (running) {
+                NatsMessage cursor = queue.accumulate(64 * 1024, 1000, Duration.ofMillis(100));
+                while (cursor != null) {
+                    NatsMessage next = cursor.next;
+                    cursor.next = null;
+                    cursor = next;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    public boolean oneThread() {
+        return queue.push(new NatsMessage.ProtocolMessage(BYTES));
+    }
+
+    @Benchmark
+    @Threads(4)
+    public boolean fourThreads() {
+        return queue.push(new NatsMessage.ProtocolMessage(BYTES));
+    }
+
+    @Benchmark
+    @Threads(16)
+    public boolean sixteenThreads() {
+        return queue.push(new NatsMessage.ProtocolMessage(BYTES));
+    }
+
+    @Benchmark
+    @Threads(32)
+    public boolean thirtyTwoThreads() {
+        return queue.push(new NatsMessage.ProtocolMessage(BYTES));
+    }
+}
@@ -0,0 +1,80 @@
+// Copyright 2021 The NATS Authors
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package io.nats.client.impl;
+
+import io.nats.client.Options;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parses a buffer of MSG or HMSG protocol lines the way the reader does after a socket read.
+ * The connection is never opened, parsed messages have no subscription and are only counted.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ReaderParseBenchmark {
+
+    static final int MESSAGES_PER_READ = 100;
+
+    @Param({"MSG", "HMSG"})
+    public String op;
+
+    @Param({"16", "256", "4096"})
+    public int payloadSize;
+
+    private NatsConnectionReader reader;
+    private byte[] read;
+
+    @Setup
+    public void setup() throws IOException {
+        Options options = new Options.Builder().bufferSize(1024 * 1024).build();
+        reader = new NatsConnectionReader(new NatsConnection(options));
+
+        byte[] payload = new byte[payloadSize];
+        Arrays.fill(payload, (byte) 'x');
+        byte[] headers = "NATS/1.0\r\nkey:value\r\n\r\n".getBytes(StandardCharsets.US_ASCII);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (int i = 0; i < MESSAGES_PER_READ; i++) {
+            String line;
+            if (op.equals("HMSG")) {
+                line = "HMSG bench.subject." + i + " 1 _INBOX.reply " + headers.length + " " + (headers.length + payloadSize) + "\r\n";
+            } else {
+                line = "MSG bench.subject." + i + " 1 _INBOX.reply " + payloadSize + "\r\n";
+            }
+            out.write(line.getBytes(StandardCharsets.US_ASCII));
+            if (op.equals("HMSG")) {
+                out.write(headers);
+            }
+            out.write(payload);
+            out.write('\r');
+            out.write('\n');
+        }
+        read = out.toByteArray();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(MESSAGES_PER_READ)
+    public String parse() throws IOException {
+        reader.fakeReadForTest(read);
+        reader.processBuffer(read.length);
+        return reader.currentOp();
+    }
+}
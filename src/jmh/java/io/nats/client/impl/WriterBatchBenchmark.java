@@ -0,0 +1,77 @@
+// Copyright 2021 The NATS Authors
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package io.nats.client.impl;
+
+import io.nats.client.Options;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Batches messages into the writer's send buffer and hands them to a data port that drops them.
+ * Payloads at or above the gather threshold are passed through instead of copied.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class WriterBatchBenchmark {
+
+    static final int MESSAGES_PER_BATCH = 100;
+
+    static class DiscardingDataPort implements DataPort {
+        public void connect(String serverURI, NatsConnection conn, long timeoutNanos) {}
+        public void upgradeToSecure() {}
+        public int read(byte[] dst, int off, int len) { return -1; }
+        public void write(byte[] src, int toWrite) {}
+        public void write(ByteBuffer[] srcs, int length) {}
+        public void shutdownInput() {}
+        public void close() {}
+        public void flush() {}
+    }
+
+    @Param({"16", "256", "4096", "65536"})
+    public int payloadSize;
+
+    private NatsConnection connection;
+    private NatsConnectionWriter writer;
+    private DataPort dataPort;
+    private NatsMessage batch;
+
+    @Setup
+    public void setup() {
+        connection = new NatsConnection(new Options.Builder().build());
+        writer = new NatsConnectionWriter(connection);
+        dataPort = new DiscardingDataPort();
+
+        byte[] payload = new byte[payloadSize];
+        NatsMessage last = null;
+        for (int i = 0; i < MESSAGES_PER_BATCH; i++) {
+            NatsMessage msg = new NatsMessage("bench.subject", null, payload);
+            if (last == null) {
+                batch = msg;
+            } else {
+                last.next = msg;
+            }
+            last = msg;
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(MESSAGES_PER_BATCH)
+    public int sendBatch() throws IOException {
+        return writer.sendMessageBatch(batch, dataPort, connection.getNatsStatistics());
+    }
+}
@@ -0,0 +1,34 @@
+// Copyright 2021 The NATS Authors
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package io.nats.client;
+
+import java.util.List;
+
+/**
+ * A batch dispatcher, see {@link Connection#createDispatcher(BatchMessageHandler, int, long, java.time.Duration)},
+ * uses the BatchMessageHandler interface to receive its messages in groups instead of one at a time.
+ * This suits handlers that pay a fixed cost per call, like a write to a database.
+ */
+public interface BatchMessageHandler {
+    /**
+     * Called to deliver a batch of messages to the handler, in the order they arrived. This call is
+     * in the dispatcher's thread and blocks the delivery of other messages.
+     *
+     * <p>The thread used to call onMessages will be interrupted if the connection is closed, or the dispatcher is stopped.
+     *
+     * @param msgs the received messages, never empty
+     * @throws InterruptedException if the dispatcher interrupts this handler
+     */
+    void onMessages(List<Message> msgs) throws InterruptedException;
+}
@@ -18,8 +18,10 @@ import io.nats.client.api.ServerInfo;
 import java.io.IOException;
 import java.time.Duration;
 import java.util.Collection;
+import java.util.List;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
 
 /**
  * The Connection class is at the heart of the NATS Java client. Fundamentally a connection represents
@@ -222,6 +224,47 @@ public interface Connection extends AutoCloseable {
      */
     Message request(Message message, Duration timeout) throws InterruptedException;
 
+    /**
+     * Send a request and collect the replies from every responder, for service discovery and
+     * fan-out queries. The returned future completes with the replies in order of arrival when
+     * maxReplies have arrived, when maxWait has passed since the request was sent, or when
+     * stallTimeout passes without another reply, whichever comes first. A no responders status
+     * completes it with an empty list.
+     *
+     * <p>The request shares the connection's response inbox with {@link #request(String, byte[]) request()},
+     * so no subscription is made for it. Each reply is also passed to the handler as it arrives,
+     * on the thread that delivers replies, so the handler should not block. If the connection
+     * closes, the future completes with the replies received so far.
+     *
+     * @param subject the subject for the services that will handle the request
+     * @param body the content of the message
+     * @param maxReplies the most replies to wait for, 0 or less for no limit
+     * @param maxWait the longest time to collect replies
+     * @param stallTimeout the longest time to wait for the next reply, zero or null to only use maxWait
+     * @param handler called with each reply as it arrives, may be null
+     * @return a Future for the replies
+     * @throws IllegalArgumentException if maxWait is null or not positive
+     */
+    CompletableFuture<List<Message>> requestMany(String subject, byte[] body, int maxReplies, Duration maxWait, Duration stallTimeout, MessageHandler handler);
+
+    /**
+     * Send a request and return the replies from every responder. This version of requestMany is
+     * equivalent to waiting on the future returned from
+     * {@link #requestMany(String, byte[], int, Duration, Duration, MessageHandler) requestMany()}
+     * without a handler.
+     *
+     * @param subject the subject for the services that will handle the request
+     * @param body the content of the message
+     * @param maxReplies the most replies to wait for, 0 or less for no limit
+     * @param maxWait the longest time to collect replies
+     * @param stallTimeout the longest time to wait for the next reply, zero or null to only use maxWait
+     * @return the replies in order of arrival, possibly empty
+     * @throws InterruptedException if one is thrown while waiting, in order to propagate it up
+     * @throws IllegalArgumentException if maxWait is null or not positive
+     * @throws IllegalStateException if the request fails or is cancelled before it completes, with the failure as the cause
+     */
+    List<Message> requestMany(String subject, byte[] body, int maxReplies, Duration maxWait, Duration stallTimeout) throws InterruptedException;
+
     /**
      * Create a synchronous subscription to the specified subject.
      * 
@@ -281,6 +324,79 @@ public interface Connection extends AutoCloseable {
      */
     Dispatcher createDispatcher();
 
+    /**
+     * Create a {@code Dispatcher} that calls handlers on several worker threads. Each message
+     * goes to a worker chosen by its subject, so messages on the same subject are handled in
+     * order, one at a time, while different subjects are handled in parallel.
+     *
+     * <pre>
+     * nc = Nats.connect()
+     * d = nc.createDispatcher((m) -&gt; process(m), 8).subscribe("orders.*");
+     * </pre>
+     *
+     * @param handler The target for the messages
+     * @param workers the number of worker threads, at least 1
+     * @return a new Dispatcher
+     * @throws IllegalArgumentException if workers is less than 1
+     */
+    Dispatcher createDispatcher(MessageHandler handler, int workers);
+
+    /**
+     * Create a {@code Dispatcher} that calls handlers on several worker threads, keeping messages
+     * in order by a key taken from each message, for example a header value. Messages with the
+     * same key are handled in order, one at a time. A null key, or an exception from the extractor,
+     * sends the message to the first worker.
+     *
+     * @param handler The target for the messages
+     * @param workers the number of worker threads, at least 1
+     * @param keyExtractor picks the ordering key of a message, null to use the subject
+     * @return a new Dispatcher
+     * @throws IllegalArgumentException if workers is less than 1
+     */
+    Dispatcher createDispatcher(MessageHandler handler, int workers, Function<Message, String> keyExtractor);
+
+    /**
+     * Create a {@code Dispatcher} that delivers its messages in batches. After the first message
+     * of a batch arrives the dispatcher waits up to the linger time for more, and hands the batch
+     * to the handler once it holds maxMessages, reaches maxBytes, or the linger time is up.
+     *
+     * <p>Subscriptions made on the dispatcher with their own {@link MessageHandler} still get their
+     * messages one at a time.
+     *
+     * <pre>
+     * nc = Nats.connect()
+     * d = nc.createDispatcher((msgs) -&gt; db.insertAll(msgs), 500, 1024 * 1024, Duration.ofMillis(5)).subscribe("events");
+     * </pre>
+     *
+     * @param handler The target for the batches
+     * @param maxMessages the most messages in a batch, at least 1
+     * @param maxBytes the size in bytes that closes a batch, at least 1
+     * @param linger how long to wait for more messages after the first one, zero or null to only
+     *               take what is already waiting
+     * @return a new Dispatcher
+     * @throws IllegalArgumentException if maxMessages or maxBytes is less than 1
+     */
+    Dispatcher createDispatcher(BatchMessageHandler handler, int maxMessages, long maxBytes, Duration linger);
+
+    /**
+     * Create a {@code Dispatcher} that calls its handlers directly on the thread reading from the
+     * server, skipping the hand off to a dispatcher thread. This removes a queue and a context
+     * switch from every message, at a cost: while a handler runs, nothing else is read from the
+     * connection, including messages for other subscriptions and the server's pings.
+     *
+     * <p>Handlers on an inline dispatcher must not block, must not make requests or flush on the
+     * same connection, and should finish in microseconds. Pending limits don't apply, since nothing
+     * is queued. The time spent in handlers is reported by the connection {@link Statistics}, and
+     * a handler that runs longer than handlerWarning is counted and reported to the
+     * {@link ErrorListener#slowConsumerDetected(Connection, Consumer) slow consumer} callback.
+     *
+     * @param handler The target for the messages
+     * @param handlerWarning the handler time that counts as slow, zero or null to only record the time
+     * @return a new Dispatcher
+     * @throws IllegalArgumentException if the handler is null
+     */
+    Dispatcher createInlineDispatcher(MessageHandler handler, Duration handlerWarning);
+
     /**
      * Close a dispatcher. This will unsubscribe any subscriptions and stop the delivery thread.
      * 
@@ -308,6 +424,23 @@ public interface Connection extends AutoCloseable {
      */
     void flush(Duration timeout) throws TimeoutException, InterruptedException;
 
+    /**
+     * Flush the connection's buffer of outgoing messages without blocking. The returned future
+     * completes when the server answers a PING sent after everything published before this call,
+     * with the round trip time of that PING.
+     *
+     * <p>Callers share PINGs: if a flush is already waiting for its PONG, this call waits for the
+     * next PING, which is sent as soon as that PONG arrives and covers every caller that came in
+     * while it was outstanding. The future completes exceptionally if the connection is closed,
+     * or is not connected when the PING would be sent, or if the PING is lost to a disconnect.
+     * It completes exceptionally with a TimeoutException if the PONG doesn't arrive within the
+     * {@link Options#getConnectionTimeout() connection timeout}. The future is completed on the
+     * connection's executor, not on the thread reading from the server.
+     *
+     * @return a future for the round trip time of the PING
+     */
+    CompletableFuture<Duration> flushAsync();
+
     /**
      * Drain tells the connection to process in flight messages before closing.
      * 
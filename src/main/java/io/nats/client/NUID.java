@@ -20,7 +20,8 @@ import static io.nats.client.support.RandomUtils.*;
 /**
  * A highly performant unique identifier generator. The library uses this to generate
  * an inbox for request-replies. Applications can use their own NUID to generate
- * subjects as well. A shareable Global instance is also available via {@link #nextGlobal nextGlobal()}.
+ * subjects as well. Global generation is also available via {@link #nextGlobal nextGlobal()},
+ * which uses an instance per thread so callers on different threads never contend.
  */
 public final class NUID {
     /*
@@ -49,14 +50,12 @@ public final class NUID {
     private long seq;
     private long inc;
 
-    private static final NUID globalNUID;
-
-    static {
-        globalNUID = new NUID();
-    }
+    // Each thread gets its own randomly prefixed instance, so they are unique across threads
+    // and the static methods need no lock.
+    private static final ThreadLocal<NUID> threadNUID = ThreadLocal.withInitial(NUID::new);
 
     static NUID getInstance() {
-        return globalNUID;
+        return threadNUID.get();
     }
 
     /**
@@ -80,10 +79,21 @@ public final class NUID {
     }
 
     /**
-     * @return the next NUID string from a shared global NUID instance
+     * @return the next NUID string from the calling thread's NUID instance
      */
-    public static synchronized String nextGlobal() {
-        return globalNUID.next();
+    public static String nextGlobal() {
+        return threadNUID.get().nextString();
+    }
+
+    /**
+     * Write the next NUID from the calling thread's NUID instance into a buffer as 22 ASCII bytes.
+     *
+     * @param buffer the buffer to write to
+     * @param offset the position in the buffer of the first byte
+     * @return the position after the last byte written
+     */
+    public static int nextGlobal(byte[] buffer, int offset) {
+        return threadNUID.get().nextBytes(buffer, offset);
     }
 
     /**
@@ -92,26 +102,61 @@ public final class NUID {
      * @return the next NUID string from this instance.
      */
     public final synchronized String next() {
-        // Increment and capture.
-        seq += inc;
-        if (seq >= maxSeq) {
-            randomizePrefix();
-            resetSequential();
-        }
+        return nextString();
+    }
+
+    /**
+     * Write the next NUID from this instance into a buffer as 22 ASCII bytes, without
+     * creating a String.
+     *
+     * @param buffer the buffer to write to
+     * @param offset the position in the buffer of the first byte
+     * @return the position after the last byte written
+     */
+    public final synchronized int next(byte[] buffer, int offset) {
+        return nextBytes(buffer, offset);
+    }
+
+    // The unlocked forms, callers either hold the lock or own the instance
+    private String nextString() {
+        long l = nextSeq();
 
         // Copy prefix
         char[] b = new char[totalLen];
         System.arraycopy(pre, 0, b, 0, preLen);
 
-        // copy in the seq in base36.
-        int i = b.length;
-        for (long l = seq; i > preLen; l /= base) {
-            i--;
+        // copy in the seq in base62.
+        for (int i = b.length - 1; i >= preLen; i--, l /= base) {
             b[i] = digits[(int) (l % base)];
         }
         return new String(b);
     }
 
+    private int nextBytes(byte[] buffer, int offset) {
+        if (offset < 0 || buffer.length - offset < totalLen) {
+            throw new IndexOutOfBoundsException("NUID needs " + totalLen + " bytes at offset " + offset);
+        }
+
+        long l = nextSeq();
+        for (int i = 0; i < preLen; i++) {
+            buffer[offset + i] = (byte) pre[i];
+        }
+        for (int i = totalLen - 1; i >= preLen; i--, l /= base) {
+            buffer[offset + i] = (byte) digits[(int) (l % base)];
+        }
+        return offset + totalLen;
+    }
+
+    // Increment and capture.
+    private long nextSeq() {
+        seq += inc;
+        if (seq >= maxSeq) {
+            randomizePrefix();
+            resetSequential();
+        }
+        return seq;
+    }
+
     // Resets the sequntial portion of the NUID
     void resetSequential() {
         seq = nextLong(PRAND, maxSeq);
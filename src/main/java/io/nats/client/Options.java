@@ -22,6 +22,8 @@ import java.lang.reflect.Constructor;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.nio.CharBuffer;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.security.NoSuchAlgorithmException;
 import java.time.Duration;
 import java.util.*;
@@ -117,7 +119,7 @@ public class Options {
     public static final Duration DEFAULT_PING_INTERVAL = Duration.ofMinutes(2);
 
     /**
-     * Default interval to clean up cancelled/timed out requests.
+     * Default time before a cancelled request is cleaned up.
      * A timer is used to clean up futures that were handed out but never completed
      * via a message, {@link #getRequestCleanupInterval() getRequestCleanupInterval()}.
      *
@@ -149,6 +151,13 @@ public class Options {
      */
     public static final int DEFAULT_RECONNECT_BUF_SIZE = 8_388_608;
 
+    /**
+     * Default size of the reconnect spill file, {@link #getReconnectSpillSize() getReconnectSpillSize()}.
+     *
+     * <p>This property is defined as {@value} bytes, 64 * 1024 * 1024.
+     */
+    public static final long DEFAULT_RECONNECT_SPILL_SIZE = 67_108_864;
+
     /**
      * The default length, {@value} bytes, the client will allow in an
      *  outgoing protocol control line, {@link #getMaxControlLine() getMaxControlLine()}.
@@ -215,6 +224,95 @@ public class Options {
      */
     public static final boolean DEFAULT_DISCARD_MESSAGES_WHEN_OUTGOING_QUEUE_FULL = false;
 
+    /**
+     * Default limit on the bytes in the outgoing queue, see {@link #getMaxBytesInOutgoingQueue() getMaxBytesInOutgoingQueue()}.
+     * By default only the message count is limited.
+     *
+     * <p>This property is defined as {@value}
+     */
+    public static final long DEFAULT_MAX_BYTES_IN_OUTGOING_QUEUE = 0;
+
+    /**
+     * Default time a publish waits for room in a full outgoing queue before it fails, see
+     * {@link #getOutgoingQueueFullTimeout() getOutgoingQueueFullTimeout()}.
+     *
+     * <p>This property is defined as 5 seconds.
+     */
+    public static final Duration DEFAULT_OUTGOING_QUEUE_FULL_TIMEOUT = Duration.ofSeconds(5);
+
+    /**
+     * Default number of publish lanes, see {@link #getPublishLanes() getPublishLanes()}.
+     * By default all publishers share a single outgoing queue.
+     *
+     * <p>This property is defined as {@value}
+     */
+    public static final int DEFAULT_PUBLISH_LANES = 1;
+
+    /**
+     * Default flush latency budget, see {@link #getFlushLatencyBudget() getFlushLatencyBudget()}.
+     * By default the writer sends whatever is queued as soon as it wakes.
+     */
+    public static final Duration DEFAULT_FLUSH_LATENCY_BUDGET = Duration.ZERO;
+
+    /**
+     * Default number of response inbox shards, see {@link #getInboxShards() getInboxShards()}.
+     * By default all replies go through one inbox and one dispatcher.
+     *
+     * <p>This property is defined as {@value}
+     */
+    public static final int DEFAULT_INBOX_SHARDS = 1;
+
+    /**
+     * Default number of answered requests remembered to recognize duplicate replies, see
+     * {@link #getDuplicateReplyWindow() getDuplicateReplyWindow()}.
+     *
+     * <p>This property is defined as {@value}
+     */
+    public static final int DEFAULT_DUPLICATE_REPLY_WINDOW = 16_384;
+
+    /**
+     * Default number of entries in the inbound subject cache, see {@link #getSubjectCacheSize() getSubjectCacheSize()}.
+     * The cache is disabled by default.
+     *
+     * <p>This property is defined as {@value}
+     */
+    public static final int DEFAULT_SUBJECT_CACHE_SIZE = 0;
+
+    /**
+     * Largest number of entries in the inbound subject cache, larger sizes are reduced to this,
+     * see {@link Builder#subjectCacheSize(int) subjectCacheSize}.
+     *
+     * <p>This property is defined as {@value}
+     */
+    public static final int MAX_SUBJECT_CACHE_SIZE = 1 << 20;
+
+    /**
+     * How the writer thread and dispatchers wait for the next message to hand off,
+     * see {@link Builder#waitStrategy(WaitStrategy) waitStrategy()}.
+     */
+    public enum WaitStrategy {
+        /**
+         * Block on the queue until a message arrives. Idle threads use no cpu, but each
+         * hand off pays for a thread wake up. This is the default.
+         */
+        BLOCKING,
+        /**
+         * Spin for a short time, then yield, then park for short periods. Hand offs that
+         * arrive while spinning skip the wake up, for a small amount of extra cpu.
+         */
+        SPIN_YIELD_PARK,
+        /**
+         * Spin until a message arrives. Gives the lowest hand off latency, but keeps a core
+         * busy for the writer and for each dispatcher, even when there is no traffic.
+         */
+        BUSY_SPIN
+    }
+
+    /**
+     * Default hand off wait strategy, see {@link #getWaitStrategy() getWaitStrategy()}.
+     */
+    public static final WaitStrategy DEFAULT_WAIT_STRATEGY = WaitStrategy.BLOCKING;
+
     static final String PFX = "io.nats.client.";
 
     /**
@@ -256,6 +354,16 @@ public class Options {
      * {@link Builder#reconnectBufferSize(long) reconnectBufferSize}.
      */
     public static final String PROP_RECONNECT_BUF_SIZE = PFX + "reconnect.buffer.size";
+    /**
+     * Property used to configure a builder from a Properties object. {@value}, see
+     * {@link Builder#reconnectSpillDirectory(Path) reconnectSpillDirectory}.
+     */
+    public static final String PROP_RECONNECT_SPILL_DIR = PFX + "reconnect.spill.dir";
+    /**
+     * Property used to configure a builder from a Properties object. {@value}, see
+     * {@link Builder#reconnectSpillSize(long) reconnectSpillSize}.
+     */
+    public static final String PROP_RECONNECT_SPILL_SIZE = PFX + "reconnect.spill.size";
     /**
      * Property used to configure a builder from a Properties object. {@value}, see {@link Builder#reconnectWait(Duration)
      * reconnectWait}.
@@ -357,6 +465,48 @@ public class Options {
      * discardMessagesWhenOutgoingQueueFull}.
      */
     public static final String PROP_DISCARD_MESSAGES_WHEN_OUTGOING_QUEUE_FULL = PFX + "outgoingqueue.discardwhenfull";
+    /**
+     * Property used to configure a builder from a Properties object.
+     * {@value}, see {@link Builder#maxBytesInOutgoingQueue(long) maxBytesInOutgoingQueue}.
+     */
+    public static final String PROP_MAX_BYTES_IN_OUTGOING_QUEUE = PFX + "outgoingqueue.maxbytes";
+    /**
+     * Property used to configure a builder from a Properties object.
+     * {@value}, see {@link Builder#outgoingQueueFullTimeout(Duration) outgoingQueueFullTimeout}.
+     * The value is in milliseconds.
+     */
+    public static final String PROP_OUTGOING_QUEUE_FULL_TIMEOUT = PFX + "outgoingqueue.fulltimeout";
+    /**
+     * Property used to configure a builder from a Properties object.
+     * {@value}, see {@link Builder#publishLanes(int) publishLanes}.
+     */
+    public static final String PROP_PUBLISH_LANES = PFX + "outgoingqueue.lanes";
+    /**
+     * Property used to configure a builder from a Properties object.
+     * {@value}, see {@link Builder#flushLatencyBudget(Duration) flushLatencyBudget}, in milliseconds.
+     */
+    public static final String PROP_FLUSH_LATENCY_BUDGET = PFX + "flush.latencybudget";
+    /**
+     * Property used to configure a builder from a Properties object.
+     * {@value}, see {@link Builder#inboxShards(int) inboxShards}.
+     */
+    public static final String PROP_INBOX_SHARDS = PFX + "inbox.shards";
+    /**
+     * Property used to configure a builder from a Properties object.
+     * {@value}, see {@link Builder#duplicateReplyWindow(int) duplicateReplyWindow}.
+     */
+    public static final String PROP_DUPLICATE_REPLY_WINDOW = PFX + "reply.duplicatewindow";
+    /**
+     * Property used to configure a builder from a Properties object.
+     * {@value}, see {@link Builder#subjectCacheSize(int) subjectCacheSize}.
+     */
+    public static final String PROP_SUBJECT_CACHE_SIZE = PFX + "subjectcache.size";
+    /**
+     * Property used to configure a builder from a Properties object.
+     * {@value}, see {@link Builder#waitStrategy(WaitStrategy) waitStrategy}.
+     * The value is the name of a {@link WaitStrategy}, for example {@code SPIN_YIELD_PARK}.
+     */
+    public static final String PROP_WAIT_STRATEGY = PFX + "waitstrategy";
     /**
      * Property used to configure a builder from a Properties object. {@value}, see {@link Builder#oldRequestStyle()
      * oldRequestStyle}.
@@ -483,6 +633,8 @@ public class Options {
     private final Duration requestCleanupInterval;
     private final int maxPingsOut;
     private final long reconnectBufferSize;
+    private final Path reconnectSpillDirectory;
+    private final long reconnectSpillSize;
     private final char[] username;
     private final char[] password;
     private final char[] token;
@@ -495,6 +647,14 @@ public class Options {
     private final boolean utf8Support;
     private final int maxMessagesInOutgoingQueue;
     private final boolean discardMessagesWhenOutgoingQueueFull;
+    private final long maxBytesInOutgoingQueue;
+    private final Duration outgoingQueueFullTimeout;
+    private final int publishLanes;
+    private final Duration flushLatencyBudget;
+    private final int inboxShards;
+    private final int duplicateReplyWindow;
+    private final int subjectCacheSize;
+    private final WaitStrategy waitStrategy;
 
     private final AuthHandler authHandler;
     private final ReconnectDelayHandler reconnectDelayHandler;
@@ -557,6 +717,8 @@ public class Options {
         private Duration requestCleanupInterval = DEFAULT_REQUEST_CLEANUP_INTERVAL;
         private int maxPingsOut = DEFAULT_MAX_PINGS_OUT;
         private long reconnectBufferSize = DEFAULT_RECONNECT_BUF_SIZE;
+        private Path reconnectSpillDirectory = null;
+        private long reconnectSpillSize = DEFAULT_RECONNECT_SPILL_SIZE;
         private char[] username = null;
         private char[] password = null;
         private char[] token = null;
@@ -571,6 +733,14 @@ public class Options {
         private String inboxPrefix = DEFAULT_INBOX_PREFIX;
         private int maxMessagesInOutgoingQueue = DEFAULT_MAX_MESSAGES_IN_OUTGOING_QUEUE;
         private boolean discardMessagesWhenOutgoingQueueFull = DEFAULT_DISCARD_MESSAGES_WHEN_OUTGOING_QUEUE_FULL;
+        private long maxBytesInOutgoingQueue = DEFAULT_MAX_BYTES_IN_OUTGOING_QUEUE;
+        private Duration outgoingQueueFullTimeout = DEFAULT_OUTGOING_QUEUE_FULL_TIMEOUT;
+        private int publishLanes = DEFAULT_PUBLISH_LANES;
+        private Duration flushLatencyBudget = DEFAULT_FLUSH_LATENCY_BUDGET;
+        private int inboxShards = DEFAULT_INBOX_SHARDS;
+        private int duplicateReplyWindow = DEFAULT_DUPLICATE_REPLY_WINDOW;
+        private int subjectCacheSize = DEFAULT_SUBJECT_CACHE_SIZE;
+        private WaitStrategy waitStrategy = DEFAULT_WAIT_STRATEGY;
 
         private AuthHandler authHandler;
         private ReconnectDelayHandler reconnectDelayHandler;
@@ -716,6 +886,15 @@ public class Options {
                         props.getProperty(PROP_RECONNECT_BUF_SIZE, Long.toString(DEFAULT_RECONNECT_BUF_SIZE)));
             }
 
+            if (props.containsKey(PROP_RECONNECT_SPILL_DIR)) {
+                this.reconnectSpillDirectory = Paths.get(props.getProperty(PROP_RECONNECT_SPILL_DIR));
+            }
+
+            if (props.containsKey(PROP_RECONNECT_SPILL_SIZE)) {
+                long bytes = Long.parseLong(props.getProperty(PROP_RECONNECT_SPILL_SIZE, "-1"));
+                this.reconnectSpillSize = (bytes <= 0) ? DEFAULT_RECONNECT_SPILL_SIZE : bytes;
+            }
+
             if (props.containsKey(PROP_CONNECTION_TIMEOUT)) {
                 int ms = Integer.parseInt(props.getProperty(PROP_CONNECTION_TIMEOUT, "-1"));
                 this.connectionTimeout = (ms < 0) ? DEFAULT_CONNECTION_TIMEOUT : Duration.ofMillis(ms);
@@ -772,6 +951,41 @@ public class Options {
                 this.discardMessagesWhenOutgoingQueueFull = Boolean.parseBoolean(props.getProperty(
                         PROP_DISCARD_MESSAGES_WHEN_OUTGOING_QUEUE_FULL, Boolean.toString(DEFAULT_DISCARD_MESSAGES_WHEN_OUTGOING_QUEUE_FULL)));
             }
+
+            if (props.containsKey(PROP_MAX_BYTES_IN_OUTGOING_QUEUE)) {
+                long bytes = Long.parseLong(props.getProperty(PROP_MAX_BYTES_IN_OUTGOING_QUEUE, "-1"));
+                this.maxBytesInOutgoingQueue = (bytes < 0) ? DEFAULT_MAX_BYTES_IN_OUTGOING_QUEUE : bytes;
+            }
+
+            if (props.containsKey(PROP_OUTGOING_QUEUE_FULL_TIMEOUT)) {
+                long ms = Long.parseLong(props.getProperty(PROP_OUTGOING_QUEUE_FULL_TIMEOUT, "-1"));
+                this.outgoingQueueFullTimeout = (ms < 0) ? DEFAULT_OUTGOING_QUEUE_FULL_TIMEOUT : Duration.ofMillis(ms);
+            }
+
+            if (props.containsKey(PROP_PUBLISH_LANES)) {
+                this.publishLanes(Integer.parseInt(props.getProperty(PROP_PUBLISH_LANES, "-1")));
+            }
+
+            if (props.containsKey(PROP_FLUSH_LATENCY_BUDGET)) {
+                int ms = Integer.parseInt(props.getProperty(PROP_FLUSH_LATENCY_BUDGET, "-1"));
+                this.flushLatencyBudget = (ms < 0) ? DEFAULT_FLUSH_LATENCY_BUDGET : Duration.ofMillis(ms);
+            }
+
+            if (props.containsKey(PROP_INBOX_SHARDS)) {
+                this.inboxShards(Integer.parseInt(props.getProperty(PROP_INBOX_SHARDS, "-1")));
+            }
+
+            if (props.containsKey(PROP_DUPLICATE_REPLY_WINDOW)) {
+                this.duplicateReplyWindow(Integer.parseInt(props.getProperty(PROP_DUPLICATE_REPLY_WINDOW, "-1")));
+            }
+
+            if (props.containsKey(PROP_SUBJECT_CACHE_SIZE)) {
+                this.subjectCacheSize(Integer.parseInt(props.getProperty(PROP_SUBJECT_CACHE_SIZE, "-1")));
+            }
+
+            if (props.containsKey(PROP_WAIT_STRATEGY)) {
+                this.waitStrategy(WaitStrategy.valueOf(props.getProperty(PROP_WAIT_STRATEGY).trim().toUpperCase()));
+            }
         }
 
         static Object createInstanceOf(String className) {
@@ -1103,8 +1317,10 @@ public class Options {
         }
 
         /**
-         * Set the interval between cleaning passes on outstanding request futures that are cancelled or timeout
-         * in the application code.
+         * Set how long a request future that is cancelled in the application code is kept before it is
+         * cleaned up. Futures that time out are cleaned up at their own deadline on the connection timer,
+         * so there is no periodic pass over all outstanding requests. A value of 0 or less keeps a
+         * cancelled future until its original deadline.
          * 
          * <p>The default value is probably reasonable, but this interval is useful in a very noisy network
          * situation where lots of requests are used.
@@ -1155,6 +1371,36 @@ public class Options {
             return this;
         }
 
+        /**
+         * Spill messages published during a reconnect to a memory mapped file in this directory once
+         * the {@link #reconnectBufferSize(long) reconnect buffer} is full, instead of refusing them.
+         * After the reconnect the buffered messages are sent first and the file is replayed after
+         * them, in publish order. The file is deleted when the connection closes.
+         *
+         * <p>The spill only applies to a positive reconnect buffer size, the size of the file is set
+         * with {@link #reconnectSpillSize(long) reconnectSpillSize()}.
+         *
+         * @param directory the directory for the spill file, null turns spilling off
+         * @return the Builder for chaining
+         */
+        public Builder reconnectSpillDirectory(Path directory) {
+            this.reconnectSpillDirectory = directory;
+            return this;
+        }
+
+        /**
+         * Set the size of the reconnect spill file, see {@link #reconnectSpillDirectory(Path) reconnectSpillDirectory()}.
+         * When the file is full publishing fails until the writer has replayed it. The file is
+         * mapped into memory, so a single file is limited to 2GB.
+         *
+         * @param size the size in bytes
+         * @return the Builder for chaining
+         */
+        public Builder reconnectSpillSize(long size) {
+            this.reconnectSpillSize = size <= 0 ? DEFAULT_RECONNECT_SPILL_SIZE : size;
+            return this;
+        }
+
         /**
          * Set the username and password for basic authentication.
          * 
@@ -1285,7 +1531,11 @@ public class Options {
         /**
          * The class to use for this connections data port. This is an advanced setting
          * and primarily useful for testing.
-         * 
+         *
+         * <p>Besides the default socket based port, the library provides
+         * {@code io.nats.client.impl.SocketChannelDataPort}, which uses a {@code SocketChannel}
+         * and direct byte buffers to avoid an extra copy on socket reads and writes.
+         *
          * @param dataPortClassName a valid and accessible class name
          * @return the Builder for chaining
          */
@@ -1315,6 +1565,141 @@ public class Options {
             return this;
         }
 
+        /**
+         * Set the maximum number of bytes in the outgoing queue, counting the subject, reply to,
+         * headers and data of each message. The limit applies together with
+         * {@link Builder#maxMessagesInOutgoingQueue(int) maxMessagesInOutgoingQueue}, whichever is
+         * reached first makes the queue full. A single message larger than the limit is still
+         * accepted into an empty queue. The default, 0, turns the byte limit off.
+         *
+         * @param bytes the maximum number of bytes in the outgoing queue, 0 for no limit
+         * @return the Builder for chaining
+         */
+        public Builder maxBytesInOutgoingQueue(long bytes) {
+            this.maxBytesInOutgoingQueue = bytes < 0 ? DEFAULT_MAX_BYTES_IN_OUTGOING_QUEUE : bytes;
+            return this;
+        }
+
+        /**
+         * Set how long a publish blocks waiting for room when the outgoing queue is full. Blocking
+         * gives back pressure to the publishing threads while the writer catches up. If no room frees
+         * up before the timeout the publish throws an {@link IllegalStateException}. A timeout of zero
+         * fails right away, a long timeout effectively blocks until there is room.
+         *
+         * <p>Not used when {@link Builder#discardMessagesWhenOutgoingQueueFull() discardMessagesWhenOutgoingQueueFull}
+         * is set, those messages are dropped instead.
+         *
+         * @param timeout the time to wait for room in the queue, null restores the default
+         * @return the Builder for chaining
+         */
+        public Builder outgoingQueueFullTimeout(Duration timeout) {
+            this.outgoingQueueFullTimeout = (timeout == null || timeout.isNegative()) ? DEFAULT_OUTGOING_QUEUE_FULL_TIMEOUT : timeout;
+            return this;
+        }
+
+        /**
+         * Split the outgoing queue into this many lanes to cut contention when many threads publish
+         * at once. Each publishing thread always uses the same lane and the writer drains the lanes
+         * round robin, so messages from one thread keep their order. Publishes from different threads
+         * have no order, as with a single queue. A flush, and other internal messages, still go out after
+         * everything any thread published before them.
+         *
+         * <p>The outgoing queue limits are split evenly across the lanes. A value of 1, the default,
+         * keeps the single queue.
+         *
+         * @param lanes the number of publish lanes
+         * @return the Builder for chaining
+         */
+        public Builder publishLanes(int lanes) {
+            this.publishLanes = lanes < 1 ? DEFAULT_PUBLISH_LANES : lanes;
+            return this;
+        }
+
+        /**
+         * Let the writer hold outgoing messages for up to this long, after the first one arrives,
+         * so that messages from many publishing or requesting threads go out in one socket write
+         * and one flush instead of many small ones. This trades a little latency for fewer system
+         * calls when many threads send at once. The writer also stops waiting as soon as its
+         * buffer is full.
+         *
+         * <p>Whatever the budget, the writer flushes once it has sent everything that is queued,
+         * so requests no longer flush on the calling thread.
+         *
+         * @param budget the longest time to hold a message, zero or null to send right away
+         * @return the Builder for chaining
+         */
+        public Builder flushLatencyBudget(Duration budget) {
+            this.flushLatencyBudget = budget == null || budget.isNegative() ? DEFAULT_FLUSH_LATENCY_BUDGET : budget;
+            return this;
+        }
+
+        /**
+         * Split request replies across this many response inboxes, each with its own subscription and
+         * dispatcher thread. Requests are given to the shards round robin, so completing reply futures,
+         * and whatever runs in their dependent stages, is spread across several threads instead of one.
+         *
+         * <p>This only applies to the new request style. The duplicate reply window is split evenly
+         * across the shards. A value of 1, the default, keeps the single inbox.
+         *
+         * @param shards the number of response inboxes
+         * @return the Builder for chaining
+         */
+        public Builder inboxShards(int shards) {
+            this.inboxShards = shards < 1 ? DEFAULT_INBOX_SHARDS : shards;
+            return this;
+        }
+
+        /**
+         * Set how many answered requests the connection remembers, so that a second reply to one of
+         * them is counted as a duplicate instead of an orphan in the statistics. The most recently
+         * answered requests are kept in a fixed amount of memory, about 24 bytes per entry, and older
+         * ones are forgotten, so a duplicate that arrives after this many other requests were
+         * answered is counted as an orphan.
+         *
+         * <p>A window of 0 turns duplicate detection off and counts every extra reply as an orphan.
+         *
+         * @param window the number of answered requests to remember
+         * @return the Builder for chaining
+         */
+        public Builder duplicateReplyWindow(int window) {
+            this.duplicateReplyWindow = window < 0 ? DEFAULT_DUPLICATE_REPLY_WINDOW : window;
+            return this;
+        }
+
+        /**
+         * Set the number of entries in the inbound subject cache. When enabled, the reader keeps
+         * the subject strings of incoming messages in a bounded cache keyed by the subject bytes,
+         * and messages on a subject already in the cache share its string instead of allocating
+         * a new one. This helps subscribers that receive a lot of messages on a small set of subjects.
+         *
+         * <p>The size is rounded up to a power of two, and is at most {@link Options#MAX_SUBJECT_CACHE_SIZE}.
+         * A size of 0, the default, disables the cache. Cache hits and misses are reported in the
+         * connection {@link Statistics}.
+         *
+         * @param size the number of subjects to cache, or 0 to disable the cache
+         * @return the Builder for chaining
+         */
+        public Builder subjectCacheSize(int size) {
+            this.subjectCacheSize = size < 0 ? DEFAULT_SUBJECT_CACHE_SIZE : Math.min(size, MAX_SUBJECT_CACHE_SIZE);
+            return this;
+        }
+
+        /**
+         * Set how the writer thread and dispatchers wait for the next message. The default,
+         * {@link WaitStrategy#BLOCKING BLOCKING}, parks the thread on the queue. The spinning
+         * strategies move the outgoing queue and dispatcher queues to a lock free ring and trade
+         * cpu for lower hand off latency, see {@link WaitStrategy}.
+         *
+         * <p>Subscriptions without a dispatcher always block in {@code nextMessage}.
+         *
+         * @param strategy the wait strategy, null restores the default
+         * @return the Builder for chaining
+         */
+        public Builder waitStrategy(WaitStrategy strategy) {
+            this.waitStrategy = strategy == null ? DEFAULT_WAIT_STRATEGY : strategy;
+            return this;
+        }
+
         /**
          * Build an Options object from this Builder.
          * 
@@ -1386,6 +1771,8 @@ public class Options {
         this.requestCleanupInterval = b.requestCleanupInterval;
         this.maxPingsOut = b.maxPingsOut;
         this.reconnectBufferSize = b.reconnectBufferSize;
+        this.reconnectSpillDirectory = b.reconnectSpillDirectory;
+        this.reconnectSpillSize = b.reconnectSpillSize;
         this.username = b.username;
         this.password = b.password;
         this.token = b.token;
@@ -1400,6 +1787,14 @@ public class Options {
         this.traceConnection = b.traceConnection;
         this.maxMessagesInOutgoingQueue = b.maxMessagesInOutgoingQueue;
         this.discardMessagesWhenOutgoingQueueFull = b.discardMessagesWhenOutgoingQueueFull;
+        this.maxBytesInOutgoingQueue = b.maxBytesInOutgoingQueue;
+        this.outgoingQueueFullTimeout = b.outgoingQueueFullTimeout;
+        this.publishLanes = b.publishLanes;
+        this.flushLatencyBudget = b.flushLatencyBudget;
+        this.inboxShards = b.inboxShards;
+        this.duplicateReplyWindow = b.duplicateReplyWindow;
+        this.subjectCacheSize = b.subjectCacheSize;
+        this.waitStrategy = b.waitStrategy;
 
         this.authHandler = b.authHandler;
         this.reconnectDelayHandler = b.reconnectDelayHandler;
@@ -1625,6 +2020,22 @@ public class Options {
         return reconnectBufferSize;
     }
 
+    /**
+     * @return the directory for the reconnect spill file, or null if spilling is off, see
+     *         {@link Builder#reconnectSpillDirectory(Path) reconnectSpillDirectory()} in the builder doc
+     */
+    public Path getReconnectSpillDirectory() {
+        return reconnectSpillDirectory;
+    }
+
+    /**
+     * @return the size of the reconnect spill file in bytes, see
+     *         {@link Builder#reconnectSpillSize(long) reconnectSpillSize()} in the builder doc
+     */
+    public long getReconnectSpillSize() {
+        return reconnectSpillSize;
+    }
+
     /**
      * @return the default size for buffers in the connection code, see {@link Builder#bufferSize(int) bufferSize()} in the builder doc
      */
@@ -1710,6 +2121,70 @@ public class Options {
         return discardMessagesWhenOutgoingQueueFull;
     }
 
+    /**
+     * @return the maximum number of bytes in the outgoing queue, 0 for no limit, see
+     * {@link Builder#maxBytesInOutgoingQueue(long) maxBytesInOutgoingQueue(long)} in the builder doc
+     */
+    public long getMaxBytesInOutgoingQueue() {
+        return maxBytesInOutgoingQueue;
+    }
+
+    /**
+     * @return how long a publish waits for room in a full outgoing queue, see
+     * {@link Builder#outgoingQueueFullTimeout(Duration) outgoingQueueFullTimeout(Duration)} in the builder doc
+     */
+    public Duration getOutgoingQueueFullTimeout() {
+        return outgoingQueueFullTimeout;
+    }
+
+    /**
+     * @return the number of lanes the outgoing queue is split into, see
+     * {@link Builder#publishLanes(int) publishLanes(int)} in the builder doc
+     */
+    public int getPublishLanes() {
+        return publishLanes;
+    }
+
+    /**
+     * @return the longest time the writer holds a message to batch it with others, see
+     * {@link Builder#flushLatencyBudget(Duration) flushLatencyBudget()} in the builder doc
+     */
+    public Duration getFlushLatencyBudget() {
+        return flushLatencyBudget;
+    }
+
+    /**
+     * @return the number of response inboxes used for request replies, see
+     * {@link Builder#inboxShards(int) inboxShards(int)} in the builder doc
+     */
+    public int getInboxShards() {
+        return inboxShards;
+    }
+
+    /**
+     * @return the number of answered requests remembered to recognize duplicate replies, see
+     * {@link Builder#duplicateReplyWindow(int) duplicateReplyWindow(int)} in the builder doc
+     */
+    public int getDuplicateReplyWindow() {
+        return duplicateReplyWindow;
+    }
+
+    /**
+     * @return the number of entries in the inbound subject cache, 0 when disabled, see
+     * {@link Builder#subjectCacheSize(int) subjectCacheSize(int)} in the builder doc
+     */
+    public int getSubjectCacheSize() {
+        return subjectCacheSize;
+    }
+
+    /**
+     * @return how the writer and dispatchers wait for messages, see
+     * {@link Builder#waitStrategy(WaitStrategy) waitStrategy(WaitStrategy)} in the builder doc
+     */
+    public WaitStrategy getWaitStrategy() {
+        return waitStrategy;
+    }
+
     public URI createURIForServer(String serverURI) throws URISyntaxException {
         return Options.parseURIForServer(serverURI);
     }
@@ -13,6 +13,8 @@
 
 package io.nats.client;
 
+import io.nats.client.support.LatencyHistogram;
+
 /**
  * Connections can provide an instance of Statistics, {@link Connection#getStatistics() getStatistics()}. The statistics
  * object provides information about key metrics related to the connection over its entire lifecycle.
@@ -49,4 +51,94 @@ public interface Statistics {
      * @return the total number of messages dropped by this connection across all slow consumers.
      */
     public long getDroppedCount();
+
+    /**
+     * @return the number of incoming subjects found in the subject cache, see
+     * {@link Options.Builder#subjectCacheSize(int) subjectCacheSize()}
+     */
+    public long getSubjectCacheHits();
+
+    /**
+     * @return the number of incoming subjects that were not in the subject cache, see
+     * {@link Options.Builder#subjectCacheSize(int) subjectCacheSize()}
+     */
+    public long getSubjectCacheMisses();
+
+    /**
+     * @return the number of times the connection writer flushed its buffer to the socket
+     */
+    public long getWriterFlushes();
+
+    /**
+     * @return the number of messages written by the connection writer across all of its flushes
+     */
+    public long getWriterFlushedMessages();
+
+    /**
+     * @return the average number of messages sent between writer flushes, 0 if there were none, together
+     * with {@link #getWriterFlushes()} this shows how well outgoing messages are being batched
+     */
+    public double getAverageFlushBatchSize();
+
+    /**
+     * @return the number of messages written to the reconnect spill file, see
+     * {@link Options.Builder#reconnectSpillDirectory(java.nio.file.Path) reconnectSpillDirectory()}
+     */
+    public long getReconnectSpillMessages();
+
+    /**
+     * @return the number of bytes written to the reconnect spill file
+     */
+    public long getReconnectSpillBytes();
+
+    /**
+     * @return the number of bytes replayed from the reconnect spill file
+     */
+    public long getReconnectSpillReplayedBytes();
+
+    /**
+     * @return the total time spent replaying completed reconnect spills in nanoseconds, together with
+     * {@link #getReconnectSpillReplayedBytes()} this gives the replay throughput
+     */
+    public long getReconnectSpillReplayNanos();
+
+    /**
+     * @return the number of messages handled on the reader thread by inline dispatchers, see
+     * {@link Connection#createInlineDispatcher(MessageHandler, java.time.Duration) createInlineDispatcher()}
+     */
+    public long getInlineMessages();
+
+    /**
+     * @return the total time spent in inline handlers in nanoseconds, divide by
+     * {@link #getInlineMessages()} for the average time per message
+     */
+    public long getInlineHandlerNanos();
+
+    /**
+     * @return the longest time a single inline handler call took in nanoseconds
+     */
+    public long getInlineHandlerMaxNanos();
+
+    /**
+     * @return the number of inline handler calls that took longer than their dispatcher's warning time
+     */
+    public long getSlowInlineHandlers();
+
+    /**
+     * @return a snapshot of request round trip times, from sending a request to its reply arriving,
+     * empty unless {@link Options.Builder#turnOnAdvancedStats() advanced stats} are on
+     */
+    public LatencyHistogram.Snapshot getRequestRoundTripTimes();
+
+    /**
+     * @return a snapshot of flush round trip times, from sending the PING to its PONG arriving,
+     * empty unless {@link Options.Builder#turnOnAdvancedStats() advanced stats} are on
+     */
+    public LatencyHistogram.Snapshot getFlushRoundTripTimes();
+
+    /**
+     * @return a snapshot of how long messages waited in dispatcher queues before their handler was
+     * called, empty unless {@link Options.Builder#turnOnAdvancedStats() advanced stats} are on
+     */
+    public LatencyHistogram.Snapshot getDispatcherQueueWaitTimes();
 }
@@ -14,6 +14,7 @@
 package io.nats.client;
 
 import java.time.Duration;
+import java.util.Collection;
 
 /**
  * A Subscription encapsulates an incoming queue of messages associated with a single
@@ -72,6 +73,27 @@ public interface Subscription extends Consumer {
      */
     Message nextMessage(Duration timeout) throws InterruptedException, IllegalStateException;
 
+    /**
+     * Read the messages waiting for a subscription into a collection, blocking until
+     * at least one is available. Everything already queued, up to max messages, is moved
+     * in one operation, which is cheaper than calling {@link #nextMessage(Duration) nextMessage}
+     * once per message when messages arrive faster than they are read.
+     * 
+     * <p>Will return 0 if the call times out.
+     * 
+     * <p>Use a timeout of 0 to wait indefinitely. This could still be interrupted if
+     * the subscription is unsubscribed or the client connection is closed.
+     * 
+     * @param max the most messages to read
+     * @param maxWait the maximum time to wait for the first message
+     * @param into the collection the messages are added to, in the order they arrived
+     * @return the number of messages added to the collection
+     * @throws IllegalArgumentException if max is less than 1 or the collection is null
+     * @throws IllegalStateException if the subscription belongs to a dispatcher, or is not active
+     * @throws InterruptedException if one occurs while waiting for the messages
+     */
+    int nextMessages(int max, Duration maxWait, Collection<Message> into) throws InterruptedException, IllegalStateException;
+
     /**
      * Unsubscribe this subscription and stop listening for messages.
      * 
@@ -14,6 +14,7 @@
 package io.nats.client.impl;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 
 /**
  * A data port represents the connection to the network. This could have been called
@@ -35,6 +36,30 @@ public interface DataPort {
 
     void write(byte[] src, int toWrite) throws IOException;
 
+    /**
+     * Write the remaining bytes of the first {@code length} buffers, in order. This allows
+     * the writer to hand message payloads to the port without copying them into its own buffer.
+     * Ports with a gathering transport should override this, the default implementation
+     * falls back to {@link #write(byte[], int)}, copying when a buffer does not start its array.
+     *
+     * @param srcs the buffers to write
+     * @param length the number of buffers to use from the start of the array
+     * @throws IOException if the port is unable to write
+     */
+    default void write(ByteBuffer[] srcs, int length) throws IOException {
+        for (int i = 0; i < length; i++) {
+            ByteBuffer src = srcs[i];
+            int remaining = src.remaining();
+            if (src.hasArray() && src.arrayOffset() + src.position() == 0) {
+                write(src.array(), remaining);
+            } else {
+                byte[] bytes = new byte[remaining];
+                src.get(bytes);
+                write(bytes, remaining);
+            }
+        }
+    }
+
     void shutdownInput() throws IOException;
 
     void close() throws IOException;
@@ -0,0 +1,348 @@
+// Copyright 2021 The NATS Authors
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package io.nats.client.impl;
+
+import java.time.Duration;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A timer for large numbers of short tasks that are usually cancelled before they run, like request
+ * timeouts. Tasks are kept in a wheel of buckets, one bucket per tick, so scheduling and cancelling
+ * are constant time no matter how many tasks are waiting, and a task runs within one tick of its
+ * deadline.
+ *
+ * <p>New and cancelled tasks go through concurrent queues, so only the timer thread touches the
+ * wheel. Tasks run on the timer thread and must be quick. The thread is started by the first
+ * schedule call and stopped by {@link #stop()}.
+ */
+class HashedWheelTimer {
+
+    private static final int MAX_TRANSFERS_PER_TICK = 100_000;
+
+    private final String name;
+    private final long tickNanos;
+    private final Bucket[] wheel;
+    private final int mask;
+    private final Queue<Timeout> pending;
+    private final Queue<Timeout> cancelled;
+    private final AtomicInteger waiting;
+
+    private volatile Thread worker;
+    private volatile boolean stopped;
+    private long startTime;
+    private long tick; // timer thread only
+
+    /**
+     * @param name the name of the timer thread
+     * @param tickDuration how long each bucket covers, the precision of the timer
+     * @param ticksPerWheel the number of buckets, rounded up to a power of two
+     */
+    HashedWheelTimer(String name, Duration tickDuration, int ticksPerWheel) {
+        if (tickDuration.toNanos() <= 0) {
+            throw new IllegalArgumentException("Tick duration must be positive");
+        }
+        if (ticksPerWheel < 1 || ticksPerWheel > (1 << 30)) {
+            throw new IllegalArgumentException("Ticks per wheel must be between 1 and 2^30");
+        }
+        int size = 1;
+        while (size < ticksPerWheel) {
+            size <<= 1;
+        }
+
+        this.name = name;
+        this.tickNanos = tickDuration.toNanos();
+        this.wheel = new Bucket[size];
+        for (int i = 0; i < size; i++) {
+            this.wheel[i] = new Bucket();
+        }
+        this.mask = size - 1;
+        this.pending = new ConcurrentLinkedQueue<>();
+        this.cancelled = new ConcurrentLinkedQueue<>();
+        this.waiting = new AtomicInteger();
+    }
+
+    /**
+     * Schedule a task to run once after the delay.
+     * @param task the task, run on the timer thread
+     * @param delay the delay
+     * @param unit the unit of the delay
+     * @return the handle used to cancel the task, already cancelled if the timer is stopped
+     */
+    Timeout schedule(Runnable task, long delay, TimeUnit unit) {
+        return add(new Timeout(this, task, 0), unit.toNanos(delay));
+    }
+
+    /**
+     * Schedule a task to run after the initial delay and then every period, until it is cancelled.
+     * @param task the task, run on the timer thread
+     * @param initialDelay the delay before the first run
+     * @param period the time between runs, measured from deadline to deadline
+     * @param unit the unit of the delay and period
+     * @return the handle used to cancel the task, already cancelled if the timer is stopped
+     */
+    Timeout schedulePeriodic(Runnable task, long initialDelay, long period, TimeUnit unit) {
+        if (period <= 0) {
+            throw new IllegalArgumentException("Period must be positive");
+        }
+        return add(new Timeout(this, task, unit.toNanos(period)), unit.toNanos(initialDelay));
+    }
+
+    private Timeout add(Timeout timeout, long delayNanos) {
+        if (this.stopped) {
+            timeout.state = Timeout.CANCELLED;
+            return timeout;
+        }
+        start();
+        timeout.deadline = System.nanoTime() - this.startTime + Math.max(0, delayNanos);
+        this.waiting.incrementAndGet();
+        this.pending.add(timeout);
+        return timeout;
+    }
+
+    private void start() {
+        if (this.worker == null) {
+            synchronized (this) {
+                if (this.worker == null && !this.stopped) {
+                    this.startTime = System.nanoTime();
+                    Thread t = new Thread(this::run, this.name);
+                    t.setDaemon(true);
+                    this.worker = t;
+                    t.start();
+                }
+            }
+        }
+    }
+
+    /**
+     * Stop the timer thread. Tasks that haven't run are dropped, later calls to schedule return
+     * cancelled timeouts.
+     */
+    void stop() {
+        Thread t;
+        synchronized (this) {
+            this.stopped = true;
+            t = this.worker;
+        }
+        if (t != null && t != Thread.currentThread()) {
+            LockSupport.unpark(t);
+        }
+    }
+
+    /**
+     * @return the number of scheduled tasks waiting to run
+     */
+    int pendingTimeouts() {
+        return this.waiting.get();
+    }
+
+    private void run() {
+        while (!this.stopped) {
+            long deadline = waitForNextTick();
+            if (this.stopped) {
+                break;
+            }
+            removeCancelled();
+            transferPending();
+            this.wheel[(int) (this.tick & this.mask)].expire(deadline);
+            this.tick++;
+        }
+        this.pending.clear();
+        this.cancelled.clear();
+        this.waiting.set(0);
+    }
+
+    // Sleeps until the end of the current tick and returns that time relative to the start
+    private long waitForNextTick() {
+        long deadline = this.tickNanos * (this.tick + 1);
+        while (!this.stopped) {
+            long now = System.nanoTime() - this.startTime;
+            long sleep = deadline - now;
+            if (sleep <= 0) {
+                return now;
+            }
+            LockSupport.parkNanos(this, sleep);
+        }
+        return deadline;
+    }
+
+    private void removeCancelled() {
+        Timeout t;
+        while ((t = this.cancelled.poll()) != null) {
+            if (t.bucket != null) {
+                t.bucket.remove(t);
+            }
+        }
+    }
+
+    private void transferPending() {
+        for (int i = 0; i < MAX_TRANSFERS_PER_TICK; i++) {
+            Timeout t = this.pending.poll();
+            if (t == null) {
+                return;
+            }
+            if (t.state != Timeout.WAITING) {
+                continue;
+            }
+            long calculated = t.deadline / this.tickNanos;
+            t.remainingRounds = (calculated - this.tick) / this.wheel.length;
+            long ticks = Math.max(calculated, this.tick); // anything already late goes in this tick
+            this.wheel[(int) (ticks & this.mask)].add(t);
+        }
+    }
+
+    private void reschedule(Timeout t) {
+        t.deadline += t.period;
+        t.state = Timeout.WAITING;
+        if (t.cancelRequested && Timeout.STATE.compareAndSet(t, Timeout.WAITING, Timeout.CANCELLED)) {
+            return; // cancelled while it was running
+        }
+        if (!this.stopped) {
+            this.waiting.incrementAndGet();
+            this.pending.add(t);
+        }
+    }
+
+    /**
+     * The handle for a scheduled task.
+     */
+    static final class Timeout {
+        private static final int WAITING = 0;
+        private static final int CANCELLED = 1;
+        private static final int RUNNING = 2;
+        private static final int DONE = 3;
+        private static final AtomicIntegerFieldUpdater<Timeout> STATE =
+                AtomicIntegerFieldUpdater.newUpdater(Timeout.class, "state");
+
+        private final HashedWheelTimer timer;
+        private final Runnable task;
+        private final long period;
+        private volatile int state;
+        private volatile boolean cancelRequested;
+
+        // timer thread only
+        private long deadline;
+        private long remainingRounds;
+        private Bucket bucket;
+        private Timeout next;
+        private Timeout prev;
+
+        private Timeout(HashedWheelTimer timer, Runnable task, long period) {
+            this.timer = timer;
+            this.task = task;
+            this.period = period;
+        }
+
+        /**
+         * Cancel the task if it hasn't run yet, a periodic task doesn't run again.
+         * @return true if this call stopped the task from running
+         */
+        boolean cancel() {
+            this.cancelRequested = true;
+            if (!STATE.compareAndSet(this, WAITING, CANCELLED)) {
+                return false;
+            }
+            this.timer.waiting.decrementAndGet();
+            this.timer.cancelled.add(this);
+            return true;
+        }
+
+        /**
+         * @return true if the task was cancelled before it ran
+         */
+        boolean isCancelled() {
+            return this.state == CANCELLED;
+        }
+
+        /**
+         * @return true if a one time task has run
+         */
+        boolean isExpired() {
+            return this.state == DONE;
+        }
+
+        private void expire() {
+            if (!STATE.compareAndSet(this, WAITING, RUNNING)) {
+                return;
+            }
+            this.timer.waiting.decrementAndGet();
+            try {
+                this.task.run();
+            } catch (Throwable t) {
+                // the task owns its errors, keep the timer going
+            }
+            if (this.period > 0 && !this.cancelRequested) {
+                this.timer.reschedule(this);
+            } else {
+                this.state = this.cancelRequested && this.period > 0 ? CANCELLED : DONE;
+            }
+        }
+    }
+
+    // A doubly linked list of timeouts, only touched by the timer thread
+    private static final class Bucket {
+        private Timeout head;
+        private Timeout tail;
+
+        void add(Timeout t) {
+            t.bucket = this;
+            if (this.head == null) {
+                this.head = this.tail = t;
+            } else {
+                this.tail.next = t;
+                t.prev = this.tail;
+                this.tail = t;
+            }
+        }
+
+        void expire(long deadline) {
+            Timeout t = this.head;
+            while (t != null) {
+                Timeout next = t.next;
+                if (t.state != Timeout.WAITING) {
+                    remove(t);
+                } else if (t.remainingRounds <= 0 && t.deadline <= deadline) {
+                    remove(t);
+                    t.expire();
+                } else if (t.remainingRounds > 0) {
+                    t.remainingRounds--;
+                }
+                t = next;
+            }
+        }
+
+        void remove(Timeout t) {
+            if (t.bucket != this) {
+                return;
+            }
+            if (t.prev != null) {
+                t.prev.next = t.next;
+            } else {
+                this.head = t.next;
+            }
+            if (t.next != null) {
+                t.next.prev = t.prev;
+            } else {
+                this.tail = t.prev;
+            }
+            t.prev = null;
+            t.next = null;
+            t.bucket = null;
+        }
+    }
+}
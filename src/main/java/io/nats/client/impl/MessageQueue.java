@@ -13,36 +13,56 @@
 
 package io.nats.client.impl;
 
+import io.nats.client.Options;
+
 import java.time.Duration;
+import java.util.AbstractCollection;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 import java.util.function.Predicate;
 
 import static io.nats.client.support.NatsConstants.EMPTY_BODY;
 
-class MessageQueue {
+class MessageQueue implements OutgoingQueue {
     private final static int STOPPED = 0;
     private final static int RUNNING = 1;
     private final static int DRAINING = 2;
 
+    // internal messages, like pings, keep the original wait whatever the publish timeout is
+    private final static long INTERNAL_PUSH_TIMEOUT_NANOS = Options.DEFAULT_OUTGOING_QUEUE_FULL_TIMEOUT.toNanos();
+
     private final AtomicLong length;
     private final AtomicLong sizeInBytes;
     private final AtomicInteger running;
     private final boolean singleThreadedReader;
-    private final LinkedBlockingQueue<NatsMessage> queue;
+    private final BlockingQueue<NatsMessage> queue;
+    private final boolean lockFreePush; // the ring handles filtering alongside producers
     private final Lock filterLock;
     private final boolean discardWhenFull;
+    private final long maxBytes;
+    private final long fullTimeoutNanos;
+
+    // publishers waiting for the byte limit park here, the reader signals when it takes messages
+    private final Lock spaceLock;
+    private final Condition spaceAvailable;
+    private final AtomicInteger spaceWaiters;
 
     // Poison pill is a graphic, but common term for an item that breaks loops or stop something.
     // In this class the poisonPill is used to break out of timed waits on the blocking queue.
     // A simple == is used to check if any message in the queue is this message.
     private final NatsMessage poisonPill;
 
+    private final DrainCollector drainCollector;
+
     /**
      * If publishHighwaterMark is set to 0 the underlying queue can grow forever (or until the max size of a linked blocking queue that is).
      * A value of 0 is used by readers to prevent the read thread from blocking.
@@ -53,14 +73,57 @@ class MessageQueue {
      * @param discardWhenFull allows to discard messages when the underlying queue is full
      */
     MessageQueue(boolean singleReaderMode, int publishHighwaterMark, boolean discardWhenFull) {
-        this.queue = publishHighwaterMark > 0 ? new LinkedBlockingQueue<NatsMessage>(publishHighwaterMark) : new LinkedBlockingQueue<NatsMessage>();
+        this(singleReaderMode, publishHighwaterMark, discardWhenFull, null);
+    }
+
+    /**
+     * Same as {@link #MessageQueue(boolean, int, boolean)}, but when a wait strategy is given the queue
+     * is backed by a lock free {@link MessageRing} instead of a LinkedBlockingQueue. The ring supports
+     * a single reader only.
+     * @param singleReaderMode allows the use of "accumulate", required for the ring
+     * @param publishHighwaterMark sets a limit on the size of the underlying queue
+     * @param discardWhenFull allows to discard messages when the underlying queue is full
+     * @param ringWaitStrategy how the reader waits on the ring, or null to use a LinkedBlockingQueue
+     */
+    MessageQueue(boolean singleReaderMode, int publishHighwaterMark, boolean discardWhenFull, MessageRing.WaitStrategy ringWaitStrategy) {
+        this(singleReaderMode, publishHighwaterMark, discardWhenFull, ringWaitStrategy, 0, Options.DEFAULT_OUTGOING_QUEUE_FULL_TIMEOUT);
+    }
+
+    /**
+     * Same as {@link #MessageQueue(boolean, int, boolean, MessageRing.WaitStrategy)}, with a limit on the bytes
+     * in the queue and the time a push waits for room when the queue is full. When the wait runs out push throws,
+     * unless discardWhenFull is set, in which case push returns false right away.
+     * @param singleReaderMode allows the use of "accumulate", required for the ring
+     * @param publishHighwaterMark sets a limit on the size of the underlying queue
+     * @param discardWhenFull allows to discard messages when the underlying queue is full
+     * @param ringWaitStrategy how the reader waits on the ring, or null to use a LinkedBlockingQueue
+     * @param maxBytes the limit on the bytes in the queue, 0 for no limit, internal messages are not held to it
+     * @param fullTimeout how long push waits for room in a full queue
+     */
+    MessageQueue(boolean singleReaderMode, int publishHighwaterMark, boolean discardWhenFull, MessageRing.WaitStrategy ringWaitStrategy,
+                 long maxBytes, Duration fullTimeout) {
+        if (ringWaitStrategy != null) {
+            if (!singleReaderMode) {
+                throw new IllegalArgumentException("The message ring only supports single reader mode.");
+            }
+            this.queue = new MessageRing(publishHighwaterMark, ringWaitStrategy);
+        } else {
+            this.queue = publishHighwaterMark > 0 ? new LinkedBlockingQueue<NatsMessage>(publishHighwaterMark) : new LinkedBlockingQueue<NatsMessage>();
+        }
+        this.lockFreePush = ringWaitStrategy != null;
         this.discardWhenFull = discardWhenFull;
+        this.maxBytes = maxBytes;
+        this.fullTimeoutNanos = fullTimeout.toNanos();
+        this.spaceLock = new ReentrantLock();
+        this.spaceAvailable = this.spaceLock.newCondition();
+        this.spaceWaiters = new AtomicInteger();
         this.running = new AtomicInteger(RUNNING);
         this.sizeInBytes = new AtomicLong(0);
         this.length = new AtomicLong(0);
 
         // The poisonPill is used to stop poll and accumulate when the queue is stopped
         this.poisonPill = new NatsMessage("_poison", null, EMPTY_BODY);
+        this.drainCollector = new DrainCollector();
 
         this.filterLock = new ReentrantLock();
         
@@ -87,12 +150,14 @@ class MessageQueue {
         return this.running.get() == DRAINING;
     }
 
-    void pause() {
+    @Override
+    public void pause() {
         this.running.set(STOPPED);
         this.poisonTheQueue();
     }
 
-    void resume() {
+    @Override
+    public void resume() {
         this.running.set(RUNNING);
     }
 
@@ -106,28 +171,135 @@ class MessageQueue {
         return this.running.get() == DRAINING && this.length() == 0;
     }
 
-    boolean push(NatsMessage msg) {
+    @Override
+    public boolean push(NatsMessage msg) {
         return push(msg, false);
     }
 
-    boolean push(NatsMessage msg, boolean internal) {
+    @Override
+    public boolean push(NatsMessage msg, boolean internal) {
+        long size = msg.getSizeInBytes();
+        boolean limitBytes = !internal && this.maxBytes > 0;
+        boolean discard = !internal && this.discardWhenFull;
+        long deadline = System.nanoTime() + (internal ? INTERNAL_PUSH_TIMEOUT_NANOS : this.fullTimeoutNanos);
+
+        // Room under the byte limit is claimed before taking the filter lock,
+        // so a publisher waiting on the limit doesn't hold up every other publisher
+        if (limitBytes) {
+            boolean reserved = discard ? this.reserveBytes(size) : this.waitForBytes(size, deadline);
+            if (!reserved) {
+                if (discard) {
+                    return false;
+                }
+                throw new IllegalStateException("Output queue is full " + this.sizeInBytes.get() + " bytes");
+            }
+        }
 
-        this.filterLock.lock();
+        boolean pushed;
         try {
-            // If we aren't running, then we need to obey the filter lock
-            // to avoid ordering problems
-            if (!internal && this.discardWhenFull) {
-                boolean myOffer = this.queue.offer(msg);
-                return myOffer;
+            if (this.lockFreePush) {
+                // the ring filters in place so it doesn't need the filter lock
+                pushed = this.enqueue(msg, discard, deadline);
+            } else {
+                // If we aren't running, then we need to obey the filter lock
+                // to avoid ordering problems
+                this.filterLock.lock();
+                try {
+                    pushed = this.enqueue(msg, discard, deadline);
+                } finally {
+                    this.filterLock.unlock();
+                }
+            }
+        } catch (RuntimeException e) {
+            if (limitBytes) {
+                this.releaseBytes(size);
+            }
+            throw e;
+        }
+
+        if (!pushed) {
+            if (limitBytes) {
+                this.releaseBytes(size);
             }
-            if (!this.offer(msg)) {
-                throw new IllegalStateException("Output queue is full " + queue.size());
+            if (discard) {
+                return false;
             }
-            this.sizeInBytes.getAndAdd(msg.getSizeInBytes());
-            this.length.incrementAndGet();
+            throw new IllegalStateException("Output queue is full " + queue.size());
+        }
+
+        if (!limitBytes) {
+            this.sizeInBytes.getAndAdd(size);
+        }
+        this.length.incrementAndGet();
+        return true;
+    }
+
+    private boolean enqueue(NatsMessage msg, boolean discard, long deadline) {
+        if (discard) {
+            return this.queue.offer(msg);
+        }
+        try {
+            return this.queue.offer(msg, Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (InterruptedException ie) {
+            throw interrupted(ie);
+        }
+    }
+
+    // An interrupted push is not a full queue, keep the interrupt and say what happened
+    private static IllegalStateException interrupted(InterruptedException ie) {
+        Thread.currentThread().interrupt();
+        return new IllegalStateException("Interrupted while waiting for room in the output queue", ie);
+    }
+
+    // Claims room for size bytes under the byte limit. An empty queue always takes the
+    // message, so one that is bigger than the limit can't get stuck forever.
+    private boolean reserveBytes(long size) {
+        while (true) {
+            long current = this.sizeInBytes.get();
+            if (current > 0 && current + size > this.maxBytes) {
+                return false;
+            }
+            if (this.sizeInBytes.compareAndSet(current, current + size)) {
+                return true;
+            }
+        }
+    }
+
+    private boolean waitForBytes(long size, long deadline) {
+        if (this.reserveBytes(size)) {
             return true;
+        }
+
+        this.spaceLock.lock();
+        this.spaceWaiters.incrementAndGet();
+        try {
+            // the waiter count is up before we look again, so a reader that frees room after this check will signal
+            while (!this.reserveBytes(size)) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    return false;
+                }
+                this.spaceAvailable.awaitNanos(remaining);
+            }
+            return true;
+        } catch (InterruptedException ie) {
+            throw interrupted(ie);
         } finally {
-            this.filterLock.unlock();
+            this.spaceWaiters.decrementAndGet();
+            this.spaceLock.unlock();
+        }
+    }
+
+    // called after bytes leave the queue
+    private void releaseBytes(long size) {
+        this.sizeInBytes.addAndGet(-size);
+        if (this.spaceWaiters.get() > 0) {
+            this.spaceLock.lock();
+            try {
+                this.spaceAvailable.signalAll();
+            } finally {
+                this.spaceLock.unlock();
+            }
         }
     }
 
@@ -135,7 +307,8 @@ class MessageQueue {
      * poisoning the queue puts the known poison pill into the queue, forcing any waiting code to stop
      * waiting and return.
      */
-    void poisonTheQueue() {
+    @Override
+    public void poisonTheQueue() {
         try {
             this.queue.add(this.poisonPill);
         } catch (IllegalStateException ie) { // queue was full, so we don't really need poison pill
@@ -143,14 +316,6 @@ class MessageQueue {
         }
     }
 
-    boolean offer(NatsMessage msg) {
-        try {
-            return this.queue.offer(msg, 5, TimeUnit.SECONDS);
-        } catch (InterruptedException ie) {
-            return false;
-        }
-    }
-
     NatsMessage poll(Duration timeout) throws InterruptedException {
         NatsMessage msg = null;
         
@@ -190,11 +355,92 @@ class MessageQueue {
             return null;
         }
 
-        this.sizeInBytes.getAndAdd(-msg.getSizeInBytes());
+        this.releaseBytes(msg.getSizeInBytes());
         this.length.decrementAndGet();
 
         return msg;
     }
+
+
+    // Waits up to the timeout for a message, the same as pop, then moves whatever else is already
+    // in the queue, up to max messages in all, into the collection with a single drainTo on the
+    // underlying queue. The counters are updated once for the whole set.
+    //
+    // Returns the number of messages added, 0 if there was a timeout or the queue isn't running.
+    int popAll(int max, Duration timeout, Collection<? super NatsMessage> into) throws InterruptedException {
+        if (max < 1 || !this.isRunning()) {
+            return 0;
+        }
+
+        NatsMessage first = this.poll(timeout);
+
+        if (first == null) {
+            return 0;
+        }
+
+        into.add(first);
+        int count = 1;
+        long bytes = first.getSizeInBytes();
+
+        if (max > 1) {
+            synchronized (this.drainCollector) {
+                this.drainCollector.start(into);
+                try {
+                    this.queue.drainTo(this.drainCollector, max - 1);
+                    count += this.drainCollector.count;
+                    bytes += this.drainCollector.bytes;
+                    if (this.drainCollector.sawPoisonPill) {
+                        this.poisonTheQueue(); // pass it on to any other reader
+                    }
+                } finally {
+                    this.drainCollector.start(null);
+                }
+            }
+        }
+
+        this.releaseBytes(bytes);
+        this.length.addAndGet(-count);
+
+        return count;
+    }
+
+    // Sits between the underlying queue and the caller's collection during popAll, keeping the
+    // poison pill out and adding up the sizes, so nothing is allocated per call.
+    private class DrainCollector extends AbstractCollection<NatsMessage> {
+        private Collection<? super NatsMessage> into;
+        private int count;
+        private long bytes;
+        private boolean sawPoisonPill;
+
+        void start(Collection<? super NatsMessage> into) {
+            this.into = into;
+            this.count = 0;
+            this.bytes = 0;
+            this.sawPoisonPill = false;
+        }
+
+        @Override
+        public boolean add(NatsMessage msg) {
+            if (msg == poisonPill) {
+                this.sawPoisonPill = true;
+                return false;
+            }
+            this.into.add(msg);
+            this.count++;
+            this.bytes += msg.getSizeInBytes();
+            return true;
+        }
+
+        @Override
+        public Iterator<NatsMessage> iterator() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public int size() {
+            return this.count;
+        }
+    }
     
     // Waits up to the timeout to try to accumulate multiple messages
     // Use the next field to read the entire set accumulated.
@@ -206,7 +452,20 @@ class MessageQueue {
     // Only works in single reader mode, because we want to maintain order.
     // accumulate reads off the concurrent queue one at a time, so if multiple
     // readers are present, you could get out of order message delivery.
-    NatsMessage accumulate(long maxSize, long maxMessages, Duration timeout)
+    @Override
+    public NatsMessage accumulate(long maxSize, long maxMessages, Duration timeout)
+            throws InterruptedException {
+        return accumulate(maxSize, maxMessages, timeout, (Predicate<NatsMessage>) null);
+    }
+
+    // Takes what is queued without waiting, like accumulate, but stops before the first message
+    // that matches the boundary. A boundary message at the head comes back on its own.
+    NatsMessage accumulateTo(long maxSize, long maxMessages, Predicate<NatsMessage> boundary)
+            throws InterruptedException {
+        return accumulate(maxSize, maxMessages, null, boundary);
+    }
+
+    private NatsMessage accumulate(long maxSize, long maxMessages, Duration timeout, Predicate<NatsMessage> boundary)
             throws InterruptedException {
 
         if (!this.singleThreadedReader) {
@@ -225,8 +484,8 @@ class MessageQueue {
 
         long size = msg.getSizeInBytes();
 
-        if (maxMessages <= 1 || size >= maxSize) {
-            this.sizeInBytes.addAndGet(-size);
+        if (maxMessages <= 1 || size >= maxSize || (boundary != null && boundary.test(msg))) {
+            this.releaseBytes(size);
             this.length.decrementAndGet();
             return msg;
         }
@@ -236,7 +495,7 @@ class MessageQueue {
 
         while (cursor != null) {
             NatsMessage next = this.queue.peek();
-            if (next != null && next != this.poisonPill) {
+            if (next != null && next != this.poisonPill && (boundary == null || !boundary.test(next))) {
                 long s = next.getSizeInBytes();
 
                 if (maxSize<0 || (size + s) < maxSize) { // keep going
@@ -257,39 +516,99 @@ class MessageQueue {
             }
         }
 
-        this.sizeInBytes.addAndGet(-size);
+        this.releaseBytes(size);
         this.length.addAndGet(-count);
 
         return msg;
     }
 
+    // Same as accumulate, but once the first message is in, keeps waiting up to linger for more
+    // until maxMessages or maxSize is reached. Messages that come in while lingering are taken whole,
+    // so the last one can take the batch past maxSize.
+    NatsMessage accumulate(long maxSize, long maxMessages, Duration timeout, Duration linger)
+            throws InterruptedException {
+
+        NatsMessage msg = this.accumulate(maxSize, maxMessages, timeout);
+
+        if (msg == null || linger == null || linger.isZero() || linger.isNegative()) {
+            return msg;
+        }
+
+        long size = 0;
+        long count = 0;
+        NatsMessage cursor = msg;
+        while (true) {
+            size += cursor.getSizeInBytes();
+            count++;
+            if (cursor.next == null) {
+                break;
+            }
+            cursor = cursor.next;
+        }
+
+        long deadline = System.nanoTime() + linger.toNanos();
+        while (count < maxMessages && size < maxSize && this.isRunning()) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                break;
+            }
+
+            NatsMessage next = this.queue.poll(remaining, TimeUnit.NANOSECONDS);
+            if (next == null || next == this.poisonPill) {
+                break;
+            }
+
+            long s = next.getSizeInBytes();
+            this.releaseBytes(s);
+            this.length.decrementAndGet();
+            size += s;
+            count++;
+            cursor.next = next;
+            cursor = next;
+        }
+
+        return msg;
+    }
+
     // Returns a message or null
     NatsMessage popNow() throws InterruptedException {
         return pop(null);
     }
 
     // Just for testing
-    long length() {
+    @Override
+    public long length() {
         return this.length.get();
     }
 
-    long sizeInBytes() {
+    @Override
+    public long sizeInBytes() {
         return this.sizeInBytes.get();
     }
 
-    void filter(Predicate<NatsMessage> p) {
+    @Override
+    public void filter(Predicate<NatsMessage> p) {
         this.filterLock.lock();
         try {
             if (this.isRunning()) {
                 throw new IllegalStateException("Filter is only supported when the queue is paused");
             }
+            if (this.lockFreePush) {
+                // the ring removes in place, so messages pushed meanwhile stay behind the ones we keep,
+                // counters only change for messages the ring removed, not ones the reader took first
+                ((MessageRing) this.queue).removeIf(cursor -> cursor != this.poisonPill && p.test(cursor), removed -> {
+                    this.releaseBytes(removed.getSizeInBytes());
+                    this.length.decrementAndGet();
+                });
+                return;
+            }
             ArrayList<NatsMessage> newQueue = new ArrayList<>();
             NatsMessage cursor = this.queue.poll();
             while (cursor != null) {
                 if (!p.test(cursor)) {
                     newQueue.add(cursor);
                 } else {
-                    this.sizeInBytes.addAndGet(-cursor.getSizeInBytes());
+                    this.releaseBytes(cursor.getSizeInBytes());
                     this.length.decrementAndGet();
                 }
                 cursor = this.queue.poll();
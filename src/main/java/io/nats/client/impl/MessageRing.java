@@ -0,0 +1,482 @@
+// Copyright 2021 The NATS Authors
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package io.nats.client.impl;
+
+import io.nats.client.Options;
+
+import java.util.AbstractQueue;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * A lock free multi producer, single consumer queue of messages, used by {@link MessageQueue}
+ * in place of a {@link java.util.concurrent.LinkedBlockingQueue} for queues with one reader.
+ *
+ * <p>Messages live in linked array chunks. A producer claims an index with a single compare and
+ * set and then writes the message into its slot, so an offer does not lock or allocate, other than
+ * a new chunk every {@link #CHUNK_SIZE} messages. The consumer takes messages in index order,
+ * a claimed slot that has not been written yet reads as empty.
+ *
+ * <p>The queue is bounded when created with a capacity, otherwise it grows one chunk at a time.
+ * Chunks are used rather than one preallocated array because the ring also backs dispatcher
+ * queues, which are unbounded and would otherwise need an array sized to the pending limit.
+ * A chunk costs one allocation per {@link #CHUNK_SIZE} messages, where the linked queue it
+ * replaces allocates a node per message.
+ * How the consumer waits for a message is set by the {@link WaitStrategy}.
+ *
+ * <p>Only one thread may poll or peek at a time. {@link #removeIf(Predicate)} and iteration may run
+ * alongside the consumer and producers, removed messages are left as markers that the consumer skips.
+ * Iterators are weakly consistent, they see the messages queued when they were created that have
+ * not been taken yet.
+ */
+class MessageRing extends AbstractQueue<NatsMessage> implements BlockingQueue<NatsMessage> {
+
+    /**
+     * How the consumer waits for a message to arrive.
+     */
+    enum WaitStrategy {
+        /** Park until a producer wakes the consumer up. Uses no cpu while idle. */
+        BLOCKING,
+        /** Spin, then yield, then park for short periods. Trades some cpu for lower hand-off latency. */
+        SPIN_YIELD_PARK,
+        /** Spin until a message arrives. Lowest latency, keeps a core busy while waiting. */
+        BUSY_SPIN
+    }
+
+    static final int CHUNK_SIZE = 1024;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+    static final int SPIN_TRIES = 100;
+    static final int YIELD_TRIES = 100;
+    static final long PARK_NANOS = 50_000;
+
+    private static final NatsMessage REMOVED = new NatsMessage.ProtocolMessage(new byte[0]);
+
+    private static final class Chunk {
+        final long base;
+        final AtomicReferenceArray<NatsMessage> slots = new AtomicReferenceArray<>(CHUNK_SIZE);
+        volatile Chunk next;
+
+        Chunk(long base) {
+            this.base = base;
+        }
+    }
+
+    private static final AtomicReferenceFieldUpdater<Chunk, Chunk> NEXT =
+            AtomicReferenceFieldUpdater.newUpdater(Chunk.class, Chunk.class, "next");
+
+    private final long capacity;
+    private final WaitStrategy waitStrategy;
+
+    private final AtomicLong producerIndex = new AtomicLong();
+    private volatile Chunk producerChunk; // a hint, producers walk forward from here
+
+    private final AtomicLong consumerIndex = new AtomicLong();
+    private volatile Chunk consumerChunk;
+    private volatile Thread waitingConsumer;
+
+    MessageRing(int capacity, WaitStrategy waitStrategy) {
+        this.capacity = capacity > 0 ? capacity : Long.MAX_VALUE;
+        this.waitStrategy = waitStrategy;
+        Chunk first = new Chunk(0);
+        this.producerChunk = first;
+        this.consumerChunk = first;
+    }
+
+    WaitStrategy getWaitStrategy() {
+        return waitStrategy;
+    }
+
+    /**
+     * @return the ring wait strategy for a connection's hand off setting, or null when the
+     * connection should keep blocking on a linked queue
+     */
+    static WaitStrategy forHandOff(Options.WaitStrategy strategy) {
+        if (strategy == null) {
+            return null;
+        }
+        switch (strategy) {
+            case SPIN_YIELD_PARK:
+                return WaitStrategy.SPIN_YIELD_PARK;
+            case BUSY_SPIN:
+                return WaitStrategy.BUSY_SPIN;
+            default:
+                return null;
+        }
+    }
+
+    @Override
+    public boolean offer(NatsMessage msg) {
+        if (msg == null) {
+            throw new NullPointerException();
+        }
+
+        long index;
+        do {
+            index = producerIndex.get();
+            if (index - consumerIndex.get() >= capacity) {
+                return false;
+            }
+        } while (!producerIndex.compareAndSet(index, index + 1));
+
+        Chunk chunk = chunkFor(index);
+        chunk.slots.set((int) (index & CHUNK_MASK), msg);
+
+        Thread waiting = waitingConsumer;
+        if (waiting != null) {
+            LockSupport.unpark(waiting);
+        }
+        return true;
+    }
+
+    // Find the chunk for a claimed index, linking new chunks as needed
+    private Chunk chunkFor(long index) {
+        Chunk chunk = producerChunk;
+        if (chunk.base > index) {
+            // the hint moved past us, the consumer can't, it is waiting on our slot
+            chunk = consumerChunk;
+        }
+
+        while (index >= chunk.base + CHUNK_SIZE) {
+            Chunk next = chunk.next;
+            if (next == null) {
+                Chunk created = new Chunk(chunk.base + CHUNK_SIZE);
+                NEXT.compareAndSet(chunk, null, created);
+                next = chunk.next;
+            }
+            chunk = next;
+        }
+
+        if (chunk.base > producerChunk.base) {
+            producerChunk = chunk;
+        }
+        return chunk;
+    }
+
+    @Override
+    public NatsMessage poll() {
+        while (true) {
+            long index = consumerIndex.get();
+            Chunk chunk = consumerChunk;
+            int slot = (int) (index & CHUNK_MASK);
+
+            if (index == chunk.base + CHUNK_SIZE) {
+                Chunk next = chunk.next;
+                if (next == null) {
+                    return null;
+                }
+                consumerChunk = next;
+                chunk = next;
+            }
+
+            NatsMessage msg = chunk.slots.get(slot);
+            if (msg == null) {
+                return null;
+            }
+
+            if (msg != REMOVED && !chunk.slots.compareAndSet(slot, msg, null)) {
+                msg = REMOVED; // lost to removeIf, skip the slot
+            }
+            chunk.slots.lazySet(slot, null);
+            consumerIndex.lazySet(index + 1);
+
+            if (msg != REMOVED) {
+                return msg;
+            }
+        }
+    }
+
+    @Override
+    public NatsMessage peek() {
+        while (true) {
+            long index = consumerIndex.get();
+            Chunk chunk = consumerChunk;
+            int slot = (int) (index & CHUNK_MASK);
+
+            if (index == chunk.base + CHUNK_SIZE) {
+                Chunk next = chunk.next;
+                if (next == null) {
+                    return null;
+                }
+                consumerChunk = next;
+                chunk = next;
+            }
+
+            NatsMessage msg = chunk.slots.get(slot);
+            if (msg != REMOVED) {
+                return msg;
+            }
+
+            // step over removed messages
+            chunk.slots.lazySet(slot, null);
+            consumerIndex.lazySet(index + 1);
+        }
+    }
+
+    @Override
+    public NatsMessage poll(long timeout, TimeUnit unit) throws InterruptedException {
+        NatsMessage msg = poll();
+        if (msg != null) {
+            return msg;
+        }
+
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        int tries = 0;
+
+        while (true) {
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                return poll();
+            }
+
+            switch (waitStrategy) {
+                case BUSY_SPIN:
+                    break;
+                case SPIN_YIELD_PARK:
+                    if (tries < SPIN_TRIES) {
+                        tries++;
+                    } else if (tries < SPIN_TRIES + YIELD_TRIES) {
+                        tries++;
+                        Thread.yield();
+                    } else {
+                        LockSupport.parkNanos(this, Math.min(remaining, PARK_NANOS));
+                    }
+                    break;
+                default: // BLOCKING
+                    waitingConsumer = Thread.currentThread();
+                    // check again after publishing ourselves, so a producer can't miss us
+                    if (isEmpty()) {
+                        LockSupport.parkNanos(this, remaining);
+                    }
+                    waitingConsumer = null;
+                    break;
+            }
+
+            msg = poll();
+            if (msg != null) {
+                return msg;
+            }
+        }
+    }
+
+    @Override
+    public NatsMessage take() throws InterruptedException {
+        NatsMessage msg;
+        do {
+            msg = poll(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        } while (msg == null);
+        return msg;
+    }
+
+    @Override
+    public boolean offer(NatsMessage msg, long timeout, TimeUnit unit) throws InterruptedException {
+        if (offer(msg)) {
+            return true;
+        }
+
+        // the queue is full, back off until the consumer makes room
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        while (true) {
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                return false;
+            }
+            LockSupport.parkNanos(this, Math.min(remaining, PARK_NANOS));
+            if (offer(msg)) {
+                return true;
+            }
+        }
+    }
+
+    @Override
+    public void put(NatsMessage msg) throws InterruptedException {
+        while (!offer(msg, 1, TimeUnit.DAYS)) {
+            // keep waiting
+        }
+    }
+
+    /**
+     * Remove the messages that match the filter without changing the order of the rest.
+     */
+    @Override
+    public boolean removeIf(Predicate<? super NatsMessage> filter) {
+        return removeIf(filter, msg -> {}) > 0;
+    }
+
+    /**
+     * Remove the messages that match the filter without changing the order of the rest.
+     * Every message queued when this is called is checked, including ones a producer has claimed
+     * a slot for and is still writing. The consumer may take a message at the same time, only
+     * messages this call actually removed are passed to {@code removed}.
+     *
+     * @param filter selects the messages to remove
+     * @param removed called once for each message removed
+     * @return the number of messages removed
+     */
+    int removeIf(Predicate<? super NatsMessage> filter, Consumer<? super NatsMessage> removed) {
+        int count = 0;
+        long end = producerIndex.get();
+        Chunk chunk = consumerChunk;
+
+        for (long index = consumerIndex.get(); index < end; index++) {
+            while (index >= chunk.base + CHUNK_SIZE) {
+                chunk = chunk.next;
+                if (chunk == null) {
+                    return count;
+                }
+            }
+            int slot = (int) (index & CHUNK_MASK);
+            NatsMessage msg = awaitSlot(chunk, slot, index);
+            if (msg != null && msg != REMOVED && filter.test(msg) && chunk.slots.compareAndSet(slot, msg, REMOVED)) {
+                removed.accept(msg);
+                count++;
+            }
+        }
+        return count;
+    }
+
+    // The message in a claimed slot, waiting out a producer that has claimed it but not written it yet.
+    // Null once the consumer has taken it.
+    private NatsMessage awaitSlot(Chunk chunk, int slot, long index) {
+        NatsMessage msg = chunk.slots.get(slot);
+        while (msg == null && consumerIndex.get() <= index) {
+            Thread.yield();
+            msg = chunk.slots.get(slot);
+        }
+        return msg;
+    }
+
+    /**
+     * @return the number of claimed slots, which includes removed messages the consumer has not stepped over yet
+     */
+    @Override
+    public int size() {
+        long size = producerIndex.get() - consumerIndex.get();
+        return (int) Math.max(0, Math.min(size, Integer.MAX_VALUE));
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return producerIndex.get() == consumerIndex.get();
+    }
+
+    @Override
+    public int remainingCapacity() {
+        if (capacity == Long.MAX_VALUE) {
+            return Integer.MAX_VALUE;
+        }
+        return (int) Math.max(0, capacity - (producerIndex.get() - consumerIndex.get()));
+    }
+
+    @Override
+    public int drainTo(Collection<? super NatsMessage> c) {
+        return drainTo(c, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public int drainTo(Collection<? super NatsMessage> c, int maxElements) {
+        int count = 0;
+        NatsMessage msg;
+        while (count < maxElements && (msg = poll()) != null) {
+            c.add(msg);
+            count++;
+        }
+        return count;
+    }
+
+    @Override
+    public Iterator<NatsMessage> iterator() {
+        return new Itr();
+    }
+
+    private class Itr implements Iterator<NatsMessage> {
+        private final long end = producerIndex.get();
+        private long index = consumerIndex.get();
+        private Chunk chunk = consumerChunk;
+
+        private NatsMessage next;
+        private Chunk nextChunk;
+        private int nextSlot;
+
+        private NatsMessage last;
+        private Chunk lastChunk;
+        private int lastSlot;
+
+        Itr() {
+            advance();
+        }
+
+        private void advance() {
+            next = null;
+            while (index < end) {
+                while (chunk != null && index >= chunk.base + CHUNK_SIZE) {
+                    chunk = chunk.next;
+                }
+                if (chunk == null) {
+                    return;
+                }
+                int slot = (int) (index & CHUNK_MASK);
+                NatsMessage msg = awaitSlot(chunk, slot, index);
+                index++;
+                if (msg != null && msg != REMOVED) {
+                    next = msg;
+                    nextChunk = chunk;
+                    nextSlot = slot;
+                    return;
+                }
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public NatsMessage next() {
+            if (next == null) {
+                throw new NoSuchElementException();
+            }
+            last = next;
+            lastChunk = nextChunk;
+            lastSlot = nextSlot;
+            advance();
+            return last;
+        }
+
+        @Override
+        public void remove() {
+            if (last == null) {
+                throw new IllegalStateException();
+            }
+            lastChunk.slots.compareAndSet(lastSlot, last, REMOVED);
+            last = null;
+        }
+    }
+}
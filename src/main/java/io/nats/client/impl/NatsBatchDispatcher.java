@@ -0,0 +1,76 @@
+// Copyright 2021 The NATS Authors
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package io.nats.client.impl;
+
+import io.nats.client.BatchMessageHandler;
+import io.nats.client.Message;
+import io.nats.client.MessageHandler;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A dispatcher that hands its messages to a {@link BatchMessageHandler} in lists. A batch is closed
+ * when it holds maxMessages, reaches maxBytes, or the linger time after its first message runs out,
+ * using the same accumulate the writer uses for the outgoing queue.
+ *
+ * <p>Subscriptions made with their own MessageHandler still get their messages one at a time.
+ */
+class NatsBatchDispatcher extends NatsDispatcher {
+
+    private final BatchMessageHandler batchHandler;
+    private final int maxMessages;
+    private final long maxBytes;
+    private final Duration linger;
+    private List<Message> batch;
+
+    NatsBatchDispatcher(NatsConnection conn, BatchMessageHandler handler, int maxMessages, long maxBytes, Duration linger) {
+        super(conn, null);
+        this.batchHandler = handler;
+        this.maxMessages = maxMessages;
+        this.maxBytes = maxBytes;
+        this.linger = linger;
+        this.batch = new ArrayList<>();
+    }
+
+    @Override
+    NatsMessage nextMessages(MessageQueue incoming, Duration waitForMessage) throws InterruptedException {
+        return incoming.accumulate(this.maxBytes, this.maxMessages, waitForMessage, this.linger);
+    }
+
+    @Override
+    void dispatch(NatsMessage msg, MessageHandler handler) {
+        if (handler != null) {
+            super.dispatch(msg, handler);
+        } else {
+            this.batch.add(msg);
+        }
+    }
+
+    @Override
+    void dispatchComplete() {
+        if (this.batch.isEmpty()) {
+            return;
+        }
+
+        List<Message> msgs = this.batch;
+        this.batch = new ArrayList<>(msgs.size());
+        try {
+            this.batchHandler.onMessages(msgs);
+        } catch (Exception exp) {
+            this.connection.processException(exp);
+        }
+    }
+}
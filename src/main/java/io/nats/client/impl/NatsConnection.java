@@ -32,10 +32,13 @@ import java.time.format.DateTimeFormatter;
 import java.util.*;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 import java.util.concurrent.locks.Condition;
 import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
 import java.util.function.Predicate;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -45,6 +48,10 @@ import static io.nats.client.support.Validator.validateNotNull;
 
 class NatsConnection implements Connection {
 
+    // request timeouts and pings run on a hashed wheel, 10ms ticks over a 5 second wheel
+    static final Duration TIMER_TICK = Duration.ofMillis(10);
+    static final int TIMER_TICKS_PER_WHEEL = 512;
+
     private final Options options;
 
     private final NatsStatistics statistics;
@@ -70,21 +77,29 @@ class NatsConnection implements Connection {
 
     private final AtomicReference<ServerInfo> serverInfo;
 
-    private final Map<String, NatsSubscription> subscribers;
+    private final SidMap<NatsSubscription> subscribers;
     private final Map<String, NatsDispatcher> dispatchers; // use a concurrent map so we get more consistent iteration
                                                      // behavior
-    private final Map<String, NatsRequestCompletableFuture> responsesAwaiting;
-    private final Map<String, NatsRequestCompletableFuture> responsesRespondedTo;
+    private final Map<String, ExpiringRequest<String>> responsesAwaiting; // old style requests, by sid
+    private final Map<Long, ExpiringRequest<Long>> responsesByToken;
+    private final Map<Long, NatsRequestGatherer> gatherersByToken; // requestMany calls
+    private final AtomicLong nextResponseToken;
+    private final RecentReplies[] recentReplies;
     private final ConcurrentLinkedDeque<CompletableFuture<Boolean>> pongQueue;
+    private final Object flushAsyncLock;
+    private CompletableFuture<Duration> flushInFlight; // its PING is out
+    private CompletableFuture<Duration> flushWaiting; // callers since that PING, they get the next one
 
-    private final String mainInbox;
-    private final AtomicReference<NatsDispatcher> inboxDispatcher;
-    private Timer timer;
+    private final String[] responseInboxes; // one wildcard inbox per shard
+    private final char[][] responsePrefixes; // each inbox without the wildcard
+    private final AtomicReferenceArray<NatsDispatcher> inboxDispatchers;
+    private final AtomicInteger nextInboxShard;
+    private final HashedWheelTimer timer;
+    private boolean timersStarted;
 
     private final AtomicBoolean needPing;
 
     private final AtomicLong nextSid;
-    private final NUID nuid;
 
     private final AtomicReference<String> connectError;
     private final AtomicReference<String> lastError;
@@ -113,23 +128,37 @@ class NatsConnection implements Connection {
         this.reconnectWaiter.complete(Boolean.TRUE);
 
         this.dispatchers = new ConcurrentHashMap<>();
-        this.subscribers = new ConcurrentHashMap<>();
+        this.subscribers = new SidMap<>();
         this.responsesAwaiting = new ConcurrentHashMap<>();
-        this.responsesRespondedTo = new ConcurrentHashMap<>();
+        this.responsesByToken = new ConcurrentHashMap<>();
+        this.gatherersByToken = new ConcurrentHashMap<>();
+        this.nextResponseToken = new AtomicLong();
+        this.timer = new HashedWheelTimer("Nats Connection Timer", TIMER_TICK, TIMER_TICKS_PER_WHEEL); // thread starts on first use
 
         this.serverAuthErrors = new HashMap<>();
 
         this.nextSid = new AtomicLong(1);
-        timeTrace(trace, "creating NUID");
-        this.nuid = new NUID();
-        this.mainInbox = createInbox() + ".*";
+        timeTrace(trace, "creating response inboxes");
+        int shards = options.getInboxShards();
+        int shardWindow = (options.getDuplicateReplyWindow() + shards - 1) / shards;
+        this.responseInboxes = new String[shards];
+        this.responsePrefixes = new char[shards][];
+        this.recentReplies = new RecentReplies[shards];
+        for (int i = 0; i < shards; i++) {
+            String inbox = createInbox() + ".";
+            this.responseInboxes[i] = inbox + "*";
+            this.responsePrefixes[i] = inbox.toCharArray();
+            this.recentReplies[i] = new RecentReplies(shardWindow);
+        }
+        this.nextInboxShard = new AtomicInteger();
 
         this.lastError = new AtomicReference<>();
         this.connectError = new AtomicReference<>();
 
         this.serverInfo = new AtomicReference<>();
-        this.inboxDispatcher = new AtomicReference<>();
+        this.inboxDispatchers = new AtomicReferenceArray<>(shards);
         this.pongQueue = new ConcurrentLinkedDeque<>();
+        this.flushAsyncLock = new Object();
         this.draining = new AtomicReference<>();
         this.blockPublishForDrain = new AtomicBoolean();
 
@@ -287,7 +316,7 @@ class NatsConnection implements Connection {
             return;
         }
 
-        this.subscribers.forEach((sid, sub) -> {
+        this.subscribers.forEach(sub -> {
             if (sub.getDispatcher() == null && !sub.isDraining()) {
                 sendSubscriptionMessage(sub.getSID(), sub.getSubject(), sub.getQueueName(), true);
             }
@@ -428,30 +457,18 @@ class NatsConnection implements Connection {
                 pongFuture.get(timeoutNanos, TimeUnit.NANOSECONDS);
             }
 
-            if (this.timer == null) {
-                timeCheck(trace, end, "starting ping and cleanup timers");
-                this.timer = new Timer("Nats Connection Timer");
+            if (!this.timersStarted) {
+                timeCheck(trace, end, "starting ping timer");
+                this.timersStarted = true;
 
                 long pingMillis = this.options.getPingInterval().toMillis();
 
                 if (pingMillis > 0) {
-                    this.timer.schedule(new TimerTask() {
-                        public void run() {
-                            if (isConnected()) {
-                                softPing(); // The timer always uses the standard queue
-                            }
-                        }
-                    }, pingMillis, pingMillis);
-                }
-
-                long cleanMillis = this.options.getRequestCleanupInterval().toMillis();
-
-                if (cleanMillis > 0) {
-                    this.timer.schedule(new TimerTask() {
-                        public void run() {
-                            cleanResponses(false);
+                    this.timer.schedulePeriodic(() -> {
+                        if (isConnected()) {
+                            softPing(); // The timer always uses the standard queue
                         }
-                    }, cleanMillis, cleanMillis);
+                    }, pingMillis, pingMillis, TimeUnit.MILLISECONDS);
                 }
             }
 
@@ -620,20 +637,19 @@ class NatsConnection implements Connection {
 
         this.dispatchers.forEach((nuid, d) -> d.stop(false));
 
-        this.subscribers.forEach((sid, sub) -> sub.invalidate());
+        this.subscribers.forEach(sub -> sub.invalidate());
 
         this.dispatchers.clear();
         this.subscribers.clear();
 
-        if (timer != null) {
-            timer.cancel();
-            timer = null;
-        }
+        timer.stop();
 
         cleanResponses(true);
 
         cleanUpPongQueue();
 
+        this.writer.closeReconnectSpill();
+
         statusLock.lock();
         try {
             updateStatus(Status.CLOSED); // will signal, we also signal when we stop disconnecting
@@ -755,8 +771,15 @@ class NatsConnection implements Connection {
         NatsMessage nm = new NatsMessage(subject, replyTo, new Headers(headers), data, utf8mode);
 
         Connection.Status stat = this.status;
-        if ((stat == Status.RECONNECTING || stat == Status.DISCONNECTED)
-                && !this.writer.canQueueDuringReconnect(nm)) {
+        boolean reconnecting = stat == Status.RECONNECTING || stat == Status.DISCONNECTED;
+        try {
+            if (this.writer.spill(nm, reconnecting)) {
+                return;
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Unable to write to the reconnect spill file", e);
+        }
+        if (reconnecting && !this.writer.canQueueDuringReconnect(nm)) {
             throw new IllegalStateException(
                     "Unable to queue any more messages during reconnect, max buffer is " + options.getReconnectBufferSize());
         }
@@ -822,9 +845,7 @@ class NatsConnection implements Connection {
     }
 
     void invalidate(NatsSubscription sub) {
-        CharSequence sid = sub.getSID();
-
-        subscribers.remove(sid);
+        subscribers.remove(sub.getSIDValue());
 
         if (sub.getNatsDispatcher() != null) {
             sub.getNatsDispatcher().remove(sub);
@@ -871,13 +892,12 @@ class NatsConnection implements Connection {
     NatsSubscription createSubscription(String subject, String queueName, NatsDispatcher dispatcher, boolean isJetStream) {
         if (isClosed()) {
             throw new IllegalStateException("Connection is Closed");
-        } else if (isDraining() && (dispatcher == null || dispatcher != this.inboxDispatcher.get())) {
+        } else if (isDraining() && (dispatcher == null || !isInboxDispatcher(dispatcher))) {
             throw new IllegalStateException("Connection is Draining");
         }
 
         NatsSubscription sub;
-        long sidL = nextSid.getAndIncrement();
-        String sid = String.valueOf(sidL);
+        long sid = nextSid.getAndIncrement();
 
         if (isJetStream) {
             sub = new NatsJetStreamSubscription(sid, subject, queueName, this, dispatcher);
@@ -886,7 +906,7 @@ class NatsConnection implements Connection {
         }
         subscribers.put(sid, sub);
 
-        sendSubscriptionMessage(sid, subject, queueName, false);
+        sendSubscriptionMessage(sub.getSID(), subject, queueName, false);
         return sub;
     }
 
@@ -919,32 +939,35 @@ class NatsConnection implements Connection {
 
     @Override
     public String createInbox() {
-        return options.getInboxPrefix() + nuid.next();
+        return options.getInboxPrefix() + NUID.nextGlobal();
     }
 
     int getRespInboxLength() {
         return options.getInboxPrefix().length() + 22 + 1; // 22 for nuid, 1 for .
     }
 
-    String createResponseInbox(String inbox) {
-        // Substring gets rid of the * [trailing]
-        return inbox.substring(0, getRespInboxLength()) + nuid.next();
+    // The reply subject for a new style request is the shard's inbox followed by the base 62 token
+    String createResponseInbox(int shard, long token) {
+        return ResponseTokens.subject(this.responsePrefixes[shard], token);
     }
 
-    // If the inbox is long enough, pull out the end part, otherwise, just use the
-    // full thing
-    String getResponseToken(String responseInbox) {
-        int len = getRespInboxLength();
-        if (responseInbox.length() <= len) {
-            return responseInbox;
-        }
-        return responseInbox.substring(len);
+    // Returns -1 if the subject is not a response inbox subject
+    long getResponseToken(String responseInbox) {
+        return ResponseTokens.parse(responseInbox, getRespInboxLength());
     }
 
     void cleanResponses(boolean closing) {
-        ArrayList<String> toRemove = new ArrayList<>();
+        cleanResponses(responsesAwaiting, closing);
+        cleanResponses(responsesByToken, closing);
+        if (closing) {
+            gatherersByToken.values().forEach(NatsRequestGatherer::finish);
+        }
+    }
 
-        responsesAwaiting.forEach((key, future) -> {
+    private <K> void cleanResponses(Map<K, ? extends NatsRequestCompletableFuture> awaiting, boolean closing) {
+        ArrayList<K> toRemove = new ArrayList<>();
+
+        awaiting.forEach((key, future) -> {
             boolean remove = false;
             if (future.hasExceededTimeout()) {
                 remove = true;
@@ -966,19 +989,8 @@ class NatsConnection implements Connection {
             }
         });
 
-        for (String token : toRemove) {
-            responsesAwaiting.remove(token);
-        }
-
-        toRemove.clear(); // just reuse this
-        responsesRespondedTo.forEach((key, future) -> {
-            if (future.hasExceededTimeout()) {
-                toRemove.add(key);
-            }
-        });
-
-        for (String token : toRemove) {
-            responsesRespondedTo.remove(token);
+        for (K key : toRemove) {
+            awaiting.remove(key);
         }
     }
 
@@ -1022,65 +1034,208 @@ class NatsConnection implements Connection {
             throw new IllegalStateException("Connection is Draining");
         }
 
-        if (inboxDispatcher.get() == null) {
-            NatsDispatcher d = new NatsDispatcher(this, this::deliverReply);
-
-            if (inboxDispatcher.compareAndSet(null, d)) {
-                String id = this.nuid.next();
-                this.dispatchers.put(id, d);
-                d.start(id);
-                d.subscribe(this.mainInbox);
-            }
-        }
-
         boolean oldStyle = options.isOldRequestStyle();
-        String responseInbox = oldStyle ? createInbox() : createResponseInbox(this.mainInbox);
-        String responseToken = getResponseToken(responseInbox);
-        NatsRequestCompletableFuture future = new NatsRequestCompletableFuture(cancelOn503, futureTimeout);
-
-        if (!oldStyle) {
-            responsesAwaiting.put(responseToken, future);
-        }
-        statistics.incrementOutstandingRequests();
+        int shard = oldStyle ? 0 : nextInboxShard();
+        NatsDispatcher inboxDispatcher = inboxDispatcher(shard);
+        long responseToken = oldStyle ? -1 : nextResponseToken.getAndIncrement();
+        String responseInbox = oldStyle ? createInbox() : createResponseInbox(shard, responseToken);
+        NatsRequestCompletableFuture future;
 
         if (oldStyle) {
-            NatsDispatcher dispatcher = this.inboxDispatcher.get();
+            NatsDispatcher dispatcher = inboxDispatcher;
             NatsSubscription sub = dispatcher.subscribeReturningSubscription(responseInbox);
             dispatcher.unsubscribe(responseInbox, 1);
+            future = new ExpiringRequest<>(cancelOn503, futureTimeout, responsesAwaiting, sub.getSID()).start();
             // Unsubscribe when future is cancelled:
             future.whenComplete((msg, exception) -> {
                 if (exception instanceof CancellationException) {
                     dispatcher.unsubscribe(responseInbox);
                 }
             });
-            responsesAwaiting.put(sub.getSID(), future);
         }
+        else {
+            future = new ExpiringRequest<>(cancelOn503, futureTimeout, responsesByToken, responseToken).start();
+        }
+        statistics.incrementOutstandingRequests();
 
         publishInternal(subject, responseInbox, headers, data, utf8mode);
-        writer.flushBuffer();
         statistics.incrementRequestsSent();
 
         return future;
     }
 
+    @Override
+    public CompletableFuture<List<Message>> requestMany(String subject, byte[] body, int maxReplies, Duration maxWait, Duration stallTimeout, MessageHandler handler) {
+        if (maxWait == null || maxWait.isZero() || maxWait.isNegative()) {
+            throw new IllegalArgumentException("maxWait must be positive");
+        }
+        checkPayloadSize(body);
+
+        if (isClosed()) {
+            throw new IllegalStateException("Connection is Closed");
+        } else if (isDraining()) {
+            throw new IllegalStateException("Connection is Draining");
+        }
+
+        // always uses the shared inbox, even with the old request style, replies are matched by token
+        int shard = nextInboxShard();
+        inboxDispatcher(shard);
+        long responseToken = nextResponseToken.getAndIncrement();
+        String responseInbox = createResponseInbox(shard, responseToken);
+        long stallMillis = stallTimeout == null ? 0 : Math.max(0, stallTimeout.toMillis());
+        NatsRequestGatherer gatherer = new NatsRequestGatherer(this, maxReplies, stallMillis, handler);
+
+        gatherersByToken.put(responseToken, gatherer);
+        statistics.incrementOutstandingRequests();
+        // schedule first, so a future that completes right away still finds the timeouts to cancel
+        gatherer.scheduleTimeouts(this.timer, maxWait.toMillis());
+        gatherer.whenComplete((replies, exception) -> {
+            gatherer.cancelTimeouts();
+            if (gatherersByToken.remove(responseToken, gatherer)) {
+                statistics.decrementOutstandingRequests();
+            }
+        });
+
+        // utf8 subjects are deprecated, so like the newer JetStream publishes this doesn't use them
+        publishInternal(subject, responseInbox, null, body, false);
+        statistics.incrementRequestsSent();
+
+        return gatherer;
+    }
+
+    @Override
+    public List<Message> requestMany(String subject, byte[] body, int maxReplies, Duration maxWait, Duration stallTimeout) throws InterruptedException {
+        CompletableFuture<List<Message>> replies = requestMany(subject, body, maxReplies, maxWait, stallTimeout, null);
+        try {
+            return replies.get();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("requestMany failed", e.getCause());
+        } catch (CancellationException e) {
+            throw new IllegalStateException("requestMany was cancelled", e);
+        }
+    }
+
+    // A request future that expires on the timer at its own deadline, instead of being found by a scan.
+    // Cancelling it in application code moves the expiry to the cleanup interval after the cancel.
+    final class ExpiringRequest<K> extends NatsRequestCompletableFuture implements Runnable {
+        private final Map<K, ExpiringRequest<K>> awaiting;
+        private final K key;
+        private volatile HashedWheelTimer.Timeout timeout;
+
+        ExpiringRequest(boolean cancelOn503, Duration futureTimeout, Map<K, ExpiringRequest<K>> awaiting, K key) {
+            super(cancelOn503, futureTimeout);
+            this.awaiting = awaiting;
+            this.key = key;
+        }
+
+        ExpiringRequest<K> start() {
+            this.awaiting.put(this.key, this);
+            this.timeout = timer.schedule(this, getTimeoutMillis(), TimeUnit.MILLISECONDS);
+            return this;
+        }
+
+        HashedWheelTimer.Timeout getTimeout() {
+            return this.timeout;
+        }
+
+        // once the future has its reply
+        void cancelTimeout() {
+            HashedWheelTimer.Timeout current = this.timeout;
+            if (current != null) {
+                current.cancel();
+            }
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            boolean cancelled = super.cancel(mayInterruptIfRunning);
+            long cleanupMillis = options.getRequestCleanupInterval().toMillis();
+            HashedWheelTimer.Timeout current = this.timeout;
+            if (cancelled && current != null && cleanupMillis > 0 && current.cancel()) {
+                this.timeout = timer.schedule(this, cleanupMillis, TimeUnit.MILLISECONDS);
+            }
+            return cancelled;
+        }
+
+        public void run() {
+            if (this.awaiting.remove(this.key, this)) {
+                statistics.decrementOutstandingRequests();
+                if (!this.isDone()) {
+                    this.cancelTimedOut();
+                }
+            }
+        }
+    }
+
+    private int nextInboxShard() {
+        int shards = this.responseInboxes.length;
+        return shards == 1 ? 0 : (this.nextInboxShard.getAndIncrement() & Integer.MAX_VALUE) % shards;
+    }
+
+    // Each shard's dispatcher is created and subscribed to its inbox on first use
+    private NatsDispatcher inboxDispatcher(int shard) {
+        NatsDispatcher d = this.inboxDispatchers.get(shard);
+
+        if (d == null) {
+            RecentReplies recent = this.recentReplies[shard];
+            d = new NatsDispatcher(this, msg -> deliverReply(msg, recent));
+
+            if (this.inboxDispatchers.compareAndSet(shard, null, d)) {
+                String id = NUID.nextGlobal();
+                this.dispatchers.put(id, d);
+                d.start(id);
+                d.subscribe(this.responseInboxes[shard]);
+            } else {
+                d = this.inboxDispatchers.get(shard);
+            }
+        }
+
+        return d;
+    }
+
+    private boolean isInboxDispatcher(NatsDispatcher dispatcher) {
+        for (int i = 0; i < this.inboxDispatchers.length(); i++) {
+            if (this.inboxDispatchers.get(i) == dispatcher) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     void deliverReply(Message msg) {
-        boolean oldStyle = options.isOldRequestStyle();
-        String subject = msg.getSubject();
-        String token = getResponseToken(subject);
-        String key = oldStyle ? msg.getSID() : token;
-        NatsRequestCompletableFuture f = responsesAwaiting.remove(key);
-        if (f != null) {
-            responsesRespondedTo.put(key, f);
-            statistics.decrementOutstandingRequests();
-            if (msg.isStatusMessage() && msg.getStatus().getCode() == 503 && f.isCancelOn503()) {
-                f.cancel(true);
+        deliverReply(msg, this.recentReplies[0]);
+    }
+
+    void deliverReply(Message msg, RecentReplies recent) {
+        if (options.isOldRequestStyle()) {
+            String sid = msg.getSID();
+            ExpiringRequest<String> f = responsesAwaiting.remove(sid);
+            if (f != null) {
+                recent.add(sid);
+                completeReply(f, msg);
+            }
+            else if (gatherReply(msg, getResponseToken(msg.getSubject()))) {
+                return;
+            }
+            else if (recent.contains(sid)) {
+                statistics.incrementDuplicateRepliesReceived();
             }
             else {
-                f.complete(msg);
+                statistics.incrementOrphanRepliesReceived();
             }
-            statistics.incrementRepliesReceived();
+            return;
+        }
+
+        long token = getResponseToken(msg.getSubject());
+        ExpiringRequest<Long> f = token < 0 ? null : responsesByToken.remove(token);
+        if (f != null) {
+            recent.add(token);
+            completeReply(f, msg);
         }
-        else if (responsesRespondedTo.get(key) != null) {
+        else if (gatherReply(msg, token)) {
+            return;
+        }
+        else if (token >= 0 && recent.contains(token)) {
             statistics.incrementDuplicateRepliesReceived();
         }
         else {
@@ -1088,19 +1243,85 @@ class NatsConnection implements Connection {
         }
     }
 
+    // Replies to a requestMany call stay registered until it completes
+    private boolean gatherReply(Message msg, long token) {
+        if (token < 0 || gatherersByToken.isEmpty()) {
+            return false;
+        }
+
+        NatsRequestGatherer gatherer = gatherersByToken.get(token);
+        if (gatherer == null || !gatherer.offer(msg)) {
+            return false;
+        }
+        statistics.incrementRepliesReceived();
+        return true;
+    }
+
+    private void completeReply(ExpiringRequest<?> f, Message msg) {
+        f.cancelTimeout();
+        statistics.decrementOutstandingRequests();
+        if (msg.isStatusMessage() && msg.getStatus().getCode() == 503 && f.isCancelOn503()) {
+            f.cancel(true);
+        }
+        else {
+            if (statistics.isTrackingLatency()) {
+                statistics.registerRequestRoundTrip(System.nanoTime() - f.getStartNanos());
+            }
+            f.complete(msg);
+        }
+        statistics.incrementRepliesReceived();
+    }
+
     public Dispatcher createDispatcher() {
         return createDispatcher(null);
     }
 
     public Dispatcher createDispatcher(MessageHandler handler) {
+        checkCanCreateDispatcher();
+        return startDispatcher(new NatsDispatcher(this, handler));
+    }
+
+    public Dispatcher createDispatcher(MessageHandler handler, int workers) {
+        return createDispatcher(handler, workers, null);
+    }
+
+    public Dispatcher createDispatcher(MessageHandler handler, int workers, Function<Message, String> keyExtractor) {
+        if (workers < 1) {
+            throw new IllegalArgumentException("Dispatcher workers must be at least 1");
+        }
+        checkCanCreateDispatcher();
+        return startDispatcher(new NatsParallelDispatcher(this, handler, workers, keyExtractor));
+    }
+
+    public Dispatcher createInlineDispatcher(MessageHandler handler, Duration handlerWarning) {
+        if (handler == null) {
+            throw new IllegalArgumentException("MessageHandler is required in createInlineDispatcher");
+        }
+        checkCanCreateDispatcher();
+        return startDispatcher(new NatsInlineDispatcher(this, handler, handlerWarning));
+    }
+
+    public Dispatcher createDispatcher(BatchMessageHandler handler, int maxMessages, long maxBytes, Duration linger) {
+        if (handler == null) {
+            throw new IllegalArgumentException("BatchMessageHandler is required in createDispatcher");
+        }
+        if (maxMessages < 1 || maxBytes < 1) {
+            throw new IllegalArgumentException("Batch limits must be at least 1");
+        }
+        checkCanCreateDispatcher();
+        return startDispatcher(new NatsBatchDispatcher(this, handler, maxMessages, maxBytes, linger));
+    }
+
+    private void checkCanCreateDispatcher() {
         if (isClosed()) {
             throw new IllegalStateException("Connection is Closed");
         } else if (isDraining()) {
             throw new IllegalStateException("Connection is Draining");
         }
+    }
 
-        NatsDispatcher dispatcher = new NatsDispatcher(this, handler);
-        String id = this.nuid.next();
+    private Dispatcher startDispatcher(NatsDispatcher dispatcher) {
+        String id = NUID.nextGlobal();
         this.dispatchers.put(id, dispatcher);
         dispatcher.start(id);
         return dispatcher;
@@ -1152,6 +1373,7 @@ class NatsConnection implements Connection {
         }
 
         try {
+            long pingStart = System.nanoTime();
             Future<Boolean> waitForIt = sendPing();
 
             if (waitForIt == null) { // error in the send ping code
@@ -1173,12 +1395,104 @@ class NatsConnection implements Connection {
                 waitForIt.get();
             }
 
+            this.statistics.registerFlushRoundTrip(System.nanoTime() - pingStart);
             this.statistics.incrementFlushCounter();
         } catch (ExecutionException | CancellationException e) {
             throw new TimeoutException(e.toString());
         }
     }
 
+    @Override
+    public CompletableFuture<Duration> flushAsync() {
+        if (isClosed()) {
+            CompletableFuture<Duration> closed = new CompletableFuture<>();
+            closed.completeExceptionally(new TimeoutException("Attempted to flush while closed"));
+            return closed;
+        }
+
+        CompletableFuture<Duration> shared;
+        boolean send = false;
+        synchronized (flushAsyncLock) {
+            if (flushInFlight == null) {
+                flushInFlight = new CompletableFuture<>();
+                shared = flushInFlight;
+                send = true;
+            } else {
+                if (flushWaiting == null) {
+                    flushWaiting = new CompletableFuture<>();
+                }
+                shared = flushWaiting;
+            }
+        }
+
+        if (send) {
+            sendFlushPing(shared);
+        }
+
+        // each caller gets its own future, so cancelling one doesn't cancel the others
+        return shared.thenApply(rtt -> {
+            this.statistics.incrementFlushCounter();
+            return rtt;
+        });
+    }
+
+    // The PONG arrives on the reader thread and the deadline fires on the timer thread, so the flush
+    // is finished on the executor, where the futures' callbacks and the next PING can't hold them up.
+    private void sendFlushPing(CompletableFuture<Duration> flush) {
+        long start = System.nanoTime();
+        CompletableFuture<Boolean> pong = sendPing();
+
+        if (pong == null) { // error in the send ping code
+            finishFlushPing(flush, start, Boolean.FALSE, new IllegalStateException("Max outgoing Ping count exceeded."));
+            return;
+        }
+
+        long deadlineMillis = options.getConnectionTimeout().toMillis();
+        HashedWheelTimer.Timeout deadline = timer.schedule(() -> executeFlushPing(() ->
+                finishFlushPing(flush, start, Boolean.FALSE, new TimeoutException("Timed out waiting for the flush PONG."))),
+            deadlineMillis, TimeUnit.MILLISECONDS);
+        pong.whenComplete((ok, exception) -> {
+            deadline.cancel();
+            executeFlushPing(() -> finishFlushPing(flush, start, ok, exception));
+        });
+    }
+
+    private void executeFlushPing(Runnable finish) {
+        try {
+            this.executor.execute(finish);
+        } catch (RejectedExecutionException re) {
+            finish.run(); // the executor is shut down during close, finish here
+        }
+    }
+
+    private void finishFlushPing(CompletableFuture<Duration> flush, long start, Boolean ok, Throwable exception) {
+        long rtt = System.nanoTime() - start;
+
+        CompletableFuture<Duration> next;
+        synchronized (flushAsyncLock) {
+            if (flushInFlight != flush) {
+                return; // already finished by its PONG or its deadline
+            }
+            next = flushWaiting;
+            flushWaiting = null;
+            flushInFlight = next;
+        }
+
+        // send the next PING first, so the callers that waited for it aren't held up by these callbacks
+        if (next != null) {
+            sendFlushPing(next);
+        }
+
+        if (exception != null) {
+            flush.completeExceptionally(exception);
+        } else if (!Boolean.TRUE.equals(ok)) {
+            flush.completeExceptionally(new IllegalStateException("Connection is not active."));
+        } else {
+            this.statistics.registerFlushRoundTrip(rtt);
+            flush.complete(Duration.ofNanos(rtt));
+        }
+    }
+
     void sendConnect(String serverURI) throws IOException {
         try {
             ServerInfo info = this.serverInfo.get();
@@ -1346,12 +1660,18 @@ class NatsConnection implements Connection {
         this.statistics.incrementInMsgs();
         this.statistics.incrementInBytes(msg.getSizeInBytes());
 
-        NatsSubscription sub = subscribers.get(msg.getSID());
+        NatsSubscription sub = subscribers.get(msg.getSIDValue());
 
         if (sub != null) {
             msg.setSubscription(sub);
 
             NatsDispatcher d = sub.getNatsDispatcher();
+
+            if (d != null && d.deliversInline()) {
+                d.deliver(msg); // runs the handler on this thread, nothing is queued
+                return;
+            }
+
             NatsConsumer c = (d == null) ? sub : d;
             MessageQueue q = ((d == null) ? sub.getMessageQueue() : d.getMessageQueue());
 
@@ -1367,6 +1687,9 @@ class NatsConnection implements Connection {
                 }
             } else if (q != null) {
                 c.markNotSlow();
+                if (d != null && this.statistics.isTrackingLatency()) {
+                    msg.queuedNanos = System.nanoTime();
+                }
                 q.push(msg);
             }
 
@@ -1787,10 +2110,12 @@ class NatsConnection implements Connection {
         consumers.addAll(pureSubscribers);
         consumers.addAll(this.dispatchers.values());
 
-        NatsDispatcher inboxer = this.inboxDispatcher.get();
+        for (int i = 0; i < this.inboxDispatchers.length(); i++) {
+            NatsDispatcher inboxer = this.inboxDispatchers.get(i);
 
-        if (inboxer != null) {
-            consumers.add(inboxer);
+            if (inboxer != null) {
+                consumers.add(inboxer);
+            }
         }
 
         // Stop the consumers NOW so that when this method returns they are blocked
@@ -18,7 +18,6 @@ import io.nats.client.support.IncomingHeadersProcessor;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
-import java.nio.CharBuffer;
 import java.nio.charset.StandardCharsets;
 import java.util.concurrent.CancellationException;
 import java.util.concurrent.CompletableFuture;
@@ -49,8 +48,12 @@ class NatsConnectionReader implements Runnable {
     private char[] opArray;
     private int opPos;
 
-    private char[] msgLineChars;
+    // MSG and HMSG control lines are kept as raw bytes and split in place, see tokenizeMessageLine
+    private static final int MAX_MSG_LINE_TOKENS = 5;
+    private byte[] msgLineBytes;
     private int msgLinePosition;
+    private final int[] tokenStarts = new int[MAX_MSG_LINE_TOKENS];
+    private final int[] tokenEnds = new int[MAX_MSG_LINE_TOKENS];
 
     private Mode mode;
 
@@ -69,6 +72,7 @@ class NatsConnectionReader implements Runnable {
     private final AtomicBoolean running;
 
     private final boolean utf8Mode;
+    private final SubjectCache subjectCache; // null when disabled
 
     NatsConnectionReader(NatsConnection connection) {
         this.connection = connection;
@@ -78,12 +82,17 @@ class NatsConnectionReader implements Runnable {
         ((CompletableFuture<Boolean>)this.stopped).complete(Boolean.TRUE); // we are stopped on creation
 
         this.protocolBuffer = ByteBuffer.allocate(this.connection.getOptions().getMaxControlLine());
-        this.msgLineChars = new char[this.connection.getOptions().getMaxControlLine()];
+        this.msgLineBytes = new byte[this.connection.getOptions().getMaxControlLine()];
         this.opArray = new char[MAX_PROTOCOL_RECEIVE_OP_LENGTH];
         this.buffer = new byte[connection.getOptions().getBufferSize()];
         this.bufferPosition = 0;
 
         this.utf8Mode = connection.getOptions().supportUTF8Subjects();
+
+        int subjectCacheSize = connection.getOptions().getSubjectCacheSize();
+        this.subjectCache = subjectCacheSize > 0
+                ? new SubjectCache(subjectCacheSize, utf8Mode ? StandardCharsets.UTF_8 : StandardCharsets.US_ASCII, connection.getNatsStatistics())
+                : null;
     }
 
     // Should only be called if the current thread has exited.
@@ -124,33 +133,7 @@ class NatsConnectionReader implements Runnable {
 
                 if (bytesRead > 0) {
                     connection.getNatsStatistics().registerRead(bytesRead);
-
-                    while (this.bufferPosition < bytesRead) {
-                        if (this.mode == Mode.GATHER_OP) {
-                            this.gatherOp(bytesRead);
-                        }
-                        else if (this.mode == Mode.GATHER_MSG_HMSG_PROTO) {
-                            if (this.utf8Mode) {
-                                this.gatherProtocol(bytesRead);
-                            } else {
-                                this.gatherMessageProtocol(bytesRead);
-                            }
-                        }
-                        else if (this.mode == Mode.GATHER_PROTO) {
-                            this.gatherProtocol(bytesRead);
-                        }
-                        else if (this.mode == Mode.GATHER_HEADERS) {
-                            this.gatherHeaders(bytesRead);
-                        }
-                        else {  // Mode.GATHER_DATA
-                            this.gatherMessageData(bytesRead);
-                        }
-
-                        if (this.mode == Mode.PARSE_PROTO) { // Could be the end of the read
-                            this.parseProtocolMessage();
-                            this.protocolBuffer.clear();
-                        }
-                    }
+                    this.processBuffer(bytesRead);
                 } else if (bytesRead < 0) {
                     throw new IOException("Read channel closed.");
                 } else {
@@ -169,6 +152,32 @@ class NatsConnectionReader implements Runnable {
         }
     }
 
+    // Parse everything in the buffer up to bytesRead, the read may end mid protocol line or mid message.
+    void processBuffer(int bytesRead) throws IOException {
+        while (this.bufferPosition < bytesRead) {
+            if (this.mode == Mode.GATHER_OP) {
+                this.gatherOp(bytesRead);
+            }
+            else if (this.mode == Mode.GATHER_MSG_HMSG_PROTO) {
+                this.gatherMessageProtocol(bytesRead);
+            }
+            else if (this.mode == Mode.GATHER_PROTO) {
+                this.gatherProtocol(bytesRead);
+            }
+            else if (this.mode == Mode.GATHER_HEADERS) {
+                this.gatherHeaders(bytesRead);
+            }
+            else {  // Mode.GATHER_DATA
+                this.gatherMessageData(bytesRead);
+            }
+
+            if (this.mode == Mode.PARSE_PROTO) { // Could be the end of the read
+                this.parseProtocolMessage();
+                this.protocolBuffer.clear();
+            }
+        }
+    }
+
     // Gather the op, either up to the first space or the first carriage return.
     void gatherOp(int maxPos) throws IOException {
         try {
@@ -208,7 +217,7 @@ class NatsConnectionReader implements Runnable {
         }
     }
 
-    // Stores the message protocol line in a char buffer that will be read for subject, reply
+    // Stores the message protocol line as raw bytes, it is split in place by parseProtocolMessage
     void gatherMessageProtocol(int maxPos) throws IOException {
         try {
             while(this.bufferPosition < maxPos) {
@@ -226,10 +235,10 @@ class NatsConnectionReader implements Runnable {
                 } else if (b == CR) {
                     this.gotCR = true;
                 } else {
-                    if (this.msgLinePosition >= this.msgLineChars.length) {
+                    if (this.msgLinePosition >= this.msgLineBytes.length) {
                         throw new IllegalStateException("Protocol line is too long");
                     }
-                    this.msgLineChars[this.msgLinePosition] = (char) b; // Assumes ascii, as per protocol doc
+                    this.msgLineBytes[this.msgLinePosition] = b;
                     this.msgLinePosition++;
                 }
             }
@@ -352,24 +361,54 @@ class NatsConnectionReader implements Runnable {
         }
     }
 
-    public String grabNextMessageLineElement(int max) {
-        if (this.msgLinePosition >= max) {
-            return null;
+    // Split the message line on spaces and tabs, recording where each element starts and ends.
+    // Matches the old element by element parse: a separator always ends an element, so doubled
+    // separators produce empty elements, but a trailing separator does not add one.
+    // Returns the number of elements found, at most MAX_MSG_LINE_TOKENS.
+    int tokenizeMessageLine(int length) {
+        int count = 0;
+        int pos = 0;
+
+        while (pos < length && count < MAX_MSG_LINE_TOKENS) {
+            int start = pos;
+            while (pos < length) {
+                byte b = this.msgLineBytes[pos];
+                if (b == SP || b == TAB) {
+                    break;
+                }
+                pos++;
+            }
+            this.tokenStarts[count] = start;
+            this.tokenEnds[count] = pos;
+            count++;
+            pos++; // skip the separator
         }
 
-        int start = this.msgLinePosition;
+        return count;
+    }
 
-        while (this.msgLinePosition < max) {
-            char c = this.msgLineChars[this.msgLinePosition];
-            this.msgLinePosition++;
+    private String tokenString(int token) {
+        int start = this.tokenStarts[token];
+        return new String(this.msgLineBytes, start, this.tokenEnds[token] - start, this.utf8Mode ? StandardCharsets.UTF_8 : StandardCharsets.US_ASCII);
+    }
 
-            if (c == SP || c == TAB) {
-                String slice = new String(this.msgLineChars, start, this.msgLinePosition - start -1); //don't grab the space, avoid an intermediate char sequence
-                return slice;
-            }
+    private String subjectString(int token) {
+        if (this.subjectCache == null) {
+            return tokenString(token);
         }
+        return this.subjectCache.get(this.msgLineBytes, this.tokenStarts[token], this.tokenEnds[token]);
+    }
+
+    private long tokenSid(int token) {
+        return parseSid(this.msgLineBytes, this.tokenStarts[token], this.tokenEnds[token]);
+    }
 
-        return new String(this.msgLineChars, start, this.msgLinePosition-start);
+    private boolean tokenIsEmpty(int token) {
+        return this.tokenStarts[token] == this.tokenEnds[token];
+    }
+
+    private int tokenLength(int token) {
+        return parseLength(this.msgLineBytes, this.tokenStarts[token], this.tokenEnds[token]);
     }
 
     static String opFor(char[] chars, int length) {
@@ -443,6 +482,51 @@ class NatsConnectionReader implements Runnable {
         return retVal;
     }
 
+    // Parse an unsigned length straight from the protocol bytes in [start, end)
+    static int parseLength(byte[] bytes, int start, int end) throws NumberFormatException {
+        int length = end - start;
+
+        if (length > TENS.length) {
+            throw new NumberFormatException("Long in message length \"" + new String(bytes, start, length, StandardCharsets.US_ASCII) + "\" "+length+" > "+TENS.length);
+        }
+
+        long retVal = 0;
+        for (int i = start; i < end; i++) {
+            int d = bytes[i] - '0';
+
+            if (d < 0 || d > 9) {
+                throw new NumberFormatException("Invalid char in message length \'" + (char) bytes[i] + "\'");
+            }
+
+            retVal = retVal * 10 + d;
+        }
+
+        if (retVal > Integer.MAX_VALUE) {
+            throw new NumberFormatException("Message length " + retVal + " is too large");
+        }
+
+        return (int) retVal;
+    }
+
+    // Sids are generated by this client as positive longs, parse them straight from the protocol bytes in [start, end)
+    static long parseSid(byte[] bytes, int start, int end) throws NumberFormatException {
+        if (end - start > 18) {
+            throw new NumberFormatException("Sid too long \"" + new String(bytes, start, end - start, StandardCharsets.US_ASCII) + "\"");
+        }
+
+        long sid = 0;
+        for (int i = start; i < end; i++) {
+            int d = bytes[i] - '0';
+
+            if (d < 0 || d > 9) {
+                throw new NumberFormatException("Invalid char in sid \'" + (char) bytes[i] + "\'");
+            }
+
+            sid = sid * 10 + d;
+        }
+        return sid;
+    }
+
     void parseProtocolMessage() throws IOException {
         try {
             switch (this.op) {
@@ -450,34 +534,18 @@ class NatsConnectionReader implements Runnable {
                     int protocolLength = this.msgLinePosition; //This is just after the last character
                     int protocolLineLength = protocolLength + 4; // 4 for the "MSG "
 
-                    if (this.utf8Mode) {
-                        protocolLineLength = protocolBuffer.remaining() + 4;
-
-                        CharBuffer buff = StandardCharsets.UTF_8.decode(protocolBuffer);
-                        protocolLength = buff.remaining();
-                        buff.get(this.msgLineChars, 0, protocolLength);
-                    }
-
-                    this.msgLinePosition = 0;
-                    String subject = grabNextMessageLineElement(protocolLength);
-                    String sid = grabNextMessageLineElement(protocolLength);
-                    String replyTo = grabNextMessageLineElement(protocolLength);
-                    String lengthChars = null;
-
-                    if (this.msgLinePosition < protocolLength) {
-                        lengthChars = grabNextMessageLineElement(protocolLength);
-                    } else {
-                        lengthChars = replyTo;
-                        replyTo = null;
-                    }
+                    // subject sid [replyTo] length
+                    int tokens = tokenizeMessageLine(protocolLength);
 
-                    if(subject==null || subject.length() == 0 || sid==null || sid.length() == 0 || lengthChars==null) {
+                    if (tokens < 3 || tokenIsEmpty(0) || tokenIsEmpty(1)) {
                         throw new IllegalStateException("Bad MSG control line, missing required fields");
                     }
 
-                    int incomingLength = parseLength(lengthChars);
+                    boolean hasReplyTo = tokens > 3;
+                    int incomingLength = tokenLength(hasReplyTo ? 3 : 2);
 
-                    this.incoming = new InternalMessageFactory(sid, subject, replyTo, protocolLineLength, utf8Mode);
+                    this.incoming = new InternalMessageFactory(tokenSid(1), subjectString(0),
+                            hasReplyTo ? tokenString(2) : null, protocolLineLength, utf8Mode);
                     this.mode = Mode.GATHER_DATA;
                     this.msgData = new byte[incomingLength];
                     this.msgDataPosition = 0;
@@ -487,39 +555,23 @@ class NatsConnectionReader implements Runnable {
                     int hProtocolLength = this.msgLinePosition; //This is just after the last character
                     int hProtocolLineLength = hProtocolLength + 4; // 5 for the "HMSG "
 
-                    if (this.utf8Mode) {
-                        hProtocolLineLength = protocolBuffer.remaining() + 4;
+                    // subject sid [replyTo] hdrLen totLen
+                    int hTokens = tokenizeMessageLine(hProtocolLength);
 
-                        CharBuffer buff = StandardCharsets.UTF_8.decode(protocolBuffer);
-                        hProtocolLength = buff.remaining();
-                        buff.get(this.msgLineChars, 0, hProtocolLength);
+                    if (hTokens < 4 || tokenIsEmpty(0) || tokenIsEmpty(1)) {
+                        throw new IllegalStateException("Bad HMSG control line, missing required fields");
                     }
 
-                    this.msgLinePosition = 0;
-                    String hSubject = grabNextMessageLineElement(hProtocolLength);
-                    String hSid = grabNextMessageLineElement(hProtocolLength);
-                    String replyToOrHdrLen = grabNextMessageLineElement(hProtocolLength);
-                    String hdrLenOrTotLen = grabNextMessageLineElement(hProtocolLength);
-
-                    String hReplyTo = null;
-                    int hdrLen = -1;
-                    int totLen = -1;
-
-                    // if there is more it must be replyTo hdrLen totLen instead of just hdrLen totLen
-                    if (this.msgLinePosition < hProtocolLength) {
-                        hReplyTo = replyToOrHdrLen;
-                        hdrLen = parseLength(hdrLenOrTotLen);
-                        totLen = parseLength(grabNextMessageLineElement(hProtocolLength));
-                    } else {
-                        hdrLen = parseLength(replyToOrHdrLen);
-                        totLen = parseLength(hdrLenOrTotLen);
-                    }
+                    boolean hHasReplyTo = hTokens > 4;
+                    int hdrLen = tokenLength(hHasReplyTo ? 3 : 2);
+                    int totLen = tokenLength(hHasReplyTo ? 4 : 3);
 
-                    if(hSubject==null || hSubject.length() == 0 || hSid==null || hSid.length() == 0) {
-                        throw new IllegalStateException("Bad HMSG control line, missing required fields");
+                    if (hdrLen > totLen) {
+                        throw new IllegalStateException("Bad HMSG control line, header length exceeds total length");
                     }
 
-                    this.incoming = new InternalMessageFactory(hSid, hSubject, hReplyTo, hProtocolLineLength, utf8Mode);
+                    this.incoming = new InternalMessageFactory(tokenSid(1), subjectString(0),
+                            hHasReplyTo ? tokenString(2) : null, hProtocolLineLength, utf8Mode);
                     this.msgHeaders = new byte[hdrLen];
                     this.msgData = new byte[totLen - hdrLen];
                     this.mode = Mode.GATHER_HEADERS;
@@ -17,6 +17,7 @@ import io.nats.client.Options;
 
 import java.io.IOException;
 import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
 import java.time.Duration;
 import java.util.Arrays;
 import java.util.concurrent.CancellationException;
@@ -25,6 +26,7 @@ import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Predicate;
 
 import static io.nats.client.support.NatsConstants.OP_PING_BYTES;
 import static io.nats.client.support.NatsConstants.OP_PONG_BYTES;
@@ -42,9 +44,25 @@ class NatsConnectionWriter implements Runnable {
 
     private byte[] sendBuffer;
 
-    private final MessageQueue outgoing;
+    // Payloads at or above the threshold are written straight from the message,
+    // the gather buffers hold slices of the send buffer interleaved with those payloads.
+    static final int DEFAULT_GATHER_THRESHOLD = 16 * 1024;
+    private static final int MAX_GATHER_BUFFERS = 64;
+    private int gatherThreshold;
+    private final ByteBuffer[] gatherBuffers;
+    private int gatherCount;
+    private int gatherStart;
+
+    // Messages sent since the last flush, the writer flushes once the queue it reads is empty
+    // and can hold messages for up to the latency budget so more of them share a write.
+    private final long flushBudgetNanos;
+    private long unflushedMessages;
+
+    private final OutgoingQueue outgoing;
     private final MessageQueue reconnectOutgoing;
     private final long reconnectBufferSize;
+    private final ReconnectSpill reconnectSpill; // null unless configured
+    private final long spillTimeoutNanos;
 
     NatsConnectionWriter(NatsConnection connection) {
         this.connection = connection;
@@ -58,14 +76,32 @@ class NatsConnectionWriter implements Runnable {
         Options options = connection.getOptions();
         int bufSize = options.getBufferSize();
         this.sendBuffer = new byte[bufSize];
-
-        outgoing = new MessageQueue(true,
-                options.getMaxMessagesInOutgoingQueue(),
-                options.isDiscardMessagesWhenOutgoingQueueFull());
+        this.gatherThreshold = DEFAULT_GATHER_THRESHOLD;
+        this.gatherBuffers = new ByteBuffer[MAX_GATHER_BUFFERS];
+        this.flushBudgetNanos = options.getFlushLatencyBudget().toNanos();
+
+        if (options.getPublishLanes() > 1) {
+            outgoing = new PublishLanes(options.getPublishLanes(),
+                    options.getMaxMessagesInOutgoingQueue(),
+                    options.isDiscardMessagesWhenOutgoingQueueFull(),
+                    MessageRing.forHandOff(options.getWaitStrategy()),
+                    options.getMaxBytesInOutgoingQueue(),
+                    options.getOutgoingQueueFullTimeout());
+        } else {
+            outgoing = new MessageQueue(true,
+                    options.getMaxMessagesInOutgoingQueue(),
+                    options.isDiscardMessagesWhenOutgoingQueueFull(),
+                    MessageRing.forHandOff(options.getWaitStrategy()),
+                    options.getMaxBytesInOutgoingQueue(),
+                    options.getOutgoingQueueFullTimeout());
+        }
 
         // The reconnect buffer contains internal messages, and we will keep it unlimited in size
         reconnectOutgoing = new MessageQueue(true, 0);
         reconnectBufferSize = options.getReconnectBufferSize();
+        reconnectSpill = options.getReconnectSpillDirectory() == null || reconnectBufferSize <= 0 ? null
+                : new ReconnectSpill(options.getReconnectSpillDirectory(), options.getReconnectSpillSize(), connection.getNatsStatistics());
+        spillTimeoutNanos = options.getOutgoingQueueFullTimeout().toNanos();
     }
 
     // Should only be called if the current thread has exited.
@@ -94,9 +130,13 @@ class NatsConnectionWriter implements Runnable {
             this.outgoing.pause();
             this.reconnectOutgoing.pause();
             // Clear old ping/pong requests
-            this.outgoing.filter((msg) ->
+            Predicate<NatsMessage> pingOrPong = (msg) ->
                     Arrays.equals(OP_PING_BYTES, msg.getProtocolBytes())
-                            || Arrays.equals(OP_PONG_BYTES, msg.getProtocolBytes()));
+                            || Arrays.equals(OP_PONG_BYTES, msg.getProtocolBytes());
+            this.outgoing.filter(pingOrPong);
+            if (this.reconnectSpill != null) {
+                this.reconnectSpill.filterHeld(pingOrPong);
+            }
 
         } finally {
             this.startStopLock.unlock();
@@ -105,26 +145,31 @@ class NatsConnectionWriter implements Runnable {
         return this.stopped;
     }
 
-    synchronized void sendMessageBatch(NatsMessage msg, DataPort dataPort, NatsStatistics stats)
+    synchronized int sendMessageBatch(NatsMessage msg, DataPort dataPort, NatsStatistics stats)
             throws IOException {
 
         int sendPosition = 0;
+        int count = 0;
 
         while (msg != null) {
             long size = msg.getSizeInBytes();
 
-            if (sendPosition + size > sendBuffer.length) {
-                if (sendPosition == 0) { // have to resize
-                    this.sendBuffer = new byte[(int)Math.max(sendBuffer.length + size, sendBuffer.length * 2L)];
-                } else { // else send and go to next message
-                    dataPort.write(sendBuffer, sendPosition);
-                    connection.getNatsStatistics().registerWrite(sendPosition);
-                    sendPosition = 0;
-                    msg = msg.next;
+            // Large payloads are handed to the data port as their own buffer instead of
+            // being copied, everything else is staged in the send buffer.
+            byte[] data = msg.isProtocol() ? null : msg.getData();
+            boolean gather = data != null && data.length >= gatherThreshold;
+            long copySize = gather ? size - data.length : size;
 
-                    if (msg == null) {
-                        break;
-                    }
+            if (gather && gatherCount + 2 >= gatherBuffers.length) {
+                sendPosition = writePending(dataPort, sendPosition);
+            }
+
+            if (sendPosition + copySize > sendBuffer.length) {
+                if (sendPosition == 0 && gatherCount == 0) { // have to resize
+                    this.sendBuffer = new byte[(int)Math.max(sendBuffer.length + copySize, sendBuffer.length * 2L)];
+                } else { // else send what we have and try this message again
+                    sendPosition = writePending(dataPort, sendPosition);
+                    continue;
                 }
             }
 
@@ -142,10 +187,13 @@ class NatsConnectionWriter implements Runnable {
                     sendPosition += bytes.length;
                 }
 
-                bytes = msg.getData(); // guaranteed to not be null
-                if (bytes.length > 0) {
-                    System.arraycopy(bytes, 0, sendBuffer, sendPosition, bytes.length);
-                    sendPosition += bytes.length;
+                if (gather) {
+                    gatherBuffers[gatherCount++] = ByteBuffer.wrap(sendBuffer, gatherStart, sendPosition - gatherStart);
+                    gatherBuffers[gatherCount++] = ByteBuffer.wrap(data);
+                    gatherStart = sendPosition;
+                } else if (data.length > 0) {
+                    System.arraycopy(data, 0, sendBuffer, sendPosition, data.length);
+                    sendPosition += data.length;
                 }
 
                 sendBuffer[sendPosition++] = '\r';
@@ -154,12 +202,87 @@ class NatsConnectionWriter implements Runnable {
 
             stats.incrementOutMsgs();
             stats.incrementOutBytes(size);
+            count++;
 
             msg = msg.next;
         }
 
-        dataPort.write(sendBuffer, sendPosition);
-        connection.getNatsStatistics().registerWrite(sendPosition);
+        writePending(dataPort, sendPosition);
+        this.unflushedMessages += count;
+        return count;
+    }
+
+    // One flush for everything written since the last one
+    private synchronized void flushWritten(DataPort dataPort, NatsStatistics stats) throws IOException {
+        dataPort.flush();
+        stats.registerWriterFlush(this.unflushedMessages);
+        this.unflushedMessages = 0;
+    }
+
+    // Keeps adding to the batch until the latency budget since its first message is used up,
+    // the batch fills the send buffer, or the queue wakes with nothing.
+    private NatsMessage linger(NatsMessage first, int maxAccumulate) throws InterruptedException {
+        long deadline = System.nanoTime() + this.flushBudgetNanos;
+        long size = 0;
+        long count = 0;
+        NatsMessage last = first;
+        for (NatsMessage m = first; m != null; m = m.next) {
+            size += m.getSizeInBytes();
+            count++;
+            last = m;
+        }
+
+        while (count < maxAccumulate && size < this.sendBuffer.length && this.running.get()) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                break;
+            }
+
+            NatsMessage more = this.outgoing.accumulate(this.sendBuffer.length - size, maxAccumulate - count, Duration.ofNanos(remaining));
+            if (more == null) {
+                break;
+            }
+
+            last.next = more;
+            for (NatsMessage m = more; m != null; m = m.next) {
+                size += m.getSizeInBytes();
+                count++;
+                last = m;
+            }
+        }
+        return first;
+    }
+
+    // Writes the send buffer up to sendPosition along with any gathered payloads
+    // and returns the new (empty) send position.
+    private int writePending(DataPort dataPort, int sendPosition) throws IOException {
+        if (gatherCount == 0) {
+            dataPort.write(sendBuffer, sendPosition);
+            connection.getNatsStatistics().registerWrite(sendPosition);
+            return 0;
+        }
+
+        if (sendPosition > gatherStart) {
+            gatherBuffers[gatherCount++] = ByteBuffer.wrap(sendBuffer, gatherStart, sendPosition - gatherStart);
+        }
+
+        long written = 0;
+        for (int i = 0; i < gatherCount; i++) {
+            written += gatherBuffers[i].remaining();
+        }
+
+        dataPort.write(gatherBuffers, gatherCount);
+        connection.getNatsStatistics().registerWrite(written);
+
+        Arrays.fill(gatherBuffers, 0, gatherCount, null); // don't hold on to payloads
+        gatherCount = 0;
+        gatherStart = 0;
+        return 0;
+    }
+
+    // For testing and benchmarks, payloads of at least this many bytes are not copied
+    void setGatherThreshold(int gatherThreshold) {
+        this.gatherThreshold = gatherThreshold;
     }
 
     @Override
@@ -174,11 +297,22 @@ class NatsConnectionWriter implements Runnable {
 
             while (this.running.get()) {
                 NatsMessage msg = null;
+                OutgoingQueue source = this.outgoing;
 
                 if (this.reconnectMode.get()) {
+                    source = this.reconnectOutgoing;
                     msg = this.reconnectOutgoing.accumulate(this.sendBuffer.length, maxAccumulate, reconnectWait);
+                } else if (this.reconnectSpill != null && this.reconnectSpill.isActive()) {
+                    // messages still in memory were published before the spilled ones, so they go first
+                    msg = this.outgoing.accumulate(this.sendBuffer.length, maxAccumulate, null);
+                    if (msg == null) {
+                        msg = this.reconnectSpill.read(this.sendBuffer.length, maxAccumulate);
+                    }
                 } else {
                     msg = this.outgoing.accumulate(this.sendBuffer.length, maxAccumulate, waitForMessage);
+                    if (msg != null && this.flushBudgetNanos > 0) {
+                        msg = linger(msg, maxAccumulate);
+                    }
                 }
 
                 if (msg == null) { // Make sure we are still running
@@ -186,6 +320,11 @@ class NatsConnectionWriter implements Runnable {
                 }
 
                 sendMessageBatch(msg, dataPort, stats);
+
+                // a push counts its message after queueing it, so a taken message can briefly leave -1
+                if (source.length() <= 0) {
+                    flushWritten(dataPort, stats);
+                }
             }
         } catch (IOException | BufferOverflowException io) {
             this.connection.handleCommunicationIssue(io);
@@ -205,6 +344,37 @@ class NatsConnectionWriter implements Runnable {
         return (reconnectBufferSize < 0 || (outgoing.sizeInBytes() + msg.getSizeInBytes()) < reconnectBufferSize);
     }
 
+    /**
+     * Write a message to the reconnect spill file when the reconnect buffer is full, or when
+     * earlier messages are already waiting in the file. Once connected a full file makes the
+     * publisher wait for the writer, like a full outgoing queue.
+     * @return true if the message was spilled, false if it should be queued as usual
+     */
+    boolean spill(NatsMessage msg, boolean reconnecting) throws IOException {
+        if (this.reconnectSpill == null) {
+            return false;
+        }
+        // a volatile read on the usual path, the buffer size only matters while reconnecting
+        if (!this.reconnectSpill.isActive() && (!reconnecting || canQueueDuringReconnect(msg))) {
+            return false;
+        }
+        if (this.reconnectSpill.append(msg, reconnecting ? 0 : this.spillTimeoutNanos)) {
+            // wake the writer in case it is already back to waiting on the outgoing queue
+            this.outgoing.poisonTheQueue();
+        }
+        return true;
+    }
+
+    void closeReconnectSpill() {
+        if (this.reconnectSpill != null) {
+            try {
+                this.reconnectSpill.close();
+            } catch (IOException e) {
+                connection.processException(e);
+            }
+        }
+    }
+
     boolean queue(NatsMessage msg) {
         return this.outgoing.push(msg);
     }
@@ -212,7 +382,8 @@ class NatsConnectionWriter implements Runnable {
     void queueInternalMessage(NatsMessage msg) {
         if (this.reconnectMode.get()) {
             this.reconnectOutgoing.push(msg);
-        } else {
+        } else if (this.reconnectSpill == null || !this.reconnectSpill.isActive() || !this.reconnectSpill.hold(msg)) {
+            // while the spill is replaying, internal messages wait their turn behind the spilled publishes
             this.outgoing.push(msg, true);
         }
     }
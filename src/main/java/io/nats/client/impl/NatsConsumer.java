@@ -107,6 +107,10 @@ abstract class NatsConsumer implements Consumer {
         this.messagesDelivered.incrementAndGet();
     }
 
+    void incrementDeliveredCount(long count) {
+        this.messagesDelivered.addAndGet(count);
+    }
+
     void incrementDroppedCount() {
         this.droppedMessages.incrementAndGet();
     }
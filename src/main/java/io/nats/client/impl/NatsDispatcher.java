@@ -38,10 +38,8 @@ class NatsDispatcher extends NatsConsumer implements Dispatcher, Runnable {
     private Map<String, NatsSubscription> subscriptionsUsingDefaultHandler;
     // We will use the SID as the key. Sicne these subscriptions provide
     // their own handlers, we allow duplicates. There is a subtle but very
-    // important difference here.
-    private Map<String, NatsSubscription> subscriptionsWithHandlers;
-    // We use the SID as the key here.
-    private Map<String, MessageHandler> subscriptionHandlers;
+    // important difference here. The handler is kept on the subscription.
+    private SidMap<NatsSubscription> subscriptionsWithHandlers;
 
     private Duration waitForMessage;
 
@@ -49,10 +47,9 @@ class NatsDispatcher extends NatsConsumer implements Dispatcher, Runnable {
     NatsDispatcher(NatsConnection conn, MessageHandler handler) {
         super(conn);
         this.defaultHandler = handler;
-        this.incoming = new MessageQueue(true);
+        this.incoming = new MessageQueue(true, 0, false, MessageRing.forHandOff(conn.getOptions().getWaitStrategy()));
         this.subscriptionsUsingDefaultHandler = new ConcurrentHashMap<>();
-        this.subscriptionsWithHandlers = new ConcurrentHashMap<>();
-        this.subscriptionHandlers = new ConcurrentHashMap<>();
+        this.subscriptionsWithHandlers = new SidMap<>();
         this.running = new AtomicBoolean(false);
         this.waitForMessage = Duration.ofMinutes(5); // This can be long since we aren't doing anything
     }
@@ -71,7 +68,7 @@ class NatsDispatcher extends NatsConsumer implements Dispatcher, Runnable {
         try {
             while (this.running.get()) {
 
-                NatsMessage msg = this.incoming.pop(this.waitForMessage);
+                NatsMessage msg = nextMessages(this.incoming, this.waitForMessage);
 
                 if (msg == null) {
                     if (breakRunLoop()) {
@@ -81,30 +78,15 @@ class NatsDispatcher extends NatsConsumer implements Dispatcher, Runnable {
                     }
                 }
 
-                NatsSubscription sub = msg.getNatsSubscription();
-
-                if (sub != null && sub.isActive()) {
-
-                    sub.incrementDeliveredCount();
-                    this.incrementDeliveredCount();
-
-                    MessageHandler currentHandler = this.defaultHandler;
-                    MessageHandler customHandler = this.subscriptionHandlers.get(sub.getSID());
-                    if (customHandler != null) {
-                        currentHandler = customHandler;
-                    }
-
-                    try {
-                        currentHandler.onMessage(msg);
-                    } catch (Exception exp) {
-                        this.connection.processException(exp);
-                    }
-
-                    if (sub.reachedUnsubLimit()) {
-                        this.connection.invalidate(sub);
-                    }
+                while (msg != null) {
+                    NatsMessage next = msg.next;
+                    msg.next = null;
+                    deliver(msg);
+                    msg = next;
                 }
 
+                dispatchComplete();
+
                 if (breakRunLoop()) {
                     // will set the dispatcher to not active
                     return;
@@ -115,11 +97,65 @@ class NatsDispatcher extends NatsConsumer implements Dispatcher, Runnable {
                 this.connection.processException(exp);
             } //otherwise we did it
         } finally {
+            finishDispatching();
             this.running.set(false);
             this.thread = null;
         }
     }
 
+    // Finds the handler for a message and dispatches it, if its subscription is still active.
+    void deliver(NatsMessage msg) {
+        if (msg.queuedNanos != 0) {
+            this.connection.getNatsStatistics().registerDispatcherQueueWait(System.nanoTime() - msg.queuedNanos);
+        }
+
+        NatsSubscription sub = msg.getNatsSubscription();
+
+        if (sub != null && sub.isActive()) {
+
+            sub.incrementDeliveredCount();
+            this.incrementDeliveredCount();
+
+            dispatch(msg, handlerFor(sub));
+
+            if (sub.reachedUnsubLimit()) {
+                this.connection.invalidate(sub);
+            }
+        }
+    }
+
+    MessageHandler handlerFor(NatsSubscription sub) {
+        MessageHandler handler = sub.getHandler();
+        return handler != null ? handler : this.defaultHandler;
+    }
+
+    // Whether the connection calls deliver on the reader thread instead of queueing messages.
+    boolean deliversInline() {
+        return false;
+    }
+
+    // Takes the next message, or several linked through next, subclasses may take batches.
+    NatsMessage nextMessages(MessageQueue incoming, Duration waitForMessage) throws InterruptedException {
+        return incoming.pop(waitForMessage);
+    }
+
+    // Called after each message, or batch of messages, taken from the queue has been dispatched.
+    void dispatchComplete() {
+    }
+
+    // Hands a message to its handler, subclasses may deliver it on another thread.
+    void dispatch(NatsMessage msg, MessageHandler handler) {
+        try {
+            handler.onMessage(msg);
+        } catch (Exception exp) {
+            this.connection.processException(exp);
+        }
+    }
+
+    // Called on the dispatcher thread when the run loop ends, before the dispatcher is marked inactive.
+    void finishDispatching() {
+    }
+
     void stop(boolean unsubscribeAll) {
         this.running.set(false);
         this.incoming.pause();
@@ -138,13 +174,12 @@ class NatsDispatcher extends NatsConsumer implements Dispatcher, Runnable {
             this.subscriptionsUsingDefaultHandler.forEach((subj, sub) -> {
                 this.connection.unsubscribe(sub, -1);
             });
-            this.subscriptionsWithHandlers.forEach((sid, sub) -> {
+            this.subscriptionsWithHandlers.forEach(sub -> {
                 this.connection.unsubscribe(sub, -1);
             });
         } else {
             this.subscriptionsUsingDefaultHandler.clear();
             this.subscriptionsWithHandlers.clear();
-            this.subscriptionHandlers.clear();
         }
     }
 
@@ -164,7 +199,7 @@ class NatsDispatcher extends NatsConsumer implements Dispatcher, Runnable {
         this.subscriptionsUsingDefaultHandler.forEach((id, sub)->{
             this.connection.sendSubscriptionMessage(sub.getSID(), sub.getSubject(), sub.getQueueName(), true);
         });
-        this.subscriptionsWithHandlers.forEach((sid, sub)->{
+        this.subscriptionsWithHandlers.forEach(sub -> {
             this.connection.sendSubscriptionMessage(sub.getSID(), sub.getSubject(), sub.getQueueName(), true);
         });
     }
@@ -176,11 +211,9 @@ class NatsDispatcher extends NatsConsumer implements Dispatcher, Runnable {
     // matches before removing. By verifying the SID in all cases we can
     // be certain we're removing the correct Subscription.
     void remove(NatsSubscription sub) {
-        if (this.subscriptionsWithHandlers.remove(sub.getSID()) != null) {
-            this.subscriptionHandlers.remove(sub.getSID());
-        } else {
+        if (this.subscriptionsWithHandlers.remove(sub.getSIDValue()) == null) {
             NatsSubscription s = this.subscriptionsUsingDefaultHandler.get(sub.getSubject());
-            if (s.getSID() == sub.getSID()) {
+            if (s.getSIDValue() == sub.getSIDValue()) {
                 this.subscriptionsUsingDefaultHandler.remove(sub.getSubject());
             }
         }
@@ -265,8 +298,8 @@ class NatsDispatcher extends NatsConsumer implements Dispatcher, Runnable {
             return sub;
         } else {
             NatsSubscription sub = connection.createSubscription(subject, queueName, this, isJetStream);
-            this.subscriptionsWithHandlers.put(sub.getSID(), sub);
-            this.subscriptionHandlers.put(sub.getSID(), handler);
+            sub.setHandler(handler);
+            this.subscriptionsWithHandlers.put(sub.getSIDValue(), sub);
             return sub;
         }
     }
@@ -321,7 +354,7 @@ class NatsDispatcher extends NatsConsumer implements Dispatcher, Runnable {
         
         NatsSubscription ns = ((NatsSubscription) subscription);
         // Grab the NatsSubscription to verify we weren't given a different manager's subscription.
-        NatsSubscription sub = this.subscriptionsWithHandlers.get(ns.getSID());
+        NatsSubscription sub = this.subscriptionsWithHandlers.get(ns.getSIDValue());
 
         if (sub != null) {
             this.connection.unsubscribe(sub, after); // Connection will tell us when to remove from the map
@@ -334,7 +367,7 @@ class NatsDispatcher extends NatsConsumer implements Dispatcher, Runnable {
         this.subscriptionsUsingDefaultHandler.forEach((id, sub)->{
             this.connection.sendUnsub(sub, -1);
         });
-        this.subscriptionsWithHandlers.forEach((sid, sub)->{
+        this.subscriptionsWithHandlers.forEach(sub -> {
             this.connection.sendUnsub(sub, -1);
         });
     }
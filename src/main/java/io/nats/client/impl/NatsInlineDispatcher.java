@@ -0,0 +1,59 @@
+// Copyright 2021 The NATS Authors
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package io.nats.client.impl;
+
+import io.nats.client.MessageHandler;
+
+import java.time.Duration;
+
+/**
+ * A dispatcher whose handlers run on the connection's reader thread. The connection calls deliver
+ * as each message is parsed, so nothing goes through the incoming queue and the dispatcher thread
+ * only tracks the dispatcher's life, for drain and stop.
+ *
+ * <p>Every handler call is timed into the connection statistics. A call longer than the warning
+ * time is counted as slow and marks the dispatcher as a slow consumer, which is reported once to
+ * the error listener, until a call finishes in time again.
+ */
+class NatsInlineDispatcher extends NatsDispatcher {
+
+    private final long warningNanos;
+
+    NatsInlineDispatcher(NatsConnection conn, MessageHandler handler, Duration handlerWarning) {
+        super(conn, handler);
+        this.warningNanos = handlerWarning == null ? 0 : handlerWarning.toNanos();
+    }
+
+    @Override
+    boolean deliversInline() {
+        return true;
+    }
+
+    @Override
+    void dispatch(NatsMessage msg, MessageHandler handler) {
+        long start = System.nanoTime();
+        super.dispatch(msg, handler);
+        long elapsed = System.nanoTime() - start;
+
+        boolean slow = this.warningNanos > 0 && elapsed > this.warningNanos;
+        this.connection.getNatsStatistics().registerInlineHandler(elapsed, slow);
+
+        if (!slow) {
+            this.markNotSlow();
+        } else if (!this.isMarkedSlow()) {
+            this.markSlow();
+            this.connection.processSlowConsumer(this);
+        }
+    }
+}
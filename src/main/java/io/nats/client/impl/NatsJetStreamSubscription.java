@@ -38,7 +38,7 @@ public class NatsJetStreamSubscription extends NatsSubscription implements JetSt
     private String deliver;
     private boolean isPullMode;
 
-    NatsJetStreamSubscription(String sid, String subject, String queueName, NatsConnection connection,
+    NatsJetStreamSubscription(long sid, String subject, String queueName, NatsConnection connection,
             NatsDispatcher dispatcher) {
         super(sid, subject, queueName, connection, dispatcher);
     }
@@ -43,7 +43,8 @@ public class NatsMessage implements Message {
     protected Headers headers;
 
     // incoming specific : subject, replyTo, data and these fields
-    protected String sid;
+    protected String sid; // created on demand from sidValue for incoming messages
+    protected long sidValue = -1;
     protected int protocolLineLength;
 
     // protocol specific : just this field
@@ -60,6 +61,7 @@ public class NatsMessage implements Message {
     protected NatsSubscription subscription;
 
     NatsMessage next; // for linked list
+    long queuedNanos; // when the reader queued it for a dispatcher, only set with advanced stats
 
     // ----------------------------------------------------------------------------------------------------
     // Constructors - Prefer to use Builder
@@ -210,9 +212,16 @@ public class NatsMessage implements Message {
     // ----------------------------------------------------------------------------------------------------
     @Override
     public String getSID() {
+        if (sid == null && sidValue >= 0) {
+            sid = String.valueOf(sidValue);
+        }
         return sid;
     }
 
+    long getSIDValue() {
+        return sidValue;
+    }
+
     @Override
     public Connection getConnection() {
         return subscription == null ? null : subscription.connection;
@@ -338,7 +347,7 @@ public class NatsMessage implements Message {
                 "\n  data=" + dataToString() +
                 "\n  utf8mode=" + utf8mode +
                 "\n  headers=" + headersToString() +
-                "\n  sid='" + sid + '\'' +
+                "\n  sid='" + getSID() + '\'' +
                 "\n  protocolLineLength=" + protocolLineLength +
                 "\n  protocolBytes=" + protocolBytesToString() +
                 "\n  sizeInBytes=" + sizeInBytes +
@@ -486,6 +495,7 @@ public class NatsMessage implements Message {
     // ----------------------------------------------------------------------------------------------------
     static class InternalMessageFactory {
         private final String sid;
+        private final long sidValue;
         private final String subject;
         private final String replyTo;
         private final int protocolLineLength;
@@ -500,8 +510,17 @@ public class NatsMessage implements Message {
 
         // Create an incoming message for a subscriber
         // Doesn't check control line size, since the server sent us the message
+        InternalMessageFactory(long sid, String subject, String replyTo, int protocolLength, boolean utf8mode) {
+            this(null, sid, subject, replyTo, protocolLength, utf8mode);
+        }
+
         InternalMessageFactory(String sid, String subject, String replyTo, int protocolLength, boolean utf8mode) {
+            this(sid, -1, subject, replyTo, protocolLength, utf8mode);
+        }
+
+        private InternalMessageFactory(String sid, long sidValue, String subject, String replyTo, int protocolLength, boolean utf8mode) {
             this.sid = sid;
+            this.sidValue = sidValue;
             this.subject = subject;
             this.replyTo = replyTo;
             this.protocolLineLength = protocolLength;
@@ -534,6 +553,7 @@ public class NatsMessage implements Message {
                 message = new InternalMessage();
             }
             message.sid = this.sid;
+            message.sidValue = this.sidValue;
             message.subject = this.subject;
             message.replyTo = this.replyTo;
             message.protocolLineLength = this.protocolLineLength;
@@ -0,0 +1,154 @@
+// Copyright 2021 The NATS Authors
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package io.nats.client.impl;
+
+import io.nats.client.Message;
+import io.nats.client.MessageHandler;
+
+import java.time.Duration;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+
+/**
+ * A dispatcher that calls handlers on several worker threads. The dispatcher thread picks a worker
+ * for each message from a key, the subject unless a key extractor is given, so messages with the
+ * same key are handled one at a time and in order while different keys run in parallel.
+ *
+ * <p>Delivered counts and unsubscribe limits are applied on the dispatcher thread as the message is
+ * handed to its worker. A drain waits for the workers to finish what they were given.
+ *
+ * <p>Messages waiting for a worker still count as pending for the dispatcher, so its pending limits
+ * bound the worker queues too. Once they are reached the connection drops messages and reports the
+ * dispatcher as a slow consumer, the same as when the dispatcher thread itself falls behind.
+ */
+class NatsParallelDispatcher extends NatsDispatcher {
+
+    private final Function<Message, String> keyExtractor;
+    private final Worker[] workers;
+
+    NatsParallelDispatcher(NatsConnection conn, MessageHandler handler, int workerCount, Function<Message, String> keyExtractor) {
+        super(conn, handler);
+        this.keyExtractor = keyExtractor;
+        this.workers = new Worker[workerCount];
+        for (int i = 0; i < workerCount; i++) {
+            this.workers[i] = new Worker();
+        }
+    }
+
+    int getWorkerCount() {
+        return this.workers.length;
+    }
+
+    @Override
+    void start(String id) {
+        for (Worker worker : this.workers) {
+            worker.future = this.connection.getExecutor().submit(worker, Boolean.TRUE);
+        }
+        super.start(id);
+    }
+
+    int workerFor(Message msg) {
+        String key = this.keyExtractor == null ? msg.getSubject() : this.keyExtractor.apply(msg);
+        if (key == null) {
+            return 0;
+        }
+        int h = key.hashCode();
+        return Math.floorMod(h ^ (h >>> 16), this.workers.length);
+    }
+
+    @Override
+    void dispatch(NatsMessage msg, MessageHandler handler) {
+        int worker;
+        try {
+            worker = workerFor(msg);
+        } catch (Exception exp) {
+            this.connection.processException(exp);
+            worker = 0;
+        }
+        // the worker finds the handler again from the subscription on the message
+        this.workers[worker].queue.push(msg);
+    }
+
+    @Override
+    public long getPendingMessageCount() {
+        long count = super.getPendingMessageCount();
+        for (Worker worker : this.workers) {
+            count += worker.queue.length();
+        }
+        return count;
+    }
+
+    @Override
+    public long getPendingByteCount() {
+        long bytes = super.getPendingByteCount();
+        for (Worker worker : this.workers) {
+            bytes += worker.queue.sizeInBytes();
+        }
+        return bytes;
+    }
+
+    @Override
+    void finishDispatching() {
+        if (!getMessageQueue().isDrained()) {
+            return; // stopped rather than drained, stop takes care of the workers
+        }
+        for (Worker worker : this.workers) {
+            worker.queue.drain();
+        }
+        for (Worker worker : this.workers) {
+            try {
+                worker.future.get(this.connection.getOptions().getConnectionTimeout().toNanos(), TimeUnit.NANOSECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (ExecutionException | TimeoutException e) {
+                this.connection.processException(e);
+            }
+        }
+    }
+
+    @Override
+    void stop(boolean unsubscribeAll) {
+        super.stop(unsubscribeAll);
+        for (Worker worker : this.workers) {
+            worker.queue.pause();
+            if (worker.future != null) {
+                worker.future.cancel(true);
+            }
+        }
+    }
+
+    private class Worker implements Runnable {
+        final MessageQueue queue = new MessageQueue(true);
+        volatile Future<Boolean> future;
+
+        public void run() {
+            try {
+                while (true) {
+                    NatsMessage msg = this.queue.pop(Duration.ZERO); // waits until a message, a pause or a drain
+                    if (msg != null) {
+                        NatsParallelDispatcher.super.dispatch(msg, handlerFor(msg.getNatsSubscription()));
+                    } else if (!this.queue.isRunning() || this.queue.isDrained()) {
+                        return;
+                    }
+                }
+            } catch (InterruptedException exp) {
+                // stopped
+            }
+        }
+    }
+}
@@ -0,0 +1,124 @@
+// Copyright 2021 The NATS Authors
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+
+package io.nats.client.impl;
+
+import io.nats.client.Message;
+import io.nats.client.MessageHandler;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The future for a requestMany call. Replies are added on the thread delivering replies for the
+ * response inbox, and the future completes with them when enough have arrived or one of its
+ * timeouts, run on the connection timer, fires first.
+ */
+class NatsRequestGatherer extends CompletableFuture<List<Message>> {
+
+    private final NatsConnection connection;
+    private final int maxReplies;
+    private final long stallMillis;
+    private final MessageHandler handler;
+    private final List<Message> replies;
+    private boolean finished;
+
+    private HashedWheelTimer timer;
+    private HashedWheelTimer.Timeout maxWaitTimeout;
+    private HashedWheelTimer.Timeout stallTimeout;
+
+    NatsRequestGatherer(NatsConnection connection, int maxReplies, long stallMillis, MessageHandler handler) {
+        this.connection = connection;
+        this.maxReplies = maxReplies;
+        this.stallMillis = stallMillis;
+        this.handler = handler;
+        this.replies = new ArrayList<>();
+    }
+
+    // Called before the request is published
+    synchronized void scheduleTimeouts(HashedWheelTimer timer, long maxWaitMillis) {
+        this.timer = timer;
+        this.maxWaitTimeout = timer.schedule(this::finish, maxWaitMillis, TimeUnit.MILLISECONDS);
+        if (this.stallMillis > 0) {
+            this.stallTimeout = timer.schedule(this::finish, this.stallMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Adds a reply, calls the handler and completes the future if this was the last reply wanted.
+     * @param msg the reply
+     * @return true if the reply was taken, false if the future was already complete
+     */
+    boolean offer(Message msg) {
+        boolean last;
+        synchronized (this) {
+            if (this.finished || isDone()) {
+                return false;
+            }
+
+            if (msg.isStatusMessage() && msg.getStatus().getCode() == 503) {
+                last = true; // no responders
+            }
+            else {
+                this.replies.add(msg);
+                last = this.maxReplies > 0 && this.replies.size() >= this.maxReplies;
+                if (!last && this.stallTimeout != null) {
+                    this.stallTimeout.cancel();
+                    this.stallTimeout = this.timer.schedule(this::finish, this.stallMillis, TimeUnit.MILLISECONDS);
+                }
+            }
+        }
+
+        if (this.handler != null && !msg.isStatusMessage()) {
+            try {
+                this.handler.onMessage(msg);
+            } catch (Exception exp) {
+                this.connection.processException(exp);
+            }
+        }
+
+        if (last) {
+            finish();
+        }
+        return true;
+    }
+
+    /**
+     * Completes the future with the replies received so far.
+     */
+    void finish() {
+        List<Message> result;
+        synchronized (this) {
+            if (this.finished) {
+                return;
+            }
+            this.finished = true;
+            result = Collections.unmodifiableList(new ArrayList<>(this.replies));
+        }
+        complete(result);
+    }
+
+    // Called once the future is complete, however that happened
+    synchronized void cancelTimeouts() {
+        if (this.maxWaitTimeout != null) {
+            this.maxWaitTimeout.cancel();
+        }
+        if (this.stallTimeout != null) {
+            this.stallTimeout.cancel();
+        }
+    }
+}
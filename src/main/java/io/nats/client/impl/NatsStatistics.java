@@ -14,10 +14,12 @@
 package io.nats.client.impl;
 
 import io.nats.client.Statistics;
+import io.nats.client.support.LatencyHistogram;
 
 import java.text.NumberFormat;
 import java.util.LongSummaryStatistics;
-import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.concurrent.locks.ReentrantLock;
 
 class NatsStatistics implements Statistics {
@@ -25,22 +27,39 @@ class NatsStatistics implements Statistics {
     private LongSummaryStatistics readStats;
     private LongSummaryStatistics writeStats;
 
-    private AtomicLong flushCounter;
-    private AtomicLong outstandingRequests;
-    private AtomicLong requestsSent;
-    private AtomicLong repliesReceived;
-    private AtomicLong duplicateRepliesReceived;
-    private AtomicLong orphanRepliesReceived;
-    private AtomicLong reconnects;
-    private AtomicLong inMsgs;
-    private AtomicLong outMsgs;
-    private AtomicLong inBytes;
-    private AtomicLong outBytes;
-    private AtomicLong pingCount;
-    private AtomicLong okCount;
-    private AtomicLong errCount;
-    private AtomicLong exceptionCount;
-    private AtomicLong droppedCount;
+    private LongAdder flushCounter;
+    private LongAdder outstandingRequests;
+    private LongAdder requestsSent;
+    private LongAdder repliesReceived;
+    private LongAdder duplicateRepliesReceived;
+    private LongAdder orphanRepliesReceived;
+    private LongAdder reconnects;
+    private LongAdder inMsgs;
+    private LongAdder outMsgs;
+    private LongAdder inBytes;
+    private LongAdder outBytes;
+    private LongAdder pingCount;
+    private LongAdder okCount;
+    private LongAdder errCount;
+    private LongAdder exceptionCount;
+    private LongAdder droppedCount;
+    private LongAdder subjectCacheHits;
+    private LongAdder subjectCacheMisses;
+    private LongAdder reconnectSpillMessages;
+    private LongAdder reconnectSpillBytes;
+    private LongAdder reconnectSpillReplayedBytes;
+    private LongAdder reconnectSpillReplayNanos;
+    private LongAdder inlineMessages;
+    private LongAdder inlineHandlerNanos;
+    private LongAccumulator inlineHandlerMaxNanos;
+    private LongAdder slowInlineHandlers;
+    private LongAdder writerFlushes;
+    private LongAdder writerFlushedMessages;
+
+    // only created when tracking advanced stats
+    private final LatencyHistogram requestRoundTrips;
+    private final LatencyHistogram flushRoundTrips;
+    private final LatencyHistogram dispatcherQueueWaits;
 
     final private boolean trackAdvanced;
 
@@ -50,74 +69,151 @@ class NatsStatistics implements Statistics {
         this.writeStats = new LongSummaryStatistics();
 
         this.lock = new ReentrantLock();
-        this.flushCounter = new AtomicLong();
-        this.outstandingRequests = new AtomicLong();
-        this.requestsSent = new AtomicLong();
-        this.repliesReceived = new AtomicLong();
-        this.duplicateRepliesReceived = new AtomicLong();
-        this.orphanRepliesReceived = new AtomicLong();
-        this.reconnects = new AtomicLong();
-        this.inMsgs = new AtomicLong();
-        this.outMsgs = new AtomicLong();
-        this.inBytes = new AtomicLong();
-        this.outBytes = new AtomicLong();
-        this.pingCount = new AtomicLong();
-        this.okCount = new AtomicLong();
-        this.errCount = new AtomicLong();
-        this.exceptionCount = new AtomicLong();
-        this.droppedCount = new AtomicLong();
+        this.flushCounter = new LongAdder();
+        this.outstandingRequests = new LongAdder();
+        this.requestsSent = new LongAdder();
+        this.repliesReceived = new LongAdder();
+        this.duplicateRepliesReceived = new LongAdder();
+        this.orphanRepliesReceived = new LongAdder();
+        this.reconnects = new LongAdder();
+        this.inMsgs = new LongAdder();
+        this.outMsgs = new LongAdder();
+        this.inBytes = new LongAdder();
+        this.outBytes = new LongAdder();
+        this.pingCount = new LongAdder();
+        this.okCount = new LongAdder();
+        this.errCount = new LongAdder();
+        this.exceptionCount = new LongAdder();
+        this.droppedCount = new LongAdder();
+        this.subjectCacheHits = new LongAdder();
+        this.subjectCacheMisses = new LongAdder();
+        this.reconnectSpillMessages = new LongAdder();
+        this.reconnectSpillBytes = new LongAdder();
+        this.reconnectSpillReplayedBytes = new LongAdder();
+        this.reconnectSpillReplayNanos = new LongAdder();
+        this.inlineMessages = new LongAdder();
+        this.inlineHandlerNanos = new LongAdder();
+        this.inlineHandlerMaxNanos = new LongAccumulator(Math::max, 0);
+        this.slowInlineHandlers = new LongAdder();
+        this.writerFlushes = new LongAdder();
+        this.writerFlushedMessages = new LongAdder();
+
+        this.requestRoundTrips = trackAdvanced ? new LatencyHistogram() : null;
+        this.flushRoundTrips = trackAdvanced ? new LatencyHistogram() : null;
+        this.dispatcherQueueWaits = trackAdvanced ? new LatencyHistogram() : null;
+    }
+
+    // Latencies are only recorded with advanced stats, callers check this before timing anything
+    boolean isTrackingLatency() {
+        return this.trackAdvanced;
+    }
+
+    void registerRequestRoundTrip(long nanos) {
+        if (this.requestRoundTrips != null) {
+            this.requestRoundTrips.record(nanos);
+        }
+    }
+
+    void registerFlushRoundTrip(long nanos) {
+        if (this.flushRoundTrips != null) {
+            this.flushRoundTrips.record(nanos);
+        }
+    }
+
+    void registerDispatcherQueueWait(long nanos) {
+        if (this.dispatcherQueueWaits != null) {
+            this.dispatcherQueueWaits.record(nanos);
+        }
     }
 
     void incrementPingCount() {
-        this.pingCount.incrementAndGet();
+        this.pingCount.increment();
     }
 
     void incrementDroppedCount() {
-        this.droppedCount.incrementAndGet();
+        this.droppedCount.increment();
+    }
+
+    void incrementSubjectCacheHits() {
+        this.subjectCacheHits.increment();
+    }
+
+    void incrementSubjectCacheMisses() {
+        this.subjectCacheMisses.increment();
+    }
+
+    void incrementReconnectSpillMessages() {
+        this.reconnectSpillMessages.increment();
+    }
+
+    void incrementReconnectSpillBytes(long bytes) {
+        this.reconnectSpillBytes.add(bytes);
+    }
+
+    void incrementReconnectSpillReplayedBytes(long bytes) {
+        this.reconnectSpillReplayedBytes.add(bytes);
+    }
+
+    void incrementReconnectSpillReplayNanos(long nanos) {
+        this.reconnectSpillReplayNanos.add(nanos);
+    }
+
+    void registerInlineHandler(long nanos, boolean slow) {
+        this.inlineMessages.increment();
+        this.inlineHandlerNanos.add(nanos);
+        this.inlineHandlerMaxNanos.accumulate(nanos);
+        if (slow) {
+            this.slowInlineHandlers.increment();
+        }
+    }
+
+    void registerWriterFlush(long messages) {
+        this.writerFlushes.increment();
+        this.writerFlushedMessages.add(messages);
     }
 
     void incrementOkCount() {
-        this.okCount.incrementAndGet();
+        this.okCount.increment();
     }
 
     void incrementErrCount() {
-        this.errCount.incrementAndGet();
+        this.errCount.increment();
     }
 
     void incrementExceptionCount() {
-        this.exceptionCount.incrementAndGet();
+        this.exceptionCount.increment();
     }
 
     void incrementRequestsSent() {
-        this.requestsSent.incrementAndGet();
+        this.requestsSent.increment();
     }
 
     void incrementRepliesReceived() {
-        this.repliesReceived.incrementAndGet();
+        this.repliesReceived.increment();
     }
 
     void incrementDuplicateRepliesReceived() {
-        this.duplicateRepliesReceived.incrementAndGet();
+        this.duplicateRepliesReceived.increment();
     }
 
     void incrementOrphanRepliesReceived() {
-        this.orphanRepliesReceived.incrementAndGet();
+        this.orphanRepliesReceived.increment();
     }
 
     void incrementReconnects() {
-        this.reconnects.incrementAndGet();
+        this.reconnects.increment();
     }
 
     void incrementInMsgs() {
-        this.inMsgs.incrementAndGet();
+        this.inMsgs.increment();
     }
 
     void incrementOutMsgs() {
-        this.outMsgs.incrementAndGet();
+        this.outMsgs.increment();
     }
 
     void incrementInBytes(long bytes) {
-        this.inBytes.addAndGet(bytes);
+        this.inBytes.add(bytes);
     }
 
     void incrementOutMsgsAndBytes(long bytes) {
@@ -126,19 +222,19 @@ class NatsStatistics implements Statistics {
     }
 
     void incrementOutBytes(long bytes) {
-        this.outBytes.addAndGet(bytes);
+        this.outBytes.add(bytes);
     }
 
     void incrementFlushCounter() {
-        this.flushCounter.incrementAndGet();
+        this.flushCounter.increment();
     }
 
     void incrementOutstandingRequests() {
-        this.outstandingRequests.incrementAndGet();
+        this.outstandingRequests.increment();
     }
 
     void decrementOutstandingRequests() {
-        this.outstandingRequests.decrementAndGet();
+        this.outstandingRequests.decrement();
     }
 
     void registerSummaryStat(LongSummaryStatistics stats, long value) {
@@ -162,60 +258,133 @@ class NatsStatistics implements Statistics {
     }
 
     public long getPings() {
-        return this.pingCount.get();
+        return this.pingCount.sum();
     }
 
     public long getDroppedCount() {
-        return this.droppedCount.get();
+        return this.droppedCount.sum();
     }
 
     public long getOKs() {
-        return this.okCount.get();
+        return this.okCount.sum();
     }
 
     public long getErrs() {
-        return this.errCount.get();
+        return this.errCount.sum();
     }
 
     public long getExceptions() {
-        return this.exceptionCount.get();
+        return this.exceptionCount.sum();
     }
 
     public long getReconnects() {
-        return this.reconnects.get();
+        return this.reconnects.sum();
     }
 
     public long getInMsgs() {
-        return this.inMsgs.get();
+        return this.inMsgs.sum();
     }
 
     public long getOutMsgs() {
-        return this.outMsgs.get();
+        return this.outMsgs.sum();
     }
 
     public long getInBytes() {
-        return this.inBytes.get();
+        return this.inBytes.sum();
     }
 
     public long getOutBytes() {
-        return this.outBytes.get();
+        return this.outBytes.sum();
+    }
+
+    long getPingCount() {
+        return pingCount.sum();
     }
 
     long getFlushCounter() {
-        return flushCounter.get();
+        return flushCounter.sum();
     }
 
     long getOutstandingRequests() {
-        return outstandingRequests.get();
+        return outstandingRequests.sum();
     }
 
-    public long getRepliesReceived() { return repliesReceived.get(); }
+    public long getRepliesReceived() { return repliesReceived.sum(); }
 
     public long getDuplicateRepliesReceived() {
-        return duplicateRepliesReceived.get();
+        return duplicateRepliesReceived.sum();
+    }
+
+    public long getOrphanRepliesReceived() { return orphanRepliesReceived.sum(); }
+
+    public long getSubjectCacheHits() {
+        return subjectCacheHits.sum();
+    }
+
+    public long getSubjectCacheMisses() {
+        return subjectCacheMisses.sum();
+    }
+
+    public long getReconnectSpillMessages() {
+        return reconnectSpillMessages.sum();
+    }
+
+    public long getReconnectSpillBytes() {
+        return reconnectSpillBytes.sum();
+    }
+
+    public long getReconnectSpillReplayedBytes() {
+        return reconnectSpillReplayedBytes.sum();
+    }
+
+    public long getReconnectSpillReplayNanos() {
+        return reconnectSpillReplayNanos.sum();
+    }
+
+    public long getInlineMessages() {
+        return inlineMessages.sum();
+    }
+
+    public long getInlineHandlerNanos() {
+        return inlineHandlerNanos.sum();
+    }
+
+    public long getInlineHandlerMaxNanos() {
+        return inlineHandlerMaxNanos.get();
+    }
+
+    public long getSlowInlineHandlers() {
+        return slowInlineHandlers.sum();
+    }
+
+    public long getWriterFlushes() {
+        return writerFlushes.sum();
+    }
+
+    public long getWriterFlushedMessages() {
+        return writerFlushedMessages.sum();
     }
 
-    public long getOrphanRepliesReceived() { return orphanRepliesReceived.get(); }
+    public LatencyHistogram.Snapshot getRequestRoundTripTimes() {
+        return snapshot(this.requestRoundTrips);
+    }
+
+    public LatencyHistogram.Snapshot getFlushRoundTripTimes() {
+        return snapshot(this.flushRoundTrips);
+    }
+
+    public LatencyHistogram.Snapshot getDispatcherQueueWaitTimes() {
+        return snapshot(this.dispatcherQueueWaits);
+    }
+
+    private static LatencyHistogram.Snapshot snapshot(LatencyHistogram histogram) {
+        return histogram == null ? LatencyHistogram.Snapshot.EMPTY : histogram.snapshot();
+    }
+
+    public double getAverageFlushBatchSize() {
+        long flushes = writerFlushes.sum();
+        return flushes == 0 ? 0 : (double) writerFlushedMessages.sum() / (double) flushes;
+    }
 
     void appendNumberStat(StringBuilder builder, String name, long value) {
         builder.append(name);
@@ -229,30 +398,53 @@ class NatsStatistics implements Statistics {
         builder.append("\n");
     }
 
+    void appendLatencyStat(StringBuilder builder, String name, LatencyHistogram histogram) {
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+        if (snapshot.getCount() > 0) {
+            builder.append(name);
+            builder.append(snapshot);
+            builder.append("\n");
+        }
+    }
+
     public String toString() {
         StringBuilder builder = new StringBuilder();
 
         lock.lock();
         try {
             builder.append("### Connection ###\n");
-            appendNumberStat(builder, "Reconnects:                      ", this.reconnects.get());
+            appendNumberStat(builder, "Reconnects:                      ", this.reconnects.sum());
             if (this.trackAdvanced) {
-                appendNumberStat(builder, "Requests Sent:                   ", this.requestsSent.get());
-                appendNumberStat(builder, "Replies Received:                ", this.repliesReceived.get());
-                appendNumberStat(builder, "Duplicate Replies Received:      ", this.duplicateRepliesReceived.get());
-                appendNumberStat(builder, "Orphan Replies Received:         ", this.orphanRepliesReceived.get());
-                appendNumberStat(builder, "Pings Sent:                      ", this.pingCount.get());
-                appendNumberStat(builder, "+OKs Received:                   ", this.okCount.get());
-                appendNumberStat(builder, "-Errs Received:                  ", this.errCount.get());
-                appendNumberStat(builder, "Handled Exceptions:              ", this.exceptionCount.get());
-                appendNumberStat(builder, "Successful Flush Calls:          ", this.flushCounter.get());
-                appendNumberStat(builder, "Outstanding Request Futures:     ", this.outstandingRequests.get());
-                appendNumberStat(builder, "Dropped Messages:                ", this.droppedCount.get());
+                appendNumberStat(builder, "Requests Sent:                   ", this.requestsSent.sum());
+                appendNumberStat(builder, "Replies Received:                ", this.repliesReceived.sum());
+                appendNumberStat(builder, "Duplicate Replies Received:      ", this.duplicateRepliesReceived.sum());
+                appendNumberStat(builder, "Orphan Replies Received:         ", this.orphanRepliesReceived.sum());
+                appendNumberStat(builder, "Pings Sent:                      ", this.pingCount.sum());
+                appendNumberStat(builder, "+OKs Received:                   ", this.okCount.sum());
+                appendNumberStat(builder, "-Errs Received:                  ", this.errCount.sum());
+                appendNumberStat(builder, "Handled Exceptions:              ", this.exceptionCount.sum());
+                appendNumberStat(builder, "Successful Flush Calls:          ", this.flushCounter.sum());
+                appendNumberStat(builder, "Outstanding Request Futures:     ", this.outstandingRequests.sum());
+                appendNumberStat(builder, "Dropped Messages:                ", this.droppedCount.sum());
+                appendLatencyStat(builder, "Request Round Trip Nanos:        ", this.requestRoundTrips);
+                appendLatencyStat(builder, "Flush Round Trip Nanos:          ", this.flushRoundTrips);
+                appendLatencyStat(builder, "Dispatcher Queue Wait Nanos:     ", this.dispatcherQueueWaits);
             }
             builder.append("\n");
             builder.append("### Reader ###\n");
-            appendNumberStat(builder, "Messages in:                     ", this.inMsgs.get());
-            appendNumberStat(builder, "Bytes in:                        ", this.inBytes.get());
+            appendNumberStat(builder, "Messages in:                     ", this.inMsgs.sum());
+            appendNumberStat(builder, "Bytes in:                        ", this.inBytes.sum());
+            if (this.subjectCacheHits.sum() > 0 || this.subjectCacheMisses.sum() > 0) {
+                appendNumberStat(builder, "Subject Cache Hits:              ", this.subjectCacheHits.sum());
+                appendNumberStat(builder, "Subject Cache Misses:            ", this.subjectCacheMisses.sum());
+            }
+            if (this.inlineMessages.sum() > 0) {
+                appendNumberStat(builder, "Inline Messages:                 ", this.inlineMessages.sum());
+                appendNumberStat(builder, "Average Inline Handler Nanos:    ",
+                        (double) this.inlineHandlerNanos.sum() / (double) this.inlineMessages.sum());
+                appendNumberStat(builder, "Max Inline Handler Nanos:        ", this.inlineHandlerMaxNanos.get());
+                appendNumberStat(builder, "Slow Inline Handlers:            ", this.slowInlineHandlers.sum());
+            }
             builder.append("\n");
             if (this.trackAdvanced) {
                 appendNumberStat(builder, "Socket Reads:                    ", readStats.getCount());
@@ -262,8 +454,22 @@ class NatsStatistics implements Statistics {
             }
             builder.append("\n");
             builder.append("### Writer ###\n");
-            appendNumberStat(builder, "Messages out:                    ", this.outMsgs.get());
-            appendNumberStat(builder, "Bytes out:                       ", this.outBytes.get());
+            appendNumberStat(builder, "Messages out:                    ", this.outMsgs.sum());
+            appendNumberStat(builder, "Bytes out:                       ", this.outBytes.sum());
+            if (this.writerFlushes.sum() > 0) {
+                appendNumberStat(builder, "Writer Flushes:                  ", this.writerFlushes.sum());
+                appendNumberStat(builder, "Average Messages Per Flush:      ", getAverageFlushBatchSize());
+            }
+            if (this.reconnectSpillMessages.sum() > 0) {
+                appendNumberStat(builder, "Reconnect Spill Messages:        ", this.reconnectSpillMessages.sum());
+                appendNumberStat(builder, "Reconnect Spill Bytes:           ", this.reconnectSpillBytes.sum());
+                appendNumberStat(builder, "Reconnect Spill Replayed Bytes:  ", this.reconnectSpillReplayedBytes.sum());
+                long nanos = this.reconnectSpillReplayNanos.sum();
+                if (nanos > 0) {
+                    appendNumberStat(builder, "Spill Replay Bytes Per Second:   ",
+                            (double) this.reconnectSpillReplayedBytes.sum() * 1e9 / (double) nanos);
+                }
+            }
             builder.append("\n");
             if (this.trackAdvanced) {
                 appendNumberStat(builder, "Socket Writes:                   ", writeStats.getCount());
@@ -15,9 +15,11 @@ package io.nats.client.impl;
 
 import io.nats.client.Dispatcher;
 import io.nats.client.Message;
+import io.nats.client.MessageHandler;
 import io.nats.client.Subscription;
 
 import java.time.Duration;
+import java.util.Collection;
 import java.util.concurrent.atomic.AtomicLong;
 
 class NatsSubscription extends NatsConsumer implements Subscription {
@@ -25,18 +27,32 @@ class NatsSubscription extends NatsConsumer implements Subscription {
     private String subject;
     private String queueName;
     private String sid;
+    private long sidValue;
 
     private NatsDispatcher dispatcher;
     private MessageQueue incoming;
+    private volatile MessageHandler handler; // set when it has its own handler on a dispatcher
 
     private AtomicLong unSubMessageLimit;
 
+    NatsSubscription(long sid, String subject, String queueName, NatsConnection connection,
+            NatsDispatcher dispatcher) {
+        this(String.valueOf(sid), sid, subject, queueName, connection, dispatcher);
+    }
+
+    // sids are numbers on the wire, this form is kept for tests that use made up ones
     NatsSubscription(String sid, String subject, String queueName, NatsConnection connection,
             NatsDispatcher dispatcher) {
+        this(sid, -1, subject, queueName, connection, dispatcher);
+    }
+
+    private NatsSubscription(String sid, long sidValue, String subject, String queueName, NatsConnection connection,
+            NatsDispatcher dispatcher) {
         super(connection);
         this.subject = subject;
         this.queueName = queueName;
         this.sid = sid;
+        this.sidValue = sidValue;
         this.dispatcher = dispatcher;
         this.unSubMessageLimit = new AtomicLong(-1);
 
@@ -71,10 +87,22 @@ class NatsSubscription extends NatsConsumer implements Subscription {
         return this.sid;
     }
 
+    long getSIDValue() {
+        return this.sidValue;
+    }
+
     NatsDispatcher getNatsDispatcher() {
         return this.dispatcher;
     }
 
+    MessageHandler getHandler() {
+        return this.handler;
+    }
+
+    void setHandler(MessageHandler handler) {
+        this.handler = handler;
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -134,6 +162,39 @@ class NatsSubscription extends NatsConsumer implements Subscription {
         return msg;
     }
 
+    public int nextMessages(int max, Duration maxWait, Collection<Message> into) throws InterruptedException, IllegalStateException {
+        if (max < 1) {
+            throw new IllegalArgumentException("Max messages must be at least 1");
+        } else if (into == null) {
+            throw new IllegalArgumentException("Collection is required in nextMessages");
+        } else if (this.dispatcher != null) {
+            throw new IllegalStateException(
+                    "Subscriptions that belong to a dispatcher cannot respond to nextMessages directly.");
+        } else if (this.incoming == null) {
+            throw new IllegalStateException("This subscription is inactive.");
+        }
+
+        // don't hand out messages past the unsubscribe limit
+        long limit = this.unSubMessageLimit.get();
+        if (limit > 0) {
+            max = (int) Math.max(1, Math.min(max, limit - this.getDeliveredCount()));
+        }
+
+        int count = incoming.popAll(max, maxWait, into);
+
+        if (count == 0 && (this.incoming == null || !this.incoming.isRunning())) { // We were unsubscribed while waiting
+            throw new IllegalStateException("This subscription became inactive.");
+        }
+
+        this.incrementDeliveredCount(count);
+
+        if (this.reachedUnsubLimit()) {
+            this.connection.invalidate(this);
+        }
+
+        return count;
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -0,0 +1,57 @@
+// Copyright 2021 The NATS Authors
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package io.nats.client.impl;
+
+import java.time.Duration;
+import java.util.function.Predicate;
+
+/**
+ * What the connection writer needs from its outgoing queue. A single {@link MessageQueue} is the
+ * default, {@link PublishLanes} stripes publishers over several of them.
+ *
+ * <p>Internal messages, like a PING for a flush or a SUB, are pushed with {@code internal} set. They
+ * are not held to the limits, and the writer sends them after everything pushed before them, by any
+ * thread.
+ */
+interface OutgoingQueue {
+
+    boolean push(NatsMessage msg);
+
+    boolean push(NatsMessage msg, boolean internal);
+
+    /**
+     * Take up to maxMessages, stopping before maxSize bytes unless a single message is bigger.
+     * A null timeout doesn't wait, a zero timeout waits until a message arrives or the queue is paused.
+     * @return the first message in the batch, linked through next, or null
+     */
+    NatsMessage accumulate(long maxSize, long maxMessages, Duration timeout) throws InterruptedException;
+
+    long length();
+
+    long sizeInBytes();
+
+    void pause();
+
+    void resume();
+
+    /**
+     * Remove the messages that match, only while paused.
+     */
+    void filter(Predicate<NatsMessage> p);
+
+    /**
+     * Wake up a reader waiting in accumulate.
+     */
+    void poisonTheQueue();
+}
@@ -0,0 +1,356 @@
+// Copyright 2021 The NATS Authors
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package io.nats.client.impl;
+
+import java.time.Duration;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Predicate;
+
+import static io.nats.client.support.NatsConstants.EMPTY_BODY;
+
+/**
+ * An outgoing queue striped into several lanes so publishing threads don't all contend on one queue.
+ * Each thread always pushes to the same lane, picked from its thread id, and the single reader drains
+ * the lanes round robin. Order is kept per thread. There is no order across threads for publishes,
+ * the same as with one queue and concurrent publishers.
+ *
+ * <p>Internal messages go out after everything any thread pushed before them, so a flush covers what
+ * other threads published first. Pushing one puts a barrier marker in every lane, under a lock so the
+ * markers are in the same order in each lane. A lane read up to a marker stops there until every lane
+ * has reached it, then the internal message is sent and the lanes carry on. The marker in the pushing
+ * thread's own lane keeps that thread's later publishes behind it.
+ *
+ * <p>The limits are split evenly across the lanes, markers don't count against them. The reader waits
+ * for messages with the configured wait strategy.
+ */
+class PublishLanes implements OutgoingQueue {
+
+    // Marks the place of an internal message in a lane
+    private static final class Barrier extends NatsMessage.ProtocolMessage {
+        final NatsMessage internal;
+        final AtomicInteger outstanding; // lanes that haven't been read up to it
+        final AtomicBoolean done = new AtomicBoolean(); // sent or dropped
+
+        Barrier(NatsMessage internal, int lanes) {
+            super(EMPTY_BODY);
+            this.internal = internal;
+            this.outstanding = new AtomicInteger(lanes);
+        }
+
+        @Override
+        long getSizeInBytes() {
+            return 0;
+        }
+    }
+
+    private static final Predicate<NatsMessage> IS_BARRIER = msg -> msg instanceof Barrier;
+
+    private final MessageQueue[] lanes;
+    private final MessageRing.WaitStrategy waitStrategy;
+
+    private final Object barrierLock = new Object();
+    private final ConcurrentLinkedQueue<Barrier> barriers = new ConcurrentLinkedQueue<>(); // oldest first
+    private final AtomicLong markers = new AtomicLong(); // still in the lanes
+    private final AtomicLong waiting = new AtomicLong(); // internal messages not sent or dropped yet
+
+    private final Barrier[] blocked; // reader only, the barrier each lane is stopped at
+    private int nextLane; // reader only
+
+    // set while the reader is parked waiting for a message
+    private volatile Thread waitingReader;
+
+    PublishLanes(int laneCount, int publishHighwaterMark, boolean discardWhenFull, MessageRing.WaitStrategy ringWaitStrategy,
+                 long maxBytes, Duration fullTimeout) {
+        this.lanes = new MessageQueue[laneCount];
+        this.blocked = new Barrier[laneCount];
+        this.waitStrategy = ringWaitStrategy == null ? MessageRing.WaitStrategy.BLOCKING : ringWaitStrategy;
+        int laneHighwaterMark = publishHighwaterMark <= 0 ? 0 : (publishHighwaterMark + laneCount - 1) / laneCount;
+        long laneMaxBytes = maxBytes <= 0 ? 0 : (maxBytes + laneCount - 1) / laneCount;
+        for (int i = 0; i < laneCount; i++) {
+            this.lanes[i] = new MessageQueue(true, laneHighwaterMark, discardWhenFull, ringWaitStrategy, laneMaxBytes, fullTimeout);
+        }
+    }
+
+    int laneCount() {
+        return this.lanes.length;
+    }
+
+    private MessageQueue laneForCurrentThread() {
+        return this.lanes[(int) (Thread.currentThread().getId() % this.lanes.length)];
+    }
+
+    @Override
+    public boolean push(NatsMessage msg) {
+        return push(msg, false);
+    }
+
+    @Override
+    public boolean push(NatsMessage msg, boolean internal) {
+        if (internal) {
+            pushBarrier(msg);
+            return true;
+        }
+        boolean pushed = laneForCurrentThread().push(msg, false);
+        wakeReader();
+        return pushed;
+    }
+
+    private void pushBarrier(NatsMessage msg) {
+        Barrier barrier = new Barrier(msg, this.lanes.length);
+        synchronized (this.barrierLock) {
+            this.barriers.add(barrier);
+            this.waiting.incrementAndGet();
+            int pushed = 0;
+            try {
+                for (MessageQueue lane : this.lanes) {
+                    if (!lane.push(barrier, true)) {
+                        break;
+                    }
+                    this.markers.incrementAndGet();
+                    pushed++;
+                }
+            } finally {
+                if (pushed < this.lanes.length) {
+                    // the lanes that got a marker still pass it, the message itself is not sent
+                    drop(barrier);
+                    barrier.outstanding.addAndGet(pushed - this.lanes.length);
+                }
+            }
+            if (pushed < this.lanes.length) {
+                throw new IllegalStateException("Output queue is full " + length());
+            }
+        }
+        wakeReader();
+    }
+
+    private void drop(Barrier barrier) {
+        if (barrier.done.compareAndSet(false, true)) {
+            this.waiting.decrementAndGet();
+        }
+    }
+
+    // Sends the internal messages every lane has been read up to, oldest first
+    private NatsMessage passBarriers() {
+        NatsMessage first = null;
+        NatsMessage last = null;
+        Barrier barrier;
+        while ((barrier = this.barriers.peek()) != null && barrier.outstanding.get() == 0) {
+            this.barriers.poll();
+            for (int i = 0; i < this.blocked.length; i++) {
+                if (this.blocked[i] == barrier) {
+                    this.blocked[i] = null;
+                }
+            }
+            if (barrier.done.compareAndSet(false, true)) {
+                this.waiting.decrementAndGet();
+                NatsMessage msg = barrier.internal;
+                msg.next = null;
+                if (first == null) {
+                    first = msg;
+                } else {
+                    last.next = msg;
+                }
+                last = msg;
+            }
+        }
+        return first;
+    }
+
+    @Override
+    public void poisonTheQueue() {
+        wakeReader();
+    }
+
+    private void wakeReader() {
+        Thread reader = this.waitingReader;
+        if (reader != null) {
+            LockSupport.unpark(reader);
+        }
+    }
+
+    boolean isRunning() {
+        return this.lanes[0].isRunning();
+    }
+
+    @Override
+    public void pause() {
+        for (MessageQueue lane : this.lanes) {
+            lane.pause();
+        }
+        wakeReader();
+    }
+
+    @Override
+    public void resume() {
+        for (MessageQueue lane : this.lanes) {
+            lane.resume();
+        }
+    }
+
+    // Takes what it can from each lane in turn, starting after the lane it stopped at last time,
+    // so a busy lane can't starve the others. Waits as described in MessageQueue.accumulate.
+    @Override
+    public NatsMessage accumulate(long maxSize, long maxMessages, Duration timeout) throws InterruptedException {
+        long deadline = 0;
+        if (timeout != null && !timeout.isZero()) {
+            deadline = System.nanoTime() + timeout.toNanos();
+        }
+        int tries = 0;
+
+        while (this.isRunning()) {
+            NatsMessage first = passBarriers();
+            NatsMessage last = first;
+            long size = 0;
+            long count = 0;
+            for (NatsMessage m = first; m != null; m = m.next) {
+                last = m;
+                size += m.getSizeInBytes();
+                count++;
+            }
+
+            for (int i = 0; i < this.lanes.length && count < maxMessages && size < maxSize; i++) {
+                int lane = this.nextLane;
+                this.nextLane = (this.nextLane + 1) % this.lanes.length;
+                if (this.blocked[lane] != null) {
+                    continue;
+                }
+
+                NatsMessage batch = this.lanes[lane].accumulateTo(maxSize - size, maxMessages - count, IS_BARRIER);
+                if (batch instanceof Barrier) {
+                    Barrier barrier = (Barrier) batch;
+                    this.markers.decrementAndGet();
+                    this.blocked[lane] = barrier;
+                    barrier.outstanding.decrementAndGet();
+                    batch = passBarriers();
+                }
+                if (batch == null) {
+                    continue;
+                }
+
+                if (first == null) {
+                    first = batch;
+                } else {
+                    last.next = batch;
+                }
+                last = batch;
+                size += batch.getSizeInBytes();
+                count++;
+                while (last.next != null) {
+                    last = last.next;
+                    size += last.getSizeInBytes();
+                    count++;
+                }
+            }
+
+            if (first != null || timeout == null) {
+                return first;
+            }
+
+            long remaining = TimeUnit.DAYS.toNanos(1); // a zero timeout waits until pause wakes us
+            if (deadline != 0) {
+                remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    return null;
+                }
+            }
+
+            switch (this.waitStrategy) {
+                case BUSY_SPIN:
+                    break;
+                case SPIN_YIELD_PARK:
+                    if (tries < MessageRing.SPIN_TRIES) {
+                        tries++;
+                    } else if (tries < MessageRing.SPIN_TRIES + MessageRing.YIELD_TRIES) {
+                        tries++;
+                        Thread.yield();
+                    } else {
+                        LockSupport.parkNanos(this, Math.min(remaining, MessageRing.PARK_NANOS));
+                    }
+                    break;
+                default: // BLOCKING
+                    // publishers check this after pushing, so looking at the lanes again after setting it can't miss one
+                    this.waitingReader = Thread.currentThread();
+                    try {
+                        if (this.isRunning() && isEmpty()) {
+                            LockSupport.parkNanos(this, remaining);
+                        }
+                    } finally {
+                        this.waitingReader = null;
+                    }
+                    break;
+            }
+
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+        }
+
+        return null;
+    }
+
+    // true if the reader has nothing it could take right now
+    private boolean isEmpty() {
+        Barrier barrier = this.barriers.peek();
+        if (barrier != null && barrier.outstanding.get() == 0) {
+            return false;
+        }
+        for (int i = 0; i < this.lanes.length; i++) {
+            if (this.blocked[i] == null && this.lanes[i].length() > 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public long length() {
+        long length = this.waiting.get() - this.markers.get();
+        for (MessageQueue lane : this.lanes) {
+            length += lane.length();
+        }
+        return length;
+    }
+
+    @Override
+    public long sizeInBytes() {
+        long size = 0;
+        for (MessageQueue lane : this.lanes) {
+            size += lane.sizeInBytes();
+        }
+        return size;
+    }
+
+    @Override
+    public void filter(Predicate<NatsMessage> p) {
+        if (this.isRunning()) {
+            throw new IllegalStateException("Filter is only supported when the queue is paused");
+        }
+        for (MessageQueue lane : this.lanes) {
+            lane.filter(msg -> !(msg instanceof Barrier) && p.test(msg));
+        }
+        // the markers stay, so the lanes still line up, only the internal message is dropped
+        synchronized (this.barrierLock) {
+            for (Barrier barrier : this.barriers) {
+                if (p.test(barrier.internal)) {
+                    drop(barrier);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,151 @@
+// Copyright 2021 The NATS Authors
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package io.nats.client.impl;
+
+/**
+ * Remembers the response keys of the most recently answered requests, so a second reply can be
+ * told apart from an orphan. Only a 64 bit hash of each key is kept, in a ring that holds the
+ * window in order of arrival and an open addressing table for lookups, so memory is fixed at
+ * about 24 bytes per entry. Adding a key past the window forgets the oldest one.
+ *
+ * <p>Keys are either subscription ids or numeric response tokens. Two keys with the same hash
+ * would make a reply to one look like a duplicate of the other, with 64 bit hashes that is not a
+ * practical concern, and numeric tokens only collide with the token whose hash is zero.
+ */
+class RecentReplies {
+
+    private static final long EMPTY = 0;
+
+    private final long[] ring;
+    private final long[] table;
+    private final int mask;
+    private int next;
+    private int size;
+
+    RecentReplies(int window) {
+        this.ring = new long[Math.max(0, window)];
+        int slots = Integer.highestOneBit(Math.max(1, window * 2));
+        if (slots < window * 2) {
+            slots <<= 1;
+        }
+        this.table = new long[window <= 0 ? 0 : slots];
+        this.mask = slots - 1;
+    }
+
+    int window() {
+        return this.ring.length;
+    }
+
+    synchronized int size() {
+        return this.size;
+    }
+
+    void add(String key) {
+        addHash(hash(key));
+    }
+
+    void add(long token) {
+        addHash(hash(token));
+    }
+
+    boolean contains(String key) {
+        return containsHash(hash(key));
+    }
+
+    boolean contains(long token) {
+        return containsHash(hash(token));
+    }
+
+    private synchronized void addHash(long hash) {
+        if (this.ring.length == 0) {
+            return;
+        }
+
+        long oldest = this.ring[this.next];
+        if (oldest != EMPTY) {
+            remove(oldest);
+        } else {
+            this.size++;
+        }
+        this.ring[this.next] = hash;
+        this.next = (this.next + 1) % this.ring.length;
+
+        int slot = slot(hash);
+        while (this.table[slot] != EMPTY) {
+            slot = (slot + 1) & this.mask;
+        }
+        this.table[slot] = hash;
+    }
+
+    private synchronized boolean containsHash(long hash) {
+        if (this.ring.length == 0) {
+            return false;
+        }
+
+        for (int slot = slot(hash); this.table[slot] != EMPTY; slot = (slot + 1) & this.mask) {
+            if (this.table[slot] == hash) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Removes one copy of the hash, shifting later entries of the probe run back so lookups
+    // never stop early at the hole.
+    private void remove(long hash) {
+        int slot = slot(hash);
+        while (this.table[slot] != hash) {
+            if (this.table[slot] == EMPTY) {
+                return;
+            }
+            slot = (slot + 1) & this.mask;
+        }
+
+        int hole = slot;
+        slot = (slot + 1) & this.mask;
+        while (this.table[slot] != EMPTY) {
+            int home = slot(this.table[slot]);
+            // move the entry back if its home isn't in the cyclic range (hole, slot]
+            if (((slot - home) & this.mask) >= ((slot - hole) & this.mask)) {
+                this.table[hole] = this.table[slot];
+                hole = slot;
+            }
+            slot = (slot + 1) & this.mask;
+        }
+        this.table[hole] = EMPTY;
+    }
+
+    private int slot(long hash) {
+        return (int) (hash ^ (hash >>> 32)) & this.mask;
+    }
+
+    // 64 bit FNV-1a over the characters, finished with a mix so nearby keys spread out
+    static long hash(String key) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < key.length(); i++) {
+            h ^= key.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        return hash(h);
+    }
+
+    // The 64 bit murmur finalizer, it is a bijection so distinct numeric tokens never collide
+    static long hash(long token) {
+        long h = token;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        return h == EMPTY ? 1 : h;
+    }
+}
@@ -0,0 +1,292 @@
+// Copyright 2021 The NATS Authors
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package io.nats.client.impl;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.function.Predicate;
+
+/**
+ * Overflow for the reconnect buffer. Once the messages published during a reconnect pass the
+ * reconnect buffer size, they are written to a memory mapped file instead of being refused. After
+ * the reconnect the writer sends whatever is still in memory first, then replays the file in order.
+ * While the spill is active every publish goes to the file, so messages can't pass each other, it is
+ * turned off again once the writer has read everything back.
+ *
+ * <p>Internal messages, like the PING for a flush or a SUB, are held in memory while the spill is
+ * active, together with how far the file had been written when they were queued. The writer gets
+ * them back in that same place, so a flush covers the publishes spilled before it and a stale PING
+ * can still be dropped on a disconnect.
+ *
+ * <p>The file is created in the configured directory the first time it is needed and reused for
+ * later reconnects. Each record is the length of the message followed by the bytes the writer would
+ * have sent for it, without the trailing CRLF. When a record doesn't fit at the end, the unread part
+ * is moved to the start of the file. If that still isn't enough, a publisher on a connected
+ * connection waits for the writer to catch up, during a reconnect it fails right away.
+ */
+class ReconnectSpill {
+
+    private static final int RECORD_HEADER = 4;
+
+    private final Path directory;
+    private final int capacity;
+    private final NatsStatistics statistics;
+
+    private Path file;
+    private FileChannel channel;
+    private MappedByteBuffer buffer;
+
+    // internal messages and the write position they were queued at
+    private final ArrayDeque<NatsMessage> held = new ArrayDeque<>();
+    private final ArrayDeque<Integer> heldAt = new ArrayDeque<>();
+
+    private volatile boolean active;
+    private int writePosition;
+    private int readPosition;
+    private long replayStart;
+
+    ReconnectSpill(Path directory, long capacity, NatsStatistics statistics) {
+        this.directory = directory;
+        this.capacity = (int) Math.min(Integer.MAX_VALUE, Math.max(capacity, RECORD_HEADER));
+        this.statistics = statistics;
+    }
+
+    boolean isActive() {
+        return this.active;
+    }
+
+    /**
+     * Append a message, turning the spill on if it isn't already.
+     * @return true if this call turned the spill on
+     * @throws IllegalStateException if the file is full
+     */
+    boolean append(NatsMessage msg) throws IOException {
+        return append(msg, 0);
+    }
+
+    /**
+     * Append a message, turning the spill on if it isn't already, waiting up to timeoutNanos for the
+     * writer to make room if the file is full.
+     * @return true if this call turned the spill on
+     * @throws IllegalStateException if the file is still full, or the wait is interrupted
+     */
+    synchronized boolean append(NatsMessage msg, long timeoutNanos) throws IOException {
+        byte[] protocol = msg.getProtocolBytes();
+        byte[] header = msg.isProtocol() ? null : msg.getSerializedHeader();
+        byte[] data = msg.isProtocol() ? null : msg.getData();
+        int headerLength = header == null ? 0 : header.length;
+        int dataLength = data == null ? 0 : data.length;
+        int length = protocol.length + 2 + headerLength + dataLength;
+
+        if (!hasRoom(length)) {
+            compact();
+            long deadline = System.nanoTime() + timeoutNanos;
+            long remaining = timeoutNanos;
+            while (!hasRoom(length) && remaining > 0) {
+                try {
+                    this.wait(remaining / 1_000_000, (int) (remaining % 1_000_000));
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Interrupted while waiting for room in the spill file", ie);
+                }
+                compact();
+                remaining = deadline - System.nanoTime();
+            }
+            if (!hasRoom(length)) {
+                throw new IllegalStateException(
+                        "Unable to queue any more messages, max spill file size is " + this.capacity);
+            }
+        }
+
+        if (this.buffer == null) {
+            open();
+        }
+
+        this.buffer.position(this.writePosition);
+        this.buffer.putInt(length);
+        this.buffer.put(protocol);
+        this.buffer.put((byte) '\r');
+        this.buffer.put((byte) '\n');
+        if (headerLength > 0) {
+            this.buffer.put(header);
+        }
+        if (dataLength > 0) {
+            this.buffer.put(data);
+        }
+        this.writePosition = this.buffer.position();
+
+        this.statistics.incrementReconnectSpillMessages();
+        this.statistics.incrementReconnectSpillBytes(length);
+
+        boolean started = !this.active;
+        this.active = true;
+        return started;
+    }
+
+    /**
+     * Hold an internal message until the writer has read the file up to this point.
+     * @return false if the spill isn't active and the message should be queued as usual
+     */
+    synchronized boolean hold(NatsMessage msg) {
+        if (!this.active) {
+            return false;
+        }
+        this.held.add(msg);
+        this.heldAt.add(this.writePosition);
+        return true;
+    }
+
+    /**
+     * Drop held messages, for example the PINGs that can't be answered after a disconnect.
+     */
+    synchronized void filterHeld(Predicate<NatsMessage> filter) {
+        Iterator<NatsMessage> messages = this.held.iterator();
+        Iterator<Integer> positions = this.heldAt.iterator();
+        while (messages.hasNext()) {
+            positions.next();
+            if (filter.test(messages.next())) {
+                messages.remove();
+                positions.remove();
+            }
+        }
+    }
+
+    /**
+     * Read back up to maxMessages, stopping before maxSize bytes unless a single message is bigger.
+     * When there is nothing left the spill is turned off and the file is reused from the start.
+     * @return the first message in the batch, linked through next, or null if the spill is empty
+     */
+    synchronized NatsMessage read(long maxSize, long maxMessages) {
+        if (!this.active) {
+            return null;
+        }
+
+        if (this.readPosition == this.writePosition && this.held.isEmpty()) {
+            this.statistics.incrementReconnectSpillReplayNanos(System.nanoTime() - this.replayStart);
+            this.active = false;
+            this.readPosition = 0;
+            this.writePosition = 0;
+            this.replayStart = 0;
+            return null;
+        }
+
+        if (this.replayStart == 0) {
+            this.replayStart = System.nanoTime();
+        }
+
+        NatsMessage first = null;
+        NatsMessage last = null;
+        long size = 0;
+        long replayed = 0;
+        long count = 0;
+
+        while (count < maxMessages) {
+            NatsMessage msg;
+            long msgSize;
+            if (!this.held.isEmpty() && this.heldAt.peek() <= this.readPosition) {
+                msg = this.held.peek();
+                msgSize = msg.getSizeInBytes();
+                if (count > 0 && size + msgSize > maxSize) {
+                    break;
+                }
+                this.held.poll();
+                this.heldAt.poll();
+            } else if (this.readPosition < this.writePosition) {
+                int length = this.buffer.getInt(this.readPosition);
+                msgSize = length + 2;
+                if (count > 0 && size + msgSize > maxSize) {
+                    break;
+                }
+
+                byte[] bytes = new byte[length];
+                this.buffer.position(this.readPosition + RECORD_HEADER);
+                this.buffer.get(bytes);
+                this.readPosition += RECORD_HEADER + length;
+                replayed += msgSize;
+                msg = new NatsMessage.ProtocolMessage(bytes);
+            } else {
+                break;
+            }
+
+            msg.next = null;
+            if (first == null) {
+                first = msg;
+            } else {
+                last.next = msg;
+            }
+            last = msg;
+            size += msgSize;
+            count++;
+        }
+
+        this.statistics.incrementReconnectSpillReplayedBytes(replayed);
+        this.notifyAll(); // publishers waiting for room can compact now
+        return first;
+    }
+
+    synchronized void close() throws IOException {
+        this.active = false;
+        this.readPosition = 0;
+        this.writePosition = 0;
+        this.held.clear();
+        this.heldAt.clear();
+        this.buffer = null;
+        try {
+            if (this.channel != null) {
+                this.channel.close();
+            }
+        } finally {
+            this.channel = null;
+            if (this.file != null) {
+                Files.deleteIfExists(this.file);
+                this.file = null;
+            }
+        }
+    }
+
+    private boolean hasRoom(int length) {
+        return (long) this.writePosition + RECORD_HEADER + length <= this.capacity;
+    }
+
+    // move the unread records to the start of the file
+    private void compact() {
+        if (this.readPosition == 0) {
+            return;
+        }
+        this.buffer.limit(this.writePosition);
+        this.buffer.position(this.readPosition);
+        this.buffer.compact();
+        this.buffer.clear();
+
+        int shift = this.readPosition;
+        this.writePosition -= shift;
+        this.readPosition = 0;
+        for (int i = this.heldAt.size(); i > 0; i--) {
+            this.heldAt.add(this.heldAt.poll() - shift);
+        }
+    }
+
+    private void open() throws IOException {
+        this.file = Files.createTempFile(this.directory, "nats-reconnect-", ".spill");
+        this.file.toFile().deleteOnExit();
+        this.channel = FileChannel.open(this.file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.buffer = this.channel.map(FileChannel.MapMode.READ_WRITE, 0, this.capacity);
+    }
+}
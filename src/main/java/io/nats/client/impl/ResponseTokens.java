@@ -0,0 +1,103 @@
+// Copyright 2021 The NATS Authors
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+
+package io.nats.client.impl;
+
+/**
+ * Encodes request response tokens, the last token of a new style reply subject, as base 62
+ * numbers. Tokens come from a per connection counter so creating one needs no lock and no
+ * random data, and a reply can be matched by parsing its subject back into the number without
+ * taking a substring.
+ */
+final class ResponseTokens {
+
+    static final int BASE = 62;
+    static final int MAX_DIGITS = 11; // 62^11 is more than Long.MAX_VALUE
+
+    private static final char[] DIGITS = {
+        '0', '1', '2', '3', '4', '5', '6', '7', '8', '9',
+        'A', 'B', 'C', 'D', 'E', 'F', 'G', 'H', 'I', 'J', 'K', 'L', 'M',
+        'N', 'O', 'P', 'Q', 'R', 'S', 'T', 'U', 'V', 'W', 'X', 'Y', 'Z',
+        'a', 'b', 'c', 'd', 'e', 'f', 'g', 'h', 'i', 'j', 'k', 'l', 'm',
+        'n', 'o', 'p', 'q', 'r', 's', 't', 'u', 'v', 'w', 'x', 'y', 'z'};
+
+    private ResponseTokens() {} /* ensures cannot be constructed */
+
+    /**
+     * @param token a non negative token
+     * @return the number of base 62 digits needed for the token
+     */
+    static int length(long token) {
+        int len = 1;
+        while (token >= BASE) {
+            token /= BASE;
+            len++;
+        }
+        return len;
+    }
+
+    /**
+     * Builds a response subject, the prefix followed directly by the encoded token.
+     * The prefix should already end with the separating dot.
+     * @param prefix the inbox prefix characters
+     * @param token a non negative token
+     * @return the subject
+     */
+    static String subject(char[] prefix, long token) {
+        int len = length(token);
+        char[] chars = new char[prefix.length + len];
+        System.arraycopy(prefix, 0, chars, 0, prefix.length);
+        for (int i = chars.length - 1; i >= prefix.length; i--) {
+            chars[i] = DIGITS[(int) (token % BASE)];
+            token /= BASE;
+        }
+        return new String(chars);
+    }
+
+    /**
+     * Parses the token at the end of a subject.
+     * @param subject the subject
+     * @param offset where the token starts
+     * @return the token or -1 if the rest of the subject is not a valid token
+     */
+    static long parse(String subject, int offset) {
+        int end = subject.length();
+        if (offset >= end || end - offset > MAX_DIGITS) {
+            return -1;
+        }
+
+        long token = 0;
+        for (int i = offset; i < end; i++) {
+            int digit = digit(subject.charAt(i));
+            if (digit < 0 || token > (Long.MAX_VALUE - digit) / BASE) {
+                return -1;
+            }
+            token = token * BASE + digit;
+        }
+        return token;
+    }
+
+    private static int digit(char c) {
+        if (c >= '0' && c <= '9') {
+            return c - '0';
+        }
+        if (c >= 'A' && c <= 'Z') {
+            return c - 'A' + 10;
+        }
+        if (c >= 'a' && c <= 'z') {
+            return c - 'a' + 36;
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,193 @@
+// Copyright 2021 The NATS Authors
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package io.nats.client.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+
+/**
+ * A map from numeric subscription ids to values, used to route incoming messages.
+ *
+ * <p>Keys are primitive longs stored in an open addressing table, so a lookup does no boxing,
+ * hashing of strings or equals calls. Reads are lock free and are expected to come from the
+ * reader and dispatcher threads on every message. Writes happen on subscribe and unsubscribe,
+ * they are serialized on the map and may replace the whole table when it grows.
+ */
+class SidMap<V> {
+
+    private static final int MIN_CAPACITY = 16;
+
+    private static final class Entry<V> {
+        final long sid;
+        final V value;
+
+        Entry(long sid, V value) {
+            this.sid = sid;
+            this.value = value;
+        }
+    }
+
+    // marks a removed entry so probes for later keys keep going
+    private static final Entry<Object> REMOVED = new Entry<>(Long.MIN_VALUE, null);
+
+    private volatile AtomicReferenceArray<Entry<V>> table;
+    private int size;
+    private int used; // live entries plus removed markers
+
+    SidMap() {
+        this.table = new AtomicReferenceArray<>(MIN_CAPACITY);
+    }
+
+    private static int indexFor(long sid, int mask) {
+        long h = sid * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+
+    V get(long sid) {
+        AtomicReferenceArray<Entry<V>> t = this.table;
+        int mask = t.length() - 1;
+        int i = indexFor(sid, mask);
+        while (true) {
+            Entry<V> e = t.get(i);
+            if (e == null) {
+                return null;
+            }
+            if (e.sid == sid && e != REMOVED) {
+                return e.value;
+            }
+            i = (i + 1) & mask;
+        }
+    }
+
+    synchronized V put(long sid, V value) {
+        // replace in place, so a concurrent get never misses a live sid
+        AtomicReferenceArray<Entry<V>> t = this.table;
+        int slot = slotOf(t, sid);
+        if (slot >= 0) {
+            V old = t.get(slot).value;
+            t.set(slot, new Entry<>(sid, value));
+            return old;
+        }
+
+        if (used + 1 > this.table.length() / 2) {
+            resize();
+        }
+        insert(this.table, new Entry<>(sid, value));
+        size++;
+        used++;
+        return null;
+    }
+
+    synchronized V putIfAbsent(long sid, V value) {
+        V existing = get(sid);
+        if (existing != null) {
+            return existing;
+        }
+        put(sid, value);
+        return null;
+    }
+
+    synchronized V remove(long sid) {
+        return removeEntry(sid);
+    }
+
+    synchronized void clear() {
+        this.table = new AtomicReferenceArray<>(MIN_CAPACITY);
+        size = 0;
+        used = 0;
+    }
+
+    synchronized int size() {
+        return size;
+    }
+
+    /**
+     * @return a snapshot of the values currently in the map
+     */
+    List<V> values() {
+        AtomicReferenceArray<Entry<V>> t = this.table;
+        List<V> values = new ArrayList<>();
+        for (int i = 0; i < t.length(); i++) {
+            Entry<V> e = t.get(i);
+            if (e != null && e != REMOVED) {
+                values.add(e.value);
+            }
+        }
+        return values;
+    }
+
+    void forEach(Consumer<V> action) {
+        values().forEach(action);
+    }
+
+    // caller holds the lock
+    @SuppressWarnings("unchecked")
+    private V removeEntry(long sid) {
+        AtomicReferenceArray<Entry<V>> t = this.table;
+        int slot = slotOf(t, sid);
+        if (slot < 0) {
+            return null;
+        }
+        V old = t.get(slot).value;
+        t.set(slot, (Entry<V>) REMOVED);
+        size--;
+        return old;
+    }
+
+    // the index of the live entry for sid, or -1
+    private static <V> int slotOf(AtomicReferenceArray<Entry<V>> t, long sid) {
+        int mask = t.length() - 1;
+        int i = indexFor(sid, mask);
+        while (true) {
+            Entry<V> e = t.get(i);
+            if (e == null) {
+                return -1;
+            }
+            if (e.sid == sid && e != REMOVED) {
+                return i;
+            }
+            i = (i + 1) & mask;
+        }
+    }
+
+    // caller holds the lock, rebuilds the table without removed markers
+    private void resize() {
+        int capacity = MIN_CAPACITY;
+        while (capacity < (size + 1) * 4) {
+            capacity <<= 1;
+        }
+
+        AtomicReferenceArray<Entry<V>> old = this.table;
+        AtomicReferenceArray<Entry<V>> next = new AtomicReferenceArray<>(capacity);
+        for (int i = 0; i < old.length(); i++) {
+            Entry<V> e = old.get(i);
+            if (e != null && e != REMOVED) {
+                insert(next, e);
+            }
+        }
+        this.table = next;
+        used = size;
+    }
+
+    private static <V> void insert(AtomicReferenceArray<Entry<V>> t, Entry<V> entry) {
+        int mask = t.length() - 1;
+        int i = indexFor(entry.sid, mask);
+        while (t.get(i) != null) {
+            i = (i + 1) & mask;
+        }
+        t.set(i, entry);
+    }
+}
@@ -0,0 +1,199 @@
+// Copyright 2021 The NATS Authors
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package io.nats.client.impl;
+
+import io.nats.client.Options;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSocket;
+import javax.net.ssl.SSLSocketFactory;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A data port built on a {@link SocketChannel} that moves bytes through direct
+ * {@link ByteBuffer ByteBuffers} the port allocates once, sized to the connection's buffer size.
+ * Bytes are still copied once between the caller's array and the direct buffer, the same as
+ * with a stream based socket, but the copy goes to a buffer the port owns instead of a temporary
+ * one the JDK looks up per call. Gathering writes hand large payloads to the channel as their own buffers.
+ * Select it with
+ * {@link Options.Builder#dataPortType(String) dataPortType(SocketChannelDataPort.class.getCanonicalName())}.
+ *
+ * <p>The channel is used in blocking mode to honor the {@link DataPort} contract. If the
+ * connection is upgraded to TLS, I/O falls back to the streams of an {@link SSLSocket}
+ * layered over the channel's socket.
+ *
+ * <p>This class is not theadsafe.  Caller must ensure thread safety. The reader thread
+ * only calls read and the writer thread only calls write, so each owns its own buffer.
+ */
+public class SocketChannelDataPort implements DataPort {
+
+    private NatsConnection connection;
+    private String host;
+    private int port;
+    private SocketChannel channel;
+    private SSLSocket sslSocket;
+
+    private ByteBuffer readBuffer;
+    private ByteBuffer writeBuffer;
+
+    private InputStream in;
+    private OutputStream out;
+
+    public void connect(String serverURI, NatsConnection conn, long timeoutNanos) throws IOException {
+
+        try {
+            this.connection = conn;
+
+            Options options = this.connection.getOptions();
+            long timeout = timeoutNanos / 1_000_000; // convert to millis
+            URI uri = options.createURIForServer(serverURI);
+            this.host = uri.getHost();
+            this.port = uri.getPort();
+
+            this.channel = SocketChannel.open();
+            channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            channel.setOption(StandardSocketOptions.SO_RCVBUF, 2 * 1024 * 1024);
+            channel.setOption(StandardSocketOptions.SO_SNDBUF, 2 * 1024 * 1024);
+            // the socket adaptor supports a connect timeout, the channel itself does not
+            channel.socket().connect(new InetSocketAddress(host, port), (int) timeout);
+
+            int bufSize = options.getBufferSize();
+            this.readBuffer = ByteBuffer.allocateDirect(bufSize);
+            this.writeBuffer = ByteBuffer.allocateDirect(bufSize);
+        } catch (Exception ex) {
+            throw new IOException(ex);
+        }
+    }
+
+    /**
+     * Upgrade the port to SSL. If it is already secured, this is a no-op.
+     * After the upgrade, reads and writes go through the ssl socket streams.
+     */
+    public void upgradeToSecure() throws IOException {
+        Options options = this.connection.getOptions();
+        SSLContext context = options.getSslContext();
+
+        SSLSocketFactory factory = context.getSocketFactory();
+        Duration timeout = options.getConnectionTimeout();
+
+        this.sslSocket = (SSLSocket) factory.createSocket(channel.socket(), this.host, this.port, true);
+        this.sslSocket.setUseClientMode(true);
+
+        final CompletableFuture<Void> waitForHandshake = new CompletableFuture<>();
+
+        this.sslSocket.addHandshakeCompletedListener((evt) -> {
+            waitForHandshake.complete(null);
+        });
+
+        this.sslSocket.startHandshake();
+
+        try {
+            waitForHandshake.get(timeout.toNanos(), TimeUnit.NANOSECONDS);
+        } catch (Exception ex) {
+            this.connection.handleCommunicationIssue(ex);
+            return;
+        }
+
+        in = sslSocket.getInputStream();
+        out = sslSocket.getOutputStream();
+    }
+
+    public int read(byte[] dst, int off, int len) throws IOException {
+        if (in != null) {
+            return in.read(dst, off, len);
+        }
+
+        readBuffer.clear();
+        if (len < readBuffer.capacity()) {
+            readBuffer.limit(len);
+        }
+
+        int read = channel.read(readBuffer);
+        if (read > 0) {
+            readBuffer.flip();
+            readBuffer.get(dst, off, read);
+        }
+        return read;
+    }
+
+    public void write(byte[] src, int toWrite) throws IOException {
+        if (out != null) {
+            out.write(src, 0, toWrite);
+            return;
+        }
+
+        int position = 0;
+        while (position < toWrite) {
+            int chunk = Math.min(toWrite - position, writeBuffer.capacity());
+            writeBuffer.clear();
+            writeBuffer.put(src, position, chunk);
+            writeBuffer.flip();
+            while (writeBuffer.hasRemaining()) {
+                channel.write(writeBuffer);
+            }
+            position += chunk;
+        }
+    }
+
+    public void write(ByteBuffer[] srcs, int length) throws IOException {
+        if (out != null) {
+            for (int i = 0; i < length; i++) {
+                ByteBuffer src = srcs[i];
+                out.write(src.array(), src.arrayOffset() + src.position(), src.remaining());
+            }
+            return;
+        }
+
+        // a gathering write may stop part way through, keep going until the last buffer is empty
+        int first = 0;
+        while (first < length) {
+            channel.write(srcs, first, length - first);
+            while (first < length && !srcs[first].hasRemaining()) {
+                first++;
+            }
+        }
+    }
+
+    public void shutdownInput() throws IOException {
+        // cannot call shutdownInput on sslSocket
+        if (sslSocket == null) {
+            channel.shutdownInput();
+        }
+    }
+
+    public void close() throws IOException {
+        if (sslSocket != null) {
+            sslSocket.close(); // auto closes the underlying socket
+        } else {
+            channel.close();
+        }
+    }
+
+    public void flush() throws IOException {
+        // channel writes are not buffered, only the ssl stream needs a flush
+        if (out != null) {
+            out.flush();
+        }
+    }
+}
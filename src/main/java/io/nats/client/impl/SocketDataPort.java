@@ -24,6 +24,7 @@ import java.io.OutputStream;
 import java.net.InetSocketAddress;
 import java.net.Socket;
 import java.net.URI;
+import java.nio.ByteBuffer;
 import java.time.Duration;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
@@ -107,6 +108,13 @@ public class SocketDataPort implements DataPort {
         out.write(src, 0, toWrite);
     }
 
+    public void write(ByteBuffer[] srcs, int length) throws IOException {
+        for (int i = 0; i < length; i++) {
+            ByteBuffer src = srcs[i];
+            out.write(src.array(), src.arrayOffset() + src.position(), src.remaining());
+        }
+    }
+
     public void shutdownInput() throws IOException {
         // cannot call shutdownInput on sslSocket
         if (sslSocket == null) {
@@ -0,0 +1,83 @@
+// Copyright 2021 The NATS Authors
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package io.nats.client.impl;
+
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+/**
+ * A bounded cache from raw subject bytes to subject strings, used by the reader so that
+ * messages arriving on the same subject share one String. Entries live in a fixed table
+ * indexed by the hash of the bytes, a new subject simply replaces whatever was in its slot.
+ *
+ * <p>This class is not threadsafe, it is owned by the reader thread.
+ */
+class SubjectCache {
+
+    private final byte[][] keys;
+    private final String[] values;
+    private final int mask;
+    private final Charset charset;
+    private final NatsStatistics statistics;
+
+    SubjectCache(int size, Charset charset, NatsStatistics statistics) {
+        int slots = Integer.highestOneBit(Math.max(1, size));
+        if (slots < size) {
+            slots <<= 1;
+        }
+        this.keys = new byte[slots][];
+        this.values = new String[slots];
+        this.mask = slots - 1;
+        this.charset = charset;
+        this.statistics = statistics;
+    }
+
+    int capacity() {
+        return this.keys.length;
+    }
+
+    /**
+     * Get the subject for the bytes in [start, end), creating and caching it on a miss.
+     * A hit does not allocate.
+     */
+    String get(byte[] src, int start, int end) {
+        int hash = 0;
+        for (int i = start; i < end; i++) {
+            hash = 31 * hash + src[i];
+        }
+        int slot = (hash ^ (hash >>> 16)) & this.mask;
+
+        byte[] key = this.keys[slot];
+        if (key != null && key.length == end - start && matches(key, src, start)) {
+            this.statistics.incrementSubjectCacheHits();
+            return this.values[slot];
+        }
+
+        this.statistics.incrementSubjectCacheMisses();
+        key = Arrays.copyOfRange(src, start, end);
+        String subject = new String(key, this.charset);
+        this.keys[slot] = key;
+        this.values[slot] = subject;
+        return subject;
+    }
+
+    private static boolean matches(byte[] key, byte[] src, int start) {
+        for (int i = 0; i < key.length; i++) {
+            if (key[i] != src[start + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
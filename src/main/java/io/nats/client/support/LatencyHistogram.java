@@ -0,0 +1,186 @@
+// Copyright 2021 The NATS Authors
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+
+package io.nats.client.support;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A fixed size, log-linear histogram of latencies in nanoseconds. Each power of two range is
+ * split into {@value #SUB_BUCKETS} equal buckets, so any recorded value is known to within about
+ * 6%, from single nanoseconds up to {@value #MAX_EXPONENT} bits, roughly 18 minutes. Larger
+ * values are counted in the last bucket. Recording is lock free and takes no allocation, and the
+ * whole histogram is about 5KB however many values it holds.
+ *
+ * <p>A {@link Snapshot} copies the counts without stopping writers, so a snapshot taken while
+ * values are being recorded may be off by those values, but is otherwise consistent enough for
+ * monitoring.
+ */
+public class LatencyHistogram {
+
+    static final int SUB_BITS = 4;
+    static final int SUB_BUCKETS = 1 << SUB_BITS;
+    static final int MAX_EXPONENT = 40;
+    static final int BUCKETS = (MAX_EXPONENT - SUB_BITS + 1) * SUB_BUCKETS + SUB_BUCKETS;
+
+    private final AtomicLongArray counts;
+    private final LongAdder count;
+    private final LongAdder total;
+    private final LongAccumulator min;
+    private final LongAccumulator max;
+
+    public LatencyHistogram() {
+        this.counts = new AtomicLongArray(BUCKETS);
+        this.count = new LongAdder();
+        this.total = new LongAdder();
+        this.min = new LongAccumulator(Math::min, Long.MAX_VALUE);
+        this.max = new LongAccumulator(Math::max, 0);
+    }
+
+    /**
+     * Record one latency.
+     * @param nanos the latency in nanoseconds, negative values are recorded as 0
+     */
+    public void record(long nanos) {
+        long value = Math.max(0, nanos);
+        this.counts.incrementAndGet(bucket(value));
+        this.count.increment();
+        this.total.add(value);
+        this.min.accumulate(value);
+        this.max.accumulate(value);
+    }
+
+    /**
+     * @return a copy of the current counts
+     */
+    public Snapshot snapshot() {
+        long[] copy = new long[BUCKETS];
+        long n = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            copy[i] = this.counts.get(i);
+            n += copy[i];
+        }
+        return n == 0 ? Snapshot.EMPTY : new Snapshot(copy, n, this.total.sum(), this.min.get(), this.max.get());
+    }
+
+    static int bucket(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        if (exponent > MAX_EXPONENT) {
+            return BUCKETS - 1;
+        }
+        int shift = exponent - SUB_BITS;
+        return (shift + 1) * SUB_BUCKETS + (int) ((value >>> shift) - SUB_BUCKETS);
+    }
+
+    // the largest value that falls in the bucket
+    static long highestValue(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int shift = bucket / SUB_BUCKETS - 1;
+        long lowest = (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << shift;
+        return lowest + (1L << shift) - 1;
+    }
+
+    /**
+     * An unchanging copy of a histogram's counts.
+     */
+    public static final class Snapshot {
+
+        /**
+         * The snapshot of a histogram that has recorded nothing, or isn't being recorded.
+         */
+        public static final Snapshot EMPTY = new Snapshot(new long[BUCKETS], 0, 0, 0, 0);
+
+        private final long[] counts;
+        private final long count;
+        private final long total;
+        private final long min;
+        private final long max;
+
+        private Snapshot(long[] counts, long count, long total, long min, long max) {
+            this.counts = counts;
+            this.count = count;
+            this.total = total;
+            this.min = min;
+            this.max = max;
+        }
+
+        /**
+         * @return the number of values recorded
+         */
+        public long getCount() {
+            return count;
+        }
+
+        /**
+         * @return the smallest value recorded in nanoseconds, 0 if there were none
+         */
+        public long getMin() {
+            return min;
+        }
+
+        /**
+         * @return the largest value recorded in nanoseconds, 0 if there were none
+         */
+        public long getMax() {
+            return max;
+        }
+
+        /**
+         * @return the average value in nanoseconds, 0 if there were none
+         */
+        public double getMean() {
+            return count == 0 ? 0 : (double) total / (double) count;
+        }
+
+        /**
+         * The value at or below which the given percentage of recorded values fall, to within
+         * the histogram's precision. Never more than {@link #getMax()}.
+         * @param percentile the percentile, from 0 to 100
+         * @return the value in nanoseconds, 0 if there were no values
+         */
+        public long getValueAtPercentile(double percentile) {
+            if (count == 0) {
+                return 0;
+            }
+            double p = Math.min(100, Math.max(0, percentile));
+            long rank = Math.max(1, (long) Math.ceil(p / 100.0 * count));
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    return Math.min(highestValue(i), max);
+                }
+            }
+            return max;
+        }
+
+        @Override
+        public String toString() {
+            return "count=" + count
+                    + ", min=" + min
+                    + ", mean=" + (long) getMean()
+                    + ", p50=" + getValueAtPercentile(50)
+                    + ", p99=" + getValueAtPercentile(99)
+                    + ", p99.9=" + getValueAtPercentile(99.9)
+                    + ", max=" + max;
+        }
+    }
+}
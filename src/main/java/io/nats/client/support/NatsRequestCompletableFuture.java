@@ -13,17 +13,28 @@ public class NatsRequestCompletableFuture extends CompletableFuture<Message> {
 
     private final boolean cancelOn503;
     private final long timeOutAfter;
+    private final long timeoutMillis;
+    private final long startNanos;
     private boolean wasCancelledClosing;
     private boolean wasCancelledTimedOut;
 
     public NatsRequestCompletableFuture(boolean cancelOn503, Duration timeout) {
         this.cancelOn503 = cancelOn503;
+        this.startNanos = System.nanoTime();
         if (timeout == null) {
-            timeOutAfter = System.currentTimeMillis() + SAFE_TO_CONSIDER_ORPHANED;
+            timeoutMillis = SAFE_TO_CONSIDER_ORPHANED;
         }
         else {
-            timeOutAfter = System.currentTimeMillis() + timeout.toMillis() + TIMEOUT_PADDING;
+            timeoutMillis = timeout.toMillis() + TIMEOUT_PADDING;
         }
+        timeOutAfter = System.currentTimeMillis() + timeoutMillis;
+    }
+
+    /**
+     * @return how long after the request this future times out, in milliseconds
+     */
+    public long getTimeoutMillis() {
+        return timeoutMillis;
     }
 
     public void cancelClosing() {
@@ -36,6 +47,13 @@ public class NatsRequestCompletableFuture extends CompletableFuture<Message> {
         completeExceptionally(new CancellationException("Future cancelled, response not registered in time, likely due to server disconnect."));
     }
 
+    /**
+     * @return the {@link System#nanoTime()} when the request was made
+     */
+    public long getStartNanos() {
+        return startNanos;
+    }
+
     public boolean isCancelOn503() {
         return cancelOn503;
     }
@@ -15,6 +15,7 @@ package io.nats.client;
 
 import io.nats.client.ConnectionListener.Events;
 import io.nats.client.NatsServerProtocolMock.ExitAt;
+import io.nats.client.impl.SocketChannelDataPort;
 import org.junit.jupiter.api.Test;
 
 import java.io.IOException;
@@ -68,6 +69,47 @@ public class ConnectTests {
         }
     }
 
+    @Test
+    public void testFullFakeConnectWithChannelDataPort() throws IOException, InterruptedException {
+        try (NatsServerProtocolMock ts = new NatsServerProtocolMock(ExitAt.NO_EXIT)) {
+            Options options = new Options.Builder().server(ts.getURI())
+                    .dataPortType(SocketChannelDataPort.class.getCanonicalName()).build();
+            assertCanConnect(options);
+        }
+    }
+
+    @Test
+    public void testChannelDataPortPubSub() throws Exception {
+        NatsServerProtocolMock.Customizer echo = (ts, r, w) -> {
+            try {
+                String sub = r.readLine(); // SUB subject 1
+                String pub = r.readLine(); // PUB subject 5
+                String payload = r.readLine();
+                if (sub.startsWith("SUB") && pub.startsWith("PUB")) {
+                    w.write("MSG subject 1 " + payload.length() + "\r\n" + payload + "\r\n");
+                    w.flush();
+                }
+            } catch (IOException e) {
+                // test will fail on the client side
+            }
+        };
+
+        try (NatsServerProtocolMock ts = new NatsServerProtocolMock(echo, null)) {
+            Options options = new Options.Builder().server(ts.getURI())
+                    .dataPortType(SocketChannelDataPort.class.getCanonicalName()).build();
+            Connection nc = standardConnection(options);
+            try {
+                Subscription sub = nc.subscribe("subject");
+                nc.publish("subject", "hello".getBytes());
+                Message msg = sub.nextMessage(Duration.ofSeconds(2));
+                assertNotNull(msg);
+                assertEquals("hello", new String(msg.getData()));
+            } finally {
+                standardCloseConnection(nc);
+            }
+        }
+    }
+
     @Test
     public void testConnectExitBeforeInfo() {
         assertThrows(IOException.class, () -> {
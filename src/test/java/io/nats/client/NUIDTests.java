@@ -15,7 +15,10 @@ package io.nats.client;
 
 import org.junit.jupiter.api.Test;
 
+import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -58,6 +61,43 @@ public class NUIDTests {
                 nuid.length(), String.format("Expected len of %d, got %d", NUID.totalLen, nuid.length()));
     }
 
+    @Test
+    public void testNextIntoBuffer() {
+        NUID nuid = new NUID();
+        byte[] buffer = new byte[NUID.totalLen + 4];
+        assertEquals(NUID.totalLen + 2, nuid.next(buffer, 2));
+        assertEquals(0, buffer[0]);
+        assertEquals(0, buffer[NUID.totalLen + 3]);
+
+        String text = new String(buffer, 2, NUID.totalLen, StandardCharsets.US_ASCII);
+        assertEquals(new String(nuid.getPre()), text.substring(0, NUID.preLen));
+        assertNotEquals(text, nuid.next());
+
+        assertEquals(NUID.totalLen, NUID.nextGlobal(buffer, 0));
+        assertThrows(IndexOutOfBoundsException.class, () -> nuid.next(new byte[NUID.totalLen - 1], 0));
+        assertThrows(IndexOutOfBoundsException.class, () -> NUID.nextGlobal(buffer, 5));
+    }
+
+    @Test
+    public void testGlobalUniqueAcrossThreads() throws InterruptedException {
+        int threads = 4;
+        int count = 10_000;
+        Set<String> all = ConcurrentHashMap.newKeySet();
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            workers[t] = new Thread(() -> {
+                for (int i = 0; i < count; i++) {
+                    all.add(NUID.nextGlobal());
+                }
+            });
+            workers[t].start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        assertEquals(threads * count, all.size());
+    }
+
     @Test
     public void testProperPrefix() {
         char min = (char) 255;
@@ -22,6 +22,8 @@ import javax.net.ssl.SSLContext;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.time.Duration;
 import java.util.Base64;
 import java.util.Collection;
@@ -66,6 +68,7 @@ public class OptionsTests {
         assertEquals(Options.DEFAULT_RECONNECT_BUF_SIZE, o.getReconnectBufferSize(), "default reconnect buffer size");
         assertEquals(Options.DEFAULT_MAX_MESSAGES_IN_OUTGOING_QUEUE, o.getMaxMessagesInOutgoingQueue(),
                 "default max messages in outgoing queue");
+        assertEquals(Options.DEFAULT_SUBJECT_CACHE_SIZE, o.getSubjectCacheSize(), "default subject cache size");
 
         assertEquals(Options.DEFAULT_RECONNECT_WAIT, o.getReconnectWait(), "default reconnect wait");
         assertEquals(Options.DEFAULT_CONNECTION_TIMEOUT, o.getConnectionTimeout(), "default connection timeout");
@@ -129,6 +132,7 @@ public class OptionsTests {
         Options o = new Options.Builder().maxReconnects(100).maxPingsOut(200).reconnectBufferSize(300)
                 .maxControlLine(400)
                 .maxMessagesInOutgoingQueue(500)
+                .subjectCacheSize(600)
                 .build();
         assertFalse(o.isVerbose(), "default verbose"); // One from a different type
         assertEquals(100, o.getMaxReconnect(), "chained max reconnect");
@@ -136,6 +140,7 @@ public class OptionsTests {
         assertEquals(300, o.getReconnectBufferSize(), "chained reconnect buffer size");
         assertEquals(400, o.getMaxControlLine(), "chained max control line");
         assertEquals(500, o.getMaxMessagesInOutgoingQueue(), "chained max messages in outgoing queue");
+        assertEquals(600, o.getSubjectCacheSize(), "chained subject cache size");
     }
 
     @Test
@@ -255,6 +260,7 @@ public class OptionsTests {
         props.setProperty(Options.PROP_RECONNECT_BUF_SIZE, "300");
         props.setProperty(Options.PROP_MAX_CONTROL_LINE, "400");
         props.setProperty(Options.PROP_MAX_MESSAGES_IN_OUTGOING_QUEUE, "500");
+        props.setProperty(Options.PROP_SUBJECT_CACHE_SIZE, "600");
 
         Options o = new Options.Builder(props).build();
         assertFalse(o.isVerbose(), "default verbose"); // One from a different type
@@ -263,6 +269,7 @@ public class OptionsTests {
         assertEquals(300, o.getReconnectBufferSize(), "property reconnect buffer size");
         assertEquals(400, o.getMaxControlLine(), "property max control line");
         assertEquals(500, o.getMaxMessagesInOutgoingQueue(), "property max messages in outgoing queue");
+        assertEquals(600, o.getSubjectCacheSize(), "property subject cache size");
     }
 
     @Test
@@ -276,6 +283,7 @@ public class OptionsTests {
         props.setProperty(Options.PROP_CLEANUP_INTERVAL, "-1");
         props.setProperty(Options.PROP_MAX_CONTROL_LINE, "-1");
         props.setProperty(Options.PROP_MAX_MESSAGES_IN_OUTGOING_QUEUE, "-1");
+        props.setProperty(Options.PROP_SUBJECT_CACHE_SIZE, "-1");
 
         Options o = new Options.Builder(props).build();
         assertEquals(Options.DEFAULT_MAX_CONTROL_LINE, o.getMaxControlLine(), "default max control line");
@@ -286,6 +294,135 @@ public class OptionsTests {
                 "default cleanup interval");
         assertEquals(Options.DEFAULT_MAX_MESSAGES_IN_OUTGOING_QUEUE, o.getMaxMessagesInOutgoingQueue(),
                 "default max messages in outgoing queue");
+        assertEquals(Options.DEFAULT_SUBJECT_CACHE_SIZE, o.getSubjectCacheSize(), "default subject cache size");
+    }
+
+    @Test
+    public void testWaitStrategy() {
+        Options o = new Options.Builder().build();
+        assertEquals(Options.WaitStrategy.BLOCKING, o.getWaitStrategy(), "default wait strategy");
+
+        o = new Options.Builder().waitStrategy(Options.WaitStrategy.BUSY_SPIN).build();
+        assertEquals(Options.WaitStrategy.BUSY_SPIN, o.getWaitStrategy(), "chained wait strategy");
+
+        o = new Options.Builder().waitStrategy(Options.WaitStrategy.BUSY_SPIN).waitStrategy(null).build();
+        assertEquals(Options.DEFAULT_WAIT_STRATEGY, o.getWaitStrategy(), "null wait strategy");
+
+        Properties props = new Properties();
+        props.setProperty(Options.PROP_WAIT_STRATEGY, "spin_yield_park");
+        o = new Options.Builder(props).build();
+        assertEquals(Options.WaitStrategy.SPIN_YIELD_PARK, o.getWaitStrategy(), "property wait strategy");
+
+        props.setProperty(Options.PROP_WAIT_STRATEGY, "sometimes");
+        assertThrows(IllegalArgumentException.class, () -> new Options.Builder(props));
+    }
+
+    @Test
+    public void testOutgoingQueueLimits() {
+        Options o = new Options.Builder().build();
+        assertEquals(Options.DEFAULT_MAX_BYTES_IN_OUTGOING_QUEUE, o.getMaxBytesInOutgoingQueue(), "default max bytes in outgoing queue");
+        assertEquals(Options.DEFAULT_OUTGOING_QUEUE_FULL_TIMEOUT, o.getOutgoingQueueFullTimeout(), "default outgoing queue full timeout");
+
+        o = new Options.Builder().maxBytesInOutgoingQueue(1_000_000).outgoingQueueFullTimeout(Duration.ofMillis(250)).build();
+        assertEquals(1_000_000, o.getMaxBytesInOutgoingQueue(), "chained max bytes in outgoing queue");
+        assertEquals(Duration.ofMillis(250), o.getOutgoingQueueFullTimeout(), "chained outgoing queue full timeout");
+
+        o = new Options.Builder().maxBytesInOutgoingQueue(-1).outgoingQueueFullTimeout(null).build();
+        assertEquals(Options.DEFAULT_MAX_BYTES_IN_OUTGOING_QUEUE, o.getMaxBytesInOutgoingQueue(), "negative max bytes in outgoing queue");
+        assertEquals(Options.DEFAULT_OUTGOING_QUEUE_FULL_TIMEOUT, o.getOutgoingQueueFullTimeout(), "null outgoing queue full timeout");
+
+        Properties props = new Properties();
+        props.setProperty(Options.PROP_MAX_BYTES_IN_OUTGOING_QUEUE, "2000000");
+        props.setProperty(Options.PROP_OUTGOING_QUEUE_FULL_TIMEOUT, "0");
+        o = new Options.Builder(props).build();
+        assertEquals(2_000_000, o.getMaxBytesInOutgoingQueue(), "property max bytes in outgoing queue");
+        assertEquals(Duration.ZERO, o.getOutgoingQueueFullTimeout(), "property outgoing queue full timeout");
+
+        props.setProperty(Options.PROP_MAX_BYTES_IN_OUTGOING_QUEUE, "-1");
+        props.setProperty(Options.PROP_OUTGOING_QUEUE_FULL_TIMEOUT, "-1");
+        o = new Options.Builder(props).build();
+        assertEquals(Options.DEFAULT_MAX_BYTES_IN_OUTGOING_QUEUE, o.getMaxBytesInOutgoingQueue(), "default property max bytes in outgoing queue");
+        assertEquals(Options.DEFAULT_OUTGOING_QUEUE_FULL_TIMEOUT, o.getOutgoingQueueFullTimeout(), "default property outgoing queue full timeout");
+    }
+
+    @Test
+    public void testPublishLanes() {
+        assertEquals(Options.DEFAULT_PUBLISH_LANES, new Options.Builder().build().getPublishLanes(), "default publish lanes");
+        assertEquals(8, new Options.Builder().publishLanes(8).build().getPublishLanes(), "chained publish lanes");
+        assertEquals(Options.DEFAULT_PUBLISH_LANES, new Options.Builder().publishLanes(0).build().getPublishLanes(), "zero publish lanes");
+
+        Properties props = new Properties();
+        props.setProperty(Options.PROP_PUBLISH_LANES, "4");
+        assertEquals(4, new Options.Builder(props).build().getPublishLanes(), "property publish lanes");
+    }
+
+    @Test
+    public void testSubjectCacheSize() {
+        assertEquals(1000, new Options.Builder().subjectCacheSize(1000).build().getSubjectCacheSize(), "chained subject cache size");
+        assertEquals(Options.DEFAULT_SUBJECT_CACHE_SIZE, new Options.Builder().subjectCacheSize(-1).build().getSubjectCacheSize(), "negative subject cache size");
+        assertEquals(Options.MAX_SUBJECT_CACHE_SIZE, new Options.Builder().subjectCacheSize(Integer.MAX_VALUE).build().getSubjectCacheSize(), "clamped subject cache size");
+        assertEquals(Options.MAX_SUBJECT_CACHE_SIZE, new Options.Builder().subjectCacheSize((1 << 30) + 1).build().getSubjectCacheSize(), "clamped subject cache size");
+
+        Properties props = new Properties();
+        props.setProperty(Options.PROP_SUBJECT_CACHE_SIZE, Integer.toString(Integer.MAX_VALUE));
+        assertEquals(Options.MAX_SUBJECT_CACHE_SIZE, new Options.Builder(props).build().getSubjectCacheSize(), "clamped property subject cache size");
+    }
+
+    @Test
+    public void testDuplicateReplyWindow() {
+        assertEquals(Options.DEFAULT_DUPLICATE_REPLY_WINDOW, new Options.Builder().build().getDuplicateReplyWindow(), "default duplicate reply window");
+        assertEquals(100, new Options.Builder().duplicateReplyWindow(100).build().getDuplicateReplyWindow(), "chained duplicate reply window");
+        assertEquals(0, new Options.Builder().duplicateReplyWindow(0).build().getDuplicateReplyWindow(), "disabled duplicate reply window");
+        assertEquals(Options.DEFAULT_DUPLICATE_REPLY_WINDOW, new Options.Builder().duplicateReplyWindow(-1).build().getDuplicateReplyWindow(), "negative duplicate reply window");
+
+        Properties props = new Properties();
+        props.setProperty(Options.PROP_DUPLICATE_REPLY_WINDOW, "500");
+        assertEquals(500, new Options.Builder(props).build().getDuplicateReplyWindow(), "property duplicate reply window");
+    }
+
+    @Test
+    public void testInboxShards() {
+        assertEquals(Options.DEFAULT_INBOX_SHARDS, new Options.Builder().build().getInboxShards(), "default inbox shards");
+        assertEquals(4, new Options.Builder().inboxShards(4).build().getInboxShards(), "chained inbox shards");
+        assertEquals(Options.DEFAULT_INBOX_SHARDS, new Options.Builder().inboxShards(0).build().getInboxShards(), "zero inbox shards");
+
+        Properties props = new Properties();
+        props.setProperty(Options.PROP_INBOX_SHARDS, "3");
+        assertEquals(3, new Options.Builder(props).build().getInboxShards(), "property inbox shards");
+    }
+
+    @Test
+    public void testFlushLatencyBudget() {
+        assertEquals(Options.DEFAULT_FLUSH_LATENCY_BUDGET, new Options.Builder().build().getFlushLatencyBudget(), "default flush latency budget");
+        assertEquals(Duration.ofMillis(2), new Options.Builder().flushLatencyBudget(Duration.ofMillis(2)).build().getFlushLatencyBudget(), "chained flush latency budget");
+        assertEquals(Options.DEFAULT_FLUSH_LATENCY_BUDGET, new Options.Builder().flushLatencyBudget(null).build().getFlushLatencyBudget(), "null flush latency budget");
+
+        Properties props = new Properties();
+        props.setProperty(Options.PROP_FLUSH_LATENCY_BUDGET, "3");
+        assertEquals(Duration.ofMillis(3), new Options.Builder(props).build().getFlushLatencyBudget(), "property flush latency budget");
+    }
+
+    @Test
+    public void testReconnectSpill() {
+        Options o = new Options.Builder().build();
+        assertNull(o.getReconnectSpillDirectory(), "default reconnect spill directory");
+        assertEquals(Options.DEFAULT_RECONNECT_SPILL_SIZE, o.getReconnectSpillSize(), "default reconnect spill size");
+
+        Path dir = Paths.get("spill");
+        o = new Options.Builder().reconnectSpillDirectory(dir).reconnectSpillSize(1000).build();
+        assertEquals(dir, o.getReconnectSpillDirectory(), "chained reconnect spill directory");
+        assertEquals(1000, o.getReconnectSpillSize(), "chained reconnect spill size");
+
+        Properties props = new Properties();
+        props.setProperty(Options.PROP_RECONNECT_SPILL_DIR, "spill");
+        props.setProperty(Options.PROP_RECONNECT_SPILL_SIZE, "2000");
+        o = new Options.Builder(props).build();
+        assertEquals(dir, o.getReconnectSpillDirectory(), "property reconnect spill directory");
+        assertEquals(2000, o.getReconnectSpillSize(), "property reconnect spill size");
+
+        props.setProperty(Options.PROP_RECONNECT_SPILL_SIZE, "-1");
+        o = new Options.Builder(props).build();
+        assertEquals(Options.DEFAULT_RECONNECT_SPILL_SIZE, o.getReconnectSpillSize(), "default property reconnect spill size");
     }
 
     @Test
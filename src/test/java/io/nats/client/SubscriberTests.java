@@ -17,7 +17,9 @@ import org.junit.jupiter.api.Test;
 
 import java.io.IOException;
 import java.time.Duration;
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.List;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeoutException;
 
@@ -163,6 +165,60 @@ public class SubscriberTests {
         }
     }
 
+    @Test
+    public void testNextMessages() throws IOException, InterruptedException, TimeoutException {
+        try (NatsTestServer ts = new NatsTestServer(false);
+                Connection nc = Nats.connect(ts.getURI())) {
+            standardConnectionWait(nc);
+
+            Subscription sub = nc.subscribe("subject");
+            for (int i = 0; i < 10; i++) {
+                nc.publish("subject", new byte[] {(byte) i});
+            }
+            nc.flush(Duration.ofSeconds(1));
+
+            List<Message> msgs = new ArrayList<>();
+            assertEquals(4, sub.nextMessages(4, Duration.ofMillis(500), msgs));
+            int count = 4;
+            while (count < 10) {
+                count += sub.nextMessages(100, Duration.ofMillis(500), msgs);
+            }
+            assertEquals(10, msgs.size());
+            for (int i = 0; i < 10; i++) {
+                assertEquals(i, msgs.get(i).getData()[0]);
+                assertEquals(sub, msgs.get(i).getSubscription());
+            }
+            assertEquals(10, sub.getDeliveredCount());
+            assertEquals(0, sub.getPendingMessageCount());
+
+            assertEquals(0, sub.nextMessages(100, Duration.ofMillis(100), msgs));
+            assertThrows(IllegalArgumentException.class, () -> sub.nextMessages(0, Duration.ofMillis(100), new ArrayList<>()));
+            assertThrows(IllegalArgumentException.class, () -> sub.nextMessages(1, Duration.ofMillis(100), null));
+        }
+    }
+
+    @Test
+    public void testNextMessagesStopsAtTheUnsubscribeLimit() throws IOException, InterruptedException, TimeoutException {
+        try (NatsTestServer ts = new NatsTestServer(false);
+                Connection nc = Nats.connect(ts.getURI())) {
+            standardConnectionWait(nc);
+
+            Subscription sub = nc.subscribe("subject");
+            for (int i = 0; i < 5; i++) {
+                nc.publish("subject", new byte[16]);
+            }
+            nc.flush(Duration.ofSeconds(1));
+            sub.unsubscribe(3);
+
+            List<Message> msgs = new ArrayList<>();
+            while (sub.isActive()) {
+                sub.nextMessages(100, Duration.ofMillis(500), msgs);
+            }
+            assertEquals(3, msgs.size());
+            assertThrows(IllegalStateException.class, () -> sub.nextMessages(100, Duration.ofMillis(100), msgs));
+        }
+    }
+
     @Test
     public void testQueueSubscribers() throws IOException, InterruptedException, TimeoutException {
         try (NatsTestServer ts = new NatsTestServer(false);
@@ -0,0 +1,110 @@
+// Copyright 2021 The NATS Authors
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package io.nats.client.impl;
+
+import io.nats.client.Options;
+
+import java.text.NumberFormat;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares delivering messages one at a time through a MessageHandler with delivering them in lists
+ * through a BatchMessageHandler. The messages are pushed straight into the dispatcher queue, so this
+ * measures the dispatch path only. Each handler call pays a fixed cost, standing in for the per call
+ * work, like a commit, that batching is meant to spread across messages.
+ */
+public class BatchDispatchBenchmark {
+
+    static volatile long sink;
+
+    public static void main(String args[]) throws InterruptedException {
+        int msgCount = 2_000_000;
+        int[] callCosts = {0, 100, 1000};
+        int[] batchSizes = {16, 256};
+
+        NatsConnection nc = new NatsConnection(new Options.Builder().build());
+        System.out.printf("Running benchmarks with %s messages.\n", NumberFormat.getInstance().format(msgCount));
+
+        // warm up both paths
+        run(nc, msgCount / 4, 0, 0);
+        run(nc, msgCount / 4, 0, 256);
+
+        for (int cost : callCosts) {
+            for (int batchSize : new int[] {0, batchSizes[0], batchSizes[1]}) {
+                long elapsed = run(nc, msgCount, cost, batchSize);
+                System.out.printf("\n%s ns per call, %s: %s ms, %s ns/msg\n",
+                        cost,
+                        batchSize == 0 ? "per message" : "batches of " + batchSize,
+                        NumberFormat.getInstance().format(elapsed / 1_000_000L),
+                        NumberFormat.getInstance().format(((double) elapsed) / ((double) (msgCount))));
+                System.out.printf("\tor %s msg/s\n",
+                        NumberFormat.getInstance().format(1_000_000_000L * ((double) (msgCount))/((double) elapsed)));
+            }
+        }
+    }
+
+    // Busy waits for the given nanos, so the cost doesn't depend on the scheduler
+    static void work(long nanos) {
+        long end = System.nanoTime() + nanos;
+        long x = 0;
+        while (System.nanoTime() < end) {
+            x++;
+        }
+        sink += x;
+    }
+
+    // Returns the nanos taken to deliver the messages, batchSize 0 means one at a time
+    static long run(NatsConnection nc, int msgCount, int callCost, int batchSize) throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(1);
+        long[] delivered = new long[1]; // only touched on the dispatcher thread
+
+        NatsDispatcher d;
+        if (batchSize == 0) {
+            d = new NatsDispatcher(nc, msg -> {
+                work(callCost);
+                if (++delivered[0] == msgCount) {
+                    done.countDown();
+                }
+            });
+        } else {
+            d = new NatsBatchDispatcher(nc, msgs -> {
+                work(callCost);
+                delivered[0] += msgs.size();
+                if (delivered[0] == msgCount) {
+                    done.countDown();
+                }
+            }, batchSize, Long.MAX_VALUE, Duration.ofMillis(1));
+        }
+        d.start("benchmark");
+
+        NatsSubscription sub = new NatsSubscription(1L, "subject", null, nc, d);
+        MessageQueue incoming = d.getMessageQueue();
+        byte[] data = new byte[16];
+
+        long start = System.nanoTime();
+        for (int i = 0; i < msgCount; i++) {
+            NatsMessage msg = new NatsMessage("subject", null, data);
+            msg.setSubscription(sub);
+            incoming.push(msg);
+        }
+        if (!done.await(5, TimeUnit.MINUTES)) {
+            System.out.println("Timed out waiting for delivery");
+        }
+        long elapsed = System.nanoTime() - start;
+        d.stop(false);
+        return elapsed;
+    }
+}
@@ -24,6 +24,7 @@ import java.io.IOException;
 import java.time.Duration;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
@@ -32,6 +33,7 @@ import java.util.concurrent.atomic.AtomicReference;
 
 import org.junit.jupiter.api.Test;
 
+import io.nats.client.BatchMessageHandler;
 import io.nats.client.Connection;
 import io.nats.client.Dispatcher;
 import io.nats.client.Message;
@@ -167,6 +169,114 @@ public class DispatcherTests {
         }
     }
 
+    @Test
+    public void testParallelDispatcherKeepsSubjectOrder() throws IOException, InterruptedException, ExecutionException, TimeoutException {
+        try (NatsTestServer ts = new NatsTestServer(false);
+                Connection nc = Nats.connect(ts.getURI())) {
+            int subjects = 8;
+            int msgCount = 200;
+            final CountDownLatch latch = new CountDownLatch(subjects * msgCount);
+            final int[] next = new int[subjects];
+            final AtomicInteger outOfOrder = new AtomicInteger();
+
+            Dispatcher d = nc.createDispatcher((msg) -> {
+                int subject = Integer.parseInt(msg.getSubject().substring(8));
+                if (msg.getData()[0] != (byte) next[subject]) {
+                    outOfOrder.incrementAndGet();
+                }
+                next[subject]++;
+                latch.countDown();
+            }, 4);
+
+            d.subscribe("subject.*");
+            nc.flush(Duration.ofMillis(1000)); // wait for them to go through
+
+            for (int i = 0; i < msgCount; i++) {
+                for (int s = 0; s < subjects; s++) {
+                    nc.publish("subject." + s, new byte[] {(byte) i});
+                }
+            }
+            nc.flush(Duration.ofMillis(1000)); // wait for them to go through
+
+            assertTrue(latch.await(5, TimeUnit.SECONDS));
+            assertEquals(0, outOfOrder.get());
+        }
+    }
+
+    @Test
+    public void testParallelDispatcherRequiresWorkers() {
+        assertThrows(IllegalArgumentException.class, () -> {
+            try (NatsTestServer ts = new NatsTestServer(false);
+                        Connection nc = Nats.connect(ts.getURI())) {
+                nc.createDispatcher((msg) -> {}, 0);
+            }
+        });
+    }
+
+    @Test
+    public void testBatchDispatcher() throws IOException, InterruptedException, ExecutionException, TimeoutException {
+        try (NatsTestServer ts = new NatsTestServer(false);
+                Connection nc = Nats.connect(ts.getURI())) {
+            int msgCount = 1000;
+            final CountDownLatch latch = new CountDownLatch(msgCount);
+            final AtomicInteger batches = new AtomicInteger();
+            final AtomicInteger largest = new AtomicInteger();
+
+            Dispatcher d = nc.createDispatcher((BatchMessageHandler) (msgs) -> {
+                batches.incrementAndGet();
+                largest.accumulateAndGet(msgs.size(), Math::max);
+                msgs.forEach(m -> latch.countDown());
+            }, 100, 1024 * 1024, Duration.ofMillis(20));
+
+            d.subscribe("subject");
+            nc.flush(Duration.ofMillis(1000)); // wait for them to go through
+
+            for (int i = 0; i < msgCount; i++) {
+                nc.publish("subject", new byte[16]);
+            }
+            nc.flush(Duration.ofMillis(1000)); // wait for them to go through
+
+            assertTrue(latch.await(5, TimeUnit.SECONDS));
+            assertTrue(batches.get() < msgCount);
+            assertTrue(largest.get() <= 100);
+        }
+    }
+
+    @Test
+    public void testInlineDispatcher() throws IOException, InterruptedException, ExecutionException, TimeoutException {
+        try (NatsTestServer ts = new NatsTestServer(false);
+                Connection nc = Nats.connect(ts.getURI())) {
+            int msgCount = 100;
+            final CountDownLatch latch = new CountDownLatch(msgCount);
+            final AtomicInteger next = new AtomicInteger();
+            final AtomicInteger outOfOrder = new AtomicInteger();
+
+            Dispatcher d = nc.createInlineDispatcher((msg) -> {
+                if (msg.getData()[0] != (byte) next.getAndIncrement()) {
+                    outOfOrder.incrementAndGet();
+                }
+                latch.countDown();
+            }, Duration.ofSeconds(1));
+
+            d.subscribe("subject");
+            nc.flush(Duration.ofMillis(1000)); // wait for them to go through
+
+            for (int i = 0; i < msgCount; i++) {
+                nc.publish("subject", new byte[] {(byte) i});
+            }
+            nc.flush(Duration.ofMillis(1000)); // wait for them to go through
+
+            assertTrue(latch.await(5, TimeUnit.SECONDS));
+            assertEquals(0, outOfOrder.get());
+            assertEquals(msgCount, nc.getStatistics().getInlineMessages());
+            assertEquals(msgCount, ((NatsDispatcher) d).getDeliveredCount());
+
+            // drain still works without a queue
+            assertTrue(d.drain(Duration.ofSeconds(5)).get(10, TimeUnit.SECONDS));
+            assertFalse(d.isActive());
+        }
+    }
+
     @Test
     public void testClose() {
         assertThrows(TimeoutException.class, () -> {
@@ -0,0 +1,82 @@
+// Copyright 2021 The NATS Authors
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package io.nats.client.impl;
+
+import io.nats.client.Options;
+
+import java.nio.ByteBuffer;
+import java.text.NumberFormat;
+
+/**
+ * Compares the bytes the writer copies per message with and without gathering writes.
+ * A payload handed to the data port in its own buffer is not copied, everything
+ * that goes through the writer's send buffer is.
+ */
+public class GatheringWriteBenchmark {
+
+    static class CountingDataPort extends TestFixtures.StubDataPort {
+        long copied;
+        long passedThrough;
+
+        public void write(byte[] src, int toWrite) {
+            copied += toWrite;
+        }
+
+        public void write(ByteBuffer[] srcs, int length) {
+            for (int i = 0; i < length; i++) {
+                ByteBuffer src = srcs[i];
+                // slices of the send buffer start past 0 or are shorter than the array, payloads are whole arrays
+                if (src.position() == 0 && src.remaining() == src.array().length && src.remaining() >= NatsConnectionWriter.DEFAULT_GATHER_THRESHOLD) {
+                    passedThrough += src.remaining();
+                } else {
+                    copied += src.remaining();
+                }
+            }
+        }
+    }
+
+    public static void main(String args[]) throws Exception {
+        int[] payloadSizes = {128, 16 * 1024, 64 * 1024, 256 * 1024, 1024 * 1024};
+        int msgCount = 2_000;
+
+        Options options = new Options.Builder().build();
+        NatsConnection nc = new NatsConnection(options);
+
+        System.out.printf("Running benchmarks with %s messages per payload size.\n", NumberFormat.getInstance().format(msgCount));
+
+        for (int payloadSize : payloadSizes) {
+            byte[] payload = new byte[payloadSize];
+            for (int mode = 0; mode < 2; mode++) {
+                boolean gather = mode == 1;
+                NatsConnectionWriter writer = new NatsConnectionWriter(nc);
+                writer.setGatherThreshold(gather ? NatsConnectionWriter.DEFAULT_GATHER_THRESHOLD : Integer.MAX_VALUE);
+                CountingDataPort port = new CountingDataPort();
+
+                long start = System.nanoTime();
+                for (int i = 0; i < msgCount; i++) {
+                    NatsMessage msg = new NatsMessage("subject", null, payload);
+                    writer.sendMessageBatch(msg, port, nc.getNatsStatistics());
+                }
+                long end = System.nanoTime();
+
+                System.out.printf("\n%s byte payload, %s: %s bytes copied per message, %s bytes passed through, %s ns/op\n",
+                        NumberFormat.getInstance().format(payloadSize),
+                        gather ? "gathering write" : "copying write",
+                        NumberFormat.getInstance().format(port.copied / msgCount),
+                        NumberFormat.getInstance().format(port.passedThrough / msgCount),
+                        NumberFormat.getInstance().format(((double) (end - start)) / ((double) (msgCount))));
+            }
+        }
+    }
+}
@@ -0,0 +1,222 @@
+package io.nats.client.impl;
+
+import io.nats.client.Options;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class HashedWheelTimerTests {
+
+    private static HashedWheelTimer timer() {
+        return new HashedWheelTimer("test-timer", Duration.ofMillis(5), 8);
+    }
+
+    private static void waitFor(HashedWheelTimer timer, int pending) throws InterruptedException {
+        long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (timer.pendingTimeouts() != pending && System.nanoTime() < end) {
+            Thread.sleep(5);
+        }
+    }
+
+    @Test
+    public void testRunsAtDeadline() throws InterruptedException {
+        HashedWheelTimer timer = timer();
+        try {
+            CountDownLatch latch = new CountDownLatch(1);
+            AtomicLong ranAt = new AtomicLong();
+            long start = System.nanoTime();
+            HashedWheelTimer.Timeout t = timer.schedule(() -> {
+                ranAt.set(System.nanoTime());
+                latch.countDown();
+            }, 50, TimeUnit.MILLISECONDS);
+            assertEquals(1, timer.pendingTimeouts());
+
+            assertTrue(latch.await(5, TimeUnit.SECONDS));
+            assertTrue(ranAt.get() - start >= TimeUnit.MILLISECONDS.toNanos(50));
+            assertEquals(0, timer.pendingTimeouts());
+            long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (!t.isExpired() && System.nanoTime() < end) {
+                Thread.sleep(5); // the latch is counted down inside the task
+            }
+            assertTrue(t.isExpired());
+            assertFalse(t.cancel());
+        } finally {
+            timer.stop();
+        }
+    }
+
+    @Test
+    public void testDelaysLongerThanTheWheel() throws InterruptedException {
+        HashedWheelTimer timer = timer(); // 8 ticks of 5ms, so 100ms goes around more than twice
+        try {
+            CountDownLatch latch = new CountDownLatch(1);
+            long start = System.nanoTime();
+            timer.schedule(latch::countDown, 100, TimeUnit.MILLISECONDS);
+            assertTrue(latch.await(5, TimeUnit.SECONDS));
+            assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(100));
+        } finally {
+            timer.stop();
+        }
+    }
+
+    @Test
+    public void testOrderAndCancel() throws InterruptedException {
+        HashedWheelTimer timer = timer();
+        try {
+            List<Integer> ran = new ArrayList<>(); // only touched by the timer thread until the latch
+            CountDownLatch latch = new CountDownLatch(5);
+            List<HashedWheelTimer.Timeout> timeouts = new ArrayList<>();
+            for (int i = 0; i < 10; i++) {
+                final int n = i;
+                timeouts.add(timer.schedule(() -> {
+                    ran.add(n);
+                    latch.countDown();
+                }, 10L * (i + 1), TimeUnit.MILLISECONDS));
+            }
+            for (int i = 1; i < 10; i += 2) {
+                assertTrue(timeouts.get(i).cancel());
+                assertTrue(timeouts.get(i).isCancelled());
+                assertFalse(timeouts.get(i).cancel());
+            }
+            assertEquals(5, timer.pendingTimeouts());
+
+            assertTrue(latch.await(5, TimeUnit.SECONDS));
+            Thread.sleep(50);
+            assertEquals(5, ran.size());
+            for (int i = 0; i < 5; i++) {
+                assertEquals(i * 2, ran.get(i));
+            }
+            assertEquals(0, timer.pendingTimeouts());
+        } finally {
+            timer.stop();
+        }
+    }
+
+    @Test
+    public void testManyTimeouts() throws InterruptedException {
+        HashedWheelTimer timer = new HashedWheelTimer("test-timer", Duration.ofMillis(10), 512);
+        try {
+            int count = 200_000;
+            AtomicInteger ran = new AtomicInteger();
+            List<HashedWheelTimer.Timeout> timeouts = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                timeouts.add(timer.schedule(ran::incrementAndGet, 1000 + (i % 100), TimeUnit.MILLISECONDS));
+            }
+            // most requests are answered before they time out
+            for (int i = 0; i < count; i++) {
+                if (i % 100 != 0) {
+                    timeouts.get(i).cancel();
+                }
+            }
+            assertEquals(count / 100, timer.pendingTimeouts());
+            waitFor(timer, 0);
+            assertEquals(0, timer.pendingTimeouts());
+            assertEquals(count / 100, ran.get());
+        } finally {
+            timer.stop();
+        }
+    }
+
+    @Test
+    public void testPeriodic() throws InterruptedException {
+        HashedWheelTimer timer = timer();
+        try {
+            AtomicInteger runs = new AtomicInteger();
+            CountDownLatch latch = new CountDownLatch(3);
+            HashedWheelTimer.Timeout t = timer.schedulePeriodic(() -> {
+                runs.incrementAndGet();
+                latch.countDown();
+            }, 10, 10, TimeUnit.MILLISECONDS);
+            assertTrue(latch.await(5, TimeUnit.SECONDS));
+            t.cancel();
+            Thread.sleep(20); // a run already in progress can finish
+            int after = runs.get();
+            Thread.sleep(50);
+            assertEquals(after, runs.get());
+            assertEquals(0, timer.pendingTimeouts());
+
+            assertThrows(IllegalArgumentException.class, () -> timer.schedulePeriodic(() -> {}, 1, 0, TimeUnit.MILLISECONDS));
+        } finally {
+            timer.stop();
+        }
+    }
+
+    @Test
+    public void testErrorsDontStopTheTimer() throws InterruptedException {
+        HashedWheelTimer timer = timer();
+        try {
+            CountDownLatch latch = new CountDownLatch(1);
+            timer.schedule(() -> { throw new IllegalStateException("boom"); }, 1, TimeUnit.MILLISECONDS);
+            timer.schedule(latch::countDown, 20, TimeUnit.MILLISECONDS);
+            assertTrue(latch.await(5, TimeUnit.SECONDS));
+        } finally {
+            timer.stop();
+        }
+    }
+
+    @Test
+    public void testStop() throws InterruptedException {
+        HashedWheelTimer timer = timer();
+        AtomicInteger ran = new AtomicInteger();
+        timer.schedule(ran::incrementAndGet, 50, TimeUnit.MILLISECONDS);
+        timer.stop();
+        HashedWheelTimer.Timeout late = timer.schedule(ran::incrementAndGet, 1, TimeUnit.MILLISECONDS);
+        assertTrue(late.isCancelled());
+        Thread.sleep(100);
+        assertEquals(0, ran.get());
+
+        assertThrows(IllegalArgumentException.class, () -> new HashedWheelTimer("x", Duration.ZERO, 8));
+        assertThrows(IllegalArgumentException.class, () -> new HashedWheelTimer("x", Duration.ofMillis(1), 0));
+    }
+
+    @Test
+    public void testRequestExpiry() throws InterruptedException {
+        NatsConnection nc = new NatsConnection(new Options.Builder().requestCleanupInterval(Duration.ofMillis(20)).build());
+        Map<Long, NatsConnection.ExpiringRequest<Long>> awaiting = new ConcurrentHashMap<>();
+
+        // times out at its deadline, 2 seconds of padding plus the request timeout
+        NatsConnection.ExpiringRequest<Long> f = nc.new ExpiringRequest<>(true, Duration.ofMillis(-1990), awaiting, 1L).start();
+        assertSame(f, awaiting.get(1L));
+        long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!f.isDone() && System.nanoTime() < end) {
+            Thread.sleep(5);
+        }
+        assertTrue(f.wasCancelledTimedOut());
+        assertTrue(awaiting.isEmpty());
+
+        // cancelled, so the expiry moves to the cleanup time
+        f = nc.new ExpiringRequest<>(true, Duration.ofHours(1), awaiting, 2L).start();
+        HashedWheelTimer.Timeout original = f.getTimeout();
+        assertTrue(f.cancel(true));
+        assertTrue(original.isCancelled());
+        assertNotSame(original, f.getTimeout());
+        end = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!awaiting.isEmpty() && System.nanoTime() < end) {
+            Thread.sleep(5);
+        }
+        assertTrue(awaiting.isEmpty());
+
+        // a reply cancels the expiry
+        f = nc.new ExpiringRequest<>(true, Duration.ofHours(1), awaiting, 3L).start();
+        f.cancelTimeout();
+        assertTrue(f.getTimeout().isCancelled());
+
+        // a cleanup time of 0 keeps the original deadline
+        nc = new NatsConnection(new Options.Builder().requestCleanupInterval(Duration.ZERO).build());
+        f = nc.new ExpiringRequest<>(true, Duration.ofHours(1), awaiting, 4L).start();
+        original = f.getTimeout();
+        assertTrue(f.cancel(true));
+        assertSame(original, f.getTimeout());
+        assertFalse(original.isCancelled());
+    }
+}
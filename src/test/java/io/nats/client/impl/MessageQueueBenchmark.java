@@ -213,5 +213,78 @@ public class MessageQueueBenchmark {
                 NumberFormat.getInstance().format(((double) (end - start)) / ((double) (msgCount))));
             System.out.printf("\tor %s op/s\n",
                     NumberFormat.getInstance().format(1_000_000_000L * ((double) (msgCount))/((double) (end - start))));
+
+        for (int j = 0; j < msgCount; j++) {
+            msgs[j].next = null;
+        }
+
+        System.out.println("\nComparing queue engines with several producers and one accumulating consumer ...");
+        int[] producerCounts = {1, 4, 16};
+        MessageRing.WaitStrategy[] engines = {null, MessageRing.WaitStrategy.BLOCKING,
+                MessageRing.WaitStrategy.SPIN_YIELD_PARK, MessageRing.WaitStrategy.BUSY_SPIN};
+        for (int producers : producerCounts) {
+            for (MessageRing.WaitStrategy engine : engines) {
+                long elapsed = runProducers(msgs, msgCount, producers, engine);
+                System.out.printf("\n%s producers, %s: %s pushes and accumulates took %s ms, %s ns/op\n",
+                        producers,
+                        engine == null ? "linked blocking queue" : "ring with " + engine + " wait",
+                        NumberFormat.getInstance().format(msgCount),
+                        NumberFormat.getInstance().format(elapsed / 1_000_000L),
+                        NumberFormat.getInstance().format(((double) elapsed) / ((double) (msgCount))));
+                System.out.printf("\tor %s op/s\n",
+                        NumberFormat.getInstance().format(1_000_000_000L * ((double) (msgCount))/((double) elapsed)));
+            }
+        }
+    }
+
+    // Push the messages from several threads into a single reader queue that is drained with accumulate,
+    // returns the elapsed nanos. A null wait strategy uses the linked blocking queue engine.
+    static long runProducers(NatsMessage[] msgs, int msgCount, int producers, MessageRing.WaitStrategy engine) throws InterruptedException {
+        final MessageQueue queue = new MessageQueue(true, 0, false, engine);
+        final CompletableFuture<Void> go = new CompletableFuture<>();
+        final int perProducer = msgCount / producers;
+        Thread[] pushers = new Thread[producers];
+
+        for (int p = 0; p < producers; p++) {
+            final int first = p * perProducer;
+            pushers[p] = new Thread(() -> {
+                try {
+                    go.get();
+                    for (int i = first; i < first + perProducer; i++) {
+                        queue.push(msgs[i]);
+                    }
+                } catch (Exception exp) {
+                    exp.printStackTrace();
+                }
+            });
+            pushers[p].start();
+        }
+
+        Thread popper = new Thread(() -> {
+            try {
+                go.get();
+                int remaining = perProducer * producers;
+                while (remaining > 0) {
+                    NatsMessage cursor = queue.accumulate(10_000, 100, Duration.ofMillis(500));
+                    while (cursor != null) {
+                        remaining--;
+                        NatsMessage next = cursor.next;
+                        cursor.next = null;
+                        cursor = next;
+                    }
+                }
+            } catch (Exception exp) {
+                exp.printStackTrace();
+            }
+        });
+        popper.start();
+
+        long start = System.nanoTime();
+        go.complete(null);
+        for (Thread pusher : pushers) {
+            pusher.join();
+        }
+        popper.join();
+        return System.nanoTime() - start;
     }
 }
\ No newline at end of file
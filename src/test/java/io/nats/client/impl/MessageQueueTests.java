@@ -19,7 +19,10 @@ import org.junit.jupiter.api.Test;
 import java.io.UnsupportedEncodingException;
 import java.nio.charset.StandardCharsets;
 import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -571,4 +574,234 @@ public class MessageQueueTests {
         assertTrue(q.push(msg2));
         assertFalse(q.push(msg3));
     }
+    @Test
+    public void testDiscardKeepsCounts() throws InterruptedException {
+        MessageQueue q  = new MessageQueue(true, 2, true);
+        NatsMessage msg1 = new ProtocolMessage(ONE);
+        NatsMessage msg2 = new ProtocolMessage(TWO);
+
+        assertTrue(q.push(msg1));
+        assertTrue(q.push(msg2));
+        assertFalse(q.push(new ProtocolMessage(THREE)));
+        assertEquals(2, q.length());
+        assertEquals(msg1.getSizeInBytes() + msg2.getSizeInBytes(), q.sizeInBytes());
+
+        q.popNow();
+        q.popNow();
+        assertEquals(0, q.length());
+        assertEquals(0, q.sizeInBytes());
+    }
+
+    @Test
+    public void testFullTimeout() {
+        MessageQueue q  = new MessageQueue(true, 1, false, null, 0, Duration.ofMillis(50));
+        assertTrue(q.push(new ProtocolMessage(ONE)));
+
+        long start = System.nanoTime();
+        IllegalStateException e = assertThrows(IllegalStateException.class, () -> q.push(new ProtocolMessage(TWO)));
+        long elapsed = System.nanoTime() - start;
+        assertEquals("Output queue is full 1", e.getMessage());
+        assertTrue(elapsed >= TimeUnit.MILLISECONDS.toNanos(50));
+        assertTrue(elapsed < TimeUnit.SECONDS.toNanos(4));
+
+        MessageQueue failFast  = new MessageQueue(true, 1, false, null, 0, Duration.ZERO);
+        assertTrue(failFast.push(new ProtocolMessage(ONE)));
+        assertThrows(IllegalStateException.class, () -> failFast.push(new ProtocolMessage(TWO)));
+        assertEquals(1, failFast.length());
+    }
+
+    @Test
+    public void testByteLimit() throws InterruptedException {
+        NatsMessage msg1 = new ProtocolMessage(ONE);
+        long limit = msg1.getSizeInBytes() * 2;
+        MessageQueue q  = new MessageQueue(true, 0, false, null, limit, Duration.ZERO);
+
+        assertTrue(q.push(msg1));
+        assertTrue(q.push(new ProtocolMessage(TWO)));
+        IllegalStateException e = assertThrows(IllegalStateException.class, () -> q.push(new ProtocolMessage(ONE)));
+        assertEquals("Output queue is full " + limit + " bytes", e.getMessage());
+        assertEquals(2, q.length());
+        assertEquals(limit, q.sizeInBytes());
+
+        // internal messages are not held to the byte limit
+        assertTrue(q.push(new ProtocolMessage(PING), true));
+        assertEquals(3, q.length());
+
+        q.popNow();
+        q.popNow();
+        q.popNow();
+        assertEquals(0, q.sizeInBytes());
+
+        // a message bigger than the limit still fits in an empty queue
+        NatsMessage big = new ProtocolMessage(new byte[(int) limit * 4]);
+        assertTrue(q.push(big));
+        assertThrows(IllegalStateException.class, () -> q.push(new ProtocolMessage(ONE)));
+        assertEquals(big, q.popNow());
+        assertTrue(q.push(new ProtocolMessage(ONE)));
+    }
+
+    @Test
+    public void testInterruptedPush() {
+        NatsMessage msg1 = new ProtocolMessage(ONE);
+        MessageQueue bytes = new MessageQueue(true, 0, false, null, msg1.getSizeInBytes(), Duration.ofSeconds(10));
+        MessageQueue count = new MessageQueue(true, 1, false, null, 0, Duration.ofSeconds(10));
+
+        for (MessageQueue q : new MessageQueue[] {bytes, count}) {
+            assertTrue(q.push(new ProtocolMessage(ONE)));
+            Thread.currentThread().interrupt();
+            IllegalStateException e = assertThrows(IllegalStateException.class, () -> q.push(new ProtocolMessage(TWO)));
+            assertTrue(Thread.interrupted()); // the interrupt is kept, and cleared here
+            assertTrue(e.getMessage().startsWith("Interrupted"));
+            assertTrue(e.getCause() instanceof InterruptedException);
+            assertEquals(1, q.length());
+            assertEquals(msg1.getSizeInBytes(), q.sizeInBytes());
+        }
+    }
+
+    @Test
+    public void testByteLimitWaitDoesNotBlockOtherPushes() throws Exception {
+        NatsMessage msg1 = new ProtocolMessage(ONE);
+        MessageQueue q = new MessageQueue(true, 0, false, null, msg1.getSizeInBytes(), Duration.ofSeconds(10));
+        assertTrue(q.push(msg1));
+
+        CompletableFuture<Boolean> waiting = CompletableFuture.supplyAsync(() -> q.push(new ProtocolMessage(TWO)));
+        Thread.sleep(100); // let the publisher start waiting on the byte limit
+        assertFalse(waiting.isDone());
+
+        // internal messages aren't held to the byte limit and must not queue up behind the waiter
+        CompletableFuture<Boolean> internal = CompletableFuture.supplyAsync(() -> q.push(new ProtocolMessage(PING), true));
+        assertTrue(internal.get(2, TimeUnit.SECONDS));
+
+        assertEquals(msg1, q.popNow());
+        assertEquals(PING.length + 2, q.popNow().getSizeInBytes());
+        assertTrue(waiting.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testByteLimitDiscard() {
+        NatsMessage msg1 = new ProtocolMessage(ONE);
+        MessageQueue q  = new MessageQueue(true, 0, true, null, msg1.getSizeInBytes(), Duration.ofSeconds(5));
+
+        assertTrue(q.push(msg1));
+        assertFalse(q.push(new ProtocolMessage(TWO)));
+        assertEquals(1, q.length());
+        assertEquals(msg1.getSizeInBytes(), q.sizeInBytes());
+    }
+
+    @Test
+    public void testBlockingPushWaitsForRoom() throws InterruptedException {
+        for (MessageRing.WaitStrategy strategy : new MessageRing.WaitStrategy[] {null, MessageRing.WaitStrategy.SPIN_YIELD_PARK}) {
+            NatsMessage msg1 = new ProtocolMessage(ONE);
+            MessageQueue q = new MessageQueue(true, 2, false, strategy, msg1.getSizeInBytes() * 3, Duration.ofSeconds(10));
+            int count = 1_000;
+            AtomicInteger pushed = new AtomicInteger();
+
+            Thread publisher = new Thread(() -> {
+                for (int i = 0; i < count; i++) {
+                    q.push(new ProtocolMessage(i % 2 == 0 ? ONE : TWO));
+                    pushed.incrementAndGet();
+                }
+            });
+            publisher.start();
+
+            int received = 0;
+            while (received < count) {
+                NatsMessage msg = q.accumulate(1000, 10, Duration.ofSeconds(5));
+                assertNotNull(msg);
+                while (msg != null) {
+                    received++;
+                    msg = msg.next;
+                }
+                assertTrue(q.length() <= 2);
+                assertTrue(q.sizeInBytes() <= msg1.getSizeInBytes() * 3);
+            }
+            publisher.join();
+            assertEquals(count, pushed.get());
+            assertEquals(0, q.length());
+            assertEquals(0, q.sizeInBytes());
+        }
+    }
+    @Test
+    public void testAccumulateWithLinger() throws InterruptedException {
+        MessageQueue q = new MessageQueue(true);
+        q.push(new ProtocolMessage(ONE));
+
+        // more messages arrive while the first one lingers
+        Thread t = new Thread(() -> {
+            for (int i = 0; i < 3; i++) {
+                try {
+                    Thread.sleep(10);
+                } catch (InterruptedException e) {
+                    // ignore
+                }
+                q.push(new ProtocolMessage(TWO));
+            }
+        });
+        t.start();
+        NatsMessage msg = q.accumulate(1000, 4, null, Duration.ofSeconds(5));
+        t.join();
+
+        int count = 0;
+        for (; msg != null; msg = msg.next) {
+            count++;
+        }
+        assertEquals(4, count);
+        assertEquals(0, q.length());
+        assertEquals(0, q.sizeInBytes());
+
+        // linger runs out
+        q.push(new ProtocolMessage(ONE));
+        long start = System.nanoTime();
+        msg = q.accumulate(1000, 4, null, Duration.ofMillis(20));
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(20));
+        assertNotNull(msg);
+        assertNull(msg.next);
+
+        // a full batch doesn't linger
+        for (int i = 0; i < 3; i++) {
+            q.push(new ProtocolMessage(ONE));
+        }
+        start = System.nanoTime();
+        msg = q.accumulate(1000, 3, null, Duration.ofSeconds(5));
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(1));
+        assertNotNull(msg.next.next);
+
+        assertNull(q.accumulate(1000, 3, null, Duration.ofMillis(1)));
+    }
+    @Test
+    public void testPopAll() throws InterruptedException {
+        MessageQueue q = new MessageQueue(false);
+        for (int i = 0; i < 10; i++) {
+            q.push(new ProtocolMessage(ONE));
+        }
+        long each = q.sizeInBytes() / 10;
+
+        List<NatsMessage> msgs = new ArrayList<>();
+        assertEquals(4, q.popAll(4, null, msgs));
+        assertEquals(4, msgs.size());
+        assertEquals(6, q.length());
+        assertEquals(6 * each, q.sizeInBytes());
+
+        assertEquals(6, q.popAll(100, Duration.ofMillis(100), msgs));
+        assertEquals(10, msgs.size());
+        assertEquals(0, q.length());
+        assertEquals(0, q.sizeInBytes());
+
+        long start = System.nanoTime();
+        assertEquals(0, q.popAll(100, Duration.ofMillis(20), msgs));
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(20));
+
+        // the poison pill never reaches the caller, and still breaks the next wait
+        q.push(new ProtocolMessage(ONE));
+        q.poisonTheQueue();
+        q.push(new ProtocolMessage(TWO));
+        msgs.clear();
+        assertEquals(2, q.popAll(100, null, msgs));
+        assertEquals(2, msgs.size());
+        assertEquals(0, q.popAll(100, Duration.ZERO, msgs));
+
+        q.push(new ProtocolMessage(ONE));
+        q.pause();
+        assertEquals(0, q.popAll(100, null, msgs));
+    }
 }
\ No newline at end of file
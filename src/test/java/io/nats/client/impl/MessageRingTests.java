@@ -0,0 +1,254 @@
+// Copyright 2021 The NATS Authors
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package io.nats.client.impl;
+
+import io.nats.client.Options;
+import io.nats.client.impl.NatsMessage.ProtocolMessage;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static io.nats.client.impl.TestFixtures.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MessageRingTests {
+
+    @Test
+    public void testOrderAcrossChunks() {
+        MessageRing ring = new MessageRing(0, MessageRing.WaitStrategy.BLOCKING);
+        int count = MessageRing.CHUNK_SIZE * 3 + 17;
+
+        for (int i = 0; i < count; i++) {
+            assertTrue(ring.offer(numbered(0, i)));
+        }
+        assertEquals(count, ring.size());
+
+        for (int i = 0; i < count; i++) {
+            assertEquals("0:" + i, text(ring.peek()));
+            assertEquals("0:" + i, text(ring.poll()));
+        }
+        assertNull(ring.poll());
+        assertNull(ring.peek());
+        assertTrue(ring.isEmpty());
+    }
+
+    @Test
+    public void testBounded() throws InterruptedException {
+        MessageRing ring = new MessageRing(3, MessageRing.WaitStrategy.SPIN_YIELD_PARK);
+        assertTrue(ring.offer(numbered(0, 0)));
+        assertTrue(ring.offer(numbered(0, 1)));
+        assertTrue(ring.offer(numbered(0, 2)));
+        assertEquals(0, ring.remainingCapacity());
+        assertFalse(ring.offer(numbered(0, 3)));
+        assertFalse(ring.offer(numbered(0, 3), 10, TimeUnit.MILLISECONDS));
+        assertThrows(IllegalStateException.class, () -> ring.add(numbered(0, 3)));
+
+        assertEquals("0:0", text(ring.poll()));
+        assertTrue(ring.offer(numbered(0, 3)));
+    }
+
+    @Test
+    public void testRemoveIfKeepsOrder() {
+        MessageRing ring = new MessageRing(0, MessageRing.WaitStrategy.BLOCKING);
+        for (int i = 0; i < 2_500; i++) {
+            ring.offer(numbered(0, i));
+        }
+        ring.poll();
+
+        assertTrue(ring.removeIf(m -> Integer.parseInt(text(m).substring(2)) % 3 == 0));
+        ring.offer(numbered(0, 2_500));
+
+        int expected = 1;
+        NatsMessage msg;
+        while ((msg = ring.poll()) != null) {
+            if (expected % 3 == 0) {
+                expected++;
+            }
+            assertEquals("0:" + expected, text(msg));
+            expected++;
+        }
+        assertEquals(2_501, expected);
+    }
+
+    @Test
+    public void testRemoveIfReportsOnlyWhatItRemoved() throws Exception {
+        for (int round = 0; round < 20; round++) {
+            MessageRing ring = new MessageRing(0, MessageRing.WaitStrategy.BLOCKING);
+            int count = 20_000;
+            for (int i = 0; i < count; i++) {
+                ring.offer(numbered(0, i));
+            }
+
+            AtomicInteger polled = new AtomicInteger();
+            Thread consumer = new Thread(() -> {
+                while (ring.poll() != null) {
+                    polled.incrementAndGet();
+                }
+            });
+            consumer.start();
+
+            AtomicInteger reported = new AtomicInteger();
+            int removed = ring.removeIf(m -> true, m -> reported.incrementAndGet());
+            consumer.join();
+
+            assertEquals(removed, reported.get());
+            assertEquals(count, removed + polled.get());
+        }
+    }
+
+    @Test
+    public void testIteration() {
+        MessageRing ring = new MessageRing(0, MessageRing.WaitStrategy.BLOCKING);
+        int count = MessageRing.CHUNK_SIZE + 10;
+        for (int i = 0; i < count; i++) {
+            ring.offer(numbered(0, i));
+        }
+        ring.poll();
+        ring.removeIf(m -> text(m).endsWith("5"));
+
+        List<String> seen = new ArrayList<>();
+        for (NatsMessage msg : ring) {
+            seen.add(text(msg));
+        }
+        assertEquals("0:1", seen.get(0));
+        assertEquals("0:" + (count - 1), seen.get(seen.size() - 1));
+        assertFalse(seen.contains("0:5"));
+        assertEquals(count - 1 - (count / 10), seen.size());
+
+        NatsMessage first = ring.peek();
+        assertTrue(ring.contains(first));
+        assertTrue(ring.toString().startsWith("["));
+
+        Iterator<NatsMessage> it = ring.iterator();
+        it.next();
+        it.remove();
+        assertEquals("0:2", text(ring.poll()));
+    }
+
+    @Test
+    public void testTimedPollWaits() throws InterruptedException {
+        for (MessageRing.WaitStrategy strategy : MessageRing.WaitStrategy.values()) {
+            MessageRing ring = new MessageRing(0, strategy);
+            long start = System.nanoTime();
+            assertNull(ring.poll(20, TimeUnit.MILLISECONDS));
+            assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(20), strategy.name());
+
+            Thread t = new Thread(() -> {
+                try {
+                    Thread.sleep(20);
+                } catch (InterruptedException e) {
+                    // ignore
+                }
+                ring.offer(numbered(0, 0));
+            });
+            t.start();
+            NatsMessage msg = ring.poll(5, TimeUnit.SECONDS);
+            assertNotNull(msg, strategy.name());
+            t.join();
+        }
+    }
+
+    @Test
+    public void testManyProducersKeepTheirOrder() throws InterruptedException {
+        for (MessageRing.WaitStrategy strategy : MessageRing.WaitStrategy.values()) {
+            MessageRing ring = new MessageRing(1_000, strategy);
+            int producers = 8;
+            int perProducer = 20_000;
+
+            List<Thread> threads = new ArrayList<>();
+            for (int p = 0; p < producers; p++) {
+                final int producer = p;
+                Thread t = new Thread(() -> {
+                    try {
+                        for (int i = 0; i < perProducer; i++) {
+                            ring.put(numbered(producer, i));
+                        }
+                    } catch (InterruptedException e) {
+                        // ignore
+                    }
+                });
+                threads.add(t);
+                t.start();
+            }
+
+            int[] next = new int[producers];
+            for (int received = 0; received < producers * perProducer; received++) {
+                NatsMessage msg = ring.poll(5, TimeUnit.SECONDS);
+                assertNotNull(msg, strategy.name());
+                String[] parts = text(msg).split(":");
+                int producer = Integer.parseInt(parts[0]);
+                assertEquals(next[producer], Integer.parseInt(parts[1]));
+                next[producer]++;
+            }
+
+            for (Thread t : threads) {
+                t.join();
+            }
+            assertNull(ring.poll());
+        }
+    }
+
+    @Test
+    public void testHandOffStrategies() {
+        assertNull(MessageRing.forHandOff(null));
+        assertNull(MessageRing.forHandOff(Options.WaitStrategy.BLOCKING));
+        assertEquals(MessageRing.WaitStrategy.SPIN_YIELD_PARK, MessageRing.forHandOff(Options.WaitStrategy.SPIN_YIELD_PARK));
+        assertEquals(MessageRing.WaitStrategy.BUSY_SPIN, MessageRing.forHandOff(Options.WaitStrategy.BUSY_SPIN));
+    }
+
+    @Test
+    public void testMessageQueueOnRing() throws InterruptedException {
+        assertThrows(IllegalArgumentException.class,
+                () -> new MessageQueue(false, 0, false, MessageRing.WaitStrategy.BLOCKING));
+
+        MessageQueue q = new MessageQueue(true, 0, false, MessageRing.WaitStrategy.BLOCKING);
+        byte[] ping = "PING".getBytes(StandardCharsets.US_ASCII);
+        byte[] one = "one".getBytes(StandardCharsets.US_ASCII);
+        q.push(new ProtocolMessage(one));
+        q.push(new ProtocolMessage(ping));
+        q.push(new ProtocolMessage(one));
+        assertEquals(3, q.length());
+
+        q.pause();
+        q.filter(m -> java.util.Arrays.equals(ping, m.getProtocolBytes()));
+        q.resume();
+        assertEquals(2, q.length());
+
+        NatsMessage msg = q.accumulate(1000, 10, Duration.ofMillis(100));
+        assertNotNull(msg);
+        assertNotNull(msg.next);
+        assertNull(msg.next.next);
+        assertEquals(0, q.length());
+        assertEquals(0, q.sizeInBytes());
+
+        // pausing poisons the queue, which breaks a wait forever
+        Thread t = new Thread(() -> {
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                // ignore
+            }
+            q.pause();
+        });
+        t.start();
+        assertNull(q.accumulate(100, 100, Duration.ZERO));
+        t.join();
+    }
+}
@@ -0,0 +1,123 @@
+// Copyright 2021 The NATS Authors
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package io.nats.client.impl;
+
+import io.nats.client.Message;
+import io.nats.client.Options;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static io.nats.client.impl.TestFixtures.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+// These tests feed the dispatcher queue directly, so they don't need a server
+public class NatsBatchDispatcherTests {
+
+    private static void waitFor(List<?> list, int size) throws InterruptedException {
+        long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (list.size() < size && System.nanoTime() < end) {
+            Thread.sleep(5);
+        }
+    }
+
+    @Test
+    public void testBatchesKeepOrderAndLimits() throws InterruptedException {
+        List<List<Message>> batches = new CopyOnWriteArrayList<>();
+        List<Message> all = new CopyOnWriteArrayList<>();
+        NatsBatchDispatcher d = start(msgs -> {
+            batches.add(msgs);
+            all.addAll(msgs);
+        }, 10, 1024 * 1024, Duration.ofMillis(50));
+
+        NatsSubscription sub = new NatsSubscription(1L, "subject", null, d.connection, d);
+        d.getMessageQueue().pause(); // let the messages pile up so the batches fill
+        for (int i = 0; i < 95; i++) {
+            deliver(d, sub, i);
+        }
+        d.getMessageQueue().resume();
+
+        waitFor(all, 95);
+        assertEquals(95, all.size());
+        for (int i = 0; i < all.size(); i++) {
+            assertEquals(Integer.toString(i), new String(all.get(i).getData(), StandardCharsets.US_ASCII));
+            assertNull(((NatsMessage) all.get(i)).next);
+        }
+        for (List<Message> batch : batches) {
+            assertFalse(batch.isEmpty());
+            assertTrue(batch.size() <= 10);
+        }
+        assertEquals(10, batches.size());
+        assertEquals(95, sub.getDeliveredCount());
+        d.stop(false);
+    }
+
+    @Test
+    public void testLingerAndBytes() throws InterruptedException {
+        List<List<Message>> batches = new CopyOnWriteArrayList<>();
+        NatsBatchDispatcher d = start(batches::add, 1000, 1, Duration.ofSeconds(10));
+        NatsSubscription sub = new NatsSubscription(1L, "subject", null, d.connection, d);
+
+        // every message reaches the byte limit on its own, so nothing lingers
+        deliver(d, sub, 0);
+        deliver(d, sub, 1);
+        waitFor(batches, 2);
+        assertEquals(2, batches.size());
+        assertEquals(1, batches.get(0).size());
+        d.stop(false);
+    }
+
+    @Test
+    public void testCustomHandlerStillGetsSingleMessages() throws InterruptedException {
+        List<List<Message>> batches = new CopyOnWriteArrayList<>();
+        List<Message> singles = new CopyOnWriteArrayList<>();
+        NatsConnection nc = new NatsConnection(new Options.Builder().build());
+        NatsBatchDispatcher d = new NatsBatchDispatcher(nc, batches::add, 100, 1024, Duration.ZERO);
+
+        d.dispatch(new NatsMessage("batched", null, new byte[0]), null);
+        d.dispatch(new NatsMessage("single", null, new byte[0]), singles::add);
+        assertEquals(1, singles.size());
+        assertEquals("single", singles.get(0).getSubject());
+        assertTrue(batches.isEmpty());
+
+        d.dispatchComplete();
+        assertEquals(1, batches.size());
+        assertEquals("batched", batches.get(0).get(0).getSubject());
+
+        // nothing left, so the handler isn't called with an empty list
+        d.dispatchComplete();
+        assertEquals(1, batches.size());
+    }
+
+    @Test
+    public void testHandlerErrorsGoToTheConnection() throws InterruptedException {
+        List<Message> all = new CopyOnWriteArrayList<>();
+        NatsBatchDispatcher d = start(msgs -> {
+            all.addAll(msgs);
+            throw new IllegalStateException("boom");
+        }, 1, 1024, Duration.ZERO);
+        NatsSubscription sub = new NatsSubscription(1L, "subject", null, d.connection, d);
+
+        deliver(d, sub, 0);
+        deliver(d, sub, 1);
+        waitFor(all, 2);
+        assertEquals(2, all.size());
+        assertEquals(2, d.connection.getNatsStatistics().getExceptions());
+        d.stop(false);
+    }
+}
@@ -0,0 +1,153 @@
+// Copyright 2021 The NATS Authors
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package io.nats.client.impl;
+
+import io.nats.client.Options;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+
+import static io.nats.client.impl.TestFixtures.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class NatsConnectionWriterTests {
+
+    private NatsMessage buildBatch(int... payloadSizes) {
+        NatsMessage first = null;
+        NatsMessage last = null;
+        for (int x = 0; x < payloadSizes.length; x++) {
+            byte[] data = new byte[payloadSizes[x]];
+            for (int i = 0; i < data.length; i++) {
+                data[i] = (byte) ('a' + (i % 26));
+            }
+            NatsMessage msg;
+            if (x % 3 == 2) {
+                msg = new NatsMessage.ProtocolMessage("PING");
+            } else {
+                Headers h = x % 2 == 0 ? null : new Headers().add("key", "value" + x);
+                msg = new NatsMessage("subject." + x, "reply", h, data);
+            }
+            if (first == null) {
+                first = msg;
+            } else {
+                last.next = msg;
+            }
+            last = msg;
+        }
+        return first;
+    }
+
+    private CapturingDataPort send(int gatherThreshold, int bufferSize, int... payloadSizes) throws Exception {
+        Options options = new Options.Builder().bufferSize(bufferSize).build();
+        NatsConnection nc = new NatsConnection(options);
+        NatsConnectionWriter writer = new NatsConnectionWriter(nc);
+        writer.setGatherThreshold(gatherThreshold);
+        CapturingDataPort port = new CapturingDataPort();
+        writer.sendMessageBatch(buildBatch(payloadSizes), port, nc.getNatsStatistics());
+        return port;
+    }
+
+    @Test
+    public void testGatheredWriteMatchesCopiedWrite() throws Exception {
+        int[] sizes = {0, 10, 100_000, 5, 20_000, 300_000, 1, 0, 70_000};
+
+        CapturingDataPort copied = send(Integer.MAX_VALUE, 1024, sizes);
+        CapturingDataPort gathered = send(16 * 1024, 1024, sizes);
+
+        assertEquals(0, copied.gatheringWrites);
+        assertTrue(gathered.gatheringWrites > 0);
+        assertArrayEquals(copied.captured.toByteArray(), gathered.captured.toByteArray());
+    }
+
+    @Test
+    public void testSmallMessagesUseSingleWrite() throws Exception {
+        CapturingDataPort port = send(NatsConnectionWriter.DEFAULT_GATHER_THRESHOLD, 64 * 1024, 1, 2, 3, 4, 5);
+        assertEquals(1, port.byteWrites);
+        assertEquals(0, port.gatheringWrites);
+
+        String wire = new String(port.captured.toByteArray(), StandardCharsets.US_ASCII);
+        assertTrue(wire.startsWith("PUB subject.0 reply 1\r\na\r\nHPUB subject.1 reply "));
+        assertTrue(wire.endsWith("PUB subject.4 reply 5\r\nabcde\r\n"));
+    }
+
+    @Test
+    public void testManyLargePayloadsSplitAcrossGatheringWrites() throws Exception {
+        int[] sizes = new int[100];
+        for (int i = 0; i < sizes.length; i++) {
+            sizes[i] = 20_000;
+        }
+
+        CapturingDataPort copied = send(Integer.MAX_VALUE, 64 * 1024, sizes);
+        CapturingDataPort gathered = send(NatsConnectionWriter.DEFAULT_GATHER_THRESHOLD, 64 * 1024, sizes);
+
+        assertTrue(gathered.gatheringWrites > 1);
+        assertArrayEquals(copied.captured.toByteArray(), gathered.captured.toByteArray());
+    }
+
+    @Test
+    public void testLatencyBudgetGroupsMessagesIntoOneWrite() throws Exception {
+        Options options = new Options.Builder().flushLatencyBudget(Duration.ofMillis(500)).build();
+        NatsConnection nc = new NatsConnection(options);
+        NatsConnectionWriter writer = new NatsConnectionWriter(nc);
+        CapturingDataPort port = new CapturingDataPort();
+        NatsStatistics stats = nc.getNatsStatistics();
+        try {
+            writer.start(CompletableFuture.completedFuture(port));
+            writer.queue(new NatsMessage("subject.1", null, new byte[10]));
+            Thread.sleep(50);
+            writer.queue(new NatsMessage("subject.2", null, new byte[10]));
+
+            waitForFlushes(stats, 1);
+            assertEquals(1, port.byteWrites);
+            assertEquals(1, port.flushes);
+            assertEquals(2, stats.getWriterFlushedMessages());
+            assertEquals(2.0, stats.getAverageFlushBatchSize());
+        } finally {
+            writer.stop();
+            nc.getExecutor().shutdownNow();
+        }
+    }
+
+    @Test
+    public void testWriterFlushesWhenIdle() throws Exception {
+        NatsConnection nc = new NatsConnection(new Options.Builder().build());
+        NatsConnectionWriter writer = new NatsConnectionWriter(nc);
+        CapturingDataPort port = new CapturingDataPort();
+        NatsStatistics stats = nc.getNatsStatistics();
+        try {
+            writer.start(CompletableFuture.completedFuture(port));
+            writer.queue(new NatsMessage("subject.1", null, new byte[10]));
+            waitForFlushes(stats, 1);
+            writer.queue(new NatsMessage("subject.2", null, new byte[10]));
+            waitForFlushes(stats, 2);
+
+            assertEquals(2, port.flushes);
+            assertEquals(2, stats.getWriterFlushedMessages());
+            assertEquals(1.0, stats.getAverageFlushBatchSize());
+        } finally {
+            writer.stop();
+            nc.getExecutor().shutdownNow();
+        }
+    }
+
+    private static void waitForFlushes(NatsStatistics stats, long flushes) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (stats.getWriterFlushes() < flushes && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(flushes, stats.getWriterFlushes());
+    }
+}
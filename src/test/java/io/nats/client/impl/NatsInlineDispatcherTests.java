@@ -0,0 +1,101 @@
+// Copyright 2021 The NATS Authors
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package io.nats.client.impl;
+
+import io.nats.client.Message;
+import io.nats.client.Options;
+import io.nats.client.TestHandler;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// These tests call deliver the way the reader does, so they don't need a server
+public class NatsInlineDispatcherTests {
+
+    private static NatsMessage message(NatsSubscription sub) {
+        NatsMessage msg = new NatsMessage(sub.getSubject(), null, new byte[16]);
+        msg.setSubscription(sub);
+        return msg;
+    }
+
+    @Test
+    public void testDeliversOnTheCallingThread() {
+        List<Thread> threads = new CopyOnWriteArrayList<>();
+        NatsConnection nc = new NatsConnection(new Options.Builder().build());
+        NatsInlineDispatcher d = new NatsInlineDispatcher(nc, m -> threads.add(Thread.currentThread()), Duration.ofSeconds(1));
+        d.start("test");
+        assertTrue(d.deliversInline());
+
+        NatsSubscription sub = new NatsSubscription(1L, "subject", null, nc, d);
+        for (int i = 0; i < 10; i++) {
+            d.deliver(message(sub));
+        }
+
+        assertEquals(10, threads.size());
+        threads.forEach(t -> assertSame(Thread.currentThread(), t));
+        assertEquals(10, sub.getDeliveredCount());
+        assertEquals(10, d.getDeliveredCount());
+        assertEquals(0, d.getPendingMessageCount());
+
+        NatsStatistics stats = nc.getNatsStatistics();
+        assertEquals(10, stats.getInlineMessages());
+        assertTrue(stats.getInlineHandlerNanos() > 0);
+        assertTrue(stats.getInlineHandlerMaxNanos() <= stats.getInlineHandlerNanos());
+        assertEquals(0, stats.getSlowInlineHandlers());
+        assertTrue(stats.toString().contains("Inline Messages:"));
+        d.stop(false);
+    }
+
+    @Test
+    public void testSlowHandlersAreReported() throws Exception {
+        TestHandler handler = new TestHandler();
+        NatsConnection nc = new NatsConnection(new Options.Builder().errorListener(handler).build());
+        List<Message> msgs = new CopyOnWriteArrayList<>();
+        NatsInlineDispatcher d = new NatsInlineDispatcher(nc, m -> {
+            msgs.add(m);
+            if (m.getSubject().equals("slow")) {
+                Thread.sleep(20);
+            }
+        }, Duration.ofMillis(5));
+        d.start("test");
+        NatsSubscription slow = new NatsSubscription(1L, "slow", null, nc, d);
+        NatsSubscription fast = new NatsSubscription(2L, "fast", null, nc, d);
+
+        Future<Boolean> reported = handler.waitForSlow();
+        d.deliver(message(slow));
+        assertTrue(reported.get(5, TimeUnit.SECONDS));
+        assertTrue(d.isMarkedSlow());
+
+        // reported once while it stays slow
+        d.deliver(message(slow));
+        assertEquals(2, nc.getNatsStatistics().getSlowInlineHandlers());
+        assertTrue(nc.getNatsStatistics().getInlineHandlerMaxNanos() >= TimeUnit.MILLISECONDS.toNanos(20));
+
+        d.deliver(message(fast));
+        assertFalse(d.isMarkedSlow());
+        assertEquals(3, msgs.size());
+        assertEquals(2, nc.getNatsStatistics().getSlowInlineHandlers());
+
+        Thread.sleep(100); // let the callback runner finish
+        assertEquals(1, handler.getSlowConsumers().size());
+        assertSame(d, handler.getSlowConsumers().get(0));
+        d.stop(false);
+    }
+}
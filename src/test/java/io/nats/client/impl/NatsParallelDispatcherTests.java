@@ -0,0 +1,171 @@
+// Copyright 2021 The NATS Authors
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package io.nats.client.impl;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static io.nats.client.impl.TestFixtures.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+// These tests feed the dispatcher queue directly, so they don't need a server
+public class NatsParallelDispatcherTests {
+
+    @Test
+    public void testKeysStayInOrderAcrossWorkers() throws InterruptedException {
+        int keys = 16;
+        int perKey = 500;
+        CountDownLatch latch = new CountDownLatch(keys * perKey);
+        Map<String, Integer> next = new ConcurrentHashMap<>();
+        Map<String, AtomicInteger> inFlight = new ConcurrentHashMap<>();
+        Set<Thread> threads = ConcurrentHashMap.newKeySet();
+        AtomicInteger errors = new AtomicInteger();
+
+        NatsParallelDispatcher d = start(msg -> {
+            threads.add(Thread.currentThread());
+            AtomicInteger running = inFlight.computeIfAbsent(msg.getSubject(), k -> new AtomicInteger());
+            if (running.incrementAndGet() != 1) {
+                errors.incrementAndGet(); // two messages with the same key at once
+            }
+            int expected = next.getOrDefault(msg.getSubject(), 0);
+            if (expected != Integer.parseInt(new String(msg.getData(), StandardCharsets.US_ASCII))) {
+                errors.incrementAndGet();
+            }
+            next.put(msg.getSubject(), expected + 1);
+            running.decrementAndGet();
+            latch.countDown();
+        }, 4, null);
+        assertEquals(4, d.getWorkerCount());
+
+        NatsSubscription sub = new NatsSubscription(1L, "key.*", null, d.connection, d);
+        for (int i = 0; i < perKey; i++) {
+            for (int k = 0; k < keys; k++) {
+                deliver(d, sub, "key." + k, null, i);
+            }
+        }
+
+        assertTrue(latch.await(10, TimeUnit.SECONDS));
+        assertEquals(0, errors.get());
+        assertTrue(threads.size() > 1);
+        assertEquals(keys * perKey, sub.getDeliveredCount());
+        d.stop(false);
+    }
+
+    @Test
+    public void testKeyExtractor() {
+        NatsParallelDispatcher d = start(msg -> {}, 8, msg -> msg.getHeaders() == null ? null : msg.getHeaders().getFirst("key"));
+        NatsMessage a1 = new NatsMessage("one", null, new Headers().add("key", "a"), new byte[0]);
+        NatsMessage a2 = new NatsMessage("two", null, new Headers().add("key", "a"), new byte[0]);
+        NatsMessage none = new NatsMessage("three", null, new byte[0]);
+        assertEquals(d.workerFor(a1), d.workerFor(a2));
+        assertEquals(0, d.workerFor(none));
+
+        NatsParallelDispatcher bySubject = start(msg -> {}, 8, null);
+        assertEquals(bySubject.workerFor(a1), bySubject.workerFor(new NatsMessage("one", null, new byte[0])));
+        d.stop(false);
+        bySubject.stop(false);
+    }
+
+    @Test
+    public void testWorkerQueuesCountAsPending() throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger handled = new AtomicInteger();
+        NatsParallelDispatcher d = start(msg -> {
+            started.countDown();
+            release.await();
+            handled.incrementAndGet();
+        }, 4, null);
+
+        NatsSubscription sub = new NatsSubscription(1L, "key", null, d.connection, d);
+        for (int i = 0; i < 10; i++) {
+            deliver(d, sub, "key", null, i);
+        }
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (d.getMessageQueue().length() > 0 && System.nanoTime() < end) {
+            Thread.sleep(5);
+        }
+
+        // one message is in the handler, the rest wait on its worker
+        assertEquals(0, d.getMessageQueue().length());
+        assertEquals(9, d.getPendingMessageCount());
+        assertTrue(d.getPendingByteCount() > 0);
+        d.setPendingLimits(5, 0);
+        assertTrue(d.hasReachedPendingLimits());
+
+        release.countDown();
+        end = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (handled.get() < 10 && System.nanoTime() < end) {
+            Thread.sleep(5);
+        }
+        assertEquals(10, handled.get());
+        assertEquals(0, d.getPendingMessageCount());
+        assertFalse(d.hasReachedPendingLimits());
+        d.stop(false);
+    }
+
+    @Test
+    public void testHandlerComesFromTheSubscription() throws InterruptedException {
+        CountDownLatch latch = new CountDownLatch(2);
+        Set<String> seen = ConcurrentHashMap.newKeySet();
+        NatsParallelDispatcher d = start(msg -> {
+            seen.add("default:" + msg.getSubject());
+            latch.countDown();
+        }, 2, null);
+
+        NatsSubscription own = new NatsSubscription(1L, "own", null, d.connection, d);
+        own.setHandler(msg -> {
+            seen.add("own:" + msg.getSubject());
+            latch.countDown();
+        });
+        NatsSubscription shared = new NatsSubscription(2L, "shared", null, d.connection, d);
+        deliver(d, own, "own", null, 0);
+        deliver(d, shared, "shared", null, 0);
+
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        assertTrue(seen.contains("own:own"));
+        assertTrue(seen.contains("default:shared"));
+        d.stop(false);
+    }
+
+    @Test
+    public void testDrainWaitsForWorkers() throws InterruptedException {
+        AtomicInteger handled = new AtomicInteger();
+        NatsParallelDispatcher d = start(msg -> {
+            Thread.sleep(1);
+            handled.incrementAndGet();
+        }, 4, null);
+
+        NatsSubscription sub = new NatsSubscription(1L, "key.*", null, d.connection, d);
+        for (int i = 0; i < 200; i++) {
+            deliver(d, sub, "key." + (i % 10), null, i);
+        }
+        d.getMessageQueue().drain();
+
+        long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (d.isActive() && System.nanoTime() < end) {
+            Thread.sleep(5);
+        }
+        assertFalse(d.isActive());
+        assertEquals(200, handled.get());
+    }
+}
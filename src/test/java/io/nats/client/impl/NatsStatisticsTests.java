@@ -14,9 +14,11 @@
 package io.nats.client.impl;
 
 import io.nats.client.*;
+import io.nats.client.support.LatencyHistogram;
 import org.junit.jupiter.api.Test;
 
 import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 
@@ -52,6 +54,52 @@ public class NatsStatisticsTests {
         }
     }
 
+    @Test
+    public void testLatencyHistograms() throws Exception {
+        try (NatsServerProtocolMock ts = new NatsServerProtocolMock(NatsServerProtocolMock.ExitAt.NO_EXIT);
+                Connection nc = Nats.connect(new Options.Builder().server(ts.getURI())
+                        .pingInterval(Duration.ofSeconds(10)).turnOnAdvancedStats().build())) {
+            NatsConnection conn = (NatsConnection) nc;
+            Statistics stats = nc.getStatistics();
+
+            CompletableFuture<Message> reply = nc.request("subject", null);
+            conn.deliverReply(new NatsMessage(conn.createResponseInbox(0, 0), null, new byte[1]));
+            reply.get(1, TimeUnit.SECONDS);
+            assertEquals(1, stats.getRequestRoundTripTimes().getCount());
+
+            CompletableFuture<Duration> flushed = nc.flushAsync();
+            conn.handlePong(); // the mock doesn't answer pings
+            flushed.get(1, TimeUnit.SECONDS);
+            assertEquals(1, stats.getFlushRoundTripTimes().getCount());
+            assertTrue(stats.getFlushRoundTripTimes().getMax() > 0);
+
+            NatsDispatcher d = new NatsDispatcher(conn, msg -> {});
+            NatsSubscription sub = new NatsSubscription("1", "subject", null, conn, d);
+            NatsMessage msg = new NatsMessage("subject", null, new byte[1]);
+            msg.setSubscription(sub);
+            msg.queuedNanos = System.nanoTime() - 1000;
+            d.deliver(msg);
+            assertEquals(1, stats.getDispatcherQueueWaitTimes().getCount());
+            assertTrue(stats.getDispatcherQueueWaitTimes().getMin() >= 1000);
+            assertTrue(stats.toString().contains("Request Round Trip Nanos"));
+        }
+    }
+
+    @Test
+    public void testLatencyHistogramsNeedAdvancedStats() throws Exception {
+        try (NatsServerProtocolMock ts = new NatsServerProtocolMock(NatsServerProtocolMock.ExitAt.NO_EXIT);
+                Connection nc = Nats.connect(new Options.Builder().server(ts.getURI()).build())) {
+            NatsConnection conn = (NatsConnection) nc;
+            CompletableFuture<Message> reply = nc.request("subject", null);
+            conn.deliverReply(new NatsMessage(conn.createResponseInbox(0, 0), null, new byte[1]));
+            reply.get(1, TimeUnit.SECONDS);
+
+            assertSame(LatencyHistogram.Snapshot.EMPTY, nc.getStatistics().getRequestRoundTripTimes());
+            assertSame(LatencyHistogram.Snapshot.EMPTY, nc.getStatistics().getFlushRoundTripTimes());
+            assertSame(LatencyHistogram.Snapshot.EMPTY, nc.getStatistics().getDispatcherQueueWaitTimes());
+        }
+    }
+
     @Test
     public void testInOutOKRequestStats() throws Exception {
         try (NatsTestServer ts = new NatsTestServer(false)) {
@@ -225,6 +225,80 @@ public class ParseTests {
         }
     }
 
+    @Test
+    public void testByteLengths() {
+        for (int i = 0; i < 100_000; i += 7) {
+            byte[] bytes = ("x" + i + " ").getBytes(StandardCharsets.US_ASCII);
+            assertEquals(i, NatsConnectionReader.parseLength(bytes, 1, bytes.length - 1));
+        }
+        byte[] max = String.valueOf(Integer.MAX_VALUE).getBytes(StandardCharsets.US_ASCII);
+        assertEquals(Integer.MAX_VALUE, NatsConnectionReader.parseLength(max, 0, max.length));
+
+        assertThrows(NumberFormatException.class, () -> parseBytes("2221a"));
+        assertThrows(NumberFormatException.class, () -> parseBytes("-1"));
+        assertThrows(NumberFormatException.class, () -> parseBytes("2147483648"));
+        assertThrows(NumberFormatException.class, () -> parseBytes(String.valueOf(100_000_000_000L)));
+    }
+
+    @Test
+    public void testSids() {
+        byte[] bytes = "MSG subject 1234567 5".getBytes(StandardCharsets.US_ASCII);
+        assertEquals(1234567, NatsConnectionReader.parseSid(bytes, 12, 19));
+
+        byte[] big = String.valueOf(Long.MAX_VALUE / 10).getBytes(StandardCharsets.US_ASCII);
+        assertEquals(Long.MAX_VALUE / 10, NatsConnectionReader.parseSid(big, 0, big.length));
+
+        byte[] bad = "12x".getBytes(StandardCharsets.US_ASCII);
+        assertThrows(NumberFormatException.class, () -> NatsConnectionReader.parseSid(bad, 0, bad.length));
+        byte[] tooLong = String.valueOf(Long.MAX_VALUE).getBytes(StandardCharsets.US_ASCII);
+        assertThrows(NumberFormatException.class, () -> NatsConnectionReader.parseSid(tooLong, 0, tooLong.length));
+    }
+
+    private int parseBytes(String s) {
+        byte[] bytes = s.getBytes(StandardCharsets.US_ASCII);
+        return NatsConnectionReader.parseLength(bytes, 0, bytes.length);
+    }
+
+    @Test
+    public void testMessageLinesWithoutServer() throws Exception {
+        String[] good = {
+            "MSG subject 1 5\r\nhello\r\n",
+            "MSG subject 1 reply 5\r\nhello\r\n",
+            "MSG subject\t22\treply\t5\r\nhello\r\n",
+            "HMSG subject 1 17 22\r\nNATS/1.0\r\nk:v\r\n\r\nhello\r\n",
+            "HMSG subject 1 reply 17 22\r\nNATS/1.0\r\nk:v\r\n\r\nhello\r\n",
+        };
+
+        for (String line : good) {
+            NatsConnection nc = new NatsConnection(new Options.Builder().build());
+            readFully(nc, line);
+            assertEquals(1, nc.getNatsStatistics().getInMsgs(), line);
+        }
+
+        String[] bad = {
+            "MSG  1 1\r\n", "MSG subject  1\r\n", "MSG subject sid 1\r\nx\r\n", "MSG subject 2 \r\n", "MSG subject 2 x\r\n",
+            "HMSG subject 1 5\r\n", "HMSG subject 1 12 5\r\n", "HMSG  1 2 2\r\n"
+        };
+
+        for (String line : bad) {
+            NatsConnection nc = new NatsConnection(new Options.Builder().build());
+            assertThrows(IOException.class, () -> readFully(nc, line), line);
+        }
+    }
+
+    private void readFully(NatsConnection nc, String protocol) throws IOException {
+        NatsConnectionReader reader = nc.getReader();
+        byte[] bytes = protocol.getBytes(StandardCharsets.US_ASCII);
+        reader.fakeReadForTest(bytes);
+        reader.gatherOp(bytes.length);
+        reader.gatherMessageProtocol(bytes.length);
+        reader.parseProtocolMessage();
+        if (protocol.startsWith("H")) {
+            reader.gatherHeaders(bytes.length);
+        }
+        reader.gatherMessageData(bytes.length);
+    }
+
     @Test
     public void testOpFor_ForCoverage() {
         coverOpFor(OP_MSG,  "MSG");
@@ -13,13 +13,17 @@
 
 package io.nats.client.impl;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
 import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.io.IOException;
 import java.time.Duration;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
@@ -148,6 +152,100 @@ public class PingTests {
         }
     }
 
+    @Test
+    public void testFlushAsyncSharesPings() throws Exception {
+        try (NatsServerProtocolMock ts = new NatsServerProtocolMock(ExitAt.NO_EXIT)) {
+            Options options = new Options.Builder().
+                                            server(ts.getURI()).
+                                            pingInterval(Duration.ofSeconds(10)). // Avoid auto pings
+                                            maxReconnects(0).
+                                            build();
+            NatsConnection nc = (NatsConnection) Nats.connect(options);
+
+            try {
+                NatsStatistics stats = nc.getNatsStatistics();
+                long pings = stats.getPingCount();
+
+                // the mock doesn't answer, so pongs are handed to the connection here
+                CompletableFuture<Duration> first = nc.flushAsync();
+                CompletableFuture<Duration> second = nc.flushAsync();
+                CompletableFuture<Duration> third = nc.flushAsync();
+                assertEquals(pings + 1, stats.getPingCount(), "later callers wait for the next ping");
+                assertFalse(first.isDone());
+
+                nc.handlePong();
+                assertTrue(first.get(1, TimeUnit.SECONDS).toNanos() > 0);
+                assertFalse(second.isDone());
+                assertEquals(pings + 2, stats.getPingCount(), "one ping for the callers that waited");
+
+                second.cancel(true);
+                nc.handlePong();
+                assertNotNull(third.get(1, TimeUnit.SECONDS));
+                assertEquals(pings + 2, stats.getPingCount());
+                assertEquals(2, stats.getFlushCounter());
+            } finally {
+                nc.close();
+            }
+        }
+    }
+
+    @Test
+    public void testFlushAsyncCompletesOffTheReaderThread() throws Exception {
+        try (NatsServerProtocolMock ts = new NatsServerProtocolMock(ExitAt.NO_EXIT)) {
+            NatsConnection nc = (NatsConnection) Nats.connect(new Options.Builder().server(ts.getURI())
+                .pingInterval(Duration.ofSeconds(10)).maxReconnects(0).build());
+            try {
+                CompletableFuture<Duration> flushed = nc.flushAsync();
+                CompletableFuture<Thread> completedOn = flushed.thenApply(rtt -> Thread.currentThread());
+
+                nc.handlePong();
+                assertNotSame(Thread.currentThread(), completedOn.get(1, TimeUnit.SECONDS));
+            } finally {
+                nc.close();
+            }
+        }
+    }
+
+    @Test
+    public void testFlushAsyncTimesOutWithoutPong() throws Exception {
+        try (NatsServerProtocolMock ts = new NatsServerProtocolMock(ExitAt.NO_EXIT)) {
+            NatsConnection nc = (NatsConnection) Nats.connect(new Options.Builder().server(ts.getURI())
+                .pingInterval(Duration.ofSeconds(10)).connectionTimeout(Duration.ofMillis(500)).maxReconnects(0).build());
+            try {
+                NatsStatistics stats = nc.getNatsStatistics();
+                long pings = stats.getPingCount();
+                CompletableFuture<Duration> lost = nc.flushAsync();
+                CompletableFuture<Duration> waiting = nc.flushAsync();
+
+                ExecutionException e = assertThrows(ExecutionException.class, () -> lost.get(5, TimeUnit.SECONDS));
+                assertTrue(e.getCause() instanceof TimeoutException);
+                assertEquals(pings + 2, stats.getPingCount(), "the waiting callers get a new ping");
+
+                // the late PONG for the lost ping answers nothing
+                nc.handlePong();
+                assertFalse(waiting.isDone());
+                nc.handlePong();
+                assertNotNull(waiting.get(1, TimeUnit.SECONDS));
+            } finally {
+                nc.close();
+            }
+        }
+    }
+
+    @Test
+    public void testFlushAsyncFailsWhenClosed() throws Exception {
+        try (NatsServerProtocolMock ts = new NatsServerProtocolMock(ExitAt.NO_EXIT)) {
+            NatsConnection nc = (NatsConnection) Nats.connect(new Options.Builder().server(ts.getURI()).maxReconnects(0).build());
+            CompletableFuture<Duration> pending = nc.flushAsync();
+            nc.close();
+
+            ExecutionException e = assertThrows(ExecutionException.class, () -> pending.get(1, TimeUnit.SECONDS));
+            assertTrue(e.getCause() instanceof CancellationException);
+            e = assertThrows(ExecutionException.class, () -> nc.flushAsync().get(1, TimeUnit.SECONDS));
+            assertTrue(e.getCause() instanceof TimeoutException);
+        }
+    }
+
     @Test
     public void testFlushTimeout() {
         assertThrows(TimeoutException.class, () -> {
@@ -0,0 +1,267 @@
+// Copyright 2021 The NATS Authors
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package io.nats.client.impl;
+
+import io.nats.client.Options;
+import io.nats.client.impl.NatsMessage.ProtocolMessage;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static io.nats.client.impl.TestFixtures.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PublishLanesTests {
+
+    private static PublishLanes lanes(int count, int highwaterMark) {
+        return new PublishLanes(count, highwaterMark, false, null, 0, Duration.ofSeconds(5));
+    }
+
+    @Test
+    public void testEachThreadKeepsItsOrder() throws InterruptedException {
+        for (MessageRing.WaitStrategy strategy : new MessageRing.WaitStrategy[] {null, MessageRing.WaitStrategy.SPIN_YIELD_PARK, MessageRing.WaitStrategy.BUSY_SPIN}) {
+            PublishLanes q = new PublishLanes(4, 1_000, false, strategy, 0, Duration.ofSeconds(5));
+            int producers = 16;
+            int perProducer = 10_000;
+
+            List<Thread> threads = new ArrayList<>();
+            for (int p = 0; p < producers; p++) {
+                final int producer = p;
+                Thread t = new Thread(() -> {
+                    for (int i = 0; i < perProducer; i++) {
+                        q.push(numbered(producer, i));
+                    }
+                });
+                threads.add(t);
+                t.start();
+            }
+
+            int[] next = new int[producers];
+            int received = 0;
+            while (received < producers * perProducer) {
+                NatsMessage msg = q.accumulate(10_000, 100, Duration.ofSeconds(5));
+                assertNotNull(msg);
+                for (; msg != null; msg = msg.next) {
+                    String[] parts = text(msg).split(":");
+                    int producer = Integer.parseInt(parts[0]);
+                    assertEquals(next[producer], Integer.parseInt(parts[1]));
+                    next[producer]++;
+                    received++;
+                }
+            }
+
+            for (Thread t : threads) {
+                t.join();
+            }
+            assertEquals(0, q.length());
+            assertEquals(0, q.sizeInBytes());
+            assertNull(q.accumulate(10_000, 100, null));
+        }
+    }
+
+    @Test
+    public void testAccumulateLimits() throws InterruptedException {
+        PublishLanes q = lanes(3, 0);
+        for (int i = 0; i < 10; i++) {
+            q.push(numbered(0, i));
+        }
+        assertEquals(10, q.length());
+
+        int count = 0;
+        for (NatsMessage msg = q.accumulate(10_000, 4, null); msg != null; msg = msg.next) {
+            count++;
+        }
+        assertEquals(4, count);
+        assertEquals(6, q.length());
+
+        NatsMessage msg = q.accumulate(1, 100, null);
+        assertNotNull(msg);
+        assertNull(msg.next);
+        assertEquals("0:4", text(msg));
+    }
+
+    @Test
+    public void testLimitsAreSplitAcrossLanes() {
+        PublishLanes q = new PublishLanes(2, 4, false, null, 0, Duration.ZERO);
+        // every push from this thread lands in the same lane, which holds half the limit
+        assertTrue(q.push(numbered(0, 0)));
+        assertTrue(q.push(numbered(0, 1)));
+        assertThrows(IllegalStateException.class, () -> q.push(numbered(0, 2)));
+        assertEquals(2, q.length());
+    }
+
+    @Test
+    public void testInternalMessagesFollowEveryLane() throws Exception {
+        PublishLanes q = lanes(4, 0);
+        byte[] ping = "PING".getBytes(StandardCharsets.US_ASCII);
+        int producers = 8;
+        int perProducer = 100;
+
+        // other threads publish first, their pushes have returned before the flush
+        List<Thread> threads = new ArrayList<>();
+        for (int p = 1; p <= producers; p++) {
+            final int producer = p;
+            threads.add(new Thread(() -> {
+                for (int i = 0; i < perProducer; i++) {
+                    q.push(numbered(producer, i));
+                }
+            }));
+        }
+        for (Thread t : threads) {
+            t.start();
+        }
+        for (Thread t : threads) {
+            t.join();
+        }
+        q.push(numbered(0, 0));
+        q.push(new ProtocolMessage(ping), true);
+        q.push(numbered(0, 1));
+        assertEquals(producers * perProducer + 3, q.length());
+
+        List<String> sent = new ArrayList<>();
+        for (NatsMessage msg = q.accumulate(100_000, 7, null); msg != null; msg = q.accumulate(100_000, 7, null)) {
+            for (; msg != null; msg = msg.next) {
+                sent.add(text(msg));
+            }
+        }
+        assertEquals(producers * perProducer + 3, sent.size());
+        assertEquals(producers * perProducer + 1, sent.indexOf("PING"));
+        assertEquals("0:1", sent.get(sent.size() - 1));
+        assertEquals(0, q.length());
+    }
+
+    @Test
+    public void testWaitStrategies() throws InterruptedException {
+        for (MessageRing.WaitStrategy strategy : MessageRing.WaitStrategy.values()) {
+            PublishLanes q = new PublishLanes(4, 0, false, strategy, 0, Duration.ofSeconds(5));
+            Thread t = new Thread(() -> {
+                try {
+                    Thread.sleep(50);
+                } catch (InterruptedException e) {
+                    // ignore
+                }
+                q.push(numbered(1, 0));
+            });
+            t.start();
+            assertEquals("1:0", text(q.accumulate(1000, 10, Duration.ofSeconds(10))));
+            t.join();
+
+            long start = System.nanoTime();
+            assertNull(q.accumulate(1000, 10, Duration.ofMillis(20)));
+            assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(20));
+        }
+    }
+
+    @Test
+    public void testWaitingReaderWakesOnPush() throws InterruptedException {
+        PublishLanes q = lanes(4, 0);
+        Thread t = new Thread(() -> {
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                // ignore
+            }
+            q.push(numbered(1, 0));
+        });
+        t.start();
+        long start = System.nanoTime();
+        NatsMessage msg = q.accumulate(1000, 10, Duration.ofSeconds(10));
+        assertNotNull(msg);
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(5));
+        t.join();
+
+        start = System.nanoTime();
+        assertNull(q.accumulate(1000, 10, Duration.ofMillis(20)));
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(20));
+
+        // pausing breaks a wait forever
+        t = new Thread(() -> {
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                // ignore
+            }
+            q.pause();
+        });
+        t.start();
+        assertNull(q.accumulate(1000, 10, Duration.ZERO));
+        t.join();
+    }
+
+    @Test
+    public void testFilterWhilePaused() throws InterruptedException {
+        PublishLanes q = lanes(2, 0);
+        byte[] ping = "PING".getBytes(StandardCharsets.US_ASCII);
+        q.push(numbered(0, 0));
+        q.push(new ProtocolMessage(ping), true);
+        Thread t = new Thread(() -> q.push(new ProtocolMessage(ping), true));
+        t.start();
+        t.join();
+        assertEquals(3, q.length());
+
+        assertThrows(IllegalStateException.class, () -> q.filter(m -> true));
+        q.pause();
+        q.filter(m -> Arrays.equals(ping, m.getProtocolBytes()));
+        q.resume();
+        assertEquals(1, q.length());
+        assertEquals("0:0", text(q.accumulate(1000, 10, null)));
+    }
+
+    @Test
+    public void testWriterUsesLanes() throws Exception {
+        Options options = new Options.Builder().publishLanes(4).build();
+        NatsConnection nc = new NatsConnection(options);
+        NatsConnectionWriter writer = new NatsConnectionWriter(nc);
+        CapturingDataPort port = new CapturingDataPort();
+        writer.start(CompletableFuture.completedFuture(port));
+
+        int producers = 8;
+        int perProducer = 1_000;
+        List<Thread> threads = new ArrayList<>();
+        for (int p = 0; p < producers; p++) {
+            final int producer = p;
+            Thread t = new Thread(() -> {
+                for (int i = 0; i < perProducer; i++) {
+                    writer.queue(new NatsMessage("s" + producer, null, Integer.toString(i).getBytes(StandardCharsets.US_ASCII)));
+                }
+            });
+            threads.add(t);
+            t.start();
+        }
+        for (Thread t : threads) {
+            t.join();
+        }
+
+        long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (nc.getNatsStatistics().getOutMsgs() < producers * perProducer && System.nanoTime() < end) {
+            Thread.sleep(10);
+        }
+        writer.stop().get(5, TimeUnit.SECONDS);
+
+        int[] next = new int[producers];
+        String[] lines = new String(port.captured.toByteArray(), StandardCharsets.US_ASCII).split("\r\n");
+        assertEquals(producers * perProducer * 2, lines.length);
+        for (int i = 0; i < lines.length; i += 2) {
+            int producer = Integer.parseInt(lines[i].split(" ")[1].substring(1));
+            assertEquals(Integer.toString(next[producer]), lines[i + 1]);
+            next[producer]++;
+        }
+    }
+}
@@ -0,0 +1,95 @@
+// Copyright 2021 The NATS Authors
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package io.nats.client.impl;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RecentRepliesTests {
+
+    @Test
+    public void testWindow() {
+        RecentReplies recent = new RecentReplies(100);
+        assertEquals(100, recent.window());
+        assertFalse(recent.contains("token0"));
+
+        for (int i = 0; i < 100; i++) {
+            recent.add("token" + i);
+        }
+        assertEquals(100, recent.size());
+        for (int i = 0; i < 100; i++) {
+            assertTrue(recent.contains("token" + i));
+        }
+        assertFalse(recent.contains("token100"));
+
+        // the oldest ones are forgotten as new ones arrive
+        for (int i = 100; i < 150; i++) {
+            recent.add("token" + i);
+        }
+        assertEquals(100, recent.size());
+        for (int i = 0; i < 50; i++) {
+            assertFalse(recent.contains("token" + i));
+        }
+        for (int i = 50; i < 150; i++) {
+            assertTrue(recent.contains("token" + i));
+        }
+    }
+
+    @Test
+    public void testManyRoundsKeepExactlyTheWindow() {
+        int window = 1000;
+        RecentReplies recent = new RecentReplies(window);
+        int total = 200_000;
+        for (int i = 0; i < total; i++) {
+            recent.add(Integer.toString(i, 36));
+            if (i % 997 == 0) {
+                // everything in the window is found and nothing older is
+                for (int j = Math.max(0, i - window - 50); j <= i; j++) {
+                    assertEquals(j > i - window, recent.contains(Integer.toString(j, 36)), "entry " + j + " at " + i);
+                }
+            }
+        }
+        assertEquals(window, recent.size());
+    }
+
+    @Test
+    public void testNumericTokens() {
+        RecentReplies recent = new RecentReplies(10);
+        for (long t = 0; t < 20; t++) {
+            recent.add(t);
+        }
+        for (long t = 0; t < 10; t++) {
+            assertFalse(recent.contains(t));
+        }
+        for (long t = 10; t < 20; t++) {
+            assertTrue(recent.contains(t));
+        }
+        assertEquals(10, recent.size());
+    }
+
+    @Test
+    public void testDisabled() {
+        RecentReplies recent = new RecentReplies(0);
+        recent.add("token");
+        assertFalse(recent.contains("token"));
+        assertEquals(0, recent.size());
+    }
+
+    @Test
+    public void testHashNeverEmpty() {
+        assertNotEquals(0, RecentReplies.hash(""));
+        assertNotEquals(RecentReplies.hash("a"), RecentReplies.hash("b"));
+    }
+}
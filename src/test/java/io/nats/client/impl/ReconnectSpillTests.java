@@ -0,0 +1,236 @@
+// Copyright 2021 The NATS Authors
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package io.nats.client.impl;
+
+import io.nats.client.Options;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static io.nats.client.impl.TestFixtures.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ReconnectSpillTests {
+
+    @TempDir
+    Path dir;
+
+    private long files() throws Exception {
+        try (Stream<Path> s = Files.list(dir)) {
+            return s.count();
+        }
+    }
+
+    @Test
+    public void testAppendAndReplayInOrder() throws Exception {
+        NatsStatistics stats = new NatsStatistics(false);
+        ReconnectSpill spill = new ReconnectSpill(dir, 1024 * 1024, stats);
+        assertFalse(spill.isActive());
+        assertNull(spill.read(1000, 10));
+        assertEquals(0, files());
+
+        assertTrue(spill.append(new NatsMessage("subject.0", null, new byte[] {'a'})));
+        assertTrue(spill.isActive());
+        assertEquals(1, files());
+        for (int i = 1; i < 100; i++) {
+            Headers h = i % 2 == 0 ? null : new Headers().add("key", "value" + i);
+            assertFalse(spill.append(new NatsMessage("subject." + i, "reply", h, new byte[] {'a', 'b'})));
+        }
+        assertEquals(100, stats.getReconnectSpillMessages());
+
+        NatsMessage batch = spill.read(1000, 10);
+        assertEquals("PUB subject.0 1\r\na", text(batch));
+        assertEquals("HPUB subject.1 reply 24 26\r\nNATS/1.0\r\nkey:value1\r\n\r\nab", text(batch.next));
+
+        int count = 0;
+        int next = 0;
+        while (batch != null) {
+            for (NatsMessage msg = batch; msg != null; msg = msg.next) {
+                assertTrue(text(msg).contains("subject." + next + " "));
+                next++;
+                count++;
+            }
+            batch = spill.read(1000, 10);
+        }
+        assertEquals(100, count);
+        assertFalse(spill.isActive());
+        assertEquals(stats.getReconnectSpillBytes(), stats.getReconnectSpillReplayedBytes() - 2 * 100);
+        assertTrue(stats.getReconnectSpillReplayNanos() > 0);
+
+        // the file is reused for the next reconnect
+        assertTrue(spill.append(new NatsMessage("again", null, new byte[0])));
+        assertEquals("PUB again 0\r\n", text(spill.read(1000, 10)));
+        assertEquals(1, files());
+
+        spill.close();
+        assertEquals(0, files());
+    }
+
+    @Test
+    public void testBatchLimits() throws Exception {
+        ReconnectSpill spill = new ReconnectSpill(dir, 1024 * 1024, new NatsStatistics(false));
+        for (int i = 0; i < 10; i++) {
+            spill.append(new NatsMessage("subject", null, new byte[100]));
+        }
+
+        int length = 0;
+        for (NatsMessage msg = spill.read(250, 10); msg != null; msg = msg.next) {
+            length++;
+        }
+        assertEquals(2, length);
+
+        // a single message bigger than the limit still comes back
+        NatsMessage msg = spill.read(10, 10);
+        assertNotNull(msg);
+        assertNull(msg.next);
+
+        length = 0;
+        for (msg = spill.read(100_000, 3); msg != null; msg = msg.next) {
+            length++;
+        }
+        assertEquals(3, length);
+        spill.close();
+    }
+
+    @Test
+    public void testFull() throws Exception {
+        ReconnectSpill spill = new ReconnectSpill(dir, 100, new NatsStatistics(false));
+        spill.append(new NatsMessage("subject", null, new byte[50]));
+        assertThrows(IllegalStateException.class, () -> spill.append(new NatsMessage("subject", null, new byte[50])));
+        assertNotNull(spill.read(1000, 10));
+        assertNull(spill.read(1000, 10));
+        spill.append(new NatsMessage("subject", null, new byte[50]));
+        spill.close();
+    }
+
+    @Test
+    public void testHeldMessagesKeepTheirPlace() throws Exception {
+        ReconnectSpill spill = new ReconnectSpill(dir, 1024 * 1024, new NatsStatistics(false));
+        assertFalse(spill.hold(new NatsMessage.ProtocolMessage("PING".getBytes())));
+
+        spill.append(new NatsMessage("a", null, new byte[0]));
+        assertTrue(spill.hold(new NatsMessage.ProtocolMessage("SUB x 1".getBytes())));
+        assertTrue(spill.hold(new NatsMessage.ProtocolMessage("PING".getBytes())));
+        spill.append(new NatsMessage("b", null, new byte[0]));
+        assertTrue(spill.hold(new NatsMessage.ProtocolMessage("PONG".getBytes())));
+
+        spill.filterHeld(msg -> text(msg).equals("PONG"));
+
+        StringBuilder order = new StringBuilder();
+        for (NatsMessage batch = spill.read(1000, 2); batch != null; batch = spill.read(1000, 2)) {
+            for (NatsMessage msg = batch; msg != null; msg = msg.next) {
+                order.append(text(msg)).append('|');
+            }
+        }
+        assertEquals("PUB a 0\r\n|SUB x 1|PING|PUB b 0\r\n|", order.toString());
+        assertFalse(spill.isActive());
+        spill.close();
+    }
+
+    @Test
+    public void testCompactsInsteadOfFilling() throws Exception {
+        ReconnectSpill spill = new ReconnectSpill(dir, 200, new NatsStatistics(false));
+        // the writer keeps up without the spill running dry, so the file is only ever reused by moving the
+        // unread records to the start
+        spill.append(new NatsMessage("subject.0", null, new byte[30]));
+        for (int i = 1; i < 100; i++) {
+            assertTrue(spill.hold(new NatsMessage.ProtocolMessage(("PING" + i).getBytes())));
+            spill.append(new NatsMessage("subject." + i, null, new byte[30]));
+            assertTrue(text(spill.read(1000, 1)).startsWith("PUB subject." + (i - 1) + " "));
+            assertEquals("PING" + i, text(spill.read(1000, 1)));
+        }
+        assertTrue(text(spill.read(1000, 10)).startsWith("PUB subject.99 "));
+        assertNull(spill.read(1000, 10));
+        spill.close();
+    }
+
+    @Test
+    public void testConnectedAppendWaitsForRoom() throws Exception {
+        ReconnectSpill spill = new ReconnectSpill(dir, 100, new NatsStatistics(false));
+        spill.append(new NatsMessage("subject", null, new byte[50]));
+        assertThrows(IllegalStateException.class, () -> spill.append(new NatsMessage("subject", null, new byte[50]), 0));
+
+        CompletableFuture<Boolean> waiting = CompletableFuture.supplyAsync(() -> {
+            try {
+                return spill.append(new NatsMessage("later", null, new byte[50]), TimeUnit.SECONDS.toNanos(10));
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        });
+        Thread.sleep(100);
+        assertFalse(waiting.isDone());
+
+        assertTrue(text(spill.read(1000, 10)).startsWith("PUB subject 50"));
+        assertFalse(waiting.get(5, TimeUnit.SECONDS)); // the spill was already on
+        assertTrue(text(spill.read(1000, 10)).startsWith("PUB later 50"));
+
+        spill.append(new NatsMessage("subject", null, new byte[50]));
+        Thread.currentThread().interrupt();
+        assertThrows(IllegalStateException.class,
+                () -> spill.append(new NatsMessage("subject", null, new byte[50]), TimeUnit.SECONDS.toNanos(10)));
+        assertTrue(Thread.interrupted());
+        spill.close();
+    }
+
+    @Test
+    public void testWriterReplaysAfterMemory() throws Exception {
+        Options options = new Options.Builder()
+                .reconnectBufferSize(500)
+                .reconnectSpillDirectory(dir)
+                .build();
+        NatsConnection nc = new NatsConnection(options);
+        NatsConnectionWriter writer = new NatsConnectionWriter(nc);
+
+        int count = 200;
+        int spilled = 0;
+        StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            NatsMessage msg = new NatsMessage("subject." + i, null, ("data" + i).getBytes(StandardCharsets.US_ASCII));
+            expected.append("PUB subject.").append(i).append(' ').append(("data" + i).length())
+                    .append("\r\ndata").append(i).append("\r\n");
+            if (writer.spill(msg, true)) {
+                if (spilled == 0) {
+                    // queued after the first spilled publish, so it is sent after it
+                    writer.queueInternalMessage(new NatsMessage.ProtocolMessage("PING".getBytes()));
+                    expected.append("PING\r\n");
+                }
+                spilled++;
+            } else {
+                assertTrue(writer.canQueueDuringReconnect(msg));
+                writer.queue(msg);
+            }
+        }
+        assertTrue(spilled > 0 && spilled < count);
+        assertEquals(spilled, nc.getNatsStatistics().getReconnectSpillMessages());
+
+        CapturingDataPort port = new CapturingDataPort();
+        writer.start(CompletableFuture.completedFuture(port));
+        long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (nc.getNatsStatistics().getOutMsgs() < count && System.nanoTime() < end) {
+            Thread.sleep(10);
+        }
+        writer.stop().get(5, TimeUnit.SECONDS);
+
+        assertEquals(expected.toString(), new String(port.captured.toByteArray(), StandardCharsets.US_ASCII));
+
+        writer.closeReconnectSpill();
+        assertEquals(0, files());
+    }
+}
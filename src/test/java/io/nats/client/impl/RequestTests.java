@@ -22,6 +22,9 @@ import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.time.Duration;
 import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicInteger;
 
@@ -141,6 +144,136 @@ public class RequestTests extends TestBase {
         }
     }
 
+    @Test
+    public void testShardedInboxRequests() throws IOException, ExecutionException, TimeoutException, InterruptedException {
+        try (NatsTestServer ts = new NatsTestServer(false);
+                Connection nc = Nats.connect(new Options.Builder().server(ts.getURI()).inboxShards(3).maxReconnects(0).build())) {
+            assertEquals(Connection.Status.CONNECTED, nc.getStatus(), "Connected Status");
+
+            Dispatcher d = nc.createDispatcher((msg) -> nc.publish(msg.getReplyTo(), msg.getData()));
+            d.subscribe("subject");
+
+            List<Future<Message>> incoming = new ArrayList<>();
+            for (int i=0; i<30; i++) {
+                incoming.add(nc.request("subject", new byte[i]));
+            }
+
+            Set<String> inboxes = new HashSet<>();
+            for (int i=0; i<30; i++) {
+                Message msg = incoming.get(i).get(500, TimeUnit.MILLISECONDS);
+                assertEquals(i, msg.getData().length);
+                inboxes.add(msg.getSubject().substring(0, msg.getSubject().lastIndexOf('.')));
+            }
+
+            assertEquals(3, inboxes.size());
+            assertEquals(0, ((NatsStatistics)nc.getStatistics()).getOutstandingRequests());
+        }
+    }
+
+    @Test
+    public void testRequestMany() throws Exception {
+        try (NatsTestServer ts = new NatsTestServer(false);
+                Connection nc = Nats.connect(new Options.Builder().server(ts.getURI()).maxReconnects(0).build())) {
+            assertEquals(Connection.Status.CONNECTED, nc.getStatus(), "Connected Status");
+
+            for (int i = 0; i < 3; i++) {
+                int index = i;
+                Dispatcher d = nc.createDispatcher((msg) -> nc.publish(msg.getReplyTo(), new byte[index]));
+                d.subscribe("subject");
+            }
+            nc.flush(Duration.ofSeconds(1));
+
+            AtomicInteger handled = new AtomicInteger();
+            long start = System.nanoTime();
+            List<Message> replies = nc.requestMany("subject", null, 0, Duration.ofSeconds(5), Duration.ofMillis(250), (msg) -> handled.incrementAndGet())
+                .get(6, TimeUnit.SECONDS);
+            assertTrue(System.nanoTime() - start < Duration.ofSeconds(4).toNanos(), "stall timeout ends the wait");
+            assertEquals(3, replies.size());
+            assertEquals(3, handled.get());
+
+            replies = nc.requestMany("subject", null, 2, Duration.ofSeconds(5), null);
+            assertEquals(2, replies.size());
+
+            assertEquals(0, nc.requestMany("nobody", null, 0, Duration.ofSeconds(5), null).size());
+            assertEquals(0, ((NatsStatistics)nc.getStatistics()).getOutstandingRequests());
+        }
+    }
+
+    @Test
+    public void testRequestManyGathersFromTheResponseInbox() throws Exception {
+        try (NatsServerProtocolMock ts = new NatsServerProtocolMock(NatsServerProtocolMock.ExitAt.NO_EXIT);
+                Connection nc = Nats.connect(new Options.Builder().server(ts.getURI()).noNoResponders().build())) {
+            NatsConnection conn = (NatsConnection) nc;
+            List<Message> handled = new ArrayList<>();
+            CompletableFuture<List<Message>> many = nc.requestMany("subject", null, 2, Duration.ofSeconds(5), null, handled::add);
+
+            // the first response token on a connection is 0
+            conn.deliverReply(new NatsMessage(conn.createResponseInbox(0, 0), null, new byte[1]));
+            assertFalse(many.isDone());
+            conn.deliverReply(new NatsMessage(conn.createResponseInbox(0, 0), null, new byte[2]));
+
+            List<Message> replies = many.get(1, TimeUnit.SECONDS);
+            assertEquals(2, replies.size());
+            assertEquals(1, replies.get(0).getData().length);
+            assertEquals(2, replies.get(1).getData().length);
+            assertEquals(replies, handled);
+
+            NatsStatistics stats = (NatsStatistics) nc.getStatistics();
+            assertEquals(0, stats.getOutstandingRequests());
+            assertEquals(2, stats.getRepliesReceived());
+
+            conn.deliverReply(new NatsMessage(conn.createResponseInbox(0, 0), null, new byte[3]));
+            assertEquals(1, stats.getOrphanRepliesReceived());
+        }
+    }
+
+    @Test
+    public void testRequestManyStallTimeout() throws Exception {
+        try (NatsServerProtocolMock ts = new NatsServerProtocolMock(NatsServerProtocolMock.ExitAt.NO_EXIT);
+                Connection nc = Nats.connect(new Options.Builder().server(ts.getURI()).noNoResponders().build())) {
+            NatsConnection conn = (NatsConnection) nc;
+            CompletableFuture<List<Message>> many = nc.requestMany("subject", null, 0, Duration.ofSeconds(10), Duration.ofMillis(200), null);
+            conn.deliverReply(new NatsMessage(conn.createResponseInbox(0, 0), null, new byte[1]));
+
+            assertEquals(1, many.get(5, TimeUnit.SECONDS).size());
+            assertEquals(0, ((NatsStatistics)nc.getStatistics()).getOutstandingRequests());
+
+            assertThrows(IllegalArgumentException.class, () -> nc.requestMany("subject", null, 0, Duration.ZERO, null));
+            assertThrows(IllegalArgumentException.class, () -> nc.requestMany("subject", null, 0, null, null, null));
+        }
+    }
+
+    @Test
+    public void testRequestManyFailureCleansUp() throws Exception {
+        try (NatsServerProtocolMock ts = new NatsServerProtocolMock(NatsServerProtocolMock.ExitAt.NO_EXIT);
+                Connection nc = Nats.connect(new Options.Builder().server(ts.getURI()).noNoResponders().build())) {
+            NatsConnection conn = (NatsConnection) nc;
+            CompletableFuture<List<Message>> many = nc.requestMany("subject", null, 0, Duration.ofSeconds(10), Duration.ofSeconds(5), null);
+            assertEquals(1, ((NatsStatistics)nc.getStatistics()).getOutstandingRequests());
+
+            many.completeExceptionally(new IOException("failed"));
+            ExecutionException e = assertThrows(ExecutionException.class, () -> many.get(1, TimeUnit.SECONDS));
+            assertTrue(e.getCause() instanceof IOException);
+            assertEquals(0, ((NatsStatistics)nc.getStatistics()).getOutstandingRequests());
+
+            // a reply after the failure is an orphan
+            conn.deliverReply(new NatsMessage(conn.createResponseInbox(0, 0), null, new byte[1]));
+            assertEquals(1, ((NatsStatistics)nc.getStatistics()).getOrphanRepliesReceived());
+        }
+    }
+
+    @Test
+    public void testRequestManyCompletesOnClose() throws Exception {
+        NatsServerProtocolMock ts = new NatsServerProtocolMock(NatsServerProtocolMock.ExitAt.NO_EXIT);
+        Connection nc = Nats.connect(new Options.Builder().server(ts.getURI()).noNoResponders().build());
+        NatsConnection conn = (NatsConnection) nc;
+        CompletableFuture<List<Message>> many = nc.requestMany("subject", null, 0, Duration.ofSeconds(10), null, null);
+        conn.deliverReply(new NatsMessage(conn.createResponseInbox(0, 0), null, new byte[1]));
+        nc.close();
+        ts.close();
+        assertEquals(1, many.get(1, TimeUnit.SECONDS).size());
+    }
+
     @Test
     public void testMultipleReplies() throws Exception {
         Options.Builder builder = new Options.Builder().turnOnAdvancedStats();
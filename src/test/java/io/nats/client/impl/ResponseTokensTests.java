@@ -0,0 +1,53 @@
+// Copyright 2021 The NATS Authors
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+
+package io.nats.client.impl;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ResponseTokensTests {
+
+    private static final char[] PREFIX = "_INBOX.abc.".toCharArray();
+
+    @Test
+    public void testRoundTrip() {
+        long[] tokens = {0, 1, 61, 62, 3843, 3844, 1_000_000_007L, Long.MAX_VALUE};
+        for (long token : tokens) {
+            String subject = ResponseTokens.subject(PREFIX, token);
+            assertTrue(subject.startsWith("_INBOX.abc."));
+            assertEquals(PREFIX.length + ResponseTokens.length(token), subject.length());
+            assertEquals(token, ResponseTokens.parse(subject, PREFIX.length), subject);
+        }
+    }
+
+    @Test
+    public void testEncoding() {
+        assertEquals("_INBOX.abc.0", ResponseTokens.subject(PREFIX, 0));
+        assertEquals("_INBOX.abc.z", ResponseTokens.subject(PREFIX, 61));
+        assertEquals("_INBOX.abc.10", ResponseTokens.subject(PREFIX, 62));
+        assertEquals(11, ResponseTokens.length(Long.MAX_VALUE));
+    }
+
+    @Test
+    public void testInvalidTokens() {
+        assertEquals(-1, ResponseTokens.parse("_INBOX.abc.", PREFIX.length));
+        assertEquals(-1, ResponseTokens.parse("_INBOX.abc", PREFIX.length));
+        assertEquals(-1, ResponseTokens.parse("_INBOX.abc.a-b", PREFIX.length));
+        assertEquals(-1, ResponseTokens.parse("_INBOX.abc.a.b", PREFIX.length));
+        assertEquals(-1, ResponseTokens.parse("_INBOX.abc.zzzzzzzzzzz", PREFIX.length));
+        assertEquals(-1, ResponseTokens.parse("_INBOX.abc.000000000000", PREFIX.length));
+    }
+}
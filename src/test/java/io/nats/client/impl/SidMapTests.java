@@ -0,0 +1,131 @@
+// Copyright 2021 The NATS Authors
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package io.nats.client.impl;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SidMapTests {
+
+    @Test
+    public void testPutGetRemove() {
+        SidMap<String> map = new SidMap<>();
+        assertNull(map.get(1));
+
+        assertNull(map.put(1, "one"));
+        assertNull(map.put(2, "two"));
+        assertEquals("one", map.get(1));
+        assertEquals("two", map.get(2));
+        assertEquals(2, map.size());
+
+        assertEquals("one", map.put(1, "uno"));
+        assertEquals("uno", map.get(1));
+        assertEquals(2, map.size());
+
+        assertEquals("uno", map.putIfAbsent(1, "eins"));
+        assertNull(map.putIfAbsent(3, "three"));
+        assertEquals("three", map.get(3));
+
+        assertEquals("two", map.remove(2));
+        assertNull(map.remove(2));
+        assertNull(map.get(2));
+        assertEquals(2, map.size());
+
+        assertEquals(new HashSet<>(map.values()), new HashSet<>(java.util.Arrays.asList("uno", "three")));
+
+        map.clear();
+        assertEquals(0, map.size());
+        assertNull(map.get(1));
+        assertTrue(map.values().isEmpty());
+    }
+
+    @Test
+    public void testGrowAndChurn() {
+        SidMap<Long> map = new SidMap<>();
+        for (long sid = 1; sid <= 10_000; sid++) {
+            map.put(sid, sid);
+        }
+        assertEquals(10_000, map.size());
+        for (long sid = 1; sid <= 10_000; sid++) {
+            assertEquals(sid, map.get(sid));
+        }
+
+        // subscribe / unsubscribe churn leaves removed markers behind, lookups must keep working
+        for (long sid = 10_001; sid <= 200_000; sid++) {
+            map.put(sid, sid);
+            assertEquals(sid - 10_000, map.remove(sid - 10_000));
+        }
+        assertEquals(10_000, map.size());
+        assertNull(map.get(1));
+        for (long sid = 190_001; sid <= 200_000; sid++) {
+            assertEquals(sid, map.get(sid));
+        }
+    }
+
+    @Test
+    public void testReadsWhileWriting() throws Exception {
+        SidMap<Long> map = new SidMap<>();
+        map.put(0, 0L);
+        AtomicBoolean done = new AtomicBoolean();
+
+        CompletableFuture<Boolean> reader = CompletableFuture.supplyAsync(() -> {
+            while (!done.get()) {
+                if (map.get(0) == null) {
+                    return false;
+                }
+            }
+            return true;
+        });
+
+        for (long sid = 1; sid <= 50_000; sid++) {
+            map.put(sid, sid);
+            if (sid % 2 == 0) {
+                map.remove(sid - 1);
+            }
+        }
+        done.set(true);
+
+        assertTrue(reader.get());
+    }
+
+    @Test
+    public void testReplaceNeverHidesTheSid() throws Exception {
+        SidMap<Long> map = new SidMap<>();
+        map.put(7, 0L);
+        AtomicBoolean done = new AtomicBoolean();
+
+        CompletableFuture<Boolean> reader = CompletableFuture.supplyAsync(() -> {
+            while (!done.get()) {
+                if (map.get(7) == null) {
+                    return false;
+                }
+            }
+            return true;
+        });
+
+        for (long v = 1; v <= 200_000; v++) {
+            map.put(7, v);
+        }
+        done.set(true);
+
+        assertTrue(reader.get());
+        assertEquals(200_000L, map.get(7));
+        assertEquals(1, map.size());
+    }
+}
@@ -0,0 +1,85 @@
+// Copyright 2021 The NATS Authors
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package io.nats.client.impl;
+
+import io.nats.client.Options;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SubjectCacheTests {
+
+    @Test
+    public void testHitsShareTheSameString() {
+        NatsStatistics stats = new NatsStatistics(false);
+        SubjectCache cache = new SubjectCache(16, StandardCharsets.US_ASCII, stats);
+
+        byte[] line = "foo.bar 1 5".getBytes(StandardCharsets.US_ASCII);
+        String first = cache.get(line, 0, 7);
+        String second = cache.get(line.clone(), 0, 7);
+
+        assertEquals("foo.bar", first);
+        assertSame(first, second);
+        assertEquals(1, stats.getSubjectCacheHits());
+        assertEquals(1, stats.getSubjectCacheMisses());
+    }
+
+    @Test
+    public void testDifferentSubjectsAreNotConfused() {
+        NatsStatistics stats = new NatsStatistics(false);
+        SubjectCache cache = new SubjectCache(1, StandardCharsets.US_ASCII, stats);
+        assertEquals(1, cache.capacity());
+
+        byte[] a = "x subject.a".getBytes(StandardCharsets.US_ASCII);
+        byte[] b = "x subject.b".getBytes(StandardCharsets.US_ASCII);
+        for (int i = 0; i < 10; i++) {
+            assertEquals("subject.a", cache.get(a, 2, a.length));
+            assertEquals("subject.b", cache.get(b, 2, b.length));
+        }
+        assertEquals("subject", cache.get(a, 2, 9));
+        assertEquals(0, stats.getSubjectCacheHits());
+        assertEquals(21, stats.getSubjectCacheMisses());
+    }
+
+    @Test
+    public void testCapacityRoundsUpToPowerOfTwo() {
+        NatsStatistics stats = new NatsStatistics(false);
+        assertEquals(128, new SubjectCache(100, StandardCharsets.US_ASCII, stats).capacity());
+        assertEquals(256, new SubjectCache(256, StandardCharsets.US_ASCII, stats).capacity());
+    }
+
+    @Test
+    public void testReaderUsesCache() throws Exception {
+        Options options = new Options.Builder().subjectCacheSize(64).build();
+        NatsConnection nc = new NatsConnection(options);
+        NatsConnectionReader reader = nc.getReader();
+
+        for (int i = 0; i < 5; i++) {
+            byte[] bytes = "MSG subject 1 5\r\nhello\r\n".getBytes(StandardCharsets.US_ASCII);
+            reader.fakeReadForTest(bytes);
+            reader.gatherOp(bytes.length);
+            reader.gatherMessageProtocol(bytes.length);
+            reader.parseProtocolMessage();
+            reader.gatherMessageData(bytes.length);
+        }
+
+        NatsStatistics stats = nc.getNatsStatistics();
+        assertEquals(5, stats.getInMsgs());
+        assertEquals(4, stats.getSubjectCacheHits());
+        assertEquals(1, stats.getSubjectCacheMisses());
+        assertTrue(stats.toString().contains("Subject Cache Hits"));
+    }
+}
@@ -0,0 +1,124 @@
+// Copyright 2021 The NATS Authors
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package io.nats.client.impl;
+
+import io.nats.client.BatchMessageHandler;
+import io.nats.client.Message;
+import io.nats.client.MessageHandler;
+import io.nats.client.Options;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.function.Function;
+
+/**
+ * Fixtures shared by the tests that drive queues, dispatchers and the writer directly, without a server.
+ */
+final class TestFixtures {
+
+    private TestFixtures() {}
+
+    static NatsBatchDispatcher start(BatchMessageHandler handler, int maxMessages, long maxBytes, Duration linger) {
+        NatsBatchDispatcher d = new NatsBatchDispatcher(offlineConnection(), handler, maxMessages, maxBytes, linger);
+        d.start("test");
+        return d;
+    }
+
+    static NatsParallelDispatcher start(MessageHandler handler, int workers, Function<Message, String> keyExtractor) {
+        NatsParallelDispatcher d = new NatsParallelDispatcher(offlineConnection(), handler, workers, keyExtractor);
+        d.start("test");
+        return d;
+    }
+
+    static NatsConnection offlineConnection() {
+        return new NatsConnection(new Options.Builder().build());
+    }
+
+    // Pushes a message with the number as its payload straight onto the dispatcher's queue
+    static void deliver(NatsDispatcher d, NatsSubscription sub, int i) {
+        deliver(d, sub, sub.getSubject(), null, i);
+    }
+
+    static void deliver(NatsDispatcher d, NatsSubscription sub, String subject, Headers headers, int i) {
+        NatsMessage msg = new NatsMessage(subject, null, headers, Integer.toString(i).getBytes(StandardCharsets.US_ASCII));
+        msg.setSubscription(sub);
+        d.getMessageQueue().push(msg);
+    }
+
+    // A message that says which producer sent it and where it was in that producer's order
+    static NatsMessage numbered(int producer, int i) {
+        return new NatsMessage.ProtocolMessage((producer + ":" + i).getBytes(StandardCharsets.US_ASCII));
+    }
+
+    static String text(NatsMessage msg) {
+        return new String(msg.getProtocolBytes(), StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * A data port that isn't connected to anything, subclasses decide what to do with writes.
+     */
+    abstract static class StubDataPort implements DataPort {
+        @Override
+        public void connect(String serverURI, NatsConnection conn, long timeoutNanos) {}
+
+        @Override
+        public void upgradeToSecure() {}
+
+        @Override
+        public int read(byte[] dst, int off, int len) {
+            return -1;
+        }
+
+        @Override
+        public void shutdownInput() {}
+
+        @Override
+        public void close() {}
+
+        @Override
+        public void flush() {}
+    }
+
+    /**
+     * Keeps every byte written, and counts the writes and flushes.
+     */
+    static class CapturingDataPort extends StubDataPort {
+        final ByteArrayOutputStream captured = new ByteArrayOutputStream();
+        volatile int byteWrites = 0;
+        volatile int gatheringWrites = 0;
+        volatile int flushes = 0;
+
+        @Override
+        public void write(byte[] src, int toWrite) {
+            byteWrites++;
+            captured.write(src, 0, toWrite);
+        }
+
+        @Override
+        public void write(ByteBuffer[] srcs, int length) {
+            gatheringWrites++;
+            for (int i = 0; i < length; i++) {
+                ByteBuffer src = srcs[i];
+                captured.write(src.array(), src.arrayOffset() + src.position(), src.remaining());
+            }
+        }
+
+        @Override
+        public void flush() {
+            flushes++;
+        }
+    }
+}
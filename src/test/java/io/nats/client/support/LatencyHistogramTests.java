@@ -0,0 +1,78 @@
+package io.nats.client.support;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LatencyHistogramTests {
+
+    @Test
+    public void testBucketsAreExactForSmallValues() {
+        for (long v = 0; v < 2 * LatencyHistogram.SUB_BUCKETS; v++) {
+            int bucket = LatencyHistogram.bucket(v);
+            assertEquals(v, bucket);
+            assertEquals(v, LatencyHistogram.highestValue(bucket));
+        }
+    }
+
+    @Test
+    public void testBucketPrecision() {
+        for (int i = 0; i < 100_000; i++) {
+            long v = ThreadLocalRandom.current().nextLong(1L << LatencyHistogram.MAX_EXPONENT);
+            int bucket = LatencyHistogram.bucket(v);
+            long high = LatencyHistogram.highestValue(bucket);
+            assertTrue(high >= v, "bucket holds " + v);
+            assertTrue(bucket == 0 || LatencyHistogram.highestValue(bucket - 1) < v, "previous bucket is below " + v);
+            assertTrue(high - v <= v / LatencyHistogram.SUB_BUCKETS, "precision for " + v);
+        }
+        assertEquals(LatencyHistogram.BUCKETS - 1, LatencyHistogram.bucket(Long.MAX_VALUE));
+        assertEquals(LatencyHistogram.BUCKETS - 1, LatencyHistogram.bucket((1L << (LatencyHistogram.MAX_EXPONENT + 1)) - 1));
+    }
+
+    @Test
+    public void testSnapshot() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertSame(LatencyHistogram.Snapshot.EMPTY, histogram.snapshot());
+        assertEquals(0, LatencyHistogram.Snapshot.EMPTY.getValueAtPercentile(50));
+
+        for (long v = 1; v <= 1000; v++) {
+            histogram.record(v * 1000);
+        }
+        histogram.record(-5);
+
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+        assertEquals(1001, snapshot.getCount());
+        assertEquals(0, snapshot.getMin());
+        assertEquals(1_000_000, snapshot.getMax());
+        assertEquals(500_500_000.0 / 1001, snapshot.getMean(), 1);
+        assertEquals(500_000, snapshot.getValueAtPercentile(50), 500_000 / 16.0);
+        assertEquals(990_000, snapshot.getValueAtPercentile(99), 990_000 / 16.0);
+        assertEquals(1_000_000, snapshot.getValueAtPercentile(100));
+        assertEquals(0, snapshot.getValueAtPercentile(0));
+
+        histogram.record(1);
+        assertEquals(1001, snapshot.getCount(), "a snapshot doesn't change");
+        assertNotNull(snapshot.toString());
+    }
+
+    @Test
+    public void testConcurrentRecording() throws InterruptedException {
+        LatencyHistogram histogram = new LatencyHistogram();
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 10_000; i++) {
+                    histogram.record(i);
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(40_000, histogram.snapshot().getCount());
+        assertEquals(9_999, histogram.snapshot().getMax());
+    }
+}
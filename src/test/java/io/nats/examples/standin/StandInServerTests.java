@@ -0,0 +1,162 @@
+// Copyright 2021 The NATS Authors
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package io.nats.examples.standin;
+
+import io.nats.client.*;
+import io.nats.client.api.PublishAck;
+import org.junit.jupiter.api.Test;
+
+import java.net.Socket;
+import java.time.Duration;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class StandInServerTests {
+
+    private static final Duration WAIT = Duration.ofSeconds(5);
+
+    @Test
+    public void testPublishSubscribe() throws Exception {
+        try (StandInServer server = new StandInServer();
+                Connection pub = Nats.connect(server.getURI());
+                Connection sub = Nats.connect(server.getURI())) {
+            Subscription exact = sub.subscribe("orders.new");
+            Subscription wildcard = sub.subscribe("orders.*");
+            sub.flush(WAIT);
+
+            pub.publish("orders.new", "one".getBytes(UTF_8));
+            pub.publish("orders.old", "two".getBytes(UTF_8));
+
+            Message msg = exact.nextMessage(WAIT);
+            assertNotNull(msg);
+            assertEquals("one", new String(msg.getData(), UTF_8));
+            assertEquals("one", new String(wildcard.nextMessage(WAIT).getData(), UTF_8));
+            assertEquals("two", new String(wildcard.nextMessage(WAIT).getData(), UTF_8));
+            assertNull(exact.nextMessage(Duration.ofMillis(100)));
+        }
+    }
+
+    @Test
+    public void testQueueGroupDeliversOnce() throws Exception {
+        try (StandInServer server = new StandInServer();
+                Connection pub = Nats.connect(server.getURI());
+                Connection sub = Nats.connect(server.getURI())) {
+            int count = 100;
+            AtomicInteger received = new AtomicInteger();
+            CountDownLatch latch = new CountDownLatch(count);
+            MessageHandler handler = msg -> {
+                received.incrementAndGet();
+                latch.countDown();
+            };
+            Dispatcher first = sub.createDispatcher(handler);
+            Dispatcher second = sub.createDispatcher(handler);
+            first.subscribe("work", "workers");
+            second.subscribe("work", "workers");
+            sub.flush(WAIT);
+
+            for (int i = 0; i < count; i++) {
+                pub.publish("work", null);
+            }
+            assertTrue(latch.await(WAIT.toMillis(), TimeUnit.MILLISECONDS));
+            pub.flush(WAIT);
+            sub.flush(WAIT);
+            assertEquals(count, received.get());
+        }
+    }
+
+    @Test
+    public void testAutoUnsubscribe() throws Exception {
+        try (StandInServer server = new StandInServer();
+                Connection nc = Nats.connect(server.getURI())) {
+            Subscription sub = nc.subscribe("limited");
+            sub.unsubscribe(2);
+            nc.flush(WAIT);
+
+            for (int i = 0; i < 5; i++) {
+                nc.publish("limited", null);
+            }
+            nc.flush(WAIT);
+
+            assertNotNull(sub.nextMessage(WAIT));
+            assertNotNull(sub.nextMessage(WAIT));
+            assertThrows(IllegalStateException.class, () -> sub.nextMessage(Duration.ofMillis(100)));
+            assertEquals(2, sub.getDeliveredCount());
+        }
+    }
+
+    @Test
+    public void testRequestReplyAndNoResponders() throws Exception {
+        try (StandInServer server = new StandInServer();
+                Connection nc = Nats.connect(server.getURI())) {
+            Dispatcher d = nc.createDispatcher(msg -> nc.publish(msg.getReplyTo(), msg.getData()));
+            d.subscribe("echo");
+            nc.flush(WAIT);
+
+            Message reply = nc.request("echo", "hello".getBytes(UTF_8), WAIT);
+            assertNotNull(reply);
+            assertEquals("hello", new String(reply.getData(), UTF_8));
+
+            CompletableFuture<Message> nobody = nc.request("nobody", null);
+            assertThrows(CancellationException.class, () -> nobody.get(WAIT.toMillis(), TimeUnit.MILLISECONDS));
+        }
+    }
+
+    @Test
+    public void testJetStreamPublishAck() throws Exception {
+        try (StandInServer server = new StandInServer();
+                Connection nc = Nats.connect(server.getURI())) {
+            server.addStream("ORDERS", "js.orders.>");
+            JetStream js = nc.jetStream();
+
+            PublishAck ack = js.publish("js.orders.1", "one".getBytes(UTF_8));
+            assertEquals("ORDERS", ack.getStream());
+            assertEquals(1, ack.getSeqno());
+            assertEquals(2, js.publish("js.orders.2", null).getSeqno());
+        }
+    }
+
+    @Test
+    public void testSlowSubscriberDoesNotHoldUpOthers() throws Exception {
+        try (StandInServer server = new StandInServer();
+                Connection pub = Nats.connect(server.getURI());
+                Connection fast = Nats.connect(server.getURI())) {
+            // a raw subscriber that never reads from its socket
+            try (Socket stalled = new Socket("127.0.0.1", server.getPort())) {
+                stalled.getOutputStream().write("CONNECT {}\r\nSUB big 1\r\nPING\r\n".getBytes(UTF_8));
+                stalled.getOutputStream().flush();
+
+                Subscription sub = fast.subscribe("big");
+                fast.flush(WAIT);
+
+                // more than the socket buffers hold, so writes to the stalled client block
+                byte[] payload = new byte[64 * 1024];
+                int count = 200;
+                for (int i = 0; i < count; i++) {
+                    pub.publish("big", payload);
+                }
+                pub.flush(WAIT);
+
+                for (int i = 0; i < count; i++) {
+                    assertNotNull(sub.nextMessage(WAIT), "message " + i);
+                }
+            }
+        }
+    }
+}